@@ -1,73 +1,510 @@
 package com.test.dogs.api.rest.endpoint;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import org.springframework.web.bind.annotation.*;
+import com.test.dogs.api.rest.exception.DogPreconditionFailedException;
+import com.test.dogs.api.rest.model.DogBatchResult;
 import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogEvent;
+import com.test.dogs.api.rest.model.DogFields;
+import com.test.dogs.api.rest.model.DogHistoryPage;
+import com.test.dogs.api.rest.model.DogPage;
+import com.test.dogs.api.rest.model.DogQuery;
+import com.test.dogs.api.rest.model.DogStats;
+import com.test.dogs.api.rest.model.DogView;
+import com.test.dogs.api.rest.service.DogChangeTracker;
+import com.test.dogs.api.rest.service.DogEventFeed;
+import com.test.dogs.api.rest.service.DogHistory;
 import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.api.rest.service.DogStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
 
+import java.security.Principal;
 import java.util.List;
+import java.util.function.Supplier;
 
+/**
+ * The Dogs REST API on Spring MVC, served by default. With the "reactive" profile, ReactiveDogEndpoint serves the
+ * same endpoints on WebFlux instead.
+ *
+ * Responses are JSON unless the Accept header asks for CBOR, Smile or Protobuf (see DogMessageConverters).
+ */
 @RestController
 @RequestMapping("/")
+@Profile("!reactive")
 public class DogEndpoint {
 
+	/**
+	 * Response header carrying the cursor for the next page of a paginated listing.
+	 */
+	public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
+	/**
+	 * Request header with which a reconnecting Server-Sent Events client names the last event it received.
+	 */
+	public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+	/**
+	 * Newline-delimited JSON, one record per line.
+	 */
+	public static final String APPLICATION_NDJSON_VALUE = "application/x-ndjson";
+
+	private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     private final DogService dogService;
 
+	private final DogChangeTracker changeTracker;
+
+	private final ObjectWriter ndjsonWriter;
+
+	private final ObjectWriter ndjsonViewWriter;
+
+	private final DogResponseCache responseCache;
+
+	private final DogStatistics statistics;
+
+	private final DogHistory history;
+
+	private final DogEventFeed eventFeed;
+
     @Autowired
-    public DogEndpoint(DogService dogService) {
+    public DogEndpoint(DogService dogService, DogChangeTracker changeTracker, DogResponseCache responseCache,
+                       DogStatistics statistics, DogHistory history, DogEventFeed eventFeed, ObjectMapper objectMapper) {
         this.dogService = dogService;
+	    this.changeTracker = changeTracker;
+	    this.responseCache = responseCache;
+	    this.statistics = statistics;
+	    this.history = history;
+	    this.eventFeed = eventFeed;
+	    // Flushing after every record would turn each row into its own socket write
+	    this.ndjsonWriter = objectMapper.writerFor(DogDTO.class)
+			    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+	    this.ndjsonViewWriter = objectMapper.writerFor(DogView.class)
+			    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
 	/**
 	 * Handles GET requests to /api/dogs and returns a list of all dogs.
+	 * When limit or cursor is given, returns one page and sets the X-Next-Cursor header if more records follow.
+	 * With fields (e.g. fields=id,name,badgeID,status), only those columns are read and only those properties returned.
+	 * Answers 304 Not Modified, without running the query, if nothing has changed since the client's copy.
+	 * The unfiltered JSON roster is served from DogResponseCache between writes.
 	 */
 	@GetMapping
-	public ResponseEntity<List<DogDTO>> getAllDogsList(@RequestParam(name = "filter", required = false) String filter) {
-		return ResponseEntity.ok(dogService.getAllDogsList(filter));
+	public ResponseEntity<?> getAllDogsList(@RequestParam(name = "filter", required = false) String filter,
+	                                        @RequestParam(name = "limit", required = false) Integer limit,
+	                                        @RequestParam(name = "cursor", required = false) String cursor,
+	                                        @RequestParam(name = "fields", required = false) String fields,
+	                                        WebRequest request) {
+		DogFields projection = DogFields.parse(fields);
+		String format = format(request);
+		boolean cached = filter == null && limit == null && cursor == null && projection == null && format.equals("json");
+		boolean gzip = cached && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+		if (tableNotModified(request, representation(format, projection, gzip))) {
+			return null;
+		}
+		if (cached) {
+			return cachedResponse(DogResponseCache.Listing.ACTIVE, () -> dogService.getAllDogsList(null, null), gzip);
+		}
+		if (limit == null && cursor == null) {
+			return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(body(dogService.getAllDogsList(filter, projection), projection));
+		}
+		return pageResponse(dogService.getAllDogsPage(filter, cursor, limit, projection), projection);
 	}
 
 	/**
-	 * Handles GET requests to /api/dogs/{id} and returns the record for that ID.
+	 * Handles GET requests to /api/dogs/{id} and returns the record for that ID, with its version (and the format
+	 * and fields, unless it is the full JSON record) as the ETag and its modification time as Last-Modified.
+	 * Answers 304 Not Modified if the client's copy is current.
+	 * With fields, only those properties are returned; the record itself comes from the cache in full.
 	 */
     @GetMapping("/{id}")
-    public ResponseEntity<DogDTO> getDogById(@PathVariable Integer id) {
+    public ResponseEntity<?> getDogById(@PathVariable Integer id,
+                                        @RequestParam(name = "fields", required = false) String fields,
+                                        WebRequest request) {
+		DogFields projection = DogFields.parse(fields);
 		DogDTO dog = dogService.getDogById(id);
-        return ResponseEntity.ok(dog);
+		long lastModified = dog.getLastModified() != null ? dog.getLastModified().getTime() : -1;
+		if (request.checkNotModified(eTag(dog, representation(format(request), projection)), lastModified)) {
+			return null;
+		}
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(projection != null ? projection.view(dog) : dog);
     }
 
+	/**
+	 * Handles GET requests to /api/dogs/{id}/history and returns one page of the changes made to the record, oldest
+	 * first, each with the changed fields' values before and after. Takes the same limit and cursor as GET /api/dogs
+	 * and sets the X-Next-Cursor header if more entries follow. Answers 404 if there is no record with that ID.
+	 */
+	@GetMapping("/{id}/history")
+	public ResponseEntity<List<?>> getDogHistory(@PathVariable Integer id,
+	                                             @RequestParam(name = "limit", required = false) Integer limit,
+	                                             @RequestParam(name = "cursor", required = false) String cursor) {
+		dogService.getDogById(id);
+		DogHistoryPage page = history.getHistory(id, cursor, limit);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNextCursor() != null) {
+			response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		return response.body(page.getItems());
+	}
+
 	/**
 	 * Handles GET requests to /api/dogs/dogs and returns a list of all records, including any deleted records.
+	 * Supports the same limit and cursor pagination, fields, conditional requests and response cache as GET /api/dogs.
 	 */
     @GetMapping("/dogs")
-    public ResponseEntity<List<DogDTO>> getAllDogs() {
-	    return ResponseEntity.ok(dogService.getAllDogsIncludingDeleted());
+    public ResponseEntity<?> getAllDogs(@RequestParam(name = "limit", required = false) Integer limit,
+                                        @RequestParam(name = "cursor", required = false) String cursor,
+                                        @RequestParam(name = "fields", required = false) String fields,
+                                        WebRequest request) {
+	    DogFields projection = DogFields.parse(fields);
+	    String format = format(request);
+	    boolean cached = limit == null && cursor == null && projection == null && format.equals("json");
+	    boolean gzip = cached && acceptsGzip(request.getHeader(HttpHeaders.ACCEPT_ENCODING));
+	    if (tableNotModified(request, representation(format, projection, gzip))) {
+		    return null;
+	    }
+	    if (cached) {
+		    return cachedResponse(DogResponseCache.Listing.ALL, () -> dogService.getAllDogsIncludingDeleted(null), gzip);
+	    }
+	    if (limit == null && cursor == null) {
+		    return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(body(dogService.getAllDogsIncludingDeleted(projection), projection));
+	    }
+	    return pageResponse(dogService.getAllDogsIncludingDeletedPage(cursor, limit, projection), projection);
     }
 
 	/**
-	 * Handles PUT requests to /api/dogs/{id} and returns the updated record.
+	 * Handles GET requests to /api/dogs/dogs with "Accept: application/x-ndjson" and streams every record,
+	 * including deleted records, as one JSON object per line. Rows are written as they are read from the
+	 * database, so memory use stays constant regardless of the size of the table.
+	 * Supports fields like GET /api/dogs/dogs.
+	 * Answers 304 Not Modified, without starting the export, if nothing has changed since the client's copy.
+	 */
+	@GetMapping(value = "/dogs", produces = APPLICATION_NDJSON_VALUE)
+	public ResponseEntity<StreamingResponseBody> exportAllDogs(@RequestParam(name = "fields", required = false) String fields,
+	                                                           WebRequest request) {
+		DogFields projection = DogFields.parse(fields);
+		if (tableNotModified(request, representation("ndjson", projection))) {
+			return null;
+		}
+
+		StreamingResponseBody body = outputStream -> {
+			JsonGenerator generator = ndjsonWriter.getFactory().createGenerator(outputStream);
+			// Records are separated by the newline written below, not by Jackson's default space
+			generator.setRootValueSeparator(null);
+
+			dogService.streamAllDogsIncludingDeleted(projection, dog -> {
+				if (projection != null) {
+					ndjsonViewWriter.writeValue(generator, projection.view(dog));
+				} else {
+					ndjsonWriter.writeValue(generator, dog);
+				}
+				generator.writeRaw('\n');
+			});
+			generator.flush();
+		};
+
+		return ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(APPLICATION_NDJSON_VALUE))
+				.body(body);
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/search and returns the records matching a structured query: lists of values
+	 * to match, date ranges, whether to include deleted records, the sort order and a limit (see DogQuery).
+	 * With fields, only those columns are read and only those properties returned.
+	 * Unknown parameters and values that could never match are rejected with 400 Bad Request before any SQL runs.
+	 * Answers 304 Not Modified, without running the query, if nothing has changed since the client's copy.
+	 */
+	@GetMapping("/search")
+	public ResponseEntity<List<?>> findDogs(@RequestParam MultiValueMap<String, String> parameters,
+	                                        @RequestParam(name = DogQuery.FIELDS_PARAMETER, required = false) String fields,
+	                                        WebRequest request) {
+		DogQuery query = DogQuery.parse(parameters);
+		DogFields projection = DogFields.parse(fields);
+		if (tableNotModified(request, representation(format(request), projection))) {
+			return null;
+		}
+		return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(body(dogService.findDogs(query, projection), projection));
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/stats and returns the active and deleted totals, and the active dogs
+	 * counted by status, breed, supplier, leaving reason, intake month and leaving month.
+	 * The counts are kept current on every write, so the table is not read. Answers 304 Not Modified if nothing
+	 * has changed since the client's copy.
+	 */
+	@GetMapping("/stats")
+	public ResponseEntity<DogStats> getStatistics(WebRequest request) {
+		if (tableNotModified(request, "stats-" + format(request))) {
+			return null;
+		}
+		return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(statistics.get());
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/events and streams an event for every committed write as Server-Sent
+	 * Events, until the client disconnects or the request times out. A client that reconnects with the
+	 * Last-Event-ID header is first sent the events it missed, see DogEventFeed.
+	 */
+	@GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<ServerSentEvent<DogEvent>> getEvents(@RequestHeader(name = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+		return eventFeed.subscribe(lastEventId);
+	}
+
+	/**
+	 * Handles PUT requests to /api/dogs/{id} and returns the updated record with its new ETag.
+	 * With an If-Match header the update is only applied if the record is still at that version,
+	 * otherwise the response is 412 Precondition Failed.
 	 */
     @PutMapping("/{id}")
-    public ResponseEntity<DogDTO> updateDogById(@PathVariable Integer id, @RequestBody DogDTO dogDTO) {
-		DogDTO updatedRecord = dogService.updateDog(id, dogDTO);
-        return ResponseEntity.ok(updatedRecord);
+    public ResponseEntity<DogDTO> updateDogById(@PathVariable Integer id, @RequestBody DogDTO dogDTO,
+                                                @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                Principal principal, WebRequest request) {
+		DogDTO updatedRecord = dogService.updateDog(id, dogDTO, expectedVersion(ifMatch), author(principal));
+        return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).eTag(eTag(updatedRecord, format(request))).body(updatedRecord);
     }
 
 	/**
 	 * Handles POST requests to /api/dogs and returns a newly created record.
 	 */
 	@PostMapping
-	public ResponseEntity<DogDTO> create(@RequestBody DogDTO dogDTO) {
-		DogDTO newRecord = dogService.saveNewDog(dogDTO);
-		return ResponseEntity.ok(newRecord);
+	public ResponseEntity<DogDTO> create(@RequestBody DogDTO dogDTO, Principal principal, WebRequest request) {
+		DogDTO newRecord = dogService.saveNewDog(dogDTO, author(principal));
+		return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).eTag(eTag(newRecord, format(request))).body(newRecord);
+	}
+
+	/**
+	 * Handles POST requests to /api/dogs/batch and creates every valid record in the list in one transaction.
+	 * Returns 207 Multi-Status with one result per item, holding either the created record or its validation error.
+	 */
+	@PostMapping("/batch")
+	public ResponseEntity<List<DogBatchResult>> createBatch(@RequestBody List<DogDTO> dogDTOs, Principal principal) {
+		List<DogBatchResult> results = dogService.saveNewDogs(dogDTOs, author(principal));
+		return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(results);
+	}
+
+	/**
+	 * Handles PATCH requests to /api/dogs/batch and applies every partial update in the list in one transaction.
+	 * Each item carries the ID of the record and only the fields to change.
+	 * Returns 207 Multi-Status with one result per item, holding either the updated record or why it was not applied.
+	 */
+	@PatchMapping("/batch")
+	public ResponseEntity<List<DogBatchResult>> updateBatch(@RequestBody List<DogDTO> dogDTOs, Principal principal) {
+		List<DogBatchResult> results = dogService.updateDogs(dogDTOs, author(principal));
+		return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(results);
 	}
 
 	/**
 	 * Handles DELETE requests to /api/dogs/{id} and returns a confirmation message.
 	 */
 	@DeleteMapping("/{id}")
-	public ResponseEntity<String> delete(@PathVariable Integer id) {
-		dogService.markDogAsDeleted(id);
+	public ResponseEntity<String> delete(@PathVariable Integer id, Principal principal) {
+		dogService.markDogAsDeleted(id, author(principal));
 		return ResponseEntity.ok("Dog with ID " + id + " has been successfully deleted");
 	}
+
+	/**
+	 * Handles DELETE requests to /api/dogs/batch with a list of IDs and soft-deletes them in one transaction.
+	 * Returns 207 Multi-Status with one result per ID, including the IDs that were not found.
+	 */
+	@DeleteMapping("/batch")
+	public ResponseEntity<List<DogBatchResult>> deleteBatch(@RequestBody List<Long> ids, Principal principal) {
+		List<DogBatchResult> results = dogService.markDogsAsDeleted(ids, author(principal));
+		return ResponseEntity.status(HttpStatus.MULTI_STATUS).body(results);
+	}
+
+	/**
+	 * Checks the request's If-None-Match / If-Modified-Since against the table-level change tracker and,
+	 * when the client's copy is current, sets the 304 response. Otherwise adds the ETag and Last-Modified
+	 * headers for the listing about to be returned.
+	 * @return true if the handler should return without a body
+	 */
+	private boolean tableNotModified(WebRequest request, String representation) {
+		DogChangeTracker.Snapshot snapshot = changeTracker.snapshot();
+		return request.checkNotModified(snapshot.eTag(representation), snapshot.getLastModified());
+	}
+
+	/**
+	 * Answers an unfiltered JSON listing from the response cache: gzip-compressed if the client accepts it,
+	 * otherwise as plain JSON. The bytes are written as they are, without a message converter serializing them.
+	 */
+	private ResponseEntity<byte[]> cachedResponse(DogResponseCache.Listing listing, Supplier<List<?>> query, boolean gzip) {
+		DogResponseCache.Entry entry = responseCache.get(listing, query);
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.varyBy(HttpHeaders.ACCEPT, HttpHeaders.ACCEPT_ENCODING);
+		if (gzip) {
+			return response.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(entry.getGzip());
+		}
+		return response.body(entry.getJson());
+	}
+
+	/**
+	 * Whether an Accept-Encoding header allows gzip: listed by name or as "*", without q=0.
+	 */
+	static boolean acceptsGzip(String acceptEncoding) {
+		if (acceptEncoding == null) {
+			return false;
+		}
+		Double gzip = null;
+		Double any = null;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.trim().split(";");
+			String name = parts[0].trim();
+			if (name.equalsIgnoreCase("gzip")) {
+				gzip = quality(parts);
+			} else if (name.equals("*")) {
+				any = quality(parts);
+			}
+		}
+		// An explicit gzip entry takes precedence over "*"
+		Double quality = gzip != null ? gzip : any;
+		return quality != null && quality > 0;
+	}
+
+	private static double quality(String[] codingParts) {
+		for (int i = 1; i < codingParts.length; i++) {
+			String parameter = codingParts[i].trim();
+			if (parameter.startsWith("q=")) {
+				try {
+					return Double.parseDouble(parameter.substring(2));
+				} catch (NumberFormatException e) {
+					return 0;
+				}
+			}
+		}
+		return 1;
+	}
+
+	/**
+	 * The format a listing will be written in, from the request's Accept header: the first of the binary formats
+	 * listed before JSON or a wildcard, otherwise JSON. Kept in the table-level ETag, since each format is a
+	 * different representation of the same table.
+	 */
+	static String format(WebRequest request) {
+		String accept = request.getHeader(HttpHeaders.ACCEPT);
+		if (accept == null) {
+			return "json";
+		}
+		try {
+			for (MediaType mediaType : MediaType.parseMediaTypes(accept)) {
+				if (mediaType.getQualityValue() == 0) {
+					continue;
+				}
+				if (MediaType.APPLICATION_CBOR.equalsTypeAndSubtype(mediaType)) {
+					return "cbor";
+				}
+				if (SMILE.equalsTypeAndSubtype(mediaType)) {
+					return "smile";
+				}
+				if (DogProtobufHttpMessageConverter.APPLICATION_PROTOBUF.equalsTypeAndSubtype(mediaType)
+						|| DogProtobufHttpMessageConverter.APPLICATION_PROTOBUF_REGISTERED.equalsTypeAndSubtype(mediaType)) {
+					return "protobuf";
+				}
+				if (mediaType.includes(MediaType.APPLICATION_JSON)) {
+					return "json";
+				}
+			}
+		} catch (InvalidMediaTypeException e) {
+			// Content negotiation rejects the request before a body is written
+		}
+		return "json";
+	}
+
+	/**
+	 * The name of a listing representation in its table-level ETag: the format, plus the fields if they were limited.
+	 */
+	static String representation(String format, DogFields projection) {
+		return projection != null ? format + "-" + projection.getKey() : format;
+	}
+
+	/**
+	 * The name of a listing representation, with "-gzip" if it is sent gzip-compressed: a strong ETag differs
+	 * between content codings.
+	 */
+	private static String representation(String format, DogFields projection, boolean gzip) {
+		return gzip ? representation(format, projection) + "-gzip" : representation(format, projection);
+	}
+
+	/**
+	 * The records as the response body: as they are, or as views with only the requested fields.
+	 */
+	private static List<?> body(List<DogDTO> dogs, DogFields projection) {
+		return projection != null ? projection.view(dogs) : dogs;
+	}
+
+	/**
+	 * The strong ETag of a record as JSON: its version, which changes on every write. Null if there is no version.
+	 */
+	static String eTag(DogDTO dog) {
+		return eTag(dog, "json");
+	}
+
+	/**
+	 * The strong ETag of a record in the given representation: its version, followed by the representation unless
+	 * it is the full JSON record, since each representation has different bytes. Null if there is no version.
+	 */
+	static String eTag(DogDTO dog, String representation) {
+		if (dog == null || dog.getVersion() == null) {
+			return null;
+		}
+		return "\"" + dog.getVersion() + (representation.equals("json") ? "" : "-" + representation) + "\"";
+	}
+
+	/**
+	 * The author recorded with a write: the authenticated user of the request, or null if it is not authenticated.
+	 */
+	static String author(Principal principal) {
+		return principal != null ? principal.getName() : null;
+	}
+
+	/**
+	 * Reads the version from an If-Match header, or null when there is none or it is "*". The ETag of any
+	 * representation of the record will do: its format suffix is ignored.
+	 * @throws DogPreconditionFailedException if the header is not a strong ETag this API could have issued
+	 */
+	static Long expectedVersion(String ifMatch) {
+		if (ifMatch == null || ifMatch.trim().equals("*")) {
+			return null;
+		}
+
+		String tag = ifMatch.trim();
+		if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+			String value = tag.substring(1, tag.length() - 1);
+			int suffix = value.indexOf('-');
+			try {
+				return Long.parseLong(suffix > 0 ? value.substring(0, suffix) : value);
+			} catch (NumberFormatException e) {
+				// Not one of our ETags, so it cannot match
+			}
+		}
+		throw new DogPreconditionFailedException("If-Match does not match the current version of the dog.");
+	}
+
+	/**
+	 * Returns the records of a page as the body, with the next-page cursor in the X-Next-Cursor header.
+	 */
+	private ResponseEntity<List<?>> pageResponse(DogPage page, DogFields projection) {
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT);
+		if (page.getNextCursor() != null) {
+			response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		return response.body(body(page.getItems(), projection));
+	}
 }
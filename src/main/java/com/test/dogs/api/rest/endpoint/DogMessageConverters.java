@@ -0,0 +1,49 @@
+package com.test.dogs.api.rest.endpoint;
+
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.List;
+
+/**
+ * The response formats of DogEndpoint besides JSON, chosen by the Accept header:
+ * CBOR (application/cbor), Smile (application/x-jackson-smile) and Protobuf (application/x-protobuf).
+ * JSON stays the default, for requests without an Accept header or with a wildcard.
+ *
+ * Spring MVC registers CBOR and Smile converters on its own when the Jackson modules are present, but with a
+ * plain ObjectMapper. They are replaced here by ones built like the JSON ObjectMapper, so the binary formats
+ * carry the same property names and date values as JSON, only encoded more compactly.
+ */
+@Component
+@Profile("!reactive")
+public class DogMessageConverters implements WebMvcConfigurer {
+
+	private final ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders;
+
+	@Autowired
+	public DogMessageConverters(ObjectProvider<Jackson2ObjectMapperBuilder> objectMapperBuilders) {
+		this.objectMapperBuilders = objectMapperBuilders;
+	}
+
+	@Override
+	public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+		converters.removeIf(converter -> converter instanceof MappingJackson2CborHttpMessageConverter
+				|| converter instanceof MappingJackson2SmileHttpMessageConverter);
+
+		// The builder is a prototype, so each format starts from a fresh one with the application's settings
+		converters.add(new MappingJackson2SmileHttpMessageConverter(
+				objectMapperBuilders.getObject().factory(new SmileFactory()).build()));
+		converters.add(new MappingJackson2CborHttpMessageConverter(
+				objectMapperBuilders.getObject().factory(new CBORFactory()).build()));
+		converters.add(new DogProtobufHttpMessageConverter());
+	}
+}
@@ -0,0 +1,236 @@
+package com.test.dogs.api.rest.endpoint;
+
+import com.google.protobuf.CodedOutputStream;
+import com.google.protobuf.WireFormat;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogField;
+import com.test.dogs.api.rest.model.DogView;
+import com.test.dogs.api.rest.model.ErrorResponse;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.http.converter.HttpMessageNotWritableException;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Writes records, lists of records and error responses in the Protobuf wire format of src/main/proto/dogs.proto,
+ * for clients that send "Accept: application/x-protobuf". Records are encoded straight from DogDTO with the
+ * protobuf runtime's CodedOutputStream, so there are no generated message classes to copy the records into.
+ *
+ * A DogView is written with only the fields of its fieldset, and null values are never written.
+ * Request bodies are not read in this format.
+ */
+public class DogProtobufHttpMessageConverter extends AbstractGenericHttpMessageConverter<Object> {
+
+	public static final String APPLICATION_PROTOBUF_VALUE = "application/x-protobuf";
+
+	public static final MediaType APPLICATION_PROTOBUF = MediaType.parseMediaType(APPLICATION_PROTOBUF_VALUE);
+
+	// The registered name of the same format, also accepted
+	static final MediaType APPLICATION_PROTOBUF_REGISTERED = MediaType.parseMediaType("application/protobuf");
+
+	private static final List<DogField> ALL_FIELDS = Arrays.asList(DogField.values());
+
+	// DogList.dogs
+	private static final int DOGS_TAG = 1;
+
+	// Error
+	private static final int ERROR_MESSAGE_TAG = 1;
+	private static final int ERROR_STATUS_TAG = 2;
+	private static final int ERROR_ERROR_TAG = 3;
+	private static final int ERROR_PATH_TAG = 4;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	public DogProtobufHttpMessageConverter() {
+		super(APPLICATION_PROTOBUF, APPLICATION_PROTOBUF_REGISTERED);
+	}
+
+	@Override
+	protected boolean supports(Class<?> clazz) {
+		return DogDTO.class.isAssignableFrom(clazz) || DogView.class.isAssignableFrom(clazz)
+				|| ErrorResponse.class.isAssignableFrom(clazz) || List.class.isAssignableFrom(clazz);
+	}
+
+	/**
+	 * Accepts lists only when their declared element type could be a record, so that for example a list of
+	 * batch results is answered with 406 Not Acceptable instead of failing half-way through writing.
+	 * A body declared as ResponseEntity<?> is judged by its runtime class.
+	 */
+	@Override
+	public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+		if (!canWrite(mediaType)) {
+			return false;
+		}
+		ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+		Class<?> raw = resolved.toClass();
+		if (List.class.isAssignableFrom(raw)) {
+			Class<?> element = resolved.asCollection().getGeneric(0).toClass();
+			return element == Object.class || element == DogDTO.class || element == DogView.class;
+		}
+		return supports(raw) || (raw == Object.class && supports(clazz));
+	}
+
+	@Override
+	public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	protected boolean canRead(MediaType mediaType) {
+		return false;
+	}
+
+	@Override
+	public Object read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("Request bodies are not accepted as Protobuf", inputMessage);
+	}
+
+	@Override
+	protected Object readInternal(Class<?> clazz, HttpInputMessage inputMessage) {
+		throw new HttpMessageNotReadableException("Request bodies are not accepted as Protobuf", inputMessage);
+	}
+
+	@Override
+	protected void writeInternal(Object body, Type type, HttpOutputMessage outputMessage) throws IOException {
+		CodedOutputStream output = CodedOutputStream.newInstance(outputMessage.getBody(), BUFFER_SIZE);
+		write(body, output);
+		output.flush();
+	}
+
+	/**
+	 * Writes a body as the message of dogs.proto that matches it: Dog, DogList or Error.
+	 */
+	public static void write(Object body, CodedOutputStream output) throws IOException {
+		if (body instanceof List<?> list) {
+			for (Object item : list) {
+				output.writeTag(DOGS_TAG, WireFormat.WIRETYPE_LENGTH_DELIMITED);
+				output.writeUInt32NoTag(dogSize(item));
+				writeDog(item, output);
+			}
+		} else if (body instanceof ErrorResponse error) {
+			writeError(error, output);
+		} else {
+			writeDog(body, output);
+		}
+	}
+
+	private static void writeDog(Object item, CodedOutputStream output) throws IOException {
+		DogDTO dog = dog(item);
+		for (DogField field : fields(item)) {
+			Object value = field.valueOf(dog);
+			if (value != null) {
+				writeValue(tag(field), value, output);
+			}
+		}
+	}
+
+	private static int dogSize(Object item) {
+		DogDTO dog = dog(item);
+		int size = 0;
+		for (DogField field : fields(item)) {
+			Object value = field.valueOf(dog);
+			if (value != null) {
+				size += valueSize(tag(field), value);
+			}
+		}
+		return size;
+	}
+
+	private static void writeError(ErrorResponse error, CodedOutputStream output) throws IOException {
+		if (error.getMessage() != null) {
+			output.writeString(ERROR_MESSAGE_TAG, error.getMessage());
+		}
+		output.writeInt32(ERROR_STATUS_TAG, error.getStatus());
+		if (error.getError() != null) {
+			output.writeString(ERROR_ERROR_TAG, error.getError());
+		}
+		if (error.getPath() != null) {
+			output.writeString(ERROR_PATH_TAG, error.getPath());
+		}
+	}
+
+	private static void writeValue(int tag, Object value, CodedOutputStream output) throws IOException {
+		if (value instanceof String string) {
+			output.writeString(tag, string);
+		} else if (value instanceof Integer integer) {
+			output.writeInt32(tag, integer);
+		} else if (value instanceof Long number) {
+			output.writeInt64(tag, number);
+		} else if (value instanceof Timestamp timestamp) {
+			output.writeInt64(tag, timestamp.getTime());
+		} else if (value instanceof Date date) {
+			output.writeInt32(tag, epochDay(date));
+		} else {
+			throw new HttpMessageNotWritableException("No Protobuf encoding for " + value.getClass().getName());
+		}
+	}
+
+	private static int valueSize(int tag, Object value) {
+		if (value instanceof String string) {
+			return CodedOutputStream.computeStringSize(tag, string);
+		} else if (value instanceof Integer integer) {
+			return CodedOutputStream.computeInt32Size(tag, integer);
+		} else if (value instanceof Long number) {
+			return CodedOutputStream.computeInt64Size(tag, number);
+		} else if (value instanceof Timestamp timestamp) {
+			return CodedOutputStream.computeInt64Size(tag, timestamp.getTime());
+		} else if (value instanceof Date date) {
+			return CodedOutputStream.computeInt32Size(tag, epochDay(date));
+		}
+		throw new HttpMessageNotWritableException("No Protobuf encoding for " + value.getClass().getName());
+	}
+
+	/**
+	 * The calendar day of a date, as days since 1970-01-01: the same day the JSON representation shows.
+	 */
+	private static int epochDay(Date date) {
+		return (int) date.toLocalDate().toEpochDay();
+	}
+
+	private static DogDTO dog(Object item) {
+		if (item instanceof DogDTO dog) {
+			return dog;
+		}
+		if (item instanceof DogView view) {
+			return view.getDog();
+		}
+		throw new HttpMessageNotWritableException("Cannot write " + (item != null ? item.getClass().getName() : "null") + " as Protobuf");
+	}
+
+	private static List<DogField> fields(Object item) {
+		return item instanceof DogView view ? view.getFields().getFields() : ALL_FIELDS;
+	}
+
+	/**
+	 * The field number of a property in the Dog message of dogs.proto.
+	 */
+	static int tag(DogField field) {
+		return switch (field) {
+			case ID -> 1;
+			case NAME -> 2;
+			case BREED -> 3;
+			case SUPPLIER -> 4;
+			case BADGE_ID -> 5;
+			case GENDER -> 6;
+			case BIRTH_DATE -> 7;
+			case DATE_ACQUIRED -> 8;
+			case STATUS -> 9;
+			case LEAVING_DATE -> 10;
+			case LEAVING_REASON -> 11;
+			case KENNELING_CHARACTERISTICS -> 12;
+			case DATE_DELETED -> 13;
+			case VERSION -> 14;
+			case LAST_MODIFIED -> 15;
+		};
+	}
+}
@@ -0,0 +1,198 @@
+package com.test.dogs.api.rest.endpoint;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.test.dogs.api.rest.exception.DogServiceException;
+import com.test.dogs.api.rest.service.DogBatchChangedEvent;
+import com.test.dogs.api.rest.service.DogChangeTracker;
+import com.test.dogs.api.rest.service.DogChangedEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The unfiltered listings (GET / and GET /dogs) as JSON bytes, plain and gzip-compressed, so that the callers
+ * polling them between writes are answered without a query, without mapping rows and without serializing.
+ *
+ * Each entry is stamped with the DogChangeTracker change count it was read at, and only served while the count
+ * is unchanged. Entries are also dropped on every DogChangedEvent, so a stale roster is never held in memory
+ * longer than the next write. Concurrent misses for the same listing share a single load, run on the calling
+ * thread, as in DogCache.
+ * Hit and miss counts are published as dogs.response.cache tagged with the result.
+ */
+@Component
+@Profile("!reactive")
+public class DogResponseCache implements MeterBinder {
+
+	/**
+	 * The cached listings.
+	 */
+	public enum Listing {
+		// GET /
+		ACTIVE,
+		// GET /dogs
+		ALL
+	}
+
+	private final DogChangeTracker changeTracker;
+
+	private final ObjectWriter writer;
+
+	private final Map<Listing, CompletableFuture<Entry>> entries = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+
+	@Autowired
+	public DogResponseCache(DogChangeTracker changeTracker, ObjectMapper objectMapper) {
+		this.changeTracker = changeTracker;
+		// The same ObjectMapper the JSON message converter writes with, so the bytes are what it would have written
+		this.writer = objectMapper.writerFor(List.class);
+	}
+
+	/**
+	 * Returns the serialized listing for the current state of the table, loading and serializing it with the
+	 * given query on a miss. A shared load that turns out to have been stamped with another change count, because
+	 * a write was counted while it ran, is dropped and the listing loaded again.
+	 */
+	public Entry get(Listing listing, Supplier<List<?>> query) {
+		while (true) {
+			// Taken before the query, so an entry is never stamped with a count newer than its body
+			long changeCount = changeTracker.snapshot().getChangeCount();
+
+			CompletableFuture<Entry> entry = entries.get(listing);
+			if (entry != null && entry.isDone() && !entry.isCompletedExceptionally() && entry.join().changeCount != changeCount) {
+				entries.remove(listing, entry);
+				entry = null;
+			}
+
+			if (entry == null) {
+				CompletableFuture<Entry> loading = new CompletableFuture<>();
+				entry = entries.putIfAbsent(listing, loading);
+				if (entry == null) {
+					misses.increment();
+					try {
+						loading.complete(new Entry(changeCount, serialize(query.get())));
+					} catch (RuntimeException e) {
+						// Failed loads are not cached; callers waiting on this one see the same exception
+						entries.remove(listing, loading);
+						loading.completeExceptionally(e);
+						throw e;
+					}
+					return loading.join();
+				}
+			}
+
+			Entry loaded;
+			try {
+				loaded = entry.join();
+			} catch (CompletionException e) {
+				throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+			}
+			if (loaded.changeCount == changeCount) {
+				hits.increment();
+				return loaded;
+			}
+			// Another request's load, started on the other side of a write
+			entries.remove(listing, entry);
+		}
+	}
+
+	/**
+	 * Drops every cached listing after a committed write, once the read models the listings are loaded from have
+	 * applied it.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.TRACKER_ORDER)
+	public void onDogChanged(DogChangedEvent event) {
+		invalidateAll();
+	}
+
+	/**
+	 * Drops every cached listing after a committed batch write.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.TRACKER_ORDER)
+	public void onDogsChanged(DogBatchChangedEvent batch) {
+		invalidateAll();
+	}
+
+	/**
+	 * Drops every cached listing.
+	 */
+	public void invalidateAll() {
+		entries.clear();
+	}
+
+	private byte[] serialize(List<?> body) {
+		try {
+			return writer.writeValueAsBytes(body);
+		} catch (JsonProcessingException e) {
+			throw new DogServiceException("Error while serializing dogs: " + e.getMessage(), e);
+		}
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("dogs.response.cache", hits, LongAdder::sum)
+				.description("Requests for the unfiltered listings by whether the serialized response was cached")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("dogs.response.cache", misses, LongAdder::sum)
+				.description("Requests for the unfiltered listings by whether the serialized response was cached")
+				.tag("result", "miss")
+				.register(registry);
+	}
+
+	/**
+	 * A serialized listing: the JSON bytes and their gzip encoding, both computed once when the entry is loaded.
+	 */
+	public static final class Entry {
+
+		private final long changeCount;
+		private final byte[] json;
+		private final byte[] gzip;
+
+		private Entry(long changeCount, byte[] json) {
+			this.changeCount = changeCount;
+			this.json = json;
+			this.gzip = gzip(json);
+		}
+
+		public byte[] getJson() {
+			return json;
+		}
+
+		public byte[] getGzip() {
+			return gzip;
+		}
+
+		private static byte[] gzip(byte[] bytes) {
+			ByteArrayOutputStream compressed = new ByteArrayOutputStream(bytes.length / 4 + 64);
+			try (GZIPOutputStream output = new GZIPOutputStream(compressed, 8192)) {
+				output.write(bytes);
+			} catch (IOException e) {
+				// Not thrown by an in-memory stream
+				throw new IllegalStateException(e);
+			}
+			return compressed.toByteArray();
+		}
+	}
+}
@@ -0,0 +1,305 @@
+package com.test.dogs.api.rest.endpoint;
+
+import com.test.dogs.api.rest.model.DogBatchResult;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogEvent;
+import com.test.dogs.api.rest.model.DogFields;
+import com.test.dogs.api.rest.model.DogHistoryEntry;
+import com.test.dogs.api.rest.model.DogHistoryPage;
+import com.test.dogs.api.rest.model.DogPage;
+import com.test.dogs.api.rest.model.DogQuery;
+import com.test.dogs.api.rest.model.DogStats;
+import com.test.dogs.api.rest.service.DogChangeTracker;
+import com.test.dogs.api.rest.service.DogEventFeed;
+import com.test.dogs.api.rest.service.DogHistory;
+import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.api.rest.service.DogStatistics;
+import com.test.dogs.api.rest.service.ReactiveDogService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebExchange;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * The Dogs REST API on WebFlux, served instead of DogEndpoint when the "reactive" profile is active.
+ * Offers the same endpoints, parameters, headers and status codes, backed by ReactiveDogService, so that
+ * requests never hold a server thread while waiting for the database.
+ *
+ * Unpaged listings are returned as a Flux and written as a JSON array (or NDJSON for the export) while the
+ * rows are read, with backpressure from the connection: a slow client slows the read instead of buffering
+ * the table in memory.
+ */
+@RestController
+@RequestMapping("/")
+@Profile("reactive")
+public class ReactiveDogEndpoint {
+
+	private final ReactiveDogService reactiveDogService;
+
+	// The batch and search endpoints run the JDBC statements of DogService, off the event loop
+	private final DogService dogService;
+
+	private final DogChangeTracker changeTracker;
+
+	private final DogStatistics statistics;
+
+	private final DogHistory history;
+
+	private final DogEventFeed eventFeed;
+
+	@Autowired
+	public ReactiveDogEndpoint(ReactiveDogService reactiveDogService, DogService dogService,
+	                           DogChangeTracker changeTracker, DogStatistics statistics, DogHistory history,
+	                           DogEventFeed eventFeed) {
+		this.reactiveDogService = reactiveDogService;
+		this.dogService = dogService;
+		this.changeTracker = changeTracker;
+		this.statistics = statistics;
+		this.history = history;
+		this.eventFeed = eventFeed;
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs and streams all dogs.
+	 * When limit or cursor is given, returns one page and sets the X-Next-Cursor header if more records follow.
+	 * Answers 304 Not Modified, without running the query, if nothing has changed since the client's copy.
+	 */
+	@GetMapping
+	public Mono<ResponseEntity<Flux<?>>> getAllDogsList(@RequestParam(name = "filter", required = false) String filter,
+	                                                    @RequestParam(name = "limit", required = false) Integer limit,
+	                                                    @RequestParam(name = "cursor", required = false) String cursor,
+	                                                    @RequestParam(name = "fields", required = false) String fields,
+	                                                    ServerWebExchange exchange) {
+		DogFields projection = DogFields.parse(fields);
+		if (tableNotModified(exchange, DogEndpoint.representation("json", projection))) {
+			return Mono.empty();
+		}
+		if (limit == null && cursor == null) {
+			return Mono.just(ResponseEntity.ok(body(reactiveDogService.getAllDogsList(filter, projection), projection)));
+		}
+		return reactiveDogService.getAllDogsPage(filter, cursor, limit, projection)
+				.map(page -> pageResponse(page, projection));
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/{id} and returns the record for that ID, with its version as the ETag
+	 * and its modification time as Last-Modified. Answers 304 Not Modified if the client's copy is current.
+	 */
+	@GetMapping("/{id}")
+	public Mono<ResponseEntity<?>> getDogById(@PathVariable Integer id,
+	                                          @RequestParam(name = "fields", required = false) String fields,
+	                                          ServerWebExchange exchange) {
+		DogFields projection = DogFields.parse(fields);
+		return reactiveDogService.getDogById(id).mapNotNull(dog -> {
+			Instant lastModified = dog.getLastModified() != null ? dog.getLastModified().toInstant() : null;
+			if (exchange.checkNotModified(DogEndpoint.eTag(dog, DogEndpoint.representation("json", projection)), lastModified)) {
+				return null;
+			}
+			return ResponseEntity.ok().varyBy(HttpHeaders.ACCEPT).body(projection != null ? projection.view(dog) : dog);
+		});
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/{id}/history, as DogEndpoint.getDogHistory, reading the history table over
+	 * JDBC on the bounded elastic scheduler.
+	 */
+	@GetMapping("/{id}/history")
+	public Mono<ResponseEntity<List<DogHistoryEntry>>> getDogHistory(@PathVariable Integer id,
+	                                                                 @RequestParam(name = "limit", required = false) Integer limit,
+	                                                                 @RequestParam(name = "cursor", required = false) String cursor) {
+		return reactiveDogService.getDogById(id)
+				.publishOn(Schedulers.boundedElastic())
+				.map(dog -> {
+					DogHistoryPage page = history.getHistory(id, cursor, limit);
+					ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+					if (page.getNextCursor() != null) {
+						response.header(DogEndpoint.NEXT_CURSOR_HEADER, page.getNextCursor());
+					}
+					return response.body(page.getItems());
+				});
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/dogs and streams all records, including any deleted records.
+	 * Supports the same limit and cursor pagination and conditional requests as GET /api/dogs.
+	 */
+	@GetMapping("/dogs")
+	public Mono<ResponseEntity<Flux<?>>> getAllDogs(@RequestParam(name = "limit", required = false) Integer limit,
+	                                                @RequestParam(name = "cursor", required = false) String cursor,
+	                                                @RequestParam(name = "fields", required = false) String fields,
+	                                                ServerWebExchange exchange) {
+		DogFields projection = DogFields.parse(fields);
+		if (tableNotModified(exchange, DogEndpoint.representation("json", projection))) {
+			return Mono.empty();
+		}
+		if (limit == null && cursor == null) {
+			return Mono.just(ResponseEntity.ok(body(reactiveDogService.getAllDogsIncludingDeleted(projection), projection)));
+		}
+		return reactiveDogService.getAllDogsIncludingDeletedPage(cursor, limit, projection)
+				.map(page -> pageResponse(page, projection));
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/dogs with "Accept: application/x-ndjson" and streams every record,
+	 * including deleted records, as one JSON object per line.
+	 * Answers 304 Not Modified, without starting the export, if nothing has changed since the client's copy.
+	 */
+	@GetMapping(value = "/dogs", produces = DogEndpoint.APPLICATION_NDJSON_VALUE)
+	public Mono<ResponseEntity<Flux<?>>> exportAllDogs(@RequestParam(name = "fields", required = false) String fields,
+	                                                   ServerWebExchange exchange) {
+		DogFields projection = DogFields.parse(fields);
+		if (tableNotModified(exchange, DogEndpoint.representation("ndjson", projection))) {
+			return Mono.empty();
+		}
+		return Mono.just(ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(DogEndpoint.APPLICATION_NDJSON_VALUE))
+				.body(body(reactiveDogService.streamAllDogsIncludingDeleted(projection), projection)));
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/search, as DogEndpoint.findDogs, running the query of DogService on the
+	 * bounded elastic scheduler.
+	 */
+	@GetMapping("/search")
+	public Mono<ResponseEntity<Flux<?>>> findDogs(@RequestParam MultiValueMap<String, String> parameters,
+	                                              @RequestParam(name = DogQuery.FIELDS_PARAMETER, required = false) String fields,
+	                                              ServerWebExchange exchange) {
+		DogQuery query = DogQuery.parse(parameters);
+		DogFields projection = DogFields.parse(fields);
+		if (tableNotModified(exchange, DogEndpoint.representation("json", projection))) {
+			return Mono.empty();
+		}
+		return Mono.fromCallable(() -> dogService.findDogs(query, projection))
+				.subscribeOn(Schedulers.boundedElastic())
+				.map(dogs -> ResponseEntity.ok(body(Flux.fromIterable(dogs), projection)));
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/stats, as DogEndpoint.getStatistics. Runs on the bounded elastic
+	 * scheduler, since a request that finds the counts not yet loaded loads them over JDBC.
+	 */
+	@GetMapping("/stats")
+	public Mono<ResponseEntity<DogStats>> getStatistics(ServerWebExchange exchange) {
+		if (tableNotModified(exchange, "stats-json")) {
+			return Mono.empty();
+		}
+		return Mono.fromCallable(statistics::get)
+				.subscribeOn(Schedulers.boundedElastic())
+				.map(ResponseEntity::ok);
+	}
+
+	/**
+	 * Handles GET requests to /api/dogs/events, as DogEndpoint.getEvents.
+	 */
+	@GetMapping(value = "/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+	public Flux<ServerSentEvent<DogEvent>> getEvents(@RequestHeader(name = DogEndpoint.LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+		return eventFeed.subscribe(lastEventId);
+	}
+
+	/**
+	 * Handles PUT requests to /api/dogs/{id} and returns the updated record with its new ETag.
+	 * With an If-Match header the update is only applied if the record is still at that version,
+	 * otherwise the response is 412 Precondition Failed.
+	 */
+	@PutMapping("/{id}")
+	public Mono<ResponseEntity<DogDTO>> updateDogById(@PathVariable Integer id, @RequestBody DogDTO dogDTO,
+	                                                  @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+	                                                  Principal principal) {
+		return reactiveDogService.updateDog(id, dogDTO, DogEndpoint.expectedVersion(ifMatch), DogEndpoint.author(principal))
+				.map(updatedRecord -> ResponseEntity.ok().eTag(DogEndpoint.eTag(updatedRecord)).body(updatedRecord));
+	}
+
+	/**
+	 * Handles POST requests to /api/dogs and returns a newly created record.
+	 */
+	@PostMapping
+	public Mono<ResponseEntity<DogDTO>> create(@RequestBody DogDTO dogDTO, Principal principal) {
+		return reactiveDogService.saveNewDog(dogDTO, DogEndpoint.author(principal))
+				.map(newRecord -> ResponseEntity.ok().eTag(DogEndpoint.eTag(newRecord)).body(newRecord));
+	}
+
+	/**
+	 * Handles POST requests to /api/dogs/batch, as DogEndpoint.createBatch.
+	 */
+	@PostMapping("/batch")
+	public Mono<ResponseEntity<List<DogBatchResult>>> createBatch(@RequestBody List<DogDTO> dogDTOs, Principal principal) {
+		return multiStatus(() -> dogService.saveNewDogs(dogDTOs, DogEndpoint.author(principal)));
+	}
+
+	/**
+	 * Handles PATCH requests to /api/dogs/batch, as DogEndpoint.updateBatch.
+	 */
+	@PatchMapping("/batch")
+	public Mono<ResponseEntity<List<DogBatchResult>>> updateBatch(@RequestBody List<DogDTO> dogDTOs, Principal principal) {
+		return multiStatus(() -> dogService.updateDogs(dogDTOs, DogEndpoint.author(principal)));
+	}
+
+	/**
+	 * Handles DELETE requests to /api/dogs/{id} and returns a confirmation message.
+	 */
+	@DeleteMapping("/{id}")
+	public Mono<ResponseEntity<String>> delete(@PathVariable Integer id, Principal principal) {
+		return reactiveDogService.markDogAsDeleted(id, DogEndpoint.author(principal))
+				.then(Mono.fromSupplier(() -> ResponseEntity.ok("Dog with ID " + id + " has been successfully deleted")));
+	}
+
+	/**
+	 * Handles DELETE requests to /api/dogs/batch, as DogEndpoint.deleteBatch.
+	 */
+	@DeleteMapping("/batch")
+	public Mono<ResponseEntity<List<DogBatchResult>>> deleteBatch(@RequestBody List<Long> ids, Principal principal) {
+		return multiStatus(() -> dogService.markDogsAsDeleted(ids, DogEndpoint.author(principal)));
+	}
+
+	/**
+	 * Checks the request's If-None-Match / If-Modified-Since against the table-level change tracker, as
+	 * DogEndpoint does, setting either the 304 response or the ETag and Last-Modified headers.
+	 * @return true if the handler should return without a body
+	 */
+	private boolean tableNotModified(ServerWebExchange exchange, String representation) {
+		DogChangeTracker.Snapshot snapshot = changeTracker.snapshot();
+		return exchange.checkNotModified(snapshot.eTag(representation), Instant.ofEpochMilli(snapshot.getLastModified()));
+	}
+
+	/**
+	 * Runs a DogService batch on the bounded elastic scheduler, whose threads may block on JDBC, and answers
+	 * 207 Multi-Status with its results.
+	 */
+	private static Mono<ResponseEntity<List<DogBatchResult>>> multiStatus(Callable<List<DogBatchResult>> batch) {
+		return Mono.fromCallable(batch)
+				.subscribeOn(Schedulers.boundedElastic())
+				.map(results -> ResponseEntity.status(HttpStatus.MULTI_STATUS).body(results));
+	}
+
+	/**
+	 * Returns the records of a page as the body, with the next-page cursor in the X-Next-Cursor header.
+	 */
+	private static ResponseEntity<Flux<?>> pageResponse(DogPage page, DogFields projection) {
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+		if (page.getNextCursor() != null) {
+			response.header(DogEndpoint.NEXT_CURSOR_HEADER, page.getNextCursor());
+		}
+		return response.body(body(Flux.fromIterable(page.getItems()), projection));
+	}
+
+	/**
+	 * The records as the response body: as they are, or as views with only the requested fields.
+	 */
+	private static Flux<?> body(Flux<DogDTO> dogs, DogFields projection) {
+		return projection != null ? dogs.map(projection::view) : dogs;
+	}
+}
@@ -0,0 +1,11 @@
+package com.test.dogs.api.rest.exception;
+
+public class DogPreconditionFailedException extends RuntimeException {
+    public DogPreconditionFailedException(String message) {
+        super(message);
+    }
+
+    public DogPreconditionFailedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
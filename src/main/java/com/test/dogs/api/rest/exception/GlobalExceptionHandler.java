@@ -1,18 +1,50 @@
 package com.test.dogs.api.rest.exception;
 
 import com.test.dogs.api.rest.model.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Turns exceptions into error responses, counting each one in the dogs.exceptions metric tagged with its type.
+ * With the "reactive" profile, ReactiveExceptionHandler does the same for WebFlux.
+ */
 @ControllerAdvice
+@Profile("!reactive")
 public class GlobalExceptionHandler {
 
+    private final MeterRegistry registry;
+
+    // Registered up front for the expected exceptions, so counting them does not look up tags
+    private final Counter notFoundCounter;
+    private final Counter validationCounter;
+    private final Counter preconditionFailedCounter;
+    private final Counter serviceCounter;
+
+    private final Map<Class<?>, Counter> unexpectedCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public GlobalExceptionHandler(MeterRegistry registry) {
+        this.registry = registry;
+        this.notFoundCounter = exceptionCounter(DogNotFoundException.class);
+        this.validationCounter = exceptionCounter(DogValidationException.class);
+        this.preconditionFailedCounter = exceptionCounter(DogPreconditionFailedException.class);
+        this.serviceCounter = exceptionCounter(DogServiceException.class);
+    }
+
     @ExceptionHandler(DogNotFoundException.class)
     public ResponseEntity<ErrorResponse> handleDogNotFoundException(
             DogNotFoundException ex, WebRequest request) {
+        notFoundCounter.increment();
 
         ErrorResponse errorResponse = new ErrorResponse(
             ex.getMessage(),
@@ -27,6 +59,7 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(DogValidationException.class)
     public ResponseEntity<ErrorResponse> handleDogValidationException(
             DogValidationException ex, WebRequest request) {
+        validationCounter.increment();
 
         ErrorResponse errorResponse = new ErrorResponse(
             ex.getMessage(),
@@ -38,9 +71,25 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(errorResponse, HttpStatus.BAD_REQUEST);
     }
 
+    @ExceptionHandler(DogPreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handleDogPreconditionFailedException(
+            DogPreconditionFailedException ex, WebRequest request) {
+        preconditionFailedCounter.increment();
+
+        ErrorResponse errorResponse = new ErrorResponse(
+            ex.getMessage(),
+            HttpStatus.PRECONDITION_FAILED.value(),
+            "Precondition Failed",
+            request.getDescription(false).replace("uri=", "")
+        );
+
+        return new ResponseEntity<>(errorResponse, HttpStatus.PRECONDITION_FAILED);
+    }
+
     @ExceptionHandler(DogServiceException.class)
     public ResponseEntity<ErrorResponse> handleDogServiceException(
             DogServiceException ex, WebRequest request) {
+        serviceCounter.increment();
 
         ErrorResponse errorResponse = new ErrorResponse(
             ex.getMessage(),
@@ -55,6 +104,11 @@ public class GlobalExceptionHandler {
     @ExceptionHandler(Exception.class)
     public ResponseEntity<ErrorResponse> handleGlobalException(
             Exception ex, WebRequest request) {
+        Counter counter = unexpectedCounters.get(ex.getClass());
+        if (counter == null) {
+            counter = unexpectedCounters.computeIfAbsent(ex.getClass(), this::exceptionCounter);
+        }
+        counter.increment();
 
         ErrorResponse errorResponse = new ErrorResponse(
             "An unexpected error occurred: " + ex.getMessage(),
@@ -65,4 +119,11 @@ public class GlobalExceptionHandler {
 
         return new ResponseEntity<>(errorResponse, HttpStatus.INTERNAL_SERVER_ERROR);
     }
+
+    private Counter exceptionCounter(Class<?> type) {
+        return Counter.builder("dogs.exceptions")
+                .description("Exceptions turned into error responses")
+                .tag("type", type.getSimpleName())
+                .register(registry);
+    }
 }
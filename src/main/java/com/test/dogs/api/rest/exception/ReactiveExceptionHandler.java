@@ -0,0 +1,98 @@
+package com.test.dogs.api.rest.exception;
+
+import com.test.dogs.api.rest.model.ErrorResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.server.ServerWebExchange;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The WebFlux counterpart of GlobalExceptionHandler, active with the "reactive" profile: the same status codes,
+ * the same ErrorResponse bodies and the same dogs.exceptions counters, for exceptions thrown by
+ * ReactiveDogEndpoint or signalled by the publishers it returns.
+ */
+@ControllerAdvice
+@Profile("reactive")
+public class ReactiveExceptionHandler {
+
+    private final MeterRegistry registry;
+
+    private final Counter notFoundCounter;
+    private final Counter validationCounter;
+    private final Counter preconditionFailedCounter;
+    private final Counter serviceCounter;
+
+    private final Map<Class<?>, Counter> unexpectedCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ReactiveExceptionHandler(MeterRegistry registry) {
+        this.registry = registry;
+        this.notFoundCounter = exceptionCounter(DogNotFoundException.class);
+        this.validationCounter = exceptionCounter(DogValidationException.class);
+        this.preconditionFailedCounter = exceptionCounter(DogPreconditionFailedException.class);
+        this.serviceCounter = exceptionCounter(DogServiceException.class);
+    }
+
+    @ExceptionHandler(DogNotFoundException.class)
+    public ResponseEntity<ErrorResponse> handleDogNotFoundException(
+            DogNotFoundException ex, ServerWebExchange exchange) {
+        notFoundCounter.increment();
+        return errorResponse(ex.getMessage(), HttpStatus.NOT_FOUND, "Not Found", exchange);
+    }
+
+    @ExceptionHandler(DogValidationException.class)
+    public ResponseEntity<ErrorResponse> handleDogValidationException(
+            DogValidationException ex, ServerWebExchange exchange) {
+        validationCounter.increment();
+        return errorResponse(ex.getMessage(), HttpStatus.BAD_REQUEST, "Bad Request", exchange);
+    }
+
+    @ExceptionHandler(DogPreconditionFailedException.class)
+    public ResponseEntity<ErrorResponse> handleDogPreconditionFailedException(
+            DogPreconditionFailedException ex, ServerWebExchange exchange) {
+        preconditionFailedCounter.increment();
+        return errorResponse(ex.getMessage(), HttpStatus.PRECONDITION_FAILED, "Precondition Failed", exchange);
+    }
+
+    @ExceptionHandler(DogServiceException.class)
+    public ResponseEntity<ErrorResponse> handleDogServiceException(
+            DogServiceException ex, ServerWebExchange exchange) {
+        serviceCounter.increment();
+        return errorResponse(ex.getMessage(), HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", exchange);
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<ErrorResponse> handleGlobalException(
+            Exception ex, ServerWebExchange exchange) {
+        unexpectedCounters.computeIfAbsent(ex.getClass(), this::exceptionCounter).increment();
+        return errorResponse("An unexpected error occurred: " + ex.getMessage(),
+                HttpStatus.INTERNAL_SERVER_ERROR, "Internal Server Error", exchange);
+    }
+
+    private static ResponseEntity<ErrorResponse> errorResponse(String message, HttpStatus status, String error,
+                                                               ServerWebExchange exchange) {
+        ErrorResponse errorResponse = new ErrorResponse(
+            message,
+            status.value(),
+            error,
+            exchange.getRequest().getPath().value()
+        );
+
+        return new ResponseEntity<>(errorResponse, status);
+    }
+
+    private Counter exceptionCounter(Class<?> type) {
+        return Counter.builder("dogs.exceptions")
+                .description("Exceptions turned into error responses")
+                .tag("type", type.getSimpleName())
+                .register(registry);
+    }
+}
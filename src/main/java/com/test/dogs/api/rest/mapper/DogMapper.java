@@ -3,13 +3,16 @@ package com.test.dogs.api.rest.mapper;
 import com.test.dogs.api.rest.model.DogDTO;
 import com.test.dogs.api.rest.model.DogEntity;
 import org.mapstruct.Mapper;
+import org.mapstruct.Mapping;
 
 import java.util.List;
 
 @Mapper(componentModel = "spring")
 public interface DogMapper {
 
-	// Map Entity to Model
+	// Map Entity to Model (the entity has no version or modification time)
+	@Mapping(target = "version", ignore = true)
+	@Mapping(target = "lastModified", ignore = true)
 	DogDTO toModel(DogEntity entity);
 
 	// Map Model to Entity
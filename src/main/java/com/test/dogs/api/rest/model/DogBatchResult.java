@@ -0,0 +1,91 @@
+package com.test.dogs.api.rest.model;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * The outcome for one item of a batch request. The status is the HTTP status the item would have
+ * received as a single request, and the error message is set when it was not applied.
+ */
+public class DogBatchResult {
+
+	private int index;
+	private Long id;
+	private int status;
+	private DogDTO dog;
+	private String error;
+
+	public DogBatchResult() {
+	}
+
+	public static DogBatchResult succeeded(int index, DogDTO dog, HttpStatus status) {
+		DogBatchResult result = new DogBatchResult();
+		result.index = index;
+		result.id = dog != null ? dog.getId() : null;
+		result.status = status.value();
+		result.dog = dog;
+		return result;
+	}
+
+	/**
+	 * Result for an item that was applied but has no record to return, such as a deletion.
+	 */
+	public static DogBatchResult applied(int index, Long id, HttpStatus status) {
+		DogBatchResult result = new DogBatchResult();
+		result.index = index;
+		result.id = id;
+		result.status = status.value();
+		return result;
+	}
+
+	public static DogBatchResult failed(int index, Long id, HttpStatus status, String error) {
+		DogBatchResult result = new DogBatchResult();
+		result.index = index;
+		result.id = id;
+		result.status = status.value();
+		result.error = error;
+		return result;
+	}
+
+	/**
+	 * Position of the item in the request.
+	 */
+	public int getIndex() {
+		return index;
+	}
+
+	public void setIndex(int index) {
+		this.index = index;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	public int getStatus() {
+		return status;
+	}
+
+	public void setStatus(int status) {
+		this.status = status;
+	}
+
+	public DogDTO getDog() {
+		return dog;
+	}
+
+	public void setDog(DogDTO dog) {
+		this.dog = dog;
+	}
+
+	public String getError() {
+		return error;
+	}
+
+	public void setError(String error) {
+		this.error = error;
+	}
+}
@@ -2,6 +2,7 @@ package com.test.dogs.api.rest.model;
 
 import java.io.Serializable;
 import java.sql.Date;
+import java.sql.Timestamp;
 
 public class DogDTO implements Serializable {
 
@@ -18,6 +19,37 @@ public class DogDTO implements Serializable {
 	private String leavingReason;
 	private String kennelingCharacteristics;
 	private Date dateDeleted;
+	private Long version;
+	private Timestamp lastModified;
+
+	public DogDTO() {
+	}
+
+	/**
+	 * Creates a copy of another DogDTO. The mutable java.sql.Date fields are copied as well,
+	 * so changes to the copy never reach the original.
+	 */
+	public DogDTO(DogDTO other) {
+		this.id = other.id;
+		this.name = other.name;
+		this.breed = other.breed;
+		this.supplier = other.supplier;
+		this.badgeID = other.badgeID;
+		this.gender = other.gender;
+		this.birthDate = copyOf(other.birthDate);
+		this.dateAcquired = copyOf(other.dateAcquired);
+		this.status = other.status;
+		this.leavingDate = copyOf(other.leavingDate);
+		this.leavingReason = other.leavingReason;
+		this.kennelingCharacteristics = other.kennelingCharacteristics;
+		this.dateDeleted = copyOf(other.dateDeleted);
+		this.version = other.version;
+		this.lastModified = other.lastModified != null ? (Timestamp) other.lastModified.clone() : null;
+	}
+
+	private static Date copyOf(Date date) {
+		return date != null ? new Date(date.getTime()) : null;
+	}
 
 	public Long getId() {
 		return id;
@@ -122,4 +154,26 @@ public class DogDTO implements Serializable {
 	public void setDateDeleted(Date dateDeleted) {
 		this.dateDeleted = dateDeleted;
 	}
+
+	/**
+	 * Incremented on every write to the record; used as its ETag for optimistic concurrency.
+	 */
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	/**
+	 * When the record was last written; reported as its Last-Modified header.
+	 */
+	public Timestamp getLastModified() {
+		return lastModified;
+	}
+
+	public void setLastModified(Timestamp lastModified) {
+		this.lastModified = lastModified;
+	}
 }
@@ -0,0 +1,78 @@
+package com.test.dogs.api.rest.model;
+
+import java.util.List;
+
+/**
+ * The data of one GET /events change feed event: a committed write to a dog record, without the record itself.
+ * Clients that need the new values read the record; the changed fields tell them whether they have to.
+ * The event's position in the feed is its SSE id, which clients send back as Last-Event-ID when they reconnect.
+ *
+ * A RESET event has no dog ID: the events since the client's Last-Event-ID are no longer available, and the
+ * client should read the roster again before applying the events that follow.
+ */
+public class DogEvent {
+
+	/**
+	 * The operation of the event sent when a client cannot be resumed from its Last-Event-ID.
+	 */
+	public static final String RESET = "RESET";
+
+	private Long id;
+	private String operation;
+	private List<String> fields;
+	private Long version;
+
+	public DogEvent() {
+	}
+
+	public DogEvent(Long id, String operation, List<String> fields, Long version) {
+		this.id = id;
+		this.operation = operation;
+		this.fields = fields;
+		this.version = version;
+	}
+
+	/**
+	 * The ID of the dog written, or null for a RESET.
+	 */
+	public Long getId() {
+		return id;
+	}
+
+	public void setId(Long id) {
+		this.id = id;
+	}
+
+	/**
+	 * CREATED, UPDATED, DELETED or RESET.
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	public void setOperation(String operation) {
+		this.operation = operation;
+	}
+
+	/**
+	 * The properties the write set, by name, or null for a RESET.
+	 */
+	public List<String> getFields() {
+		return fields;
+	}
+
+	public void setFields(List<String> fields) {
+		this.fields = fields;
+	}
+
+	/**
+	 * The version the write produced, or null for a RESET.
+	 */
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+}
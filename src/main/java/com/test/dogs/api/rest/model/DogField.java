@@ -0,0 +1,50 @@
+package com.test.dogs.api.rest.model;
+
+import java.util.function.Function;
+
+/**
+ * The properties of a DogDTO that can be requested with the fields parameter, in the order they are
+ * serialized, with the DOGS column each one is read from.
+ */
+public enum DogField {
+	ID("id", "ID", DogDTO::getId),
+	NAME("name", "NAME", DogDTO::getName),
+	BREED("breed", "BREED", DogDTO::getBreed),
+	SUPPLIER("supplier", "SUPPLIER", DogDTO::getSupplier),
+	BADGE_ID("badgeID", "BADGEID", DogDTO::getBadgeID),
+	GENDER("gender", "GENDER", DogDTO::getGender),
+	BIRTH_DATE("birthDate", "BIRTHDATE", DogDTO::getBirthDate),
+	DATE_ACQUIRED("dateAcquired", "DATEACQUIRED", DogDTO::getDateAcquired),
+	STATUS("status", "STATUS", DogDTO::getStatus),
+	LEAVING_DATE("leavingDate", "LEAVINGDATE", DogDTO::getLeavingDate),
+	LEAVING_REASON("leavingReason", "LEAVINGREASON", DogDTO::getLeavingReason),
+	KENNELING_CHARACTERISTICS("kennelingCharacteristics", "KENNELINGCHARACTERISTICS", DogDTO::getKennelingCharacteristics),
+	DATE_DELETED("dateDeleted", "DATEDELETED", DogDTO::getDateDeleted),
+	VERSION("version", "VERSION", DogDTO::getVersion),
+	LAST_MODIFIED("lastModified", "LASTMODIFIED", DogDTO::getLastModified);
+
+	private final String property;
+	private final String column;
+	private final Function<DogDTO, Object> getter;
+
+	DogField(String property, String column, Function<DogDTO, Object> getter) {
+		this.property = property;
+		this.column = column;
+		this.getter = getter;
+	}
+
+	/**
+	 * The JSON property name, as used in the fields parameter.
+	 */
+	public String getProperty() {
+		return property;
+	}
+
+	public String getColumn() {
+		return column;
+	}
+
+	public Object valueOf(DogDTO dog) {
+		return getter.apply(dog);
+	}
+}
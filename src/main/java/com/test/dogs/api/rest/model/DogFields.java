@@ -0,0 +1,119 @@
+package com.test.dogs.api.rest.model;
+
+import com.test.dogs.api.rest.exception.DogValidationException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A sparse fieldset: the properties requested with the fields parameter (e.g. fields=id,name,badgeID,status).
+ * Queries select only these columns, rows are mapped by column position, and records are serialized with
+ * only these properties (see DogView), so the cost of a read scales with the fields that were asked for.
+ *
+ * ID is always selected, because pagination and the search index work on it, but it is only serialized
+ * when requested.
+ */
+public final class DogFields {
+
+	private final List<DogField> fields;
+
+	// ID first, then the other requested fields in DogField order
+	private final List<DogField> columns;
+
+	private final String selectList;
+
+	private final String key;
+
+	private DogFields(Set<DogField> requested) {
+		this.fields = Collections.unmodifiableList(new ArrayList<>(requested));
+
+		List<DogField> selected = new ArrayList<>(requested.size() + 1);
+		selected.add(DogField.ID);
+		for (DogField field : requested) {
+			if (field != DogField.ID) {
+				selected.add(field);
+			}
+		}
+		this.columns = Collections.unmodifiableList(selected);
+		this.selectList = columns.stream().map(DogField::getColumn).collect(Collectors.joining(", "));
+		this.key = fields.stream().map(DogField::getProperty).collect(Collectors.joining("."));
+	}
+
+	/**
+	 * Parses a comma-separated list of property names. Names are matched ignoring case, and may repeat.
+	 * @return The fieldset, or null if the parameter was not given or is blank, meaning every field.
+	 * @throws DogValidationException if a name is not a DogDTO property
+	 */
+	public static DogFields parse(String fields) {
+		if (fields == null || fields.trim().isEmpty()) {
+			return null;
+		}
+
+		Set<DogField> requested = EnumSet.noneOf(DogField.class);
+		for (String name : fields.split(",")) {
+			requested.add(lookup(name.trim()));
+		}
+		return new DogFields(requested);
+	}
+
+	private static DogField lookup(String name) {
+		for (DogField field : DogField.values()) {
+			if (field.getProperty().equalsIgnoreCase(name)) {
+				return field;
+			}
+		}
+		throw new DogValidationException("Unknown field '" + name + "'. Fields must be among: "
+				+ Arrays.stream(DogField.values()).map(DogField::getProperty).collect(Collectors.toList()));
+	}
+
+	/**
+	 * The requested fields, in the order they are serialized.
+	 */
+	public List<DogField> getFields() {
+		return fields;
+	}
+
+	/**
+	 * The fields to select, in select-list order: ID first, so the column at position i + 1 is getColumns().get(i).
+	 */
+	public List<DogField> getColumns() {
+		return columns;
+	}
+
+	/**
+	 * The SQL select list for getColumns(), e.g. "ID, NAME, BADGEID, STATUS".
+	 */
+	public String getSelectList() {
+		return selectList;
+	}
+
+	/**
+	 * A short canonical form of the fieldset (e.g. "id.name.status"), for telling representations apart in ETags.
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * The record, serialized with only the requested fields.
+	 */
+	public DogView view(DogDTO dog) {
+		return new DogView(dog, this);
+	}
+
+	/**
+	 * The records, each serialized with only the requested fields.
+	 */
+	public List<DogView> view(List<DogDTO> dogs) {
+		List<DogView> views = new ArrayList<>(dogs.size());
+		for (DogDTO dog : dogs) {
+			views.add(new DogView(dog, this));
+		}
+		return views;
+	}
+}
@@ -0,0 +1,100 @@
+package com.test.dogs.api.rest.model;
+
+import java.sql.Timestamp;
+import java.util.Map;
+
+/**
+ * One committed write to a dog record, as returned by GET /{id}/history.
+ * before and after hold the properties the write set, by property name (dates as yyyy-MM-dd): every property
+ * of a new record in after, only the changed ones for an update, and dateDeleted for a soft delete.
+ */
+public class DogHistoryEntry {
+
+	private long id;
+	private long dogId;
+	private String operation;
+	private Long version;
+	private Timestamp changedAt;
+	private String changedBy;
+	private Map<String, Object> before;
+	private Map<String, Object> after;
+
+	public DogHistoryEntry() {
+	}
+
+	/**
+	 * The position of the entry in the history, which only increases.
+	 */
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public long getDogId() {
+		return dogId;
+	}
+
+	public void setDogId(long dogId) {
+		this.dogId = dogId;
+	}
+
+	/**
+	 * CREATED, UPDATED or DELETED.
+	 */
+	public String getOperation() {
+		return operation;
+	}
+
+	public void setOperation(String operation) {
+		this.operation = operation;
+	}
+
+	/**
+	 * The version the write produced.
+	 */
+	public Long getVersion() {
+		return version;
+	}
+
+	public void setVersion(Long version) {
+		this.version = version;
+	}
+
+	public Timestamp getChangedAt() {
+		return changedAt;
+	}
+
+	public void setChangedAt(Timestamp changedAt) {
+		this.changedAt = changedAt;
+	}
+
+	/**
+	 * Who made the change, as far as the request identified them, or null.
+	 */
+	public String getChangedBy() {
+		return changedBy;
+	}
+
+	public void setChangedBy(String changedBy) {
+		this.changedBy = changedBy;
+	}
+
+	public Map<String, Object> getBefore() {
+		return before;
+	}
+
+	public void setBefore(Map<String, Object> before) {
+		this.before = before;
+	}
+
+	public Map<String, Object> getAfter() {
+		return after;
+	}
+
+	public void setAfter(Map<String, Object> after) {
+		this.after = after;
+	}
+}
@@ -0,0 +1,39 @@
+package com.test.dogs.api.rest.model;
+
+import java.util.List;
+
+/**
+ * One page of a dog's change history, oldest first.
+ */
+public class DogHistoryPage {
+
+	private List<DogHistoryEntry> items;
+	private String nextCursor;
+
+	public DogHistoryPage() {
+	}
+
+	public DogHistoryPage(List<DogHistoryEntry> items, String nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<DogHistoryEntry> getItems() {
+		return items;
+	}
+
+	public void setItems(List<DogHistoryEntry> items) {
+		this.items = items;
+	}
+
+	/**
+	 * The cursor to request the following page with, or null when this is the last page.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+}
@@ -0,0 +1,36 @@
+package com.test.dogs.api.rest.model;
+
+import java.util.List;
+
+public class DogPage {
+
+	private List<DogDTO> items;
+	private String nextCursor;
+
+	public DogPage() {
+	}
+
+	public DogPage(List<DogDTO> items, String nextCursor) {
+		this.items = items;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<DogDTO> getItems() {
+		return items;
+	}
+
+	public void setItems(List<DogDTO> items) {
+		this.items = items;
+	}
+
+	/**
+	 * The cursor to request the following page with, or null when this is the last page.
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+}
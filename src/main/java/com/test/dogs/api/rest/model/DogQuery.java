@@ -0,0 +1,274 @@
+package com.test.dogs.api.rest.model;
+
+import com.test.dogs.api.rest.exception.DogValidationException;
+
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * A structured query from the parameters of GET /search, e.g.
+ * status=in service,in training&breed=Labrador&dateAcquiredFrom=2024-01-01&sort=dateAcquired&order=desc
+ *
+ * - status, breed, supplier, gender, leavingReason: one value or a comma-separated list of values to match exactly
+ *   (the parameter may also be repeated)
+ * - birthDateFrom/To, dateAcquiredFrom/To, leavingDateFrom/To: inclusive date ranges (yyyy-MM-dd), either end optional
+ * - includeDeleted: true to include soft-deleted records (default false)
+ * - sort, order: the property to sort by and asc (default) or desc; ties, and queries without sort, are in ID order
+ * - limit: the maximum number of records to return
+ *
+ * Parsing only checks the form of the parameters; DogService checks the values against the domain.
+ */
+public final class DogQuery {
+
+	/**
+	 * Handled by DogFields, but allowed alongside the query parameters.
+	 */
+	public static final String FIELDS_PARAMETER = "fields";
+
+	// The properties that can be matched against lists of values
+	private static final List<DogField> MATCHABLE = Arrays.asList(
+			DogField.STATUS, DogField.BREED, DogField.SUPPLIER, DogField.GENDER, DogField.LEAVING_REASON);
+
+	// The date properties that can be limited to a range
+	private static final List<DogField> RANGES = Arrays.asList(
+			DogField.BIRTH_DATE, DogField.DATE_ACQUIRED, DogField.LEAVING_DATE);
+
+	// The properties a query can be sorted by
+	private static final Set<DogField> SORTABLE = Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(
+			DogField.ID, DogField.NAME, DogField.BREED, DogField.SUPPLIER, DogField.BADGE_ID, DogField.BIRTH_DATE,
+			DogField.DATE_ACQUIRED, DogField.STATUS, DogField.LEAVING_DATE, DogField.LAST_MODIFIED)));
+
+	private static final int MAX_VALUES = 100;
+
+	private final Map<DogField, List<String>> matches;
+	private final Map<DogField, Date> from;
+	private final Map<DogField, Date> to;
+	private final boolean includeDeleted;
+	private final DogField sort;
+	private final boolean descending;
+	private final Integer limit;
+
+	private DogQuery(Map<DogField, List<String>> matches, Map<DogField, Date> from, Map<DogField, Date> to,
+	                 boolean includeDeleted, DogField sort, boolean descending, Integer limit) {
+		this.matches = Collections.unmodifiableMap(matches);
+		this.from = Collections.unmodifiableMap(from);
+		this.to = Collections.unmodifiableMap(to);
+		this.includeDeleted = includeDeleted;
+		this.sort = sort;
+		this.descending = descending;
+		this.limit = limit;
+	}
+
+	/**
+	 * Parses the request parameters into a query.
+	 * @param parameters Every request parameter with all of its values, e.g. a Spring MultiValueMap.
+	 * @throws DogValidationException if a parameter is unknown, empty or malformed, a value list is too long,
+	 *                                 or a range ends before it starts
+	 */
+	public static DogQuery parse(Map<String, List<String>> parameters) {
+		Map<DogField, List<String>> matches = new EnumMap<>(DogField.class);
+		Map<DogField, Date> from = new EnumMap<>(DogField.class);
+		Map<DogField, Date> to = new EnumMap<>(DogField.class);
+		boolean includeDeleted = false;
+		DogField sort = null;
+		Boolean descending = null;
+		Integer limit = null;
+
+		for (Map.Entry<String, List<String>> parameter : parameters.entrySet()) {
+			String name = parameter.getKey();
+			if (name.equals(FIELDS_PARAMETER)) {
+				continue;
+			}
+
+			DogField matchable = property(MATCHABLE, name);
+			if (matchable != null) {
+				matches.put(matchable, values(name, parameter.getValue()));
+				continue;
+			}
+
+			DogField range = rangeProperty(name);
+			if (range != null) {
+				Date date = date(name, single(name, parameter.getValue()));
+				(name.endsWith("From") ? from : to).put(range, date);
+				continue;
+			}
+
+			String value = single(name, parameter.getValue());
+			switch (name) {
+				case "includeDeleted" -> includeDeleted = bool(name, value);
+				case "sort" -> sort = sortProperty(value);
+				case "order" -> descending = order(value);
+				case "limit" -> limit = integer(name, value);
+				default -> throw new DogValidationException("Unknown query parameter '" + name + "'. Parameters must be among: "
+						+ parameterNames());
+			}
+		}
+
+		for (Map.Entry<DogField, Date> start : from.entrySet()) {
+			Date end = to.get(start.getKey());
+			if (end != null && end.before(start.getValue())) {
+				throw new DogValidationException("The " + start.getKey().getProperty() + " range ends before it starts.");
+			}
+		}
+
+		return new DogQuery(matches, from, to, includeDeleted, sort != null ? sort : DogField.ID,
+				descending != null && descending, limit);
+	}
+
+	/**
+	 * The values each matchable property must be one of, in DogField order.
+	 */
+	public Map<DogField, List<String>> getMatches() {
+		return matches;
+	}
+
+	/**
+	 * The inclusive lower bounds of the date ranges, in DogField order.
+	 */
+	public Map<DogField, Date> getFrom() {
+		return from;
+	}
+
+	/**
+	 * The inclusive upper bounds of the date ranges, in DogField order.
+	 */
+	public Map<DogField, Date> getTo() {
+		return to;
+	}
+
+	public boolean isIncludeDeleted() {
+		return includeDeleted;
+	}
+
+	/**
+	 * The property to sort by; ID if none was given.
+	 */
+	public DogField getSort() {
+		return sort;
+	}
+
+	public boolean isDescending() {
+		return descending;
+	}
+
+	/**
+	 * The maximum number of records, or null for all of them.
+	 */
+	public Integer getLimit() {
+		return limit;
+	}
+
+	private static DogField property(List<DogField> properties, String name) {
+		for (DogField field : properties) {
+			if (field.getProperty().equals(name)) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	private static DogField rangeProperty(String name) {
+		if (name.endsWith("From")) {
+			return property(RANGES, name.substring(0, name.length() - "From".length()));
+		}
+		if (name.endsWith("To")) {
+			return property(RANGES, name.substring(0, name.length() - "To".length()));
+		}
+		return null;
+	}
+
+	private static DogField sortProperty(String value) {
+		for (DogField field : SORTABLE) {
+			if (field.getProperty().equalsIgnoreCase(value)) {
+				return field;
+			}
+		}
+		throw new DogValidationException("Cannot sort by '" + value + "'. Sort must be one of: "
+				+ SORTABLE.stream().map(DogField::getProperty).collect(Collectors.toList()));
+	}
+
+	private static boolean order(String value) {
+		if (value.equalsIgnoreCase("asc")) {
+			return false;
+		}
+		if (value.equalsIgnoreCase("desc")) {
+			return true;
+		}
+		throw new DogValidationException("Order must be asc or desc.");
+	}
+
+	/**
+	 * The values of a list parameter: its comma-separated values, over every occurrence of the parameter.
+	 */
+	private static List<String> values(String name, List<String> occurrences) {
+		List<String> values = new ArrayList<>();
+		for (String occurrence : occurrences) {
+			for (String value : occurrence.split(",")) {
+				if (value.trim().isEmpty()) {
+					throw new DogValidationException("Query parameter '" + name + "' has an empty value.");
+				}
+				values.add(value.trim());
+			}
+		}
+		if (values.isEmpty()) {
+			throw new DogValidationException("Query parameter '" + name + "' has an empty value.");
+		}
+		if (values.size() > MAX_VALUES) {
+			throw new DogValidationException("Query parameter '" + name + "' cannot have more than " + MAX_VALUES + " values.");
+		}
+		return Collections.unmodifiableList(values);
+	}
+
+	private static String single(String name, List<String> occurrences) {
+		if (occurrences.size() != 1) {
+			throw new DogValidationException("Query parameter '" + name + "' can only be given once.");
+		}
+		String value = occurrences.get(0).trim();
+		if (value.isEmpty()) {
+			throw new DogValidationException("Query parameter '" + name + "' has an empty value.");
+		}
+		return value;
+	}
+
+	private static Date date(String name, String value) {
+		try {
+			return Date.valueOf(value);
+		} catch (IllegalArgumentException e) {
+			throw new DogValidationException("Query parameter '" + name + "' must be a date in the format yyyy-MM-dd.");
+		}
+	}
+
+	private static boolean bool(String name, String value) {
+		if (value.equalsIgnoreCase("true") || value.equalsIgnoreCase("false")) {
+			return Boolean.parseBoolean(value);
+		}
+		throw new DogValidationException("Query parameter '" + name + "' must be true or false.");
+	}
+
+	private static Integer integer(String name, String value) {
+		try {
+			return Integer.valueOf(value);
+		} catch (NumberFormatException e) {
+			throw new DogValidationException("Query parameter '" + name + "' must be a whole number.");
+		}
+	}
+
+	private static List<String> parameterNames() {
+		List<String> names = new ArrayList<>();
+		MATCHABLE.forEach(field -> names.add(field.getProperty()));
+		RANGES.forEach(field -> {
+			names.add(field.getProperty() + "From");
+			names.add(field.getProperty() + "To");
+		});
+		names.addAll(Arrays.asList("includeDeleted", "sort", "order", "limit", FIELDS_PARAMETER));
+		return names;
+	}
+}
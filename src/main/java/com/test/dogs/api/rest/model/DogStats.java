@@ -0,0 +1,92 @@
+package com.test.dogs.api.rest.model;
+
+import java.util.Map;
+
+/**
+ * Roster statistics returned by GET /stats. The breakdowns count active dogs only, keyed by value (months as
+ * yyyy-MM) in ascending order; records without a value for a breakdown are not counted in it.
+ */
+public class DogStats {
+
+	private long active;
+	private long deleted;
+	private Map<String, Long> byStatus;
+	private Map<String, Long> byBreed;
+	private Map<String, Long> bySupplier;
+	private Map<String, Long> byLeavingReason;
+	private Map<String, Long> intakeByMonth;
+	private Map<String, Long> leavingByMonth;
+
+	public DogStats() {
+	}
+
+	public long getActive() {
+		return active;
+	}
+
+	public void setActive(long active) {
+		this.active = active;
+	}
+
+	public long getDeleted() {
+		return deleted;
+	}
+
+	public void setDeleted(long deleted) {
+		this.deleted = deleted;
+	}
+
+	public Map<String, Long> getByStatus() {
+		return byStatus;
+	}
+
+	public void setByStatus(Map<String, Long> byStatus) {
+		this.byStatus = byStatus;
+	}
+
+	public Map<String, Long> getByBreed() {
+		return byBreed;
+	}
+
+	public void setByBreed(Map<String, Long> byBreed) {
+		this.byBreed = byBreed;
+	}
+
+	public Map<String, Long> getBySupplier() {
+		return bySupplier;
+	}
+
+	public void setBySupplier(Map<String, Long> bySupplier) {
+		this.bySupplier = bySupplier;
+	}
+
+	public Map<String, Long> getByLeavingReason() {
+		return byLeavingReason;
+	}
+
+	public void setByLeavingReason(Map<String, Long> byLeavingReason) {
+		this.byLeavingReason = byLeavingReason;
+	}
+
+	/**
+	 * Active dogs by the month of their dateAcquired.
+	 */
+	public Map<String, Long> getIntakeByMonth() {
+		return intakeByMonth;
+	}
+
+	public void setIntakeByMonth(Map<String, Long> intakeByMonth) {
+		this.intakeByMonth = intakeByMonth;
+	}
+
+	/**
+	 * Active dogs by the month of their leavingDate.
+	 */
+	public Map<String, Long> getLeavingByMonth() {
+		return leavingByMonth;
+	}
+
+	public void setLeavingByMonth(Map<String, Long> leavingByMonth) {
+		this.leavingByMonth = leavingByMonth;
+	}
+}
@@ -0,0 +1,55 @@
+package com.test.dogs.api.rest.model;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.WritableTypeId;
+import com.fasterxml.jackson.databind.JsonSerializable;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.jsontype.TypeSerializer;
+
+import java.io.IOException;
+
+/**
+ * A DogDTO serialized with only the properties of a sparse fieldset. Each value is written with the serializer
+ * Jackson would use for it in a full DogDTO, so dates and timestamps look the same in both representations.
+ */
+public final class DogView implements JsonSerializable {
+
+	private final DogDTO dog;
+
+	private final DogFields fields;
+
+	DogView(DogDTO dog, DogFields fields) {
+		this.dog = dog;
+		this.fields = fields;
+	}
+
+	public DogDTO getDog() {
+		return dog;
+	}
+
+	public DogFields getFields() {
+		return fields;
+	}
+
+	@Override
+	public void serialize(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+		generator.writeStartObject(dog);
+		writeFields(generator, serializers);
+		generator.writeEndObject();
+	}
+
+	@Override
+	public void serializeWithType(JsonGenerator generator, SerializerProvider serializers, TypeSerializer typeSerializer)
+			throws IOException {
+		WritableTypeId typeId = typeSerializer.writeTypePrefix(generator, typeSerializer.typeId(dog, JsonToken.START_OBJECT));
+		writeFields(generator, serializers);
+		typeSerializer.writeTypeSuffix(generator, typeId);
+	}
+
+	private void writeFields(JsonGenerator generator, SerializerProvider serializers) throws IOException {
+		for (DogField field : fields.getFields()) {
+			serializers.defaultSerializeField(field.getProperty(), field.valueOf(dog), generator);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package com.test.dogs.api.rest.service;
+
+import java.util.List;
+
+/**
+ * Published by DogService once per batch write (POST, PATCH or DELETE /batch) after its transaction has been
+ * committed, with one DogChangedEvent per record the batch wrote, in request order.
+ *
+ * Listeners handle it in the same @Order as DogChangedEvent. Those that can apply the writes together do so,
+ * e.g. the roster publishes one new snapshot and the change tracker counts one change; the others apply each
+ * write as they would a DogChangedEvent.
+ */
+public class DogBatchChangedEvent {
+
+	private final List<DogChangedEvent> changes;
+
+	public DogBatchChangedEvent(List<DogChangedEvent> changes) {
+		this.changes = List.copyOf(changes);
+	}
+
+	/**
+	 * The writes of the batch, in request order.
+	 */
+	public List<DogChangedEvent> getChanges() {
+		return changes;
+	}
+}
@@ -0,0 +1,109 @@
+package com.test.dogs.api.rest.service;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.test.dogs.api.rest.model.DogDTO;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.IntFunction;
+
+/**
+ * Bounded read-through cache of DogDTOs by ID, used by DogService.getDogById.
+ *
+ * Entries are evicted by size and by age, and invalidated when a DogChangedEvent reports an update or
+ * soft delete. Records are copied on the way in and on the way out, because DogDTO is mutable and a
+ * caller changing a returned record must not change what other callers see.
+ * Hit, miss and eviction counts are published to Actuator as the cache.* metrics tagged cache=dogs.byId.
+ *
+ * Loads run on the calling thread, outside any lock held by the cache: the entry is a future that other
+ * callers wait on. A loader run inside the cache's own compute would block on JDBC while holding a
+ * monitor, pinning the carrier thread when requests run on virtual threads.
+ */
+@Component
+public class DogCache implements MeterBinder {
+
+	private final AsyncCache<Integer, DogDTO> cache;
+
+	@Autowired
+	public DogCache(@Value("${dogs.cache.maximum-size:10000}") long maximumSize,
+	                @Value("${dogs.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+		this.cache = Caffeine.newBuilder()
+				.maximumSize(maximumSize)
+				.expireAfterWrite(expireAfterWrite)
+				.recordStats()
+				.buildAsync();
+	}
+
+	/**
+	 * Returns a copy of the cached record, loading it with the given function on a miss.
+	 * Concurrent misses for the same ID share a single load.
+	 */
+	public DogDTO get(int id, IntFunction<DogDTO> loader) {
+		// Records the hit or miss
+		CompletableFuture<DogDTO> entry = cache.getIfPresent(id);
+
+		if (entry == null) {
+			CompletableFuture<DogDTO> loading = new CompletableFuture<>();
+			entry = cache.asMap().putIfAbsent(id, loading);
+			if (entry == null) {
+				try {
+					loading.complete(new DogDTO(loader.apply(id)));
+				} catch (RuntimeException e) {
+					// Failed loads are not cached; callers waiting on this one see the same exception
+					cache.asMap().remove(id, loading);
+					loading.completeExceptionally(e);
+					throw e;
+				}
+				entry = loading;
+			}
+		}
+
+		try {
+			return new DogDTO(entry.join());
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * Drops the cached record after a committed update or soft delete.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.READ_MODEL_ORDER)
+	public void onDogChanged(DogChangedEvent event) {
+		if (event.getOperation() != DogChangedEvent.Operation.CREATED) {
+			cache.synchronous().invalidate((int) event.getId());
+		}
+	}
+
+	/**
+	 * Drops the cached records a committed batch write changed.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.READ_MODEL_ORDER)
+	public void onDogsChanged(DogBatchChangedEvent batch) {
+		for (DogChangedEvent change : batch.getChanges()) {
+			onDogChanged(change);
+		}
+	}
+
+	public CacheStats stats() {
+		return cache.synchronous().stats();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		CaffeineCacheMetrics.monitor(registry, cache, "dogs.byId");
+	}
+}
@@ -0,0 +1,107 @@
+package com.test.dogs.api.rest.service;
+
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Table-level change counter for the DOGS table, used to answer conditional GETs on the listings
+ * (If-None-Match / If-Modified-Since) without running the query.
+ *
+ * Every committed write in DogService publishes a DogChangedEvent, which moves the counter and the
+ * last-modified time forward. The counter lives in memory, so the ETag also carries the time this
+ * instance started: tags issued before a restart can never match afterwards. Writes made to the
+ * database outside DogService (e.g. through the H2 console) are not seen.
+ */
+@Component
+public class DogChangeTracker {
+
+	private final Clock clock;
+
+	private final String generation;
+
+	private final AtomicReference<Snapshot> current;
+
+	public DogChangeTracker() {
+		this(Clock.systemUTC());
+	}
+
+	DogChangeTracker(Clock clock) {
+		this.clock = clock;
+		long startedAt = clock.millis();
+		this.generation = Long.toString(startedAt, 36);
+		this.current = new AtomicReference<>(new Snapshot(generation, 0L, startedAt));
+	}
+
+	/**
+	 * Records a committed write. Lock-free, as it runs on the request thread of every write.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.TRACKER_ORDER)
+	public void onDogChanged(DogChangedEvent event) {
+		recordChange();
+	}
+
+	/**
+	 * Records the committed writes of a batch as one change.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.TRACKER_ORDER)
+	public void onDogsChanged(DogBatchChangedEvent batch) {
+		recordChange();
+	}
+
+	private void recordChange() {
+		long now = clock.millis();
+		current.updateAndGet(previous ->
+				new Snapshot(generation, previous.changeCount + 1, Math.max(previous.lastModified, now)));
+	}
+
+	/**
+	 * The current state of the table. Take it before running the query it describes,
+	 * so a response never carries validators newer than its body.
+	 */
+	public Snapshot snapshot() {
+		return current.get();
+	}
+
+	/**
+	 * Change count and last-modified time, read together.
+	 */
+	public static final class Snapshot {
+
+		private final String generation;
+		private final long changeCount;
+		private final long lastModified;
+
+		private Snapshot(String generation, long changeCount, long lastModified) {
+			this.generation = generation;
+			this.changeCount = changeCount;
+			this.lastModified = lastModified;
+		}
+
+		/**
+		 * A strong ETag for the table in the given representation (e.g. "json", "ndjson").
+		 */
+		public String eTag(String representation) {
+			return "\"" + generation + "-" + changeCount + "-" + representation + "\"";
+		}
+
+		/**
+		 * @return The number of writes recorded since start.
+		 */
+		public long getChangeCount() {
+			return changeCount;
+		}
+
+		/**
+		 * @return The time of the last write in epoch milliseconds, or the start time if there was none since.
+		 */
+		public long getLastModified() {
+			return lastModified;
+		}
+	}
+}
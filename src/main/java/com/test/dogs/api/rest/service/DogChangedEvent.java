@@ -0,0 +1,113 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogField;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Published by DogService after a write to the DOGS table has been committed, so that in-process
+ * read models (search index, caches) can update themselves incrementally. The writes of a batch are published
+ * together, as one DogBatchChangedEvent.
+ *
+ * Listeners run synchronously, in the @Order given below: the read models first, then the change tracker, whose
+ * counter is what readers compare against, so that a reader who sees the new count also sees the new data.
+ */
+public class DogChangedEvent {
+
+	/**
+	 * The order of the listeners that maintain read models: the search index, roster, statistics and caches.
+	 */
+	public static final int READ_MODEL_ORDER = 0;
+
+	/**
+	 * The order of DogChangeTracker, after every read model it stands for.
+	 */
+	public static final int TRACKER_ORDER = 100;
+
+	public enum Operation {
+		CREATED,
+		UPDATED,
+		DELETED
+	}
+
+	/**
+	 * The properties a write can change; the ID, version and modification time are set by every write.
+	 */
+	public static final List<DogField> CONTENT_FIELDS = Arrays.asList(
+			DogField.NAME, DogField.BREED, DogField.SUPPLIER, DogField.BADGE_ID, DogField.GENDER, DogField.BIRTH_DATE,
+			DogField.DATE_ACQUIRED, DogField.STATUS, DogField.LEAVING_DATE, DogField.LEAVING_REASON,
+			DogField.KENNELING_CHARACTERISTICS, DogField.DATE_DELETED);
+
+	private final Operation operation;
+	private final long id;
+	private final DogDTO dog;
+	private final DogDTO previous;
+	private final String author;
+
+	public DogChangedEvent(Operation operation, long id, DogDTO dog) {
+		this(operation, id, dog, null);
+	}
+
+	public DogChangedEvent(Operation operation, long id, DogDTO dog, DogDTO previous) {
+		this(operation, id, dog, previous, null);
+	}
+
+	public DogChangedEvent(Operation operation, long id, DogDTO dog, DogDTO previous, String author) {
+		this.operation = operation;
+		this.id = id;
+		this.dog = dog;
+		this.previous = previous;
+		this.author = author;
+	}
+
+	public Operation getOperation() {
+		return operation;
+	}
+
+	public long getId() {
+		return id;
+	}
+
+	/**
+	 * The record as written; for a soft delete, the deleted row with its dateDeleted and new version.
+	 */
+	public DogDTO getDog() {
+		return dog;
+	}
+
+	/**
+	 * The record as it was before an update, when the publisher read it to validate the update, or else null.
+	 */
+	public DogDTO getPrevious() {
+		return previous;
+	}
+
+	/**
+	 * The authenticated user whose request made the write, as passed to DogService, or null if it was not authenticated.
+	 */
+	public String getAuthor() {
+		return author;
+	}
+
+	/**
+	 * The content fields the write set: dateDeleted for a soft delete, the fields that differ from the previous
+	 * record for an update, and every field with a value for a new record or an update without the previous record.
+	 */
+	public List<DogField> getChangedFields() {
+		if (operation == Operation.DELETED) {
+			return List.of(DogField.DATE_DELETED);
+		}
+		List<DogField> changed = new ArrayList<>();
+		for (DogField field : CONTENT_FIELDS) {
+			Object value = field.valueOf(dog);
+			if (previous != null ? !Objects.equals(value, field.valueOf(previous)) : value != null) {
+				changed.add(field);
+			}
+		}
+		return changed;
+	}
+}
@@ -0,0 +1,41 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.exception.DogValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes and decodes the opaque cursors used for keyset pagination.
+ * A cursor wraps the ID of the last record on the previous page, so clients should treat it as a token.
+ */
+final class DogCursor {
+
+	private static final String PREFIX = "id:";
+
+	private DogCursor() {
+	}
+
+	static String encode(long lastId) {
+		byte[] value = (PREFIX + lastId).getBytes(StandardCharsets.UTF_8);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(value);
+	}
+
+	static long decode(String cursor) {
+		try {
+			String value = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			if (!value.startsWith(PREFIX)) {
+				throw new DogValidationException("Invalid cursor.");
+			}
+
+			long lastId = Long.parseLong(value.substring(PREFIX.length()));
+			if (lastId < 0) {
+				throw new DogValidationException("Invalid cursor.");
+			}
+			return lastId;
+		} catch (IllegalArgumentException e) {
+			// Covers malformed Base64 as well as a non-numeric ID (NumberFormatException)
+			throw new DogValidationException("Invalid cursor.", e);
+		}
+	}
+}
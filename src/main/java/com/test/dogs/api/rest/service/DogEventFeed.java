@@ -0,0 +1,298 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogEvent;
+import com.test.dogs.api.rest.model.DogField;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.ContextClosedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The change feed behind GET /events: one compact event (DogEvent) per committed create, update and soft delete,
+ * pushed to every connected client as a Server-Sent Event.
+ *
+ * Events are numbered in the order they are published, and their SSE id is that number prefixed with the instance,
+ * so that a Last-Event-ID from before a restart is not mistaken for a current one. The last dogs.events.replay-size
+ * events are kept, and a client that reconnects with a Last-Event-ID still among them is sent the events it missed
+ * before the live ones; otherwise it is sent a single RESET event, after which it should read the roster again.
+ *
+ * Each client has its own queue of at most dogs.events.subscriber-buffer events, which its connection drains at
+ * its own pace. Publishing only offers the event to each queue and never waits: a client whose queue is full is
+ * disconnected, after the events already queued for it, and resumes from the replay buffer when it reconnects.
+ *
+ * Only numbering and recording an event take the lock. The event is then put on a pending queue, and offered to
+ * the clients by whichever publishing thread finds no other one doing so; a thread that finds one at work leaves
+ * its event to it. Clients therefore receive events in numbered order, one thread offers to a client's queue at a
+ * time, and a writer never waits for the fan-out of another writer's event.
+ * Every subscription also ends after dogs.events.max-connection-time, well within the request timeout of the
+ * servlet stack, and the client resumes the same way.
+ * Published events, disconnected clients and connected clients are published as dogs.events.published,
+ * dogs.events.dropped and dogs.events.subscribers.
+ */
+@Component
+public class DogEventFeed implements MeterBinder {
+
+	private static final Logger log = LoggerFactory.getLogger(DogEventFeed.class);
+
+	private final int replaySize;
+	private final int subscriberBuffer;
+	private final Duration maxConnectionTime;
+
+	// Distinguishes the event IDs of this run of the application from those of earlier ones
+	private final String instance = Long.toString(System.currentTimeMillis(), 36);
+
+	// Guards the numbering, the replay buffer and the registration of subscribers. Not a monitor, so that the
+	// virtual thread of a writer waiting for it does not pin its carrier.
+	private final ReentrantLock lock = new ReentrantLock();
+
+	// The number of the last event published, and the events up to it; guarded by lock
+	private long sequence;
+	private final Deque<ServerSentEvent<DogEvent>> replay = new ArrayDeque<>();
+
+	private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+	// Events numbered but not yet offered to the subscribers, in numbered order
+	private final Queue<Pending> pending = new ConcurrentLinkedQueue<>();
+
+	// The number of requests to offer pending events; the thread that raises it from zero does the offering
+	private final AtomicInteger dispatching = new AtomicInteger();
+
+	private volatile boolean closed;
+
+	private final LongAdder published = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	@Autowired
+	public DogEventFeed(@Value("${dogs.events.replay-size:1000}") int replaySize,
+	                    @Value("${dogs.events.subscriber-buffer:256}") int subscriberBuffer,
+	                    @Value("${dogs.events.max-connection-time:5m}") Duration maxConnectionTime) {
+		if (replaySize < 0 || subscriberBuffer < 1) {
+			throw new IllegalArgumentException("The replay size cannot be negative and the subscriber buffer must hold an event.");
+		}
+		this.replaySize = replaySize;
+		this.subscriberBuffer = subscriberBuffer;
+		this.maxConnectionTime = maxConnectionTime;
+	}
+
+	/**
+	 * Publishes the event of a committed write to every connected client, disconnecting those that have fallen
+	 * subscriberBuffer events behind.
+	 */
+	@EventListener
+	public void onDogChanged(DogChangedEvent event) {
+		List<String> fields = new ArrayList<>();
+		for (DogField field : event.getChangedFields()) {
+			fields.add(field.getProperty());
+		}
+		DogEvent data = new DogEvent(event.getId(), event.getOperation().name(), fields, event.getDog().getVersion());
+
+		// Numbered and queued in one step, so that the queue is in numbered order
+		lock.lock();
+		try {
+			long number = ++sequence;
+			ServerSentEvent<DogEvent> sse = ServerSentEvent.builder(data).id(eventId(number)).build();
+			if (replaySize > 0) {
+				if (replay.size() == replaySize) {
+					replay.removeFirst();
+				}
+				replay.addLast(sse);
+			}
+			pending.add(new Pending(number, sse));
+		} finally {
+			lock.unlock();
+		}
+		published.increment();
+
+		dispatch();
+	}
+
+	/**
+	 * Publishes the events of a committed batch write, one per record, in request order.
+	 */
+	@EventListener
+	public void onDogsChanged(DogBatchChangedEvent batch) {
+		for (DogChangedEvent change : batch.getChanges()) {
+			onDogChanged(change);
+		}
+	}
+
+	/**
+	 * Subscribes a client to the feed. After an opening comment, the events after lastEventId are sent first, or a
+	 * RESET if they are no longer all available, then every event published from now on, until maxConnectionTime
+	 * has passed.
+	 * @param lastEventId The SSE id of the last event the client received, or null to receive new events only.
+	 */
+	public Flux<ServerSentEvent<DogEvent>> subscribe(String lastEventId) {
+		// Sized exactly, where Reactor's own bounded queues round up to a power of two
+		Sinks.Many<ServerSentEvent<DogEvent>> sink = Sinks.many().unicast()
+				.onBackpressureBuffer(new ArrayBlockingQueue<>(subscriberBuffer));
+
+		List<ServerSentEvent<DogEvent>> missed;
+		Subscriber subscriber;
+		lock.lock();
+		try {
+			missed = missedSince(lastEventId);
+			// Events numbered up to now are among the missed ones, or were published before the client asked
+			subscriber = new Subscriber(sink, sequence);
+			subscribers.add(subscriber);
+		} finally {
+			lock.unlock();
+		}
+		// The comment, which clients ignore, is written at once, so that the response is committed and the client
+		// knows it is subscribed before the first write
+		ServerSentEvent<DogEvent> opened = ServerSentEvent.<DogEvent>builder().comment("subscribed").build();
+		return Flux.concat(Flux.just(opened), Flux.fromIterable(missed), sink.asFlux())
+				.take(maxConnectionTime)
+				.doFinally(signal -> subscribers.remove(subscriber));
+	}
+
+	/**
+	 * Ends every subscription when the application begins to shut down, before the web server stops, so that
+	 * open connections are closed normally rather than cut off or holding up a graceful shutdown.
+	 */
+	@EventListener(ContextClosedEvent.class)
+	public void close() {
+		// Completed by the dispatching thread, after the events already pending
+		closed = true;
+		dispatch();
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("dogs.events.published", published, LongAdder::sum)
+				.description("Change feed events published")
+				.register(registry);
+		FunctionCounter.builder("dogs.events.dropped", dropped, LongAdder::sum)
+				.description("Change feed clients disconnected for falling behind")
+				.register(registry);
+		Gauge.builder("dogs.events.subscribers", subscribers, Set::size)
+				.description("Clients connected to the change feed")
+				.register(registry);
+	}
+
+	/**
+	 * Offers the pending events to the subscribers, unless another thread is doing so, in which case it will
+	 * offer them before it stops.
+	 */
+	private void dispatch() {
+		if (dispatching.getAndIncrement() != 0) {
+			return;
+		}
+		do {
+			for (Pending next = pending.poll(); next != null; next = pending.poll()) {
+				offer(next);
+			}
+			if (closed) {
+				for (Subscriber subscriber : subscribers) {
+					subscriber.sink.tryEmitComplete();
+				}
+				subscribers.clear();
+			}
+		} while (dispatching.decrementAndGet() != 0);
+	}
+
+	private void offer(Pending event) {
+		for (Iterator<Subscriber> it = subscribers.iterator(); it.hasNext(); ) {
+			Subscriber subscriber = it.next();
+			if (event.number <= subscriber.after) {
+				continue;
+			}
+			Sinks.EmitResult result = subscriber.sink.tryEmitNext(event.sse);
+			if (result == Sinks.EmitResult.FAIL_OVERFLOW) {
+				it.remove();
+				dropped.increment();
+				subscriber.sink.tryEmitComplete();
+				log.debug("Disconnected an event feed client that fell {} events behind", subscriberBuffer);
+			} else if (result.isFailure()) {
+				// Cancelled or completed
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * The events after the given one, still in the replay buffer, or a RESET if some of them are not.
+	 * Called with the lock held.
+	 */
+	private List<ServerSentEvent<DogEvent>> missedSince(String lastEventId) {
+		if (lastEventId == null) {
+			return Collections.emptyList();
+		}
+
+		long last = -1;
+		int separator = lastEventId.lastIndexOf('-');
+		if (separator > 0 && lastEventId.substring(0, separator).equals(instance)) {
+			try {
+				last = Long.parseLong(lastEventId.substring(separator + 1));
+			} catch (NumberFormatException e) {
+				// Not one of ours: reset
+			}
+		}
+
+		long oldest = sequence - replay.size() + 1;
+		if (last < oldest - 1 || last > sequence) {
+			DogEvent reset = new DogEvent(null, DogEvent.RESET, null, null);
+			return List.of(ServerSentEvent.builder(reset).id(eventId(sequence)).build());
+		}
+		List<ServerSentEvent<DogEvent>> missed = new ArrayList<>(replay);
+		return missed.subList((int) (last - oldest + 1), missed.size());
+	}
+
+	private String eventId(long number) {
+		return instance + "-" + number;
+	}
+
+	/**
+	 * A client's queue, and the number of the last event published before it subscribed, which it is not sent live.
+	 */
+	private static final class Subscriber {
+
+		private final Sinks.Many<ServerSentEvent<DogEvent>> sink;
+		private final long after;
+
+		private Subscriber(Sinks.Many<ServerSentEvent<DogEvent>> sink, long after) {
+			this.sink = sink;
+			this.after = after;
+		}
+	}
+
+	/**
+	 * A numbered event waiting to be offered to the subscribers.
+	 */
+	private static final class Pending {
+
+		private final long number;
+		private final ServerSentEvent<DogEvent> sse;
+
+		private Pending(long number, ServerSentEvent<DogEvent> sse) {
+			this.number = number;
+			this.sse = sse;
+		}
+	}
+}
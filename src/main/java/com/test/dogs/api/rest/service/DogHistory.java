@@ -0,0 +1,380 @@
+package com.test.dogs.api.rest.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.dogs.api.rest.exception.DogServiceException;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogField;
+import com.test.dogs.api.rest.model.DogHistoryEntry;
+import com.test.dogs.api.rest.model.DogHistoryPage;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The change history of the DOGS table (DOGS_HISTORY), behind GET /{id}/history: one entry per committed create,
+ * update and soft delete, with who made it, when, and the values it changed before and after.
+ *
+ * Entries are taken from DogChangedEvents and written off the request path: the event listener only puts the
+ * entry on a bounded queue, and a background writer takes whatever has queued up and inserts it with one JDBC
+ * batch in one transaction. When the queue is full, writers of dogs wait for room rather than the queue growing
+ * without bound; a writer that has waited dogs.history.offer-timeout writes its entry itself, so the entry of a
+ * committed write is never given up for lack of room. On shutdown the
+ * writer is stopped and everything still queued is written before the DataSource closes; entries for writes that
+ * commit after that are written directly.
+ *
+ * The author is the authenticated user the endpoint passed with the write (DogChangedEvent.getAuthor()); writes
+ * made without an authenticated user have none.
+ * Written and dropped entries are published as dogs.history.entries (tag result), and the queue length as
+ * dogs.history.queue.size.
+ */
+@Component
+public class DogHistory implements MeterBinder, DisposableBean {
+
+	private static final Logger log = LoggerFactory.getLogger(DogHistory.class);
+
+	private static final String INSERT_SQL = "INSERT INTO DOGS_HISTORY (DOG_ID, OPERATION, VERSION, CHANGED_AT, CHANGED_BY, " +
+			"BEFORE_VALUES, AFTER_VALUES) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+	private static final String PAGE_SQL = "SELECT * FROM DOGS_HISTORY WHERE DOG_ID = ? AND ID > ? ORDER BY ID LIMIT ?";
+
+	private static final TypeReference<LinkedHashMap<String, Object>> VALUES = new TypeReference<>() {
+	};
+
+	// Attempts to write a batch before its entries are dropped
+	private static final int MAX_WRITE_ATTEMPTS = 3;
+
+	private final DataSource dataSource;
+	private final ObjectMapper objectMapper;
+	private final BlockingQueue<Entry> queue;
+	private final int batchSize;
+	private final Duration offerTimeout;
+
+	private final LongAdder written = new LongAdder();
+	private final LongAdder dropped = new LongAdder();
+
+	private Thread writer;
+
+	// Set once shutdown has begun: the writer finishes, and later entries are written by the thread that makes them
+	private volatile boolean stopped;
+
+	@Autowired
+	public DogHistory(DataSource dataSource, ObjectMapper objectMapper,
+	                  @Value("${dogs.history.queue-capacity:10000}") int queueCapacity,
+	                  @Value("${dogs.history.batch-size:500}") int batchSize,
+	                  @Value("${dogs.history.offer-timeout:5s}") Duration offerTimeout) {
+		this.dataSource = dataSource;
+		this.objectMapper = objectMapper;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.batchSize = batchSize;
+		this.offerTimeout = offerTimeout;
+	}
+
+	/**
+	 * Starts the background writer. Entries queued before it starts are written by its first batch.
+	 */
+	@EventListener(ApplicationReadyEvent.class)
+	public synchronized void start() {
+		if (writer == null && !stopped) {
+			writer = new Thread(this::run, "dogs-history-writer");
+			writer.setDaemon(true);
+			writer.start();
+		}
+	}
+
+	/**
+	 * Queues the history entry of a committed write, waiting for room if the queue is full.
+	 */
+	@EventListener
+	public void onDogChanged(DogChangedEvent event) {
+		Entry entry = Entry.of(event);
+
+		if (stopped) {
+			write(List.of(entry));
+			return;
+		}
+
+		try {
+			if (!queue.offer(entry, offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+				log.warn("The history queue has been full for {}; writing the {} entry of dog {} directly",
+						offerTimeout, event.getOperation(), event.getId());
+				write(List.of(entry));
+				return;
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			write(List.of(entry));
+			return;
+		}
+
+		// Shutdown began while this entry was being queued, possibly after the final flush: write it now
+		if (stopped) {
+			flush();
+		}
+	}
+
+	/**
+	 * Queues the history entries of a committed batch write, one per record.
+	 */
+	@EventListener
+	public void onDogsChanged(DogBatchChangedEvent batch) {
+		for (DogChangedEvent change : batch.getChanges()) {
+			onDogChanged(change);
+		}
+	}
+
+	/**
+	 * Writes every queued entry now, on the calling thread.
+	 */
+	public void flush() {
+		List<Entry> batch = new ArrayList<>(batchSize);
+		while (queue.drainTo(batch, batchSize) > 0) {
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Stops the writer once the queue is empty and writes anything left.
+	 */
+	@Override
+	public void destroy() throws InterruptedException {
+		Thread current;
+		synchronized (this) {
+			stopped = true;
+			current = writer;
+		}
+		if (current != null) {
+			current.join(TimeUnit.SECONDS.toMillis(30));
+		}
+		flush();
+	}
+
+	/**
+	 * Reads one page of a dog's history, oldest first, starting after the position encoded in the cursor.
+	 * Entries appear once the writer has written them, usually within milliseconds of the change.
+	 * @param cursor Opaque cursor from a previous page, or null for the first page.
+	 * @param limit Maximum number of entries to return, or null for the default page size.
+	 */
+	public DogHistoryPage getHistory(long dogId, String cursor, Integer limit) {
+		int pageSize = DogValidator.pageSize(limit);
+		long afterId = cursor != null ? DogCursor.decode(cursor) : 0L;
+
+		List<DogHistoryEntry> entries = new ArrayList<>();
+		try (Connection conn = dataSource.getConnection();
+		     PreparedStatement preparedStatement = conn.prepareStatement(PAGE_SQL)) {
+			preparedStatement.setLong(1, dogId);
+			preparedStatement.setLong(2, afterId);
+			preparedStatement.setInt(3, pageSize + 1);
+
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				while (rs.next()) {
+					entries.add(mapRow(rs));
+				}
+			}
+		} catch (SQLException | JsonProcessingException e) {
+			throw new DogServiceException("Error while retrieving the history of dog with ID " + dogId + ": " + e.getMessage(), e);
+		}
+
+		String nextCursor = null;
+		if (entries.size() > pageSize) {
+			entries.subList(pageSize, entries.size()).clear();
+			nextCursor = DogCursor.encode(entries.get(pageSize - 1).getId());
+		}
+		return new DogHistoryPage(entries, nextCursor);
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("dogs.history.entries", written, LongAdder::sum)
+				.description("Change history entries, by whether they were written or dropped")
+				.tag("result", "written")
+				.register(registry);
+		FunctionCounter.builder("dogs.history.entries", dropped, LongAdder::sum)
+				.description("Change history entries, by whether they were written or dropped")
+				.tag("result", "dropped")
+				.register(registry);
+		Gauge.builder("dogs.history.queue.size", queue, BlockingQueue::size)
+				.description("Change history entries waiting to be written")
+				.register(registry);
+	}
+
+	/**
+	 * The writer: waits for an entry, then writes it with everything else queued by then, up to batchSize.
+	 */
+	private void run() {
+		List<Entry> batch = new ArrayList<>(batchSize);
+		while (!stopped || !queue.isEmpty()) {
+			try {
+				Entry first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if (first == null) {
+					continue;
+				}
+				batch.add(first);
+			} catch (InterruptedException e) {
+				// Only shutdown stops the writer; destroy() writes what is left
+				Thread.currentThread().interrupt();
+				return;
+			}
+			queue.drainTo(batch, batchSize - 1);
+			write(batch);
+			batch.clear();
+		}
+	}
+
+	/**
+	 * Inserts the entries with one JDBC batch in a single transaction, trying again a few times if it fails.
+	 */
+	private void write(List<Entry> entries) {
+		for (int attempt = 1; ; attempt++) {
+			try (Connection conn = dataSource.getConnection()) {
+				insert(conn, entries);
+				written.add(entries.size());
+				return;
+			} catch (SQLException | JsonProcessingException e) {
+				if (attempt == MAX_WRITE_ATTEMPTS) {
+					dropped.add(entries.size());
+					log.error("Could not write {} history entries; dropped them", entries.size(), e);
+					return;
+				}
+				log.warn("Could not write {} history entries, trying again", entries.size(), e);
+				try {
+					Thread.sleep(100L * attempt);
+				} catch (InterruptedException interrupted) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+	}
+
+	private void insert(Connection conn, List<Entry> entries) throws SQLException, JsonProcessingException {
+		conn.setAutoCommit(false);
+		try (PreparedStatement preparedStatement = conn.prepareStatement(INSERT_SQL)) {
+			for (Entry entry : entries) {
+				preparedStatement.setLong(1, entry.dogId);
+				preparedStatement.setString(2, entry.operation.name());
+				if (entry.version != null) {
+					preparedStatement.setLong(3, entry.version);
+				} else {
+					preparedStatement.setNull(3, Types.BIGINT);
+				}
+				preparedStatement.setTimestamp(4, entry.changedAt);
+				preparedStatement.setString(5, entry.changedBy);
+				preparedStatement.setString(6, entry.before != null ? objectMapper.writeValueAsString(entry.before) : null);
+				preparedStatement.setString(7, entry.after != null ? objectMapper.writeValueAsString(entry.after) : null);
+				preparedStatement.addBatch();
+			}
+			preparedStatement.executeBatch();
+			conn.commit();
+		} catch (SQLException | JsonProcessingException | RuntimeException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			// The connection goes back to the pool
+			conn.setAutoCommit(true);
+		}
+	}
+
+	private DogHistoryEntry mapRow(ResultSet rs) throws SQLException, JsonProcessingException {
+		DogHistoryEntry entry = new DogHistoryEntry();
+		entry.setId(rs.getLong("ID"));
+		entry.setDogId(rs.getLong("DOG_ID"));
+		entry.setOperation(rs.getString("OPERATION"));
+		long version = rs.getLong("VERSION");
+		entry.setVersion(rs.wasNull() ? null : version);
+		entry.setChangedAt(rs.getTimestamp("CHANGED_AT"));
+		entry.setChangedBy(rs.getString("CHANGED_BY"));
+		String before = rs.getString("BEFORE_VALUES");
+		entry.setBefore(before != null ? objectMapper.readValue(before, VALUES) : null);
+		String after = rs.getString("AFTER_VALUES");
+		entry.setAfter(after != null ? objectMapper.readValue(after, VALUES) : null);
+		return entry;
+	}
+
+	/**
+	 * A history entry waiting to be written.
+	 */
+	private static final class Entry {
+
+		private final long dogId;
+		private final DogChangedEvent.Operation operation;
+		private final Long version;
+		private final Timestamp changedAt;
+		private final String changedBy;
+		private final Map<String, Object> before;
+		private final Map<String, Object> after;
+
+		private Entry(long dogId, DogChangedEvent.Operation operation, Long version, Timestamp changedAt,
+		              String changedBy, Map<String, Object> before, Map<String, Object> after) {
+			this.dogId = dogId;
+			this.operation = operation;
+			this.version = version;
+			this.changedAt = changedAt;
+			this.changedBy = changedBy;
+			this.before = before;
+			this.after = after;
+		}
+
+		/**
+		 * A new record is recorded in full, an update by the properties that differ from the record it was
+		 * validated against (in full if the publisher did not have it), and a soft delete by the dateDeleted of the
+		 * deleted row, with no before values. Each is recorded with the version and modification time of the row.
+		 */
+		static Entry of(DogChangedEvent event) {
+			String changedBy = event.getAuthor();
+			DogDTO dog = event.getDog();
+			DogDTO previous = event.getPrevious();
+
+			Timestamp now = Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+
+			Map<String, Object> before = previous != null ? new LinkedHashMap<>() : null;
+			Map<String, Object> after = new LinkedHashMap<>();
+			for (DogField field : event.getChangedFields()) {
+				if (before != null) {
+					before.put(field.getProperty(), value(field, previous));
+				}
+				after.put(field.getProperty(), value(field, dog));
+			}
+			return new Entry(event.getId(), event.getOperation(), dog.getVersion(),
+					dog.getLastModified() != null ? dog.getLastModified() : now, changedBy, before, after);
+		}
+
+		/**
+		 * A property as it is recorded: dates as yyyy-MM-dd, other values as they are.
+		 */
+		private static Object value(DogField field, DogDTO dog) {
+			Object value = field.valueOf(dog);
+			return value instanceof Date ? value.toString() : value;
+		}
+	}
+}
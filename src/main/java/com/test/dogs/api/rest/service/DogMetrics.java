@@ -0,0 +1,159 @@
+package com.test.dogs.api.rest.service;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Timers and counters for DogService, published through Actuator (and scraped from /actuator/prometheus):
+ *
+ * dogs.service.calls          one timer per public DogService (or ReactiveDogService) method (tag method) and
+ *                             outcome (success/error)
+ * dogs.sql.execution          time to execute each SQL statement, up to its first result (tag statement)
+ * dogs.sql.mapping            time to read and map a query's result set to DogDTOs (tag statement)
+ * dogs.sql.rows               rows returned by a query or changed by an update (tag statement)
+ *
+ * Every meter is registered up front and looked up by enum ordinal, so recording on the request path does
+ * not build tags or allocate. Percentile histograms are switched on in application.properties.
+ */
+@Component
+public class DogMetrics {
+
+	/**
+	 * The public DogService operations.
+	 */
+	public enum Call {
+		GET_ALL_DOGS_LIST("getAllDogsList"),
+		GET_ALL_DOGS_PAGE("getAllDogsPage"),
+		GET_ALL_DOGS_INCLUDING_DELETED("getAllDogsIncludingDeleted"),
+		GET_ALL_DOGS_INCLUDING_DELETED_PAGE("getAllDogsIncludingDeletedPage"),
+		STREAM_ALL_DOGS_INCLUDING_DELETED("streamAllDogsIncludingDeleted"),
+		GET_DOG_BY_ID("getDogById"),
+		FIND_DOGS("findDogs"),
+		SAVE_NEW_DOG("saveNewDog"),
+		SAVE_NEW_DOGS("saveNewDogs"),
+		UPDATE_DOG("updateDog"),
+		UPDATE_DOGS("updateDogs"),
+		MARK_DOG_AS_DELETED("markDogAsDeleted"),
+		MARK_DOGS_AS_DELETED("markDogsAsDeleted");
+
+		private final String method;
+
+		Call(String method) {
+			this.method = method;
+		}
+	}
+
+	/**
+	 * The SQL statements DogService runs, by purpose rather than by text, which varies with filters and columns.
+	 */
+	public enum Statement {
+		LIST_ACTIVE,
+		LIST_ALL,
+		LIST_PAGE,
+		LIST_ACTIVE_BY_IDS,
+		FIND,
+		EXPORT_ALL,
+		SELECT_BY_ID,
+		SELECT_BY_IDS,
+		SELECT_BADGES,
+		INSERT,
+		INSERT_BATCH,
+		UPDATE,
+		UPDATE_BATCH,
+		SOFT_DELETE,
+		SOFT_DELETE_BATCH
+	}
+
+	/**
+	 * Work timed by time(), which may throw a checked exception of type E.
+	 */
+	@FunctionalInterface
+	public interface TimedWork<T, E extends Exception> {
+		T run() throws E;
+	}
+
+	private final Timer[] successTimers = new Timer[Call.values().length];
+	private final Timer[] errorTimers = new Timer[Call.values().length];
+
+	private final Timer[] executionTimers = new Timer[Statement.values().length];
+	private final Timer[] mappingTimers = new Timer[Statement.values().length];
+	private final DistributionSummary[] rowCounts = new DistributionSummary[Statement.values().length];
+
+	@Autowired
+	public DogMetrics(MeterRegistry registry) {
+		for (Call call : Call.values()) {
+			successTimers[call.ordinal()] = callTimer(registry, call, "success");
+			errorTimers[call.ordinal()] = callTimer(registry, call, "error");
+		}
+
+		for (Statement statement : Statement.values()) {
+			String name = statement.name().toLowerCase();
+			executionTimers[statement.ordinal()] = Timer.builder("dogs.sql.execution")
+					.description("Time to execute a DogService SQL statement")
+					.tag("statement", name)
+					.register(registry);
+			mappingTimers[statement.ordinal()] = Timer.builder("dogs.sql.mapping")
+					.description("Time to read and map the rows of a DogService query")
+					.tag("statement", name)
+					.register(registry);
+			rowCounts[statement.ordinal()] = DistributionSummary.builder("dogs.sql.rows")
+					.description("Rows returned or changed by a DogService SQL statement")
+					.baseUnit("rows")
+					.tag("statement", name)
+					.register(registry);
+		}
+	}
+
+	private static Timer callTimer(MeterRegistry registry, Call call, String outcome) {
+		return Timer.builder("dogs.service.calls")
+				.description("Time spent in a public DogService method")
+				.tag("method", call.method)
+				.tag("outcome", outcome)
+				.register(registry);
+	}
+
+	/**
+	 * Runs the work and records its duration against the call, as an error if it throws.
+	 */
+	public <T, E extends Exception> T time(Call call, TimedWork<T, E> work) throws E {
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			T result = work.run();
+			success = true;
+			return result;
+		} finally {
+			recordCall(call, System.nanoTime() - start, success);
+		}
+	}
+
+	/**
+	 * Records a call whose duration was measured by the caller, e.g. from subscription to completion of a
+	 * ReactiveDogService publisher.
+	 */
+	public void recordCall(Call call, long nanos, boolean success) {
+		Timer timer = success ? successTimers[call.ordinal()] : errorTimers[call.ordinal()];
+		timer.record(nanos, TimeUnit.NANOSECONDS);
+	}
+
+	/**
+	 * Records a statement that changed rows, or a query whose rows were not mapped to DogDTOs.
+	 */
+	public void recordExecution(Statement statement, long executionNanos, long rows) {
+		executionTimers[statement.ordinal()].record(executionNanos, TimeUnit.NANOSECONDS);
+		rowCounts[statement.ordinal()].record(rows);
+	}
+
+	/**
+	 * Records a query: the time to execute it, the time to read and map its rows, and how many there were.
+	 */
+	public void recordQuery(Statement statement, long executionNanos, long mappingNanos, long rows) {
+		recordExecution(statement, executionNanos, rows);
+		mappingTimers[statement.ordinal()].record(mappingNanos, TimeUnit.NANOSECONDS);
+	}
+}
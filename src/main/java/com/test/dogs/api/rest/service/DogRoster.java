@@ -0,0 +1,479 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Copy-on-write, in-memory snapshot of every record in the DOGS table, so that the roster reads
+ * (all active dogs, all dogs, one dog by ID or badge) are answered without a query.
+ *
+ * A snapshot is immutable: the records sorted by ID, the active records sorted by ID and the records sorted by
+ * badge ID. The records are read-only copies (ReadOnlyDog), so that a caller cannot change what other readers
+ * see. Readers take the current snapshot from a volatile field and never lock. Each committed write, announced
+ * by a DogChangedEvent with the record as written, copies the arrays with the record inserted, replaced or
+ * removed and publishes the copy, so a reader always sees one consistent, committed state of the table.
+ * The writes of a batch (DogBatchChangedEvent) are merged into the arrays together, in one copy.
+ *
+ * The snapshot is loaded when the application is ready. Until then isReady() is false and DogService keeps
+ * reading from the database. If that load fails, reads keep going to the database and the next read after
+ * RETRY_INTERVAL tries the load again, so a database that was briefly unavailable at startup does not leave the
+ * roster unused for the life of the application.
+ */
+@Component
+public class DogRoster {
+
+	private static final Logger log = LoggerFactory.getLogger(DogRoster.class);
+
+	private static final ToIntFunction<DogDTO> BY_ID = dog -> dog.getId().intValue();
+
+	private static final ToIntFunction<DogDTO> BY_BADGE = DogDTO::getBadgeID;
+
+	// Time between attempts to load the roster after a failed one
+	private static final Duration RETRY_INTERVAL = Duration.ofSeconds(10);
+
+	private final DataSource dataSource;
+
+	private final long retryIntervalNanos;
+
+	// Serializes the writers (rebuilds and changes); readers only read the snapshot field.
+	// Not a monitor, so that a virtual thread waiting for a rebuild does not pin its carrier.
+	private final ReentrantLock writeLock = new ReentrantLock();
+
+	private volatile Snapshot snapshot;
+
+	// Set once the application is ready: from then on, a roster that could not be loaded is loaded on a later read
+	private volatile boolean loadRequested;
+
+	// The System.nanoTime() before which a failed load is not tried again
+	private volatile long nextAttempt;
+
+	@Autowired
+	public DogRoster(DataSource dataSource) {
+		this(dataSource, RETRY_INTERVAL);
+	}
+
+	DogRoster(DataSource dataSource, Duration retryInterval) {
+		this.dataSource = dataSource;
+		this.retryIntervalNanos = retryInterval.toNanos();
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		loadRequested = true;
+		tryRebuild();
+	}
+
+	/**
+	 * Loads the snapshot, or logs the failure and sets the time of the next attempt.
+	 */
+	private void tryRebuild() {
+		try {
+			rebuild();
+		} catch (SQLException e) {
+			// Reads keep going to the database until the roster has been loaded
+			nextAttempt = System.nanoTime() + retryIntervalNanos;
+			log.warn("Could not load the dog roster, falling back to SQL reads and trying again in {}",
+					Duration.ofNanos(retryIntervalNanos), e);
+		}
+	}
+
+	/**
+	 * Reloads the snapshot from every record in the DOGS table.
+	 * Changes published while the rebuild runs are applied once it has finished.
+	 */
+	public void rebuild() throws SQLException {
+		String sql = "SELECT * FROM DOGS ORDER BY ID";
+
+		writeLock.lock();
+		try (Connection conn = dataSource.getConnection();
+		     PreparedStatement preparedStatement = conn.prepareStatement(sql);
+		     ResultSet rs = preparedStatement.executeQuery()) {
+
+			List<DogDTO> dogs = new ArrayList<>();
+			while (rs.next()) {
+				dogs.add(new ReadOnlyDog(DogService.mapResultSetToDogDto(rs)));
+			}
+			snapshot = new Snapshot(dogs.toArray(new DogDTO[0]));
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * Applies a committed write by publishing a new snapshot with the record replaced.
+	 * A record is only replaced by a newer version, so events that arrive out of order cannot roll it back.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.READ_MODEL_ORDER)
+	public void onDogChanged(DogChangedEvent event) {
+		apply(List.of(event));
+	}
+
+	/**
+	 * Applies the committed writes of a batch by publishing one new snapshot with all of them.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.READ_MODEL_ORDER)
+	public void onDogsChanged(DogBatchChangedEvent batch) {
+		apply(batch.getChanges());
+	}
+
+	private void apply(List<DogChangedEvent> changes) {
+		List<DogDTO> dogs = new ArrayList<>(changes.size());
+		for (DogChangedEvent change : changes) {
+			dogs.add(new ReadOnlyDog(change.getDog()));
+		}
+
+		writeLock.lock();
+		try {
+			// Not loaded yet: the rebuild, which runs after this commit, reads the change itself
+			if (snapshot != null) {
+				snapshot = snapshot.with(dogs);
+			}
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	/**
+	 * @return true once the roster has been loaded and can answer reads.
+	 */
+	public boolean isReady() {
+		return snapshot != null;
+	}
+
+	/**
+	 * Returns the current state of the table. Reads that need several lookups should make them all on the same
+	 * snapshot, so that they see one state.
+	 * If the roster could not be loaded and the retry interval has passed, loads it first; only one reader does,
+	 * while the others carry on without it.
+	 * @return The current snapshot, or null if the roster has not been loaded.
+	 */
+	public Snapshot snapshot() {
+		Snapshot current = snapshot;
+		if (current == null && loadRequested && System.nanoTime() - nextAttempt >= 0 && writeLock.tryLock()) {
+			try {
+				if (snapshot == null) {
+					tryRebuild();
+				}
+			} finally {
+				writeLock.unlock();
+			}
+			current = snapshot;
+		}
+		return current;
+	}
+
+	private static DogDTO find(DogDTO[] dogs, ToIntFunction<DogDTO> key, int value) {
+		int found = search(dogs, key, value);
+		return found >= 0 ? dogs[found] : null;
+	}
+
+	/**
+	 * Binary search of an array sorted by the given key, with the same result convention as Arrays.binarySearch.
+	 */
+	private static int search(DogDTO[] dogs, ToIntFunction<DogDTO> key, int value) {
+		int low = 0;
+		int high = dogs.length - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			int middleValue = key.applyAsInt(dogs[middle]);
+			if (middleValue < value) {
+				low = middle + 1;
+			} else if (middleValue > value) {
+				high = middle - 1;
+			} else {
+				return middle;
+			}
+		}
+		return -(low + 1);
+	}
+
+	/**
+	 * Returns a copy of the sorted array without the given records and with the added ones merged in.
+	 * @param removed Records to leave out, compared by identity.
+	 * @param added Records to add, sorted by the same key.
+	 */
+	private static DogDTO[] merge(DogDTO[] dogs, ToIntFunction<DogDTO> key, Set<DogDTO> removed, List<DogDTO> added) {
+		List<DogDTO> merged = new ArrayList<>(dogs.length + added.size());
+		int next = 0;
+		for (DogDTO dog : dogs) {
+			if (removed.contains(dog)) {
+				continue;
+			}
+			int value = key.applyAsInt(dog);
+			while (next < added.size() && key.applyAsInt(added.get(next)) < value) {
+				merged.add(added.get(next++));
+			}
+			merged.add(dog);
+		}
+		merged.addAll(added.subList(next, added.size()));
+		return merged.toArray(new DogDTO[0]);
+	}
+
+	/**
+	 * One immutable state of the table. The arrays are never written after construction, and the records they
+	 * hold, shared by every reader, are ReadOnlyDogs.
+	 */
+	public static final class Snapshot {
+
+		private final DogDTO[] all;
+		private final DogDTO[] active;
+		private final DogDTO[] byBadge;
+
+		private final List<DogDTO> allList;
+		private final List<DogDTO> activeList;
+
+		/**
+		 * Builds the snapshot of a full load, from the records in ID order.
+		 */
+		Snapshot(DogDTO[] all) {
+			this(all,
+					Arrays.stream(all).filter(dog -> dog.getDateDeleted() == null).toArray(DogDTO[]::new),
+					Arrays.stream(all).filter(dog -> dog.getBadgeID() != null)
+							.sorted((a, b) -> Integer.compare(a.getBadgeID(), b.getBadgeID())).toArray(DogDTO[]::new));
+		}
+
+		private Snapshot(DogDTO[] all, DogDTO[] active, DogDTO[] byBadge) {
+			this.all = all;
+			this.active = active;
+			this.byBadge = byBadge;
+			this.allList = Collections.unmodifiableList(Arrays.asList(all));
+			this.activeList = Collections.unmodifiableList(Arrays.asList(active));
+		}
+
+		/**
+		 * @return the number of records, including deleted records.
+		 */
+		public int size() {
+			return all.length;
+		}
+
+		/**
+		 * @return The active records in ID order.
+		 */
+		public List<DogDTO> getActiveDogs() {
+			return activeList;
+		}
+
+		/**
+		 * @return Every record, including deleted records, in ID order.
+		 */
+		public List<DogDTO> getAllDogs() {
+			return allList;
+		}
+
+		/**
+		 * Looks up the active records with the given IDs, skipping IDs that are unknown or deleted.
+		 * @param ids IDs in ascending order, as returned by DogSearchIndex.
+		 * @return The records in the same order.
+		 */
+		public List<DogDTO> getActiveDogs(int[] ids) {
+			List<DogDTO> dogs = new ArrayList<>(ids.length);
+			for (int id : ids) {
+				DogDTO dog = find(active, BY_ID, id);
+				if (dog != null) {
+					dogs.add(dog);
+				}
+			}
+			return dogs;
+		}
+
+		/**
+		 * @return The record with the given ID, including a deleted record, or null.
+		 */
+		public DogDTO findById(int id) {
+			return find(all, BY_ID, id);
+		}
+
+		/**
+		 * @return The record with the given badge ID, including a deleted record, or null.
+		 */
+		public DogDTO findByBadgeId(int badgeId) {
+			return find(byBadge, BY_BADGE, badgeId);
+		}
+
+		/**
+		 * Returns the snapshot with the given records in place of the stored ones, leaving out those that are not
+		 * newer than the stored record, or this snapshot if none is. The arrays are copied once, however many
+		 * records change.
+		 */
+		Snapshot with(List<DogDTO> dogs) {
+			// The newest version of each changed record, in ID order
+			TreeMap<Integer, DogDTO> changed = new TreeMap<>();
+			for (DogDTO dog : dogs) {
+				int id = dog.getId().intValue();
+				DogDTO stored = changed.containsKey(id) ? changed.get(id) : find(all, BY_ID, id);
+				if (stored == null || stored.getVersion() == null || dog.getVersion() == null
+						|| stored.getVersion() < dog.getVersion()) {
+					changed.put(id, dog);
+				}
+			}
+			if (changed.isEmpty()) {
+				return this;
+			}
+
+			// The stored records leave every array they are in, and the new ones join those they belong in
+			Set<DogDTO> replaced = Collections.newSetFromMap(new IdentityHashMap<>());
+			for (int id : changed.keySet()) {
+				DogDTO previous = find(all, BY_ID, id);
+				if (previous != null) {
+					replaced.add(previous);
+				}
+			}
+			List<DogDTO> byId = new ArrayList<>(changed.values());
+			List<DogDTO> newActive = byId.stream().filter(dog -> dog.getDateDeleted() == null).collect(Collectors.toList());
+			List<DogDTO> newBadges = byId.stream().filter(dog -> dog.getBadgeID() != null)
+					.sorted(Comparator.comparingInt(BY_BADGE)).collect(Collectors.toList());
+
+			return new Snapshot(merge(all, BY_ID, replaced, byId), merge(active, BY_ID, replaced, newActive),
+					merge(byBadge, BY_BADGE, replaced, newBadges));
+		}
+	}
+
+	/**
+	 * A record as the roster holds it: its setters throw UnsupportedOperationException, and its dates are
+	 * returned as copies, since java.sql.Date and Timestamp are mutable. new DogDTO(dog) gives a writable copy.
+	 */
+	static final class ReadOnlyDog extends DogDTO {
+
+		ReadOnlyDog(DogDTO dog) {
+			super(dog);
+		}
+
+		@Override
+		public Date getBirthDate() {
+			return copy(super.getBirthDate());
+		}
+
+		@Override
+		public Date getDateAcquired() {
+			return copy(super.getDateAcquired());
+		}
+
+		@Override
+		public Date getLeavingDate() {
+			return copy(super.getLeavingDate());
+		}
+
+		@Override
+		public Date getDateDeleted() {
+			return copy(super.getDateDeleted());
+		}
+
+		@Override
+		public Timestamp getLastModified() {
+			Timestamp lastModified = super.getLastModified();
+			return lastModified != null ? (Timestamp) lastModified.clone() : null;
+		}
+
+		@Override
+		public void setId(Long id) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setName(String name) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setBreed(String breed) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setSupplier(String supplier) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setBadgeID(Integer badgeID) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setGender(String gender) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setBirthDate(Date birthDate) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setDateAcquired(Date dateAcquired) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setStatus(String status) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setLeavingDate(Date leavingDate) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setLeavingReason(String leavingReason) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setKennelingCharacteristics(String kennelingCharacteristics) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setDateDeleted(Date dateDeleted) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setVersion(Long version) {
+			throw readOnly();
+		}
+
+		@Override
+		public void setLastModified(Timestamp lastModified) {
+			throw readOnly();
+		}
+
+		private static Date copy(Date date) {
+			return date != null ? (Date) date.clone() : null;
+		}
+
+		private static UnsupportedOperationException readOnly() {
+			return new UnsupportedOperationException("Records served from the roster are read-only; copy them with new DogDTO(dog)");
+		}
+	}
+}
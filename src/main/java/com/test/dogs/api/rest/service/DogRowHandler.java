@@ -0,0 +1,14 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogDTO;
+
+import java.io.IOException;
+
+/**
+ * Callback used by DogService to hand over records one at a time while streaming a result set.
+ */
+@FunctionalInterface
+public interface DogRowHandler {
+
+	void handle(DogDTO dog) throws IOException;
+}
@@ -0,0 +1,313 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram index over the name, breed and supplier of active dogs.
+ *
+ * Resolves the free-text filter to the matching IDs without a table scan: the posting lists of the
+ * term's trigrams are intersected, then each candidate is checked for the full substring, so the
+ * result is the same as the case-sensitive NAME/BREED/SUPPLIER LIKE '%term%' query.
+ * The index is loaded when the application is ready and kept current from DogChangedEvents. The version of every
+ * record, deleted or not, is kept with it, so that an event published out of order cannot bring back older values.
+ */
+@Component
+public class DogSearchIndex {
+
+	private static final Logger log = LoggerFactory.getLogger(DogSearchIndex.class);
+
+	private static final int GRAM_LENGTH = 3;
+
+	private static final int[] NO_MATCHES = new int[0];
+
+	private final DataSource dataSource;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	// Trigram -> sorted IDs of the dogs whose name, breed or supplier contains it
+	private final Map<String, PostingList> postings = new HashMap<>();
+
+	// ID -> indexed fields (name, breed, supplier), used to verify candidates and to un-index on change
+	private final Map<Integer, String[]> documents = new HashMap<>();
+
+	// ID -> version of the record the index holds, including deleted records, to skip events that are not newer
+	private final Map<Integer, Long> versions = new HashMap<>();
+
+	private volatile boolean ready;
+
+	@Autowired
+	public DogSearchIndex(DataSource dataSource) {
+		this.dataSource = dataSource;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		try {
+			rebuild();
+		} catch (SQLException e) {
+			// Searches keep using the LIKE query until the index has been loaded
+			log.warn("Could not load the dog search index, falling back to SQL filtering", e);
+		}
+	}
+
+	/**
+	 * Reloads the index from all active records in the DOGS table.
+	 * Changes published while the rebuild runs are applied once it has finished.
+	 */
+	public void rebuild() throws SQLException {
+		String sql = "SELECT ID, NAME, BREED, SUPPLIER, VERSION, DATEDELETED FROM DOGS";
+
+		lock.writeLock().lock();
+		try (Connection conn = dataSource.getConnection();
+		     PreparedStatement preparedStatement = conn.prepareStatement(sql);
+		     ResultSet rs = preparedStatement.executeQuery()) {
+
+			postings.clear();
+			documents.clear();
+			versions.clear();
+
+			while (rs.next()) {
+				int id = rs.getInt("ID");
+				versions.put(id, rs.getLong("VERSION"));
+				if (rs.getDate("DATEDELETED") == null) {
+					add(id, new String[] {rs.getString("NAME"), rs.getString("BREED"), rs.getString("SUPPLIER")});
+				}
+			}
+			ready = true;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Applies a committed write: active records are (re-)indexed, deleted records are removed. A write older than
+	 * the version already indexed is ignored.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.READ_MODEL_ORDER)
+	public void onDogChanged(DogChangedEvent event) {
+		onDogsChanged(new DogBatchChangedEvent(List.of(event)));
+	}
+
+	/**
+	 * Applies the committed writes of a batch under one acquisition of the lock.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.READ_MODEL_ORDER)
+	public void onDogsChanged(DogBatchChangedEvent batch) {
+		lock.writeLock().lock();
+		try {
+			for (DogChangedEvent change : batch.getChanges()) {
+				DogDTO dog = change.getDog();
+				int id = (int) change.getId();
+				Long indexed = versions.get(id);
+				if (indexed != null && dog.getVersion() != null && indexed >= dog.getVersion()) {
+					continue;
+				}
+				if (dog.getVersion() != null) {
+					versions.put(id, dog.getVersion());
+				}
+				remove(id);
+				if (dog.getDateDeleted() == null) {
+					add(id, new String[] {dog.getName(), dog.getBreed(), dog.getSupplier()});
+				}
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * @return true once the index has been loaded and can answer searches.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * @return the number of indexed (active) dogs.
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return documents.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Finds the active dogs whose name, breed or supplier contains the term (case-sensitive).
+	 * @param term The search term, taken literally.
+	 * @return The matching IDs in ascending order.
+	 */
+	public int[] search(String term) {
+		lock.readLock().lock();
+		try {
+			if (term.length() < GRAM_LENGTH) {
+				return scan(term);
+			}
+
+			// Intersect the posting lists, starting from the shortest
+			List<PostingList> lists = new ArrayList<>();
+			for (String gram : trigrams(term)) {
+				PostingList list = postings.get(gram);
+				if (list == null) {
+					return NO_MATCHES;
+				}
+				lists.add(list);
+			}
+			lists.sort(Comparator.comparingInt(list -> list.size));
+
+			PostingList shortest = lists.get(0);
+			int[] matches = new int[shortest.size];
+			int count = 0;
+
+			for (int i = 0; i < shortest.size; i++) {
+				int id = shortest.ids[i];
+				if (containsInAll(lists, id) && matches(documents.get(id), term)) {
+					matches[count++] = id;
+				}
+			}
+
+			return Arrays.copyOf(matches, count);
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Terms shorter than a trigram cannot use the posting lists, so check every indexed document instead.
+	 */
+	private int[] scan(String term) {
+		int[] matches = new int[documents.size()];
+		int count = 0;
+
+		for (Map.Entry<Integer, String[]> entry : documents.entrySet()) {
+			if (matches(entry.getValue(), term)) {
+				matches[count++] = entry.getKey();
+			}
+		}
+
+		int[] result = Arrays.copyOf(matches, count);
+		Arrays.sort(result);
+		return result;
+	}
+
+	private static boolean containsInAll(List<PostingList> lists, int id) {
+		for (int i = 1; i < lists.size(); i++) {
+			if (!lists.get(i).contains(id)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean matches(String[] fields, String term) {
+		for (String field : fields) {
+			if (field != null && field.contains(term)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private void add(int id, String[] fields) {
+		documents.put(id, fields);
+
+		for (String field : fields) {
+			for (String gram : trigrams(field)) {
+				postings.computeIfAbsent(gram, key -> new PostingList()).add(id);
+			}
+		}
+	}
+
+	private void remove(int id) {
+		String[] fields = documents.remove(id);
+		if (fields == null) {
+			return;
+		}
+
+		for (String field : fields) {
+			for (String gram : trigrams(field)) {
+				PostingList list = postings.get(gram);
+				if (list != null && list.remove(id) && list.size == 0) {
+					postings.remove(gram);
+				}
+			}
+		}
+	}
+
+	private static Set<String> trigrams(String value) {
+		Set<String> grams = new HashSet<>();
+		if (value != null) {
+			for (int i = 0; i + GRAM_LENGTH <= value.length(); i++) {
+				grams.add(value.substring(i, i + GRAM_LENGTH));
+			}
+		}
+		return grams;
+	}
+
+	/**
+	 * Sorted, growable list of IDs. New dogs get increasing IDs, so adds are almost always appends.
+	 */
+	private static final class PostingList {
+
+		private int[] ids = new int[4];
+		private int size;
+
+		void add(int id) {
+			int position = size;
+			if (size > 0 && ids[size - 1] >= id) {
+				int found = Arrays.binarySearch(ids, 0, size, id);
+				if (found >= 0) {
+					return;
+				}
+				position = -found - 1;
+			}
+
+			if (size == ids.length) {
+				ids = Arrays.copyOf(ids, size * 2);
+			}
+			System.arraycopy(ids, position, ids, position + 1, size - position);
+			ids[position] = id;
+			size++;
+		}
+
+		boolean remove(int id) {
+			int found = Arrays.binarySearch(ids, 0, size, id);
+			if (found < 0) {
+				return false;
+			}
+			System.arraycopy(ids, found + 1, ids, found, size - found - 1);
+			size--;
+			return true;
+		}
+
+		boolean contains(int id) {
+			return Arrays.binarySearch(ids, 0, size, id) >= 0;
+		}
+	}
+}
@@ -1,131 +1,538 @@
 package com.test.dogs.api.rest.service;
 
+import com.test.dogs.api.rest.model.DogBatchResult;
 import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogField;
+import com.test.dogs.api.rest.model.DogFields;
+import com.test.dogs.api.rest.model.DogPage;
+import com.test.dogs.api.rest.model.DogQuery;
 import com.test.dogs.api.rest.exception.DogNotFoundException;
+import com.test.dogs.api.rest.exception.DogPreconditionFailedException;
 import com.test.dogs.api.rest.exception.DogServiceException;
 import com.test.dogs.api.rest.exception.DogValidationException;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
 
+import javax.sql.DataSource;
+import java.io.IOException;
 import java.sql.*;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class DogService {
 
-	@Value("${spring.datasource.url}")
-	private String DB_URL;
+	private static final String FILTER_CLAUSE = " AND (NAME LIKE ? OR BREED LIKE ? OR SUPPLIER LIKE ?)";
 
-	@Value("${spring.datasource.username}")
-	private String DB_USER;
+	private static final int EXPORT_FETCH_SIZE = 500;
 
-	@Value("${spring.datasource.password}")
-	private String DB_PASSWORD;
+	// Conditional UPDATE attempts before giving up on a record that keeps changing underneath
+	private static final int MAX_UPDATE_ATTEMPTS = 3;
 
+	// The SQL INSERT statement to add record to the database
+	private static final String INSERT_SQL = "INSERT INTO DOGS (name, breed, supplier, badgeID, gender, birthDate, dateAcquired, status, leavingDate, leavingReason, kennelingCharacteristics, lastModified) " +
+			"VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+	// The same insert, returning the stored row (H2 data change delta table)
+	private static final String INSERT_RETURNING_SQL = "SELECT * FROM FINAL TABLE (" + INSERT_SQL + ")";
+
+	// The columns a partial update can change, in the order UPDATE_SQL binds them
+	private static final List<DogField> UPDATABLE = Arrays.asList(
+			DogField.NAME, DogField.BREED, DogField.SUPPLIER, DogField.BADGE_ID, DogField.GENDER, DogField.BIRTH_DATE,
+			DogField.DATE_ACQUIRED, DogField.STATUS, DogField.LEAVING_DATE, DogField.LEAVING_REASON,
+			DogField.KENNELING_CHARACTERISTICS);
+
+	// Every write bumps the version and stamps the time, which the endpoint turns into ETag and Last-Modified.
+	// A partial update binds null for each column it does not change, which keeps the current value, so every
+	// update has the same text whichever fields it changes and reuses one cached statement
+	private static final String UPDATE_SQL = "UPDATE DOGS SET " + UPDATABLE.stream()
+			.map(field -> field.getColumn() + " = COALESCE(?, " + field.getColumn() + ")")
+			.collect(Collectors.joining(", ")) + ", version = version + 1, lastModified = ? WHERE ID = ?";
+
+	// The same update, applied only while the row is still at the version the changes were validated against
+	private static final String CONDITIONAL_UPDATE_SQL = UPDATE_SQL + " AND version = ?";
+
+	private static final String SOFT_DELETE_SQL = "UPDATE DOGS SET dateDeleted = ?, version = version + 1, lastModified = ? WHERE ID = ?";
+
+	// The same soft delete, returning the deleted row for the change event
+	private static final String SOFT_DELETE_RETURNING_SQL = "SELECT * FROM FINAL TABLE (" + SOFT_DELETE_SQL + ")";
+
+	// SQLSTATE for a unique constraint violation; the only unique key a client can set is BADGEID
+	private static final String UNIQUE_VIOLATION = "23505";
+
+	private final DataSource dataSource;
+
+	private final DogSearchIndex searchIndex;
+
+	private final DogRoster roster;
+
+	private final DogCache dogCache;
+
+	private final DogStatementCache statementCache;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final DogMetrics metrics;
+
+	@Autowired
+	public DogService(DataSource dataSource, DogSearchIndex searchIndex, DogRoster roster, DogCache dogCache,
+	                  DogStatementCache statementCache, ApplicationEventPublisher eventPublisher, DogMetrics metrics) {
+		this.dataSource = dataSource;
+		this.searchIndex = searchIndex;
+		this.roster = roster;
+		this.dogCache = dogCache;
+		this.statementCache = statementCache;
+		this.eventPublisher = eventPublisher;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Borrows a connection from the pooled DataSource. Closing the connection returns it to the pool.
+	 */
 	private Connection getConnection() throws SQLException {
 
-		return java.sql.DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+		return dataSource.getConnection();
 	}
 
 	/**
 	 * Retrieves all active records from the DOGS table and maps them to a list.
+	 * Once the roster is loaded the list is served from it: the list and its records are shared and read-only.
 	 * @return A List of DogDTO objects, or an empty list if no dogs are found.
 	 */
 	public List<DogDTO> getAllDogsList(String filter) {
+		return getAllDogsList(filter, null);
+	}
+
+	/**
+	 * Retrieves all active records, reading only the columns of the given fieldset.
+	 * The roster holds whole records, so when it answers every field is set; DogView still writes only the fieldset.
+	 * @param fields The fields to read, or null for every field.
+	 * @return A List of DogDTO objects with at least those fields (and the ID) set.
+	 */
+	public List<DogDTO> getAllDogsList(String filter, DogFields fields) {
+		return metrics.time(DogMetrics.Call.GET_ALL_DOGS_LIST, () -> doGetAllDogsList(filter, fields));
+	}
+
+	private List<DogDTO> doGetAllDogsList(String filter, DogFields fields) {
+
+		// Resolve the filter from the in-memory search index when possible, avoiding a full table scan
+		String term = filter != null ? filter.trim() : "";
+		DogRoster.Snapshot snapshot = roster.snapshot();
+		if (snapshot != null && term.isEmpty()) {
+			return snapshot.getActiveDogs();
+		}
+		if (useSearchIndex(term)) {
+			int[] ids = searchIndex.search(term);
+			return snapshot != null ? snapshot.getActiveDogs(ids) : getActiveDogsByIds(ids, fields);
+		}
 
 		// Only select active records
-		String sql = "SELECT * FROM DOGS WHERE dateDeleted IS NULL";
+		String sql = select(fields) + " WHERE dateDeleted IS NULL";
 
-		List<String> parameters = new ArrayList<>();
+		List<String> parameters = filterParameters(filter);
 
 		// Check if a filter term was provided
-		if (filter != null && !filter.trim().isEmpty()) {
-			sql += " AND (NAME LIKE ? OR BREED LIKE ? OR SUPPLIER LIKE ?)";
+		if (!parameters.isEmpty()) {
+			sql += FILTER_CLAUSE;
+		}
+
+		try (Connection conn = getConnection();
+		     PreparedStatement preparedStatement = statementCache.prepare(conn, sql)) {
+
+			// Set the filter parameters, if the filter was used
+			for (int i = 0; i < parameters.size(); i++) {
+				preparedStatement.setString(i + 1, parameters.get(i));
+			}
+
+			return queryDogs(preparedStatement, DogMetrics.Statement.LIST_ACTIVE, fields);
+		} catch (SQLException e) {
+			throw new DogServiceException("Error while retrieving all dogs: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Retrieves one page of active records, ordered by ID, starting after the position encoded in the cursor.
+	 * Uses keyset pagination (ID > last seen ID) so deep pages cost the same as the first one.
+	 * @param filter Optional search term applied to name, breed and supplier.
+	 * @param cursor Opaque cursor from a previous page, or null for the first page.
+	 * @param limit Maximum number of records to return, or null for the default page size.
+	 * @return A DogPage with the records and the cursor for the next page, if there is one.
+	 */
+	public DogPage getAllDogsPage(String filter, String cursor, Integer limit) {
+		return getAllDogsPage(filter, cursor, limit, null);
+	}
+
+	/**
+	 * Retrieves one page of active records, reading only the columns of the given fieldset (or every field if null).
+	 */
+	public DogPage getAllDogsPage(String filter, String cursor, Integer limit, DogFields fields) {
+		return metrics.time(DogMetrics.Call.GET_ALL_DOGS_PAGE, () -> doGetAllDogsPage(filter, cursor, limit, fields));
+	}
 
+	private DogPage doGetAllDogsPage(String filter, String cursor, Integer limit, DogFields fields) {
+		int pageSize = DogValidator.pageSize(limit);
+		long afterId = cursor != null ? DogCursor.decode(cursor) : 0L;
+
+		String term = filter != null ? filter.trim() : "";
+		if (useSearchIndex(term)) {
+			// The index returns IDs in ascending order, so the page is a slice after the cursor
+			int[] ids = searchIndex.search(term);
+			int from = Arrays.binarySearch(ids, (int) Math.min(afterId, Integer.MAX_VALUE));
+			from = from >= 0 ? from + 1 : -from - 1;
+
+			// The index catches up with a write after it commits, so some of the IDs may have just been deleted:
+			// keep fetching until the page is full, and let the index tell whether more follow
+			List<DogDTO> dogs = new ArrayList<>();
+			while (dogs.size() < pageSize && from < ids.length) {
+				int to = Math.min(from + pageSize - dogs.size(), ids.length);
+				dogs.addAll(getActiveDogsByIds(Arrays.copyOfRange(ids, from, to), fields));
+				from = to;
+			}
+			return new DogPage(dogs, from < ids.length ? DogCursor.encode(ids[from - 1]) : null);
+		}
+
+		String sql = select(fields) + " WHERE dateDeleted IS NULL";
+
+		List<String> parameters = filterParameters(filter);
+		if (!parameters.isEmpty()) {
+			sql += FILTER_CLAUSE;
+		}
+
+		return queryPage(sql + " AND ID > ?", parameters, afterId, pageSize, fields);
+	}
+
+	/**
+	 * Retrieves one page of all records, including deleted records, ordered by ID.
+	 * @param cursor Opaque cursor from a previous page, or null for the first page.
+	 * @param limit Maximum number of records to return, or null for the default page size.
+	 * @return A DogPage with the records and the cursor for the next page, if there is one.
+	 */
+	public DogPage getAllDogsIncludingDeletedPage(String cursor, Integer limit) {
+		return getAllDogsIncludingDeletedPage(cursor, limit, null);
+	}
+
+	/**
+	 * Retrieves one page of all records, reading only the columns of the given fieldset (or every field if null).
+	 */
+	public DogPage getAllDogsIncludingDeletedPage(String cursor, Integer limit, DogFields fields) {
+		return metrics.time(DogMetrics.Call.GET_ALL_DOGS_INCLUDING_DELETED_PAGE, () -> {
+			int pageSize = DogValidator.pageSize(limit);
+			long afterId = cursor != null ? DogCursor.decode(cursor) : 0L;
+
+			return queryPage(select(fields) + " WHERE ID > ?", new ArrayList<>(), afterId, pageSize, fields);
+		});
+	}
+
+	/**
+	 * Runs a keyset-paginated query. The SQL must end with the "ID > ?" condition, which is bound after
+	 * the given string parameters. One extra row is fetched to find out whether another page follows.
+	 */
+	private DogPage queryPage(String sql, List<String> parameters, long afterId, int pageSize, DogFields fields) {
+		sql += " ORDER BY ID LIMIT ?";
+		List<DogDTO> dogs;
+
+		try (Connection conn = getConnection();
+		     PreparedStatement preparedStatement = statementCache.prepare(conn, sql)) {
+
+			int index = 1;
+			for (String parameter : parameters) {
+				preparedStatement.setString(index++, parameter);
+			}
+			preparedStatement.setLong(index++, afterId);
+			preparedStatement.setInt(index, pageSize + 1);
+
+			dogs = queryDogs(preparedStatement, DogMetrics.Statement.LIST_PAGE, fields);
+		} catch (SQLException e) {
+			throw new DogServiceException("Error while retrieving page of dogs: " + e.getMessage(), e);
+		}
+
+		return toPage(dogs, pageSize);
+	}
+
+	/**
+	 * Turns up to pageSize + 1 fetched rows into a page, with a next cursor if the look-ahead row exists.
+	 */
+	static DogPage toPage(List<DogDTO> dogs, int pageSize) {
+		String nextCursor = null;
+		if (dogs.size() > pageSize) {
+			dogs.subList(pageSize, dogs.size()).clear();
+			nextCursor = DogCursor.encode(dogs.get(pageSize - 1).getId());
+		}
+
+		return new DogPage(dogs, nextCursor);
+	}
+
+	/**
+	 * The search index matches terms literally, so terms containing LIKE wildcards keep using SQL.
+	 */
+	private boolean useSearchIndex(String term) {
+		return !term.isEmpty() && term.indexOf('%') < 0 && term.indexOf('_') < 0 && searchIndex.isReady();
+	}
+
+	/**
+	 * Fetches the active records with the given IDs, in ID order, using primary key lookups.
+	 */
+	private List<DogDTO> getActiveDogsByIds(int[] ids, DogFields fields) {
+		if (ids.length == 0) {
+			return new ArrayList<>();
+		}
+
+		String sql = select(fields) + " WHERE ID = ANY(?) AND dateDeleted IS NULL ORDER BY ID";
+
+		try (Connection conn = getConnection();
+		     PreparedStatement preparedStatement = statementCache.prepare(conn, sql)) {
+
+			Integer[] boxedIds = Arrays.stream(ids).boxed().toArray(Integer[]::new);
+			preparedStatement.setArray(1, conn.createArrayOf("INTEGER", boxedIds));
+
+			return queryDogs(preparedStatement, DogMetrics.Statement.LIST_ACTIVE_BY_IDS, fields);
+		} catch (SQLException e) {
+			throw new DogServiceException("Error while retrieving dogs by ID: " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Builds the LIKE parameters for the free-text filter, or an empty list if no filter was provided.
+	 */
+	private List<String> filterParameters(String filter) {
+		List<String> parameters = new ArrayList<>();
+
+		if (filter != null && !filter.trim().isEmpty()) {
 			String searchTerm = "%" + filter.trim() + "%";
 			parameters.add(searchTerm);
 			parameters.add(searchTerm);
 			parameters.add(searchTerm);
 		}
 
-		List<DogDTO> dogs = new ArrayList<>();
+		return parameters;
+	}
 
-		try (Connection conn = getConnection();
-		     PreparedStatement preparedStatement = conn.prepareStatement(sql)) {
+	/**
+	 * Retrieves the records matching a structured query (see DogQuery), reading only the columns of the given
+	 * fieldset (or every field if null).
+	 * The query is compiled to parameterized SQL whose text depends only on which criteria are present, not on
+	 * their values: a list of values is bound as one array parameter. Queries of the same shape therefore reuse
+	 * the database's cached statement plan, and the indexes on the matched and ranged columns.
+	 * @return The matching records, in the requested order.
+	 * @throws DogValidationException if the query could never match or asks for too many records at once
+	 */
+	public List<DogDTO> findDogs(DogQuery query, DogFields fields) {
+		return metrics.time(DogMetrics.Call.FIND_DOGS, () -> {
+			DogValidator.validateQuery(query);
 
-			// Set the filter parameters, if the filter was used
-			for (int i = 0; i < parameters.size(); i++) {
-				preparedStatement.setString(i + 1, parameters.get(i));
-			}
+			try (Connection conn = getConnection();
+			     PreparedStatement preparedStatement = statementCache.prepare(conn, querySql(query, fields))) {
 
-			try (ResultSet rs = preparedStatement.executeQuery()) {
-				while (rs.next()) {
-					DogDTO dog = mapResultSetToDogDto(rs);
-					dogs.add(dog);
+				int index = 1;
+				for (List<String> values : query.getMatches().values()) {
+					preparedStatement.setArray(index++, conn.createArrayOf("VARCHAR", values.toArray()));
+				}
+				for (Date from : query.getFrom().values()) {
+					preparedStatement.setDate(index++, from);
 				}
+				for (Date to : query.getTo().values()) {
+					preparedStatement.setDate(index++, to);
+				}
+				if (query.getLimit() != null) {
+					preparedStatement.setInt(index, query.getLimit());
+				}
+
+				return queryDogs(preparedStatement, DogMetrics.Statement.FIND, fields);
+			} catch (SQLException e) {
+				throw new DogServiceException("Error while querying dogs: " + e.getMessage(), e);
 			}
-		} catch (SQLException e) {
-			throw new DogServiceException("Error while retrieving all dogs: " + e.getMessage(), e);
+		});
+	}
+
+	/**
+	 * Compiles a structured query to SQL, with the parameters in the order findDogs binds them: the value lists,
+	 * the range starts and the range ends, each in DogField order, then the limit.
+	 * Package-private so that the shapes can be checked without a database.
+	 */
+	static String querySql(DogQuery query, DogFields fields) {
+		List<String> conditions = new ArrayList<>();
+		if (!query.isIncludeDeleted()) {
+			conditions.add("dateDeleted IS NULL");
+		}
+		for (DogField field : query.getMatches().keySet()) {
+			conditions.add(field.getColumn() + " = ANY(?)");
+		}
+		for (DogField field : query.getFrom().keySet()) {
+			conditions.add(field.getColumn() + " >= ?");
+		}
+		for (DogField field : query.getTo().keySet()) {
+			conditions.add(field.getColumn() + " <= ?");
 		}
 
-		return dogs;
+		StringBuilder sql = new StringBuilder(select(fields));
+		if (!conditions.isEmpty()) {
+			sql.append(" WHERE ").append(String.join(" AND ", conditions));
+		}
+
+		// Ties are broken by ID, so the order is always fully determined
+		String direction = query.isDescending() ? " DESC" : "";
+		sql.append(" ORDER BY ");
+		if (query.getSort() != DogField.ID) {
+			sql.append(query.getSort().getColumn()).append(direction).append(", ");
+		}
+		sql.append("ID").append(direction);
+
+		if (query.getLimit() != null) {
+			sql.append(" LIMIT ?");
+		}
+		return sql.toString();
 	}
 
 	/**
 	 * Retrieves all records from the DOGS table and maps them to a list, including deleted records.
+	 * Once the roster is loaded the list is served from it: the list and its records are shared and read-only.
 	 * @return A List of DogDTO objects, or an empty list if no dogs are found.
 	 */
 	public List<DogDTO> getAllDogsIncludingDeleted() {
-		String sql = "SELECT * FROM DOGS";
-		List<DogDTO> dogs = new ArrayList<>();
+		return getAllDogsIncludingDeleted(null);
+	}
 
-		try (Connection conn = getConnection();
-		     PreparedStatement preparedStatement = conn.prepareStatement(sql);
-		     ResultSet rs = preparedStatement.executeQuery()) {
+	/**
+	 * Retrieves all records, including deleted records, reading only the columns of the given fieldset
+	 * (or every field if null, or if the roster answers).
+	 */
+	public List<DogDTO> getAllDogsIncludingDeleted(DogFields fields) {
+		return metrics.time(DogMetrics.Call.GET_ALL_DOGS_INCLUDING_DELETED, () -> {
+			DogRoster.Snapshot snapshot = roster.snapshot();
+			if (snapshot != null) {
+				return snapshot.getAllDogs();
+			}
 
-			// Iterate over every row returned by the database
-			while (rs.next()) {
-				// Map the current row's data to a new DogDTO object
-				DogDTO dog = mapResultSetToDogDto(rs);
-				dogs.add(dog);
+			String sql = select(fields);
+
+			try (Connection conn = getConnection();
+			     PreparedStatement preparedStatement = statementCache.prepare(conn, sql)) {
+
+				return queryDogs(preparedStatement, DogMetrics.Statement.LIST_ALL, fields);
+			} catch (SQLException e) {
+				throw new DogServiceException("Error while retrieving all dogs: " + e.getMessage(), e);
 			}
+		});
+	}
 
+	/**
+	 * Streams every record in the DOGS table, including deleted records, to the given handler one row at a time.
+	 * Rows are read with a bounded fetch size and H2 lazy query execution, so memory use does not grow with
+	 * the size of the table. The handler is called on the calling thread while the connection is held.
+	 * @param handler Receives each record as soon as it has been mapped.
+	 * @return The number of records streamed.
+	 * @throws IOException if the handler fails to write a record, e.g. because the client disconnected.
+	 */
+	public long streamAllDogsIncludingDeleted(DogRowHandler handler) throws IOException {
+		return streamAllDogsIncludingDeleted(null, handler);
+	}
+
+	/**
+	 * Streams every record, including deleted records, reading only the columns of the given fieldset
+	 * (or every field if null).
+	 */
+	public long streamAllDogsIncludingDeleted(DogFields fields, DogRowHandler handler) throws IOException {
+		return metrics.time(DogMetrics.Call.STREAM_ALL_DOGS_INCLUDING_DELETED, () -> doStreamAllDogsIncludingDeleted(fields, handler));
+	}
+
+	private long doStreamAllDogsIncludingDeleted(DogFields fields, DogRowHandler handler) throws IOException {
+		String sql = select(fields) + " ORDER BY ID";
+		long count = 0;
+
+		try (Connection conn = getConnection()) {
+			try (Statement statement = conn.createStatement()) {
+				// Stream rows from the cursor instead of materialising the whole result first
+				statement.execute("SET LAZY_QUERY_EXECUTION TRUE");
+			}
+
+			// Not cached: the fetch size and the session's lazy mode are particular to the export
+			try (PreparedStatement preparedStatement = conn.prepareStatement(sql)) {
+				preparedStatement.setFetchSize(EXPORT_FETCH_SIZE);
+
+				long start = System.nanoTime();
+				try (ResultSet rs = preparedStatement.executeQuery()) {
+					long executed = System.nanoTime();
+					while (rs.next()) {
+						handler.handle(mapRow(rs, fields));
+						count++;
+					}
+					// Includes the time the handler spends writing each row to the client
+					metrics.recordQuery(DogMetrics.Statement.EXPORT_ALL, executed - start, System.nanoTime() - executed, count);
+				}
+			} finally {
+				// The connection goes back to the pool, so restore the default mode
+				try (Statement statement = conn.createStatement()) {
+					statement.execute("SET LAZY_QUERY_EXECUTION FALSE");
+				}
+			}
 		} catch (SQLException e) {
-			throw new DogServiceException("Error while retrieving all dogs: " + e.getMessage(), e);
+			throw new DogServiceException("Error while exporting dogs: " + e.getMessage(), e);
 		}
 
-		return dogs;
+		return count;
 	}
 
 	/**
-	 * Retrieves a single record by its ID.
+	 * Retrieves a single record by its ID, from the roster once it is loaded, or else the read-through cache.
 	 * @param id The ID of the record to retrieve.
-	 * @return The specific DogDTO object if found.
+	 * @return The specific DogDTO object if found. The caller owns the returned copy.
 	 * @throws DogNotFoundException if no dog is found with the given ID
 	 */
 	public DogDTO getDogById(int id) {
+		return metrics.time(DogMetrics.Call.GET_DOG_BY_ID, () -> {
+			DogRoster.Snapshot snapshot = roster.snapshot();
+			if (snapshot == null) {
+				return dogCache.get(id, this::loadDogById);
+			}
+
+			DogDTO dog = snapshot.findById(id);
+			if (dog == null) {
+				throw new DogNotFoundException("Dog with ID " + id + " not found");
+			}
+			return new DogDTO(dog);
+		});
+	}
+
+	/**
+	 * Reads a single record from the database, bypassing the cache.
+	 */
+	private DogDTO loadDogById(int id) {
+		try (Connection conn = getConnection()) {
+			return getDogById(conn, id);
+		} catch (SQLException e) {
+			throw new DogServiceException("Error while retrieving dog with ID " + id + ": " + e.getMessage(), e);
+		}
+	}
+
+	/**
+	 * Retrieves a single record by its ID using a connection the caller already holds,
+	 * so that multi-step operations do not borrow a second connection from the pool.
+	 */
+	private DogDTO getDogById(Connection conn, int id) throws SQLException {
 		String sql = "SELECT * FROM DOGS WHERE ID = ?";
 
-		try (Connection conn = getConnection();
-		     PreparedStatement preparedStatement = conn.prepareStatement(sql)) {
+		try (PreparedStatement preparedStatement = statementCache.prepare(conn, sql)) {
 
 			preparedStatement.setInt(1, id);
 
-			try (ResultSet rs = preparedStatement.executeQuery()) {
-
-				if (rs.next()) {
-					DogDTO dog = mapResultSetToDogDto(rs);
-					return dog;
-				} else {
-					throw new DogNotFoundException("Dog with ID " + id + " not found");
-				}
+			DogDTO dog = queryDog(preparedStatement, DogMetrics.Statement.SELECT_BY_ID);
+			if (dog == null) {
+				throw new DogNotFoundException("Dog with ID " + id + " not found");
 			}
-
-		} catch (SQLException e) {
-			throw new DogServiceException("Error while retrieving dog with ID " + id + ": " + e.getMessage(), e);
+			return dog;
 		}
 	}
 
@@ -136,145 +543,209 @@ public class DogService {
 	 * @return The saved DogDTO object with the generated ID.
 	 */
 	public DogDTO saveNewDog(DogDTO dogDto) {
+		return saveNewDog(dogDto, null);
+	}
+
+	/**
+	 * Saves a new entry to the 'DOGS' table on behalf of the given user.
+	 *
+	 * @param dogDto The DogDTO object containing the data to save.
+	 * @param author The authenticated user making the change, recorded with it, or null.
+	 * @return The saved DogDTO object with the generated ID.
+	 */
+	public DogDTO saveNewDog(DogDTO dogDto, String author) {
+		return metrics.time(DogMetrics.Call.SAVE_NEW_DOG, () -> doSaveNewDog(dogDto, author));
+	}
+
+	private DogDTO doSaveNewDog(DogDTO dogDto, String author) {
 
 		try {
 
-			// Dog Name (Required/NOT NULL)
-			String dogName = dogDto.getName();
-			if (dogName == null || dogName.trim().isEmpty()) {
-				throw new DogValidationException("Dog name is required.");
-			}
+			DogDTO newDog = DogValidator.validateNewDog(dogDto);
+			newDog.setLastModified(now());
 
-			// Breed (Required/NOT NULL)
-			String dogBreed = dogDto.getBreed();
-			if (dogBreed == null || dogBreed.trim().isEmpty()) {
-				throw new DogValidationException("Dog breed is required.");
-			}
+			// Badge uniqueness is enforced by the unique constraint on BADGEID, and the stored row
+			// (with its generated ID) comes back from the insert itself: one statement, one round trip
+			try (Connection conn = getConnection();
+			     PreparedStatement preparedStatement = statementCache.prepare(conn, INSERT_RETURNING_SQL)) {
 
-			// Supplier (Optional)
-			String dogSupplier = dogDto.getSupplier();
-			if (dogSupplier == null) {
-				dogSupplier = "";
-			}
+				setInsertParameters(preparedStatement, newDog);
 
-			// 4. Gender (Optional)
-			String dogGender = dogDto.getGender();
-			if (dogGender == null) {
-				dogGender = "";
-			}
+				DogDTO savedDog = queryDog(preparedStatement, DogMetrics.Statement.INSERT);
+				if (savedDog == null) {
+					throw new DogServiceException("Creating dog failed, no record added.");
+				}
+				eventPublisher.publishEvent(new DogChangedEvent(DogChangedEvent.Operation.CREATED, savedDog.getId(), savedDog, null, author));
+				return savedDog;
 
-			// Status (Required - Must be one of the predefined values)
-			String dogStatus = dogDto.getStatus();
-			if (dogStatus == null || dogStatus.trim().isEmpty()) {
-				throw new DogValidationException("Dog status is required.");
+			} catch (SQLException e) {
+				if (isUniqueViolation(e)) {
+					throw new DogValidationException(DogValidator.BADGE_EXISTS_MESSAGE);
+				}
+				throw new DogServiceException("Error while saving new record: " + e.getMessage(), e);
 			}
+		} catch (DogValidationException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new DogServiceException("Unexpected error: " + e.getMessage(), e);
+		}
+	}
 
-			List<String> validStatuses = Arrays.asList("in training", "in service", "retired", "left");
-			if (!validStatuses.contains(dogStatus.toLowerCase())) {
-				throw new DogValidationException("Dog status must be one of the following: " + validStatuses);
-			}
+	/**
+	 * Saves a batch of new entries to the 'DOGS' table.
+	 * Every item is validated with the same rules as saveNewDog. Badge uniqueness is checked for the whole
+	 * batch with one query, and the valid items are inserted with one JDBC batch in a single transaction.
+	 * Invalid items are reported in the results and do not stop the others from being saved.
+	 *
+	 * @param dogDtos The records to save.
+	 * @return One result per item, in request order, with the saved record or the validation error.
+	 */
+	public List<DogBatchResult> saveNewDogs(List<DogDTO> dogDtos) {
+		return saveNewDogs(dogDtos, null);
+	}
 
-			// Leaving Reason (Optional)
-			String dogLeavingReason = dogDto.getLeavingReason();
-			if (dogLeavingReason == null) {
-				dogLeavingReason = "";
+	/**
+	 * Saves a batch of new entries on behalf of the given user, as saveNewDogs.
+	 *
+	 * @param author The authenticated user making the change, recorded with it, or null.
+	 */
+	public List<DogBatchResult> saveNewDogs(List<DogDTO> dogDtos, String author) {
+		return metrics.time(DogMetrics.Call.SAVE_NEW_DOGS, () -> doSaveNewDogs(dogDtos, author));
+	}
 
-			} else {
-				List<String> validLeavingReason = Arrays.asList("transferred", "retired (put down)", "kia", "retired (re-homed)", "died");
-				if (!validLeavingReason.contains(dogLeavingReason.toLowerCase())) {
-					throw new DogValidationException("If provided, the leaving reason must be one of the following: " + validLeavingReason);
+	private List<DogBatchResult> doSaveNewDogs(List<DogDTO> dogDtos, String author) {
+		DogValidator.checkBatchSize(dogDtos);
+
+		DogBatchResult[] results = new DogBatchResult[dogDtos.size()];
+		Map<Integer, Integer> indexByBadge = new LinkedHashMap<>();
+		List<DogDTO> validDogs = new ArrayList<>();
+
+		for (int i = 0; i < dogDtos.size(); i++) {
+			try {
+				DogDTO newDog = DogValidator.validateNewDog(dogDtos.get(i));
+				newDog.setLastModified(now());
+				if (indexByBadge.putIfAbsent(newDog.getBadgeID(), i) != null) {
+					throw new DogValidationException("Dog badge ID is used more than once in this batch.");
 				}
+				validDogs.add(newDog);
+			} catch (DogValidationException e) {
+				results[i] = DogBatchResult.failed(i, null, HttpStatus.BAD_REQUEST, e.getMessage());
 			}
+		}
 
-			// Kenneling Characteristics (Optional)
-			String dogKennelingCharacteristics = dogDto.getKennelingCharacteristics();
-			if (dogKennelingCharacteristics == null) {
-				dogKennelingCharacteristics = "";
-			}
+		if (!validDogs.isEmpty()) {
+			try (Connection conn = getConnection()) {
 
-			// BadgeID (Required/NOT NULL)
-			Integer dogBadgeID = dogDto.getBadgeID();
-			if (dogBadgeID == null) {
-				throw new DogValidationException("Dog badge ID is required.");
-			}
-			// Check if the ID is negative
-			if (dogBadgeID <= 0) {
-				throw new DogValidationException("Dog badge ID must be a positive number.");
+				// One query for all badge IDs instead of one per dog
+				Set<Integer> existingBadges = findExistingBadges(conn, indexByBadge.keySet());
+				List<DogDTO> toInsert = new ArrayList<>();
+				for (DogDTO newDog : validDogs) {
+					if (existingBadges.contains(newDog.getBadgeID())) {
+						int index = indexByBadge.get(newDog.getBadgeID());
+						results[index] = DogBatchResult.failed(index, null, HttpStatus.BAD_REQUEST, DogValidator.BADGE_EXISTS_MESSAGE);
+					} else {
+						toInsert.add(newDog);
+					}
+				}
+
+				insertBatch(conn, toInsert);
+
+				for (DogDTO savedDog : toInsert) {
+					int index = indexByBadge.get(savedDog.getBadgeID());
+					results[index] = DogBatchResult.succeeded(index, savedDog, HttpStatus.CREATED);
+				}
+			} catch (SQLException e) {
+				// A badge taken by a concurrent request after the check: the whole batch has been rolled back
+				if (isUniqueViolation(e)) {
+					throw new DogValidationException(DogValidator.BADGE_EXISTS_MESSAGE);
+				}
+				throw new DogServiceException("Error while saving batch of new records: " + e.getMessage(), e);
 			}
-			// Check if badgeID already exists
-			String checkBadgeSql = "SELECT COUNT(*) FROM DOGS WHERE badgeID = ?";
-			try (Connection conn = getConnection();
-			     PreparedStatement checkStmt = conn.prepareStatement(checkBadgeSql)) {
-			    checkStmt.setInt(1, dogBadgeID);
-			    try (ResultSet rs = checkStmt.executeQuery()) {
-			        if (rs.next() && rs.getInt(1) > 0) {
-			            throw new DogValidationException("Dog badge ID already exists. Please check and try again or " +
-					            "use the PUT method to update the existing record.");
-			        }
-			    }
+
+			// Only announce the new records once the transaction has been committed
+			List<DogChangedEvent> changes = new ArrayList<>();
+			for (DogBatchResult result : results) {
+				if (result.getDog() != null) {
+					changes.add(new DogChangedEvent(DogChangedEvent.Operation.CREATED, result.getId(), result.getDog(), null, author));
+				}
 			}
+			publishBatch(changes);
+		}
 
-			// Birth Date (Optional)
-			Date dogBirthDate = dogDto.getBirthDate();
+		return Arrays.asList(results);
+	}
 
-			// Date Acquired (Optional)
-			Date dogDateAcquired = dogDto.getDateAcquired();
+	/**
+	 * Returns the subset of the given badge IDs that are already used in the DOGS table.
+	 */
+	private Set<Integer> findExistingBadges(Connection conn, Set<Integer> badgeIds) throws SQLException {
+		String sql = "SELECT badgeID FROM DOGS WHERE badgeID = ANY(?)";
+		Set<Integer> existing = new HashSet<>();
 
-			// Leaving Date (Optional)
-			Date dogLeavingDate = dogDto.getLeavingDate();
+		try (PreparedStatement preparedStatement = statementCache.prepare(conn, sql)) {
+			preparedStatement.setArray(1, conn.createArrayOf("INTEGER", badgeIds.toArray(new Integer[0])));
 
-			// Check dates - Leaving Date cannot be before Date Acquired
-			if (dogLeavingDate != null && dogDateAcquired != null &&
-			    dogLeavingDate.toLocalDate().isBefore(dogDateAcquired.toLocalDate())) {
-				throw new DogValidationException("Leaving date cannot be before the acquisition date.");
+			long start = System.nanoTime();
+			try (ResultSet rs = preparedStatement.executeQuery()) {
+				while (rs.next()) {
+					existing.add(rs.getInt(1));
+				}
 			}
+			metrics.recordExecution(DogMetrics.Statement.SELECT_BADGES, System.nanoTime() - start, existing.size());
+		}
 
-			// The SQL INSERT statement to add record to the database
-			String sql = "INSERT INTO DOGS (name, breed, supplier, badgeID, gender, birthDate, dateAcquired, status, leavingDate, leavingReason, kennelingCharacteristics) " +
-					"VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+		return existing;
+	}
 
-			try (Connection conn = getConnection();
-			     PreparedStatement preparedStatement = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-
-				preparedStatement.setString(1, dogName);
-				preparedStatement.setString(2, dogBreed);
-				preparedStatement.setString(3, dogSupplier);
-				preparedStatement.setInt(4, dogBadgeID);
-				preparedStatement.setString(5, dogGender);
-				preparedStatement.setDate(6, dogBirthDate);
-				preparedStatement.setDate(7, dogDateAcquired);
-				preparedStatement.setString(8, dogStatus);
-				preparedStatement.setDate(9, dogLeavingDate);
-				preparedStatement.setString(10, dogLeavingReason);
-				preparedStatement.setString(11, dogKennelingCharacteristics);
-
-				// Execute the statement
-				int affectedRows = preparedStatement.executeUpdate();
-
-				if (affectedRows == 0) {
-					throw new DogServiceException("Creating dog failed, no record added.");
+	/**
+	 * Inserts the validated records with one JDBC batch in a single transaction and sets their generated IDs.
+	 */
+	private void insertBatch(Connection conn, List<DogDTO> dogs) throws SQLException {
+		if (dogs.isEmpty()) {
+			return;
+		}
+
+		inTransaction(conn, () -> {
+			try (PreparedStatement preparedStatement = conn.prepareStatement(INSERT_SQL, Statement.RETURN_GENERATED_KEYS)) {
+
+				for (DogDTO dog : dogs) {
+					setInsertParameters(preparedStatement, dog);
+					preparedStatement.addBatch();
 				}
+				executeBatch(preparedStatement, DogMetrics.Statement.INSERT_BATCH);
 
+				// Generated keys come back in the order the rows were added to the batch
 				try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
-					if (generatedKeys.next()) {
-						int generatedId = generatedKeys.getInt(1);
-						// Return the complete record with the generated ID
-						return getDogById(generatedId);
-					} else {
-						throw new DogServiceException("Creating dog failed, no ID obtained.");
+					for (DogDTO dog : dogs) {
+						if (!generatedKeys.next()) {
+							throw new SQLException("Creating dogs failed, not every record obtained an ID.");
+						}
+						dog.setId(generatedKeys.getLong(1));
+						// New rows start at the column default
+						dog.setVersion(0L);
 					}
 				}
-
-			} catch (SQLException e) {
-				throw new DogServiceException("Error while saving new record: " + e.getMessage(), e);
 			}
-		} catch (DogValidationException e) {
-			throw e;
-		} catch (Exception e) {
-			throw new DogServiceException("Unexpected error: " + e.getMessage(), e);
-		}
+		});
+	}
+
+	/**
+	 * Binds a validated record to the parameters of INSERT_SQL.
+	 */
+	private void setInsertParameters(PreparedStatement preparedStatement, DogDTO dog) throws SQLException {
+		preparedStatement.setString(1, dog.getName());
+		preparedStatement.setString(2, dog.getBreed());
+		preparedStatement.setString(3, dog.getSupplier());
+		preparedStatement.setInt(4, dog.getBadgeID());
+		preparedStatement.setString(5, dog.getGender());
+		preparedStatement.setDate(6, dog.getBirthDate());
+		preparedStatement.setDate(7, dog.getDateAcquired());
+		preparedStatement.setString(8, dog.getStatus());
+		preparedStatement.setDate(9, dog.getLeavingDate());
+		preparedStatement.setString(10, dog.getLeavingReason());
+		preparedStatement.setString(11, dog.getKennelingCharacteristics());
+		preparedStatement.setTimestamp(12, dog.getLastModified());
 	}
-		
 
 	/**
 	 * Updates an existing dog record in the DOGS table.
@@ -284,209 +755,622 @@ public class DogService {
 	 * @throws DogNotFoundException if no dog is found with the given ID
 	 */
 	public DogDTO updateDog(int id, DogDTO dogDto) {
-		// First, get the existing record to preserve values for fields not being updated
-		DogDTO existingDog = getDogById(id);
+		return updateDog(id, dogDto, null);
+	}
 
+	/**
+	 * Updates an existing dog record in the DOGS table, optionally only if it is still at the expected version.
+	 * The dates are validated against the record as last read, and the UPDATE only applies while the row is
+	 * still at that version, so no concurrent write can slip in between the check and the change.
+	 * The updated record is built from that read and the changes, without reading the row again.
+	 * @param id The ID of the dog to update.
+	 * @param dogDto The DogDTO containing the new data.
+	 * @param expectedVersion The version the client last saw (from If-Match), or null to update any version.
+	 * @return The updated record, including its new version.
+	 * @throws DogNotFoundException if no dog is found with the given ID
+	 * @throws DogPreconditionFailedException if the record is not at the expected version
+	 */
+	public DogDTO updateDog(int id, DogDTO dogDto, Long expectedVersion) {
+		return updateDog(id, dogDto, expectedVersion, null);
+	}
+
+	/**
+	 * Updates an existing dog record on behalf of the given user, as updateDog.
+	 * @param author The authenticated user making the change, recorded with it, or null.
+	 */
+	public DogDTO updateDog(int id, DogDTO dogDto, Long expectedVersion, String author) {
+		return metrics.time(DogMetrics.Call.UPDATE_DOG, () -> doUpdateDog(id, dogDto, expectedVersion, author));
+	}
+
+	private DogDTO doUpdateDog(int id, DogDTO dogDto, Long expectedVersion, String author) {
 		// Validate only the fields that are being provided
-		if (dogDto.getName() != null && dogDto.getName().trim().isEmpty()) {
-			throw new DogValidationException("Name cannot be empty if provided.");
+		Map<String, Object> changes = DogValidator.validateUpdate(dogDto);
+
+		// Start from the cached record; the version condition below detects if it is out of date
+		DogDTO existingDog = getDogById(id);
+		boolean readFromDatabase = false;
+
+		Timestamp lastModified = now();
+
+		try (Connection conn = getConnection();
+		     PreparedStatement preparedStatement = statementCache.prepare(conn, CONDITIONAL_UPDATE_SQL)) {
+
+			for (int attempt = 1; ; attempt++) {
+				boolean expected = expectedVersion == null || expectedVersion.equals(existingDog.getVersion());
+
+				if (expected) {
+					// Validate date logic against the version being updated
+					DogValidator.validateUpdatedDates(existingDog, dogDto);
+
+					int next = setUpdateParameters(preparedStatement, changes, lastModified, id);
+					preparedStatement.setLong(next, existingDog.getVersion());
+
+					if (executeUpdate(preparedStatement, DogMetrics.Statement.UPDATE) == 1) {
+						DogDTO updatedDog = applyChanges(existingDog, dogDto, lastModified);
+						eventPublisher.publishEvent(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, id, updatedDog, existingDog, author));
+						return updatedDog;
+					}
+				}
+
+				// A version read from the database that does not match is a real conflict
+				if (readFromDatabase && !expected) {
+					throw new DogPreconditionFailedException("Dog with ID " + id + " has been modified; the current version is " + existingDog.getVersion());
+				}
+				if (attempt == MAX_UPDATE_ATTEMPTS) {
+					throw new DogPreconditionFailedException("Dog with ID " + id + " is being modified concurrently, please try again");
+				}
+
+				// The record changed since it was read (a concurrent write or a stale cache entry): read it again
+				existingDog = getDogById(conn, id);
+				readFromDatabase = true;
+			}
+		} catch (SQLException e) {
+			if (isUniqueViolation(e)) {
+				throw new DogValidationException(DogValidator.BADGE_EXISTS_MESSAGE);
+			}
+			throw new DogServiceException("Error while updating dog with ID " + id + ": " + e.getMessage(), e);
 		}
+	}
+
+	/**
+	 * Applies a batch of partial updates in a single transaction.
+	 * Each item carries the ID of the record to update and only the fields to change, validated with the
+	 * same rules as updateDog. Every item is applied with the same batched UPDATE statement, whichever fields it changes.
+	 * Invalid and unknown IDs are reported in the results and do not stop the others from being updated, and so are
+	 * records changed by a concurrent write after they were read for validation (412), which are left as they are.
+	 *
+	 * @param dogDtos The partial records to apply, each with its ID.
+	 * @return One result per item, in request order, with the updated record or the reason it was not applied.
+	 */
+	public List<DogBatchResult> updateDogs(List<DogDTO> dogDtos) {
+		return updateDogs(dogDtos, null);
+	}
+
+	/**
+	 * Applies a batch of partial updates on behalf of the given user, as updateDogs.
+	 *
+	 * @param author The authenticated user making the change, recorded with it, or null.
+	 */
+	public List<DogBatchResult> updateDogs(List<DogDTO> dogDtos, String author) {
+		return metrics.time(DogMetrics.Call.UPDATE_DOGS, () -> doUpdateDogs(dogDtos, author));
+	}
 
-		if (dogDto.getBreed() != null && dogDto.getBreed().trim().isEmpty()) {
-			throw new DogValidationException("Breed cannot be empty if provided.");
+	private List<DogBatchResult> doUpdateDogs(List<DogDTO> dogDtos, String author) {
+		DogValidator.checkBatchSize(dogDtos);
+
+		DogBatchResult[] results = new DogBatchResult[dogDtos.size()];
+		Map<Integer, Integer> indexById = new LinkedHashMap<>();
+		Map<Integer, Map<String, Object>> changesById = new LinkedHashMap<>();
+
+		for (int i = 0; i < dogDtos.size(); i++) {
+			DogDTO dogDto = dogDtos.get(i);
+			Long id = dogDto != null ? dogDto.getId() : null;
+			try {
+				if (id == null) {
+					throw new DogValidationException("Dog ID is required.");
+				}
+				Map<String, Object> changes = DogValidator.validateUpdate(dogDto);
+				if (indexById.putIfAbsent(id.intValue(), i) != null) {
+					throw new DogValidationException("Dog ID is used more than once in this batch.");
+				}
+				changesById.put(id.intValue(), changes);
+			} catch (DogValidationException e) {
+				results[i] = DogBatchResult.failed(i, id, HttpStatus.BAD_REQUEST, e.getMessage());
+			}
 		}
 
-		if (dogDto.getBadgeID() != null && dogDto.getBadgeID() <= 0) {
-			throw new DogValidationException("Badge ID must be a positive number if provided.");
+		if (changesById.isEmpty()) {
+			return Arrays.asList(results);
 		}
 
-		if (dogDto.getStatus() != null) {
-			if (dogDto.getStatus().trim().isEmpty()) {
-				throw new DogValidationException("Status cannot be empty if provided.");
-			}
+		// The records as they were before the updates, for the change events
+		Map<Integer, DogDTO> existingDogs = new HashMap<>();
+
+		try (Connection conn = getConnection()) {
+			inTransaction(conn, () -> {
+				// One query for the current state of every record, needed to validate the dates
+				existingDogs.putAll(getDogsByIds(conn, changesById.keySet()));
+
+				List<Integer> ids = new ArrayList<>();
+				for (Map.Entry<Integer, Map<String, Object>> entry : changesById.entrySet()) {
+					int id = entry.getKey();
+					int index = indexById.get(id);
+					DogDTO existingDog = existingDogs.get(id);
+
+					if (existingDog == null) {
+						results[index] = DogBatchResult.failed(index, (long) id, HttpStatus.NOT_FOUND, "Dog with ID " + id + " not found for update");
+						continue;
+					}
+					try {
+						DogValidator.validateUpdatedDates(existingDog, dogDtos.get(index));
+					} catch (DogValidationException e) {
+						results[index] = DogBatchResult.failed(index, (long) id, HttpStatus.BAD_REQUEST, e.getMessage());
+						continue;
+					}
+					ids.add(id);
+				}
+
+				List<Integer> updatedIds = new ArrayList<>();
+				Timestamp lastModified = now();
+				if (!ids.isEmpty()) {
+					// Each row is only updated while it is still at the version its dates were validated against
+					try (PreparedStatement preparedStatement = statementCache.prepare(conn, CONDITIONAL_UPDATE_SQL)) {
+						for (int id : ids) {
+							int next = setUpdateParameters(preparedStatement, changesById.get(id), lastModified, id);
+							preparedStatement.setLong(next, existingDogs.get(id).getVersion());
+							preparedStatement.addBatch();
+						}
+						int[] counts = executeBatch(preparedStatement, DogMetrics.Statement.UPDATE_BATCH);
+
+						for (int i = 0; i < counts.length; i++) {
+							int id = ids.get(i);
+							if (counts[i] == 0) {
+								// Rows are never removed, so the record was changed by a concurrent write since it was read
+								int index = indexById.get(id);
+								results[index] = DogBatchResult.failed(index, (long) id, HttpStatus.PRECONDITION_FAILED,
+										"Dog with ID " + id + " is being modified concurrently, please try again");
+							} else {
+								updatedIds.add(id);
+							}
+						}
+					}
+				}
 
-			List<String> validStatuses = Arrays.asList("in training", "in service", "retired", "left");
-			if (!validStatuses.contains(dogDto.getStatus().toLowerCase())) {
-				throw new DogValidationException("Status must be one of the following: " + validStatuses);
+				// Re-read the updated records in the same transaction to return them as stored
+				Map<Integer, DogDTO> updatedDogs = getDogsByIds(conn, updatedIds);
+				for (int id : updatedIds) {
+					int index = indexById.get(id);
+					results[index] = DogBatchResult.succeeded(index, updatedDogs.get(id), HttpStatus.OK);
+				}
+			});
+		} catch (SQLException e) {
+			// A badge that is already used: the whole batch has been rolled back
+			if (isUniqueViolation(e)) {
+				throw new DogValidationException(DogValidator.BADGE_EXISTS_MESSAGE);
 			}
+			throw new DogServiceException("Error while updating batch of records: " + e.getMessage(), e);
 		}
 
-		if (dogDto.getLeavingReason() != null) {
-			if (dogDto.getLeavingReason().trim().isEmpty()) {
-				throw new DogValidationException("Leaving Reason cannot be empty if provided.");
+		// Only announce the changes once the transaction has been committed
+		List<DogChangedEvent> changes = new ArrayList<>();
+		for (DogBatchResult result : results) {
+			if (result.getDog() != null) {
+				changes.add(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, result.getId(), result.getDog(),
+						existingDogs.get(result.getId().intValue()), author));
 			}
+		}
+		publishBatch(changes);
+
+		return Arrays.asList(results);
+	}
 
-			List<String> validLeavingReason = Arrays.asList("transferred", "retired (put down)", "kia", "retired (re-homed)","died");
-			if (!validLeavingReason.contains(dogDto.getLeavingReason().toLowerCase())) {
-				throw new DogValidationException("Leaving reason must be one of the following: " + validLeavingReason);
+	/**
+	 * Binds the new values (null for the columns that do not change), followed by the modification time and the ID,
+	 * to the parameters of UPDATE_SQL.
+	 * @param changes The changed values by property name, as returned by DogValidator.validateUpdate.
+	 * @return The index of the next parameter, for any condition appended to the statement.
+	 */
+	private int setUpdateParameters(PreparedStatement preparedStatement, Map<String, Object> changes,
+	                                Timestamp lastModified, int id) throws SQLException {
+		int i = 1;
+		for (DogField field : UPDATABLE) {
+			Object param = changes.get(field.getProperty());
+			if (param instanceof String) {
+				preparedStatement.setString(i, (String) param);
+			} else if (param instanceof Integer) {
+				preparedStatement.setInt(i, (Integer) param);
+			} else if (param instanceof Date) {
+				preparedStatement.setDate(i, (Date) param);
+			} else {
+				preparedStatement.setNull(i, sqlType(field));
 			}
+			i++;
 		}
+		preparedStatement.setTimestamp(i++, lastModified);
+		preparedStatement.setInt(i, id);
+		return i + 1;
+	}
 
-		// Build dynamic SQL based on which fields are provided
-		StringBuilder sqlBuilder = new StringBuilder("UPDATE DOGS SET ");
-		List<Object> parameters = new ArrayList<>();
-		boolean hasUpdates = false;
+	/**
+	 * The JDBC type of an updatable column, for binding null to it.
+	 */
+	private static int sqlType(DogField field) {
+		return switch (field) {
+			case BADGE_ID -> Types.INTEGER;
+			case BIRTH_DATE, DATE_ACQUIRED, LEAVING_DATE -> Types.DATE;
+			default -> Types.VARCHAR;
+		};
+	}
 
-		// Check each field and add to update if provided
-		// When any fields are provided, set hasUpdates to true
-		if (dogDto.getName() != null) {
-			sqlBuilder.append("name = ?, ");
-			parameters.add(dogDto.getName());
-			hasUpdates = true;
-		}
+	/**
+	 * Returns a copy of the record with the provided (not null) fields of the update applied, the version incremented
+	 * and the modification time set, matching the row written by UPDATE_SQL.
+	 */
+	private static DogDTO applyChanges(DogDTO existingDog, DogDTO dogDto, Timestamp lastModified) {
+		DogDTO updatedDog = new DogDTO(existingDog);
+		DogDTO changes = new DogDTO(dogDto);
 
-		if (dogDto.getBreed() != null) {
-			sqlBuilder.append("breed = ?, ");
-			parameters.add(dogDto.getBreed());
-			hasUpdates = true;
+		if (changes.getName() != null) {
+			updatedDog.setName(changes.getName());
 		}
-
-		if (dogDto.getSupplier() != null) {
-			sqlBuilder.append("supplier = ?, ");
-			parameters.add(dogDto.getSupplier());
-			hasUpdates = true;
+		if (changes.getBreed() != null) {
+			updatedDog.setBreed(changes.getBreed());
 		}
-
-		if (dogDto.getBadgeID() != null) {
-			sqlBuilder.append("badgeID = ?, ");
-			parameters.add(dogDto.getBadgeID());
-			hasUpdates = true;
+		if (changes.getSupplier() != null) {
+			updatedDog.setSupplier(changes.getSupplier());
 		}
-
-		if (dogDto.getGender() != null) {
-			sqlBuilder.append("gender = ?, ");
-			parameters.add(dogDto.getGender());
-			hasUpdates = true;
+		if (changes.getBadgeID() != null) {
+			updatedDog.setBadgeID(changes.getBadgeID());
 		}
-
-		if (dogDto.getBirthDate() != null) {
-			sqlBuilder.append("birthDate = ?, ");
-			parameters.add(dogDto.getBirthDate());
-			hasUpdates = true;
+		if (changes.getGender() != null) {
+			updatedDog.setGender(changes.getGender());
 		}
-
-		if (dogDto.getDateAcquired() != null) {
-			sqlBuilder.append("dateAcquired = ?, ");
-			parameters.add(dogDto.getDateAcquired());
-			hasUpdates = true;
+		if (changes.getBirthDate() != null) {
+			updatedDog.setBirthDate(changes.getBirthDate());
 		}
-
-		if (dogDto.getStatus() != null) {
-			sqlBuilder.append("status = ?, ");
-			parameters.add(dogDto.getStatus());
-			hasUpdates = true;
+		if (changes.getDateAcquired() != null) {
+			updatedDog.setDateAcquired(changes.getDateAcquired());
+		}
+		if (changes.getStatus() != null) {
+			updatedDog.setStatus(changes.getStatus());
 		}
+		if (changes.getLeavingDate() != null) {
+			updatedDog.setLeavingDate(changes.getLeavingDate());
+		}
+		if (changes.getLeavingReason() != null) {
+			updatedDog.setLeavingReason(changes.getLeavingReason());
+		}
+		if (changes.getKennelingCharacteristics() != null) {
+			updatedDog.setKennelingCharacteristics(changes.getKennelingCharacteristics());
+		}
+
+		updatedDog.setVersion(existingDog.getVersion() + 1);
+		updatedDog.setLastModified(lastModified);
+		return updatedDog;
+	}
+
+	/**
+	 * Performs a soft delete by marking the dog record with the current date.
+	 * @param id The ID of the dog to soft-delete.
+	 * @throws DogNotFoundException if no dog is found with the given ID
+	 */
+	public void markDogAsDeleted(int id) {
+		markDogAsDeleted(id, null);
+	}
+
+	/**
+	 * Performs a soft delete on behalf of the given user, as markDogAsDeleted.
+	 * @param author The authenticated user making the change, recorded with it, or null.
+	 */
+	public void markDogAsDeleted(int id, String author) {
+		metrics.time(DogMetrics.Call.MARK_DOG_AS_DELETED, () -> {
+			doMarkDogAsDeleted(id, author);
+			return null;
+		});
+	}
+
+	private void doMarkDogAsDeleted(int id, String author) {
+
+		// The deleted row comes back from the update itself, for the change event
+		try (Connection conn = getConnection();
+		     PreparedStatement preparedStatement = statementCache.prepare(conn, SOFT_DELETE_RETURNING_SQL)) {
+
+			// Set the dateDeleted parameter to the current system date
+			preparedStatement.setDate(1, Date.valueOf(LocalDate.now()));
+			preparedStatement.setTimestamp(2, now());
+			preparedStatement.setInt(3, id);
+
+			DogDTO deletedDog = queryDog(preparedStatement, DogMetrics.Statement.SOFT_DELETE);
+
+			// Throw exception if no rows were updated (record not found)
+			if (deletedDog == null) {
+				throw new DogNotFoundException("Dog with ID " + id + " not found for deletion");
+			}
 
-		if (dogDto.getLeavingDate() != null) {
-			sqlBuilder.append("leavingDate = ?, ");
-			parameters.add(dogDto.getLeavingDate());
-			hasUpdates = true;
+			eventPublisher.publishEvent(new DogChangedEvent(DogChangedEvent.Operation.DELETED, id, deletedDog, null, author));
+
+		} catch (SQLException e) {
+			throw new DogServiceException("Error while marking dog with ID " + id + " as deleted: " + e.getMessage(), e);
 		}
+	}
+
+	/**
+	 * Soft-deletes a batch of records with one batched statement in a single transaction.
+	 * Unknown IDs are reported in the results and do not stop the others from being deleted.
+	 *
+	 * @param ids The IDs of the dogs to soft-delete.
+	 * @return One result per ID, in request order.
+	 */
+	public List<DogBatchResult> markDogsAsDeleted(List<Long> ids) {
+		return markDogsAsDeleted(ids, null);
+	}
 
-		if (dogDto.getLeavingReason() != null) {
-			sqlBuilder.append("leavingReason = ?, ");
-			parameters.add(dogDto.getLeavingReason());
-			hasUpdates = true;
+	/**
+	 * Soft-deletes a batch of records on behalf of the given user, as markDogsAsDeleted.
+	 *
+	 * @param author The authenticated user making the change, recorded with it, or null.
+	 */
+	public List<DogBatchResult> markDogsAsDeleted(List<Long> ids, String author) {
+		return metrics.time(DogMetrics.Call.MARK_DOGS_AS_DELETED, () -> doMarkDogsAsDeleted(ids, author));
+	}
+
+	private List<DogBatchResult> doMarkDogsAsDeleted(List<Long> ids, String author) {
+		DogValidator.checkBatchSize(ids);
+
+		DogBatchResult[] results = new DogBatchResult[ids.size()];
+		Map<Integer, Integer> indexById = new LinkedHashMap<>();
+
+		for (int i = 0; i < ids.size(); i++) {
+			Long id = ids.get(i);
+			if (id == null) {
+				results[i] = DogBatchResult.failed(i, null, HttpStatus.BAD_REQUEST, "Dog ID is required.");
+			} else if (indexById.putIfAbsent(id.intValue(), i) != null) {
+				results[i] = DogBatchResult.failed(i, id, HttpStatus.BAD_REQUEST, "Dog ID is used more than once in this batch.");
+			}
 		}
 
-		if (dogDto.getKennelingCharacteristics() != null) {
-			sqlBuilder.append("kennelingCharacteristics = ?, ");
-			parameters.add(dogDto.getKennelingCharacteristics());
-			hasUpdates = true;
+		if (indexById.isEmpty()) {
+			return Arrays.asList(results);
 		}
 
-		// If no fields to update, return an error
-		if (!hasUpdates) {
-			throw new DogValidationException("No update values have been provided.");
+		// The deleted rows, read back in the same transaction for the change events
+		Map<Integer, DogDTO> deletedDogs = new HashMap<>();
+
+		try (Connection conn = getConnection()) {
+			inTransaction(conn, () -> {
+				List<Integer> deletedIds = new ArrayList<>();
+				try (PreparedStatement preparedStatement = statementCache.prepare(conn, SOFT_DELETE_SQL)) {
+					Date today = Date.valueOf(LocalDate.now());
+					Timestamp lastModified = now();
+					for (int id : indexById.keySet()) {
+						preparedStatement.setDate(1, today);
+						preparedStatement.setTimestamp(2, lastModified);
+						preparedStatement.setInt(3, id);
+						preparedStatement.addBatch();
+					}
+					int[] counts = executeBatch(preparedStatement, DogMetrics.Statement.SOFT_DELETE_BATCH);
+
+					// Update counts come back in the order the IDs were added to the batch
+					int i = 0;
+					for (Map.Entry<Integer, Integer> entry : indexById.entrySet()) {
+						long id = entry.getKey();
+						int index = entry.getValue();
+						if (counts[i++] == 0) {
+							results[index] = DogBatchResult.failed(index, id, HttpStatus.NOT_FOUND, "Dog with ID " + id + " not found for deletion");
+						} else {
+							results[index] = DogBatchResult.applied(index, id, HttpStatus.OK);
+							deletedIds.add((int) id);
+						}
+					}
+				}
+				deletedDogs.putAll(getDogsByIds(conn, deletedIds));
+			});
+		} catch (SQLException e) {
+			throw new DogServiceException("Error while marking batch of dogs as deleted: " + e.getMessage(), e);
 		}
 
-		// Remove the trailing comma and space, then add WHERE clause
-		String sql = sqlBuilder.toString().replaceAll(", $", "") + " WHERE ID = ?";
-		parameters.add(id);
+		// Only announce the deletions once the transaction has been committed
+		List<DogChangedEvent> changes = new ArrayList<>();
+		for (DogBatchResult result : results) {
+			if (result.getStatus() == HttpStatus.OK.value()) {
+				changes.add(new DogChangedEvent(DogChangedEvent.Operation.DELETED, result.getId(),
+						deletedDogs.get(result.getId().intValue()), null, author));
+			}
+		}
+		publishBatch(changes);
 
-		// Validate date logic if any dates are being updated
-		Date finalBirthDate = dogDto.getBirthDate() != null ? dogDto.getBirthDate() : existingDog.getBirthDate();
-		Date finalLeavingDate = dogDto.getLeavingDate() != null ? dogDto.getLeavingDate() : existingDog.getLeavingDate();
-		Date finalDateAcquired = dogDto.getDateAcquired() != null ? dogDto.getDateAcquired() : existingDog.getDateAcquired();
+		return Arrays.asList(results);
+	}
 
-		if (finalLeavingDate != null && finalDateAcquired != null &&
-		    finalLeavingDate.toLocalDate().isBefore(finalDateAcquired.toLocalDate())) {
-			throw new DogValidationException("Leaving date cannot be before the acquisition date.");
+	/**
+	 * Announces the committed writes of a batch with one event, if it wrote anything.
+	 */
+	private void publishBatch(List<DogChangedEvent> changes) {
+		if (!changes.isEmpty()) {
+			eventPublisher.publishEvent(new DogBatchChangedEvent(changes));
 		}
+	}
 
-		if (finalBirthDate != null && finalDateAcquired != null &&
-		    finalBirthDate.toLocalDate().isAfter(finalDateAcquired.toLocalDate())) {
-			throw new DogValidationException("Birth date cannot be after the acquisition date.");
+	/**
+	 * Loads the records with the given IDs, deleted or not, keyed by ID. Unknown IDs are left out.
+	 */
+	private Map<Integer, DogDTO> getDogsByIds(Connection conn, Collection<Integer> ids) throws SQLException {
+		String sql = "SELECT * FROM DOGS WHERE ID = ANY(?)";
+		Map<Integer, DogDTO> dogs = new HashMap<>();
+		if (ids.isEmpty()) {
+			return dogs;
 		}
 
-		try (Connection conn = getConnection();
-		     PreparedStatement preparedStatement = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
+		try (PreparedStatement preparedStatement = statementCache.prepare(conn, sql)) {
+			preparedStatement.setArray(1, conn.createArrayOf("INTEGER", ids.toArray(new Integer[0])));
 
-			// Set all parameters
-			for (int i = 0; i < parameters.size(); i++) {
-				Object param = parameters.get(i);
-				if (param instanceof String) {
-					preparedStatement.setString(i + 1, (String) param);
-				} else if (param instanceof Integer) {
-					preparedStatement.setInt(i + 1, (Integer) param);
-				} else if (param instanceof Date) {
-					preparedStatement.setDate(i + 1, (Date) param);
-				}
+			for (DogDTO dog : queryDogs(preparedStatement, DogMetrics.Statement.SELECT_BY_IDS)) {
+				dogs.put(dog.getId().intValue(), dog);
 			}
+		}
 
-			int affectedRows = preparedStatement.executeUpdate();
+		return dogs;
+	}
 
-			// Throw exception if no rows were updated (record not found)
-			if (affectedRows == 0) {
-				throw new DogNotFoundException("Dog with ID " + id + " not found for update");
+	/**
+	 * Runs a query and maps every row it returns, recording the execution and mapping time and the row count.
+	 */
+	private List<DogDTO> queryDogs(PreparedStatement preparedStatement, DogMetrics.Statement statement) throws SQLException {
+		return queryDogs(preparedStatement, statement, null);
+	}
+
+	/**
+	 * Runs a query that selects the columns of the fieldset (or every column if null) and maps every row it returns.
+	 */
+	private List<DogDTO> queryDogs(PreparedStatement preparedStatement, DogMetrics.Statement statement,
+	                               DogFields fields) throws SQLException {
+		long start = System.nanoTime();
+		try (ResultSet rs = preparedStatement.executeQuery()) {
+			long executed = System.nanoTime();
+			List<DogDTO> dogs = new ArrayList<>();
+			while (rs.next()) {
+				dogs.add(mapRow(rs, fields));
 			}
+			metrics.recordQuery(statement, executed - start, System.nanoTime() - executed, dogs.size());
+			return dogs;
+		}
+	}
 
-			try (ResultSet generatedKeys = preparedStatement.getGeneratedKeys()) {
-				if (generatedKeys.next()) {
-					int generatedId = generatedKeys.getInt(1);
-					// Return the complete record with the generated ID
-					return getDogById(generatedId);
-				} else {
-					throw new DogServiceException("Creating dog failed, no ID obtained.");
-				}
+	/**
+	 * Runs a query for at most one record and maps it, recording the statement like queryDogs.
+	 * @return The record, or null if the query returned no row.
+	 */
+	private DogDTO queryDog(PreparedStatement preparedStatement, DogMetrics.Statement statement) throws SQLException {
+		long start = System.nanoTime();
+		try (ResultSet rs = preparedStatement.executeQuery()) {
+			long executed = System.nanoTime();
+			DogDTO dog = rs.next() ? mapResultSetToDogDto(rs) : null;
+			metrics.recordQuery(statement, executed - start, System.nanoTime() - executed, dog != null ? 1 : 0);
+			return dog;
+		}
+	}
+
+	/**
+	 * Runs an INSERT, UPDATE or DELETE, recording its execution time and the number of rows it changed.
+	 */
+	private int executeUpdate(PreparedStatement preparedStatement, DogMetrics.Statement statement) throws SQLException {
+		long start = System.nanoTime();
+		int count = preparedStatement.executeUpdate();
+		metrics.recordExecution(statement, System.nanoTime() - start, count);
+		return count;
+	}
+
+	/**
+	 * Runs a JDBC batch, recording its execution time and the total number of rows it changed.
+	 */
+	private int[] executeBatch(PreparedStatement preparedStatement, DogMetrics.Statement statement) throws SQLException {
+		long start = System.nanoTime();
+		int[] counts = preparedStatement.executeBatch();
+		long rows = 0;
+		for (int count : counts) {
+			// SUCCESS_NO_INFO (-2) means the row count is unknown
+			rows += Math.max(count, 0);
+		}
+		metrics.recordExecution(statement, System.nanoTime() - start, rows);
+		return counts;
+	}
+
+	/**
+	 * @return true if the exception, or one chained to it by a batch, is a unique constraint violation.
+	 */
+	private static boolean isUniqueViolation(SQLException e) {
+		for (SQLException current = e; current != null; current = current.getNextException()) {
+			if (UNIQUE_VIOLATION.equals(current.getSQLState())) {
+				return true;
 			}
-		} catch (SQLException e) {
-			throw new DogServiceException("Error while updating dog with ID " + id + ": " + e.getMessage(), e);
 		}
+		return false;
 	}
 
 	/**
-	 * Performs a soft delete by marking the dog record with the current date.
-	 * @param id The ID of the dog to soft-delete.
-	 * @throws DogNotFoundException if no dog is found with the given ID
+	 * The modification time for a write, at the millisecond precision that is stored and reported back.
 	 */
-	public void markDogAsDeleted(int id) {
+	private static Timestamp now() {
+		return Timestamp.from(Instant.now().truncatedTo(ChronoUnit.MILLIS));
+	}
 
-		String sql = "UPDATE DOGS SET dateDeleted = ? WHERE ID = ?";
+	/**
+	 * Work that runs on a connection inside inTransaction.
+	 */
+	@FunctionalInterface
+	private interface TransactionWork {
+		void run() throws SQLException;
+	}
 
-		try (Connection conn = getConnection();
-		     PreparedStatement preparedStatement = conn.prepareStatement(sql)) {
+	/**
+	 * Runs the work in a single transaction: commits if it completes, rolls back if it throws.
+	 */
+	private void inTransaction(Connection conn, TransactionWork work) throws SQLException {
+		conn.setAutoCommit(false);
+		try {
+			work.run();
+			conn.commit();
+		} catch (SQLException | RuntimeException e) {
+			conn.rollback();
+			throw e;
+		} finally {
+			// The connection goes back to the pool
+			conn.setAutoCommit(true);
+		}
+	}
 
-			// Set the dateDeleted parameter to the current system date
-			preparedStatement.setDate(1, Date.valueOf(LocalDate.now()));
-			preparedStatement.setInt(2, id);
+	/**
+	 * The start of a query on DOGS selecting the columns of the fieldset, or every column if it is null.
+	 */
+	private static String select(DogFields fields) {
+		return fields != null ? "SELECT " + fields.getSelectList() + " FROM DOGS" : "SELECT * FROM DOGS";
+	}
 
-			int affectedRows = preparedStatement.executeUpdate();
+	/**
+	 * Maps the current row of a query built with select(fields).
+	 */
+	private DogDTO mapRow(ResultSet rs, DogFields fields) throws SQLException {
+		return fields != null ? mapColumnsToDogDto(rs, fields) : mapResultSetToDogDto(rs);
+	}
 
-			// Throw exception if no rows were updated (record not found)
-			if (affectedRows == 0) {
-				throw new DogNotFoundException("Dog with ID " + id + " not found for deletion");
+	/**
+	 * Maps the current row of a query that selected the columns of the fieldset, in order, reading each column
+	 * by its position rather than looking it up by name. Fields that were not selected stay null.
+	 * Package-private so that DogRowMappingBenchmark can compare it with mapResultSetToDogDto.
+	 */
+	static DogDTO mapColumnsToDogDto(ResultSet rs, DogFields fields) throws SQLException {
+		DogDTO dog = new DogDTO();
+		List<DogField> columns = fields.getColumns();
+
+		for (int i = 0; i < columns.size(); i++) {
+			int column = i + 1;
+			switch (columns.get(i)) {
+				case ID -> dog.setId(rs.getLong(column));
+				case NAME -> dog.setName(rs.getString(column));
+				case BREED -> dog.setBreed(rs.getString(column));
+				case SUPPLIER -> dog.setSupplier(rs.getString(column));
+				case BADGE_ID -> dog.setBadgeID(rs.getInt(column));
+				case GENDER -> dog.setGender(rs.getString(column));
+				case BIRTH_DATE -> dog.setBirthDate(rs.getDate(column));
+				case DATE_ACQUIRED -> dog.setDateAcquired(rs.getDate(column));
+				case STATUS -> dog.setStatus(rs.getString(column));
+				case LEAVING_DATE -> dog.setLeavingDate(rs.getDate(column));
+				case LEAVING_REASON -> dog.setLeavingReason(rs.getString(column));
+				case KENNELING_CHARACTERISTICS -> dog.setKennelingCharacteristics(rs.getString(column));
+				case DATE_DELETED -> dog.setDateDeleted(rs.getDate(column));
+				case VERSION -> dog.setVersion(rs.getLong(column));
+				case LAST_MODIFIED -> dog.setLastModified(rs.getTimestamp(column));
 			}
-
-		} catch (SQLException e) {
-			throw new DogServiceException("Error while marking dog with ID " + id + " as deleted: " + e.getMessage(), e);
 		}
+
+		return dog;
 	}
 
 	/**
 	 * Helper method to map the current row of a ResultSet to a DogDTO object.
+	 * Package-private so that DogRowMappingBenchmark can measure it on its own, and DogRoster can load with it.
 	 */
-	private DogDTO mapResultSetToDogDto(ResultSet rs) throws SQLException {
+	static DogDTO mapResultSetToDogDto(ResultSet rs) throws SQLException {
 		DogDTO dog = new DogDTO();
 
 		dog.setId((long) rs.getInt("ID"));
@@ -520,6 +1404,8 @@ public class DogService {
 		dog.setLeavingReason(rs.getString("LEAVINGREASON"));
 		dog.setKennelingCharacteristics(rs.getString("KENNELINGCHARACTERISTICS"));
 		dog.setDateDeleted(rs.getDate("DATEDELETED"));
+		dog.setVersion(rs.getLong("VERSION"));
+		dog.setLastModified(rs.getTimestamp("LASTMODIFIED"));
 
 		return dog;
 	}
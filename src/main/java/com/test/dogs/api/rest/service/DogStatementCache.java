@@ -0,0 +1,244 @@
+package com.test.dogs.api.rest.service;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Keeps the statements DogService prepares open between calls, per physical connection, so that a statement
+ * that has been run before on a connection is not parsed and planned again.
+ *
+ * prepare() returns a statement that the caller uses and closes as usual; closing it clears its parameters and
+ * hands it back to the cache. Each connection keeps at most maximumSize statements, evicting the least recently
+ * used. Statements are prepared on the connection underneath the pool's proxy, which would otherwise close them
+ * when the connection is returned. A connection is only used by the thread that borrowed it, so its statements
+ * are not locked; connections the pool has closed are dropped whenever a new one is first seen.
+ *
+ * Hits, misses and evictions are published as dogs.sql.statement.cache (tag result) and
+ * dogs.sql.statement.cache.evictions, with the share of hits as dogs.sql.statement.cache.hit.ratio.
+ * A maximum size of 0 switches the cache off: every statement is prepared on the connection as it is given.
+ */
+@Component
+public class DogStatementCache implements MeterBinder {
+
+	private final int maximumSize;
+
+	// Physical connection -> its statements by SQL text, least recently used first
+	private final Map<Connection, Statements> connections = new ConcurrentHashMap<>();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	@Autowired
+	public DogStatementCache(@Value("${dogs.statement-cache.maximum-size:64}") int maximumSize) {
+		if (maximumSize < 0) {
+			throw new IllegalArgumentException("The statement cache size cannot be negative.");
+		}
+		this.maximumSize = maximumSize;
+	}
+
+	/**
+	 * Returns a prepared statement for the SQL on the given connection, reusing the one prepared by an earlier
+	 * call on the same physical connection if there is one. The caller must close it, e.g. with try-with-resources,
+	 * and must not use it afterwards.
+	 * If the cached statement is still open in an enclosing call, a separate, uncached statement is prepared.
+	 */
+	public PreparedStatement prepare(Connection conn, String sql) throws SQLException {
+		if (maximumSize == 0) {
+			return conn.prepareStatement(sql);
+		}
+
+		Connection physical = physical(conn);
+		Statements statements = connections.get(physical);
+		if (statements == null) {
+			dropClosedConnections();
+			statements = connections.computeIfAbsent(physical, key -> new Statements());
+		}
+
+		Entry entry = statements.get(sql);
+		if (entry != null && !entry.leased) {
+			if (!entry.statement.isClosed()) {
+				hits.increment();
+				return entry.lease();
+			}
+			// Closed underneath the cache, e.g. by a failed connection
+			statements.remove(sql);
+			entry = null;
+		}
+
+		misses.increment();
+		PreparedStatement statement = physical.prepareStatement(sql);
+		if (entry != null) {
+			return statement;
+		}
+		entry = new Entry(statement);
+		statements.put(sql, entry);
+		return entry.lease();
+	}
+
+	/**
+	 * The share of prepare() calls that reused a cached statement, or NaN before the first call.
+	 */
+	public double hitRatio() {
+		double hitCount = hits.sum();
+		double total = hitCount + misses.sum();
+		return total > 0 ? hitCount / total : Double.NaN;
+	}
+
+	@Override
+	public void bindTo(MeterRegistry registry) {
+		FunctionCounter.builder("dogs.sql.statement.cache", hits, LongAdder::sum)
+				.description("Statements DogService prepared, by whether the connection already had them prepared")
+				.tag("result", "hit")
+				.register(registry);
+		FunctionCounter.builder("dogs.sql.statement.cache", misses, LongAdder::sum)
+				.description("Statements DogService prepared, by whether the connection already had them prepared")
+				.tag("result", "miss")
+				.register(registry);
+		FunctionCounter.builder("dogs.sql.statement.cache.evictions", evictions, LongAdder::sum)
+				.description("Prepared statements closed to keep a connection within the statement cache size")
+				.register(registry);
+		Gauge.builder("dogs.sql.statement.cache.hit.ratio", this, DogStatementCache::hitRatio)
+				.description("Share of the statements DogService prepared that were reused from the statement cache")
+				.register(registry);
+	}
+
+	/**
+	 * The driver's connection underneath a pool proxy, or the connection itself if it does not wrap one.
+	 */
+	private static Connection physical(Connection conn) throws SQLException {
+		Connection physical = conn.isWrapperFor(Connection.class) ? conn.unwrap(Connection.class) : null;
+		return physical != null ? physical : conn;
+	}
+
+	private void dropClosedConnections() {
+		connections.keySet().removeIf(conn -> {
+			try {
+				return conn.isClosed();
+			} catch (SQLException e) {
+				return true;
+			}
+		});
+	}
+
+	/**
+	 * The statements of one connection, in access order, evicting the least recently used beyond maximumSize.
+	 */
+	private final class Statements extends LinkedHashMap<String, Entry> {
+
+		Statements() {
+			super(16, 0.75f, true);
+		}
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+			if (size() <= maximumSize) {
+				return false;
+			}
+			evictions.increment();
+			eldest.getValue().evict();
+			return true;
+		}
+	}
+
+	/**
+	 * A cached statement, and whether a caller currently holds it.
+	 */
+	private static final class Entry {
+
+		private final PreparedStatement statement;
+		private boolean leased;
+		private boolean evicted;
+
+		Entry(PreparedStatement statement) {
+			this.statement = statement;
+		}
+
+		/**
+		 * Hands the statement to a caller, behind a view whose close() returns it instead of closing it.
+		 */
+		PreparedStatement lease() {
+			leased = true;
+			boolean[] closed = new boolean[1];
+			return (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+					new Class<?>[] {PreparedStatement.class}, (proxy, method, args) -> {
+						switch (method.getName()) {
+							case "close" -> {
+								if (!closed[0]) {
+									closed[0] = true;
+									release();
+								}
+								return null;
+							}
+							case "isClosed" -> {
+								return closed[0] || statement.isClosed();
+							}
+							case "equals" -> {
+								return proxy == args[0];
+							}
+							case "hashCode" -> {
+								return System.identityHashCode(proxy);
+							}
+							case "toString" -> {
+								return "Cached " + statement;
+							}
+							default -> {
+								if (closed[0]) {
+									throw new SQLException("The statement has been closed.");
+								}
+							}
+						}
+						try {
+							return method.invoke(statement, args);
+						} catch (InvocationTargetException e) {
+							throw e.getCause();
+						}
+					});
+		}
+
+		void evict() {
+			evicted = true;
+			if (!leased) {
+				closeQuietly();
+			}
+		}
+
+		private void release() {
+			leased = false;
+			if (evicted) {
+				closeQuietly();
+				return;
+			}
+			try {
+				statement.clearParameters();
+				statement.clearBatch();
+			} catch (SQLException e) {
+				// Not reusable; the next prepare() finds it closed and prepares it again
+				closeQuietly();
+			}
+		}
+
+		private void closeQuietly() {
+			try {
+				statement.close();
+			} catch (SQLException e) {
+				// Nothing to do: the statement is no longer used
+			}
+		}
+	}
+}
@@ -0,0 +1,285 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.exception.DogServiceException;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.YearMonth;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * The aggregates behind GET /stats: active and deleted totals, and counts of active dogs by status, breed,
+ * supplier, leaving reason, intake month and leaving month.
+ *
+ * The counts are loaded from the DOGS table when the application is ready, and then kept current from
+ * DogChangedEvents: each change subtracts the record's previous values and adds its new ones, so a write costs
+ * a few map updates and a request never scans the table. The values each record was last counted with are
+ * kept per ID for that purpose, with its version, so that an older event cannot undo a newer one.
+ * The DogStats answered to requests is built once per change and shared until the next one.
+ */
+@Component
+public class DogStatistics {
+
+	private static final Logger log = LoggerFactory.getLogger(DogStatistics.class);
+
+	// The breakdowns, in the order of Counted.values
+	private static final int STATUS = 0;
+	private static final int BREED = 1;
+	private static final int SUPPLIER = 2;
+	private static final int LEAVING_REASON = 3;
+	private static final int INTAKE_MONTH = 4;
+	private static final int LEAVING_MONTH = 5;
+	private static final int BREAKDOWNS = 6;
+
+	private final DataSource dataSource;
+
+	private final ReentrantLock lock = new ReentrantLock();
+
+	// ID -> the values the record is currently counted with
+	private final Map<Integer, Counted> records = new HashMap<>();
+
+	// Breakdown -> value -> number of active dogs with it
+	@SuppressWarnings("unchecked")
+	private final Map<String, Long>[] counts = new Map[BREAKDOWNS];
+
+	private long active;
+	private long deleted;
+
+	private volatile boolean ready;
+
+	// The answer for the current counts, or null after a change until the next request builds it
+	private volatile DogStats stats;
+
+	@Autowired
+	public DogStatistics(DataSource dataSource) {
+		this.dataSource = dataSource;
+		for (int i = 0; i < BREAKDOWNS; i++) {
+			counts[i] = new HashMap<>();
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void onApplicationReady() {
+		try {
+			rebuild();
+		} catch (SQLException e) {
+			// The first request tries again
+			log.warn("Could not load the dog statistics", e);
+		}
+	}
+
+	/**
+	 * Recounts everything from the DOGS table, replacing the incrementally maintained counts.
+	 * Changes published while the rebuild runs are applied once it has finished.
+	 */
+	public void rebuild() throws SQLException {
+		String sql = "SELECT ID, STATUS, BREED, SUPPLIER, LEAVINGREASON, DATEACQUIRED, LEAVINGDATE, DATEDELETED, VERSION FROM DOGS";
+
+		lock.lock();
+		try (Connection conn = dataSource.getConnection();
+		     PreparedStatement preparedStatement = conn.prepareStatement(sql);
+		     ResultSet rs = preparedStatement.executeQuery()) {
+
+			records.clear();
+			for (Map<String, Long> breakdown : counts) {
+				breakdown.clear();
+			}
+			active = 0;
+			deleted = 0;
+
+			while (rs.next()) {
+				Counted counted = new Counted(new String[] {
+						value(rs.getString("STATUS")), value(rs.getString("BREED")), value(rs.getString("SUPPLIER")),
+						value(rs.getString("LEAVINGREASON")), month(rs.getDate("DATEACQUIRED")), month(rs.getDate("LEAVINGDATE"))},
+						rs.getDate("DATEDELETED") != null, rs.getLong("VERSION"));
+				add(rs.getInt("ID"), counted);
+			}
+			stats = null;
+			ready = true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Applies a committed write.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.READ_MODEL_ORDER)
+	public void onDogChanged(DogChangedEvent event) {
+		onDogsChanged(new DogBatchChangedEvent(List.of(event)));
+	}
+
+	/**
+	 * Applies the committed writes of a batch under one acquisition of the lock.
+	 */
+	@EventListener
+	@Order(DogChangedEvent.READ_MODEL_ORDER)
+	public void onDogsChanged(DogBatchChangedEvent batch) {
+		lock.lock();
+		try {
+			// Not loaded yet: the rebuild, which runs after this commit, counts the change itself
+			if (!ready) {
+				return;
+			}
+
+			for (DogChangedEvent change : batch.getChanges()) {
+				int id = (int) change.getId();
+				Counted previous = records.get(id);
+				Counted next = Counted.of(change.getDog());
+				if (previous != null && previous.version != null && next.version != null && previous.version >= next.version) {
+					continue;
+				}
+
+				if (previous != null) {
+					remove(id, previous);
+				}
+				add(id, next);
+				stats = null;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * @return true once the counts have been loaded.
+	 */
+	public boolean isReady() {
+		return ready;
+	}
+
+	/**
+	 * Returns the statistics for the current state of the table. Between writes every call returns the same
+	 * instance, which must not be modified. Loads the counts first if they have not been loaded yet.
+	 * @throws DogServiceException if the counts have to be loaded and cannot be
+	 */
+	public DogStats get() {
+		DogStats current = stats;
+		if (current != null) {
+			return current;
+		}
+
+		if (!ready) {
+			try {
+				rebuild();
+			} catch (SQLException e) {
+				throw new DogServiceException("Error while counting dogs: " + e.getMessage(), e);
+			}
+		}
+
+		lock.lock();
+		try {
+			if (stats == null) {
+				stats = toStats();
+			}
+			return stats;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private DogStats toStats() {
+		DogStats result = new DogStats();
+		result.setActive(active);
+		result.setDeleted(deleted);
+		result.setByStatus(sorted(counts[STATUS]));
+		result.setByBreed(sorted(counts[BREED]));
+		result.setBySupplier(sorted(counts[SUPPLIER]));
+		result.setByLeavingReason(sorted(counts[LEAVING_REASON]));
+		result.setIntakeByMonth(sorted(counts[INTAKE_MONTH]));
+		result.setLeavingByMonth(sorted(counts[LEAVING_MONTH]));
+		return result;
+	}
+
+	private static Map<String, Long> sorted(Map<String, Long> breakdown) {
+		return Collections.unmodifiableMap(new TreeMap<>(breakdown));
+	}
+
+	private void add(int id, Counted counted) {
+		records.put(id, counted);
+		if (counted.deleted) {
+			deleted++;
+			return;
+		}
+
+		active++;
+		for (int i = 0; i < BREAKDOWNS; i++) {
+			if (counted.values[i] != null) {
+				counts[i].merge(counted.values[i], 1L, Long::sum);
+			}
+		}
+	}
+
+	private void remove(int id, Counted counted) {
+		records.remove(id);
+		if (counted.deleted) {
+			deleted--;
+			return;
+		}
+
+		active--;
+		for (int i = 0; i < BREAKDOWNS; i++) {
+			if (counted.values[i] != null) {
+				// Values that are no longer counted are dropped from the breakdown
+				counts[i].computeIfPresent(counted.values[i], (value, count) -> count > 1 ? count - 1 : null);
+			}
+		}
+	}
+
+	/**
+	 * A text value as it is counted. New records are stored with an empty leaving reason rather than null,
+	 * and blank values count as no value.
+	 */
+	private static String value(String text) {
+		return text != null && !text.isBlank() ? text : null;
+	}
+
+	/**
+	 * The month of a date as yyyy-MM, or null.
+	 */
+	private static String month(Date date) {
+		return date != null ? YearMonth.from(date.toLocalDate()).toString() : null;
+	}
+
+	/**
+	 * The values a record is counted with, in the order of the breakdown constants.
+	 */
+	private static final class Counted {
+
+		private final String[] values;
+		private final boolean deleted;
+		private final Long version;
+
+		Counted(String[] values, boolean deleted, Long version) {
+			this.values = values;
+			this.deleted = deleted;
+			this.version = version;
+		}
+
+		static Counted of(DogDTO dog) {
+			return new Counted(new String[] {
+					value(dog.getStatus()), value(dog.getBreed()), value(dog.getSupplier()), value(dog.getLeavingReason()),
+					month(dog.getDateAcquired()), month(dog.getLeavingDate())},
+					dog.getDateDeleted() != null, dog.getVersion());
+		}
+	}
+}
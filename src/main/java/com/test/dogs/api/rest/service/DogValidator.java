@@ -0,0 +1,248 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.exception.DogValidationException;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogField;
+import com.test.dogs.api.rest.model.DogQuery;
+
+import java.sql.Date;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The validation rules for new records, partial updates, queries, page sizes and batches, shared by DogService and
+ * ReactiveDogService so that both stacks accept and reject exactly the same requests with the same messages.
+ */
+final class DogValidator {
+
+	static final int DEFAULT_PAGE_SIZE = 100;
+	static final int MAX_PAGE_SIZE = 1000;
+
+	static final int MAX_BATCH_SIZE = 1000;
+
+	static final List<String> VALID_STATUSES = Arrays.asList("in training", "in service", "retired", "left");
+
+	static final List<String> VALID_LEAVING_REASONS =
+			Arrays.asList("transferred", "retired (put down)", "kia", "retired (re-homed)", "died");
+
+	static final String BADGE_EXISTS_MESSAGE = "Dog badge ID already exists. Please check and try again or " +
+			"use the PUT method to update the existing record.";
+
+	private DogValidator() {
+	}
+
+	/**
+	 * Applies the validation rules for a new record and returns a copy ready to be inserted once the caller has stamped its modification time,
+	 * with empty strings in place of the optional text fields that were not provided.
+	 * @throws DogValidationException if the record is not valid
+	 */
+	static DogDTO validateNewDog(DogDTO dogDto) {
+		DogDTO newDog = new DogDTO(dogDto);
+
+		// Dog Name (Required/NOT NULL)
+		String dogName = newDog.getName();
+		if (dogName == null || dogName.trim().isEmpty()) {
+			throw new DogValidationException("Dog name is required.");
+		}
+
+		// Breed (Required/NOT NULL)
+		String dogBreed = newDog.getBreed();
+		if (dogBreed == null || dogBreed.trim().isEmpty()) {
+			throw new DogValidationException("Dog breed is required.");
+		}
+
+		// Supplier (Optional)
+		if (newDog.getSupplier() == null) {
+			newDog.setSupplier("");
+		}
+
+		// Gender (Optional)
+		if (newDog.getGender() == null) {
+			newDog.setGender("");
+		}
+
+		// Status (Required - Must be one of the predefined values)
+		String dogStatus = newDog.getStatus();
+		if (dogStatus == null || dogStatus.trim().isEmpty()) {
+			throw new DogValidationException("Dog status is required.");
+		}
+
+		if (!VALID_STATUSES.contains(dogStatus.toLowerCase())) {
+			throw new DogValidationException("Dog status must be one of the following: " + VALID_STATUSES);
+		}
+
+		// Leaving Reason (Optional)
+		String dogLeavingReason = newDog.getLeavingReason();
+		if (dogLeavingReason == null) {
+			newDog.setLeavingReason("");
+
+		} else if (!VALID_LEAVING_REASONS.contains(dogLeavingReason.toLowerCase())) {
+			throw new DogValidationException("If provided, the leaving reason must be one of the following: " + VALID_LEAVING_REASONS);
+		}
+
+		// Kenneling Characteristics (Optional)
+		if (newDog.getKennelingCharacteristics() == null) {
+			newDog.setKennelingCharacteristics("");
+		}
+
+		// BadgeID (Required/NOT NULL)
+		Integer dogBadgeID = newDog.getBadgeID();
+		if (dogBadgeID == null) {
+			throw new DogValidationException("Dog badge ID is required.");
+		}
+		// Check if the ID is negative
+		if (dogBadgeID <= 0) {
+			throw new DogValidationException("Dog badge ID must be a positive number.");
+		}
+
+		// Check dates - Leaving Date cannot be before Date Acquired
+		Date dogDateAcquired = newDog.getDateAcquired();
+		Date dogLeavingDate = newDog.getLeavingDate();
+		if (dogLeavingDate != null && dogDateAcquired != null &&
+		    dogLeavingDate.toLocalDate().isBefore(dogDateAcquired.toLocalDate())) {
+			throw new DogValidationException("Leaving date cannot be before the acquisition date.");
+		}
+
+		// Set by the database
+		newDog.setId(null);
+		newDog.setDateDeleted(null);
+
+		return newDog;
+	}
+
+	/**
+	 * Validates the fields provided for a partial update and returns them as column -> new value,
+	 * in the order the columns appear in the table.
+	 * @throws DogValidationException if a provided field is not valid or no field was provided
+	 */
+	static Map<String, Object> validateUpdate(DogDTO dogDto) {
+		if (dogDto.getName() != null && dogDto.getName().trim().isEmpty()) {
+			throw new DogValidationException("Name cannot be empty if provided.");
+		}
+
+		if (dogDto.getBreed() != null && dogDto.getBreed().trim().isEmpty()) {
+			throw new DogValidationException("Breed cannot be empty if provided.");
+		}
+
+		if (dogDto.getBadgeID() != null && dogDto.getBadgeID() <= 0) {
+			throw new DogValidationException("Badge ID must be a positive number if provided.");
+		}
+
+		if (dogDto.getStatus() != null) {
+			if (dogDto.getStatus().trim().isEmpty()) {
+				throw new DogValidationException("Status cannot be empty if provided.");
+			}
+
+			if (!VALID_STATUSES.contains(dogDto.getStatus().toLowerCase())) {
+				throw new DogValidationException("Status must be one of the following: " + VALID_STATUSES);
+			}
+		}
+
+		if (dogDto.getLeavingReason() != null) {
+			if (dogDto.getLeavingReason().trim().isEmpty()) {
+				throw new DogValidationException("Leaving Reason cannot be empty if provided.");
+			}
+
+			if (!VALID_LEAVING_REASONS.contains(dogDto.getLeavingReason().toLowerCase())) {
+				throw new DogValidationException("Leaving reason must be one of the following: " + VALID_LEAVING_REASONS);
+			}
+		}
+
+		// Check each field and add it to the update if provided
+		Map<String, Object> changes = new LinkedHashMap<>();
+		putIfProvided(changes, "name", dogDto.getName());
+		putIfProvided(changes, "breed", dogDto.getBreed());
+		putIfProvided(changes, "supplier", dogDto.getSupplier());
+		putIfProvided(changes, "badgeID", dogDto.getBadgeID());
+		putIfProvided(changes, "gender", dogDto.getGender());
+		putIfProvided(changes, "birthDate", dogDto.getBirthDate());
+		putIfProvided(changes, "dateAcquired", dogDto.getDateAcquired());
+		putIfProvided(changes, "status", dogDto.getStatus());
+		putIfProvided(changes, "leavingDate", dogDto.getLeavingDate());
+		putIfProvided(changes, "leavingReason", dogDto.getLeavingReason());
+		putIfProvided(changes, "kennelingCharacteristics", dogDto.getKennelingCharacteristics());
+
+		// If no fields to update, return an error
+		if (changes.isEmpty()) {
+			throw new DogValidationException("No update values have been provided.");
+		}
+
+		return changes;
+	}
+
+	private static void putIfProvided(Map<String, Object> changes, String column, Object value) {
+		if (value != null) {
+			changes.put(column, value);
+		}
+	}
+
+	/**
+	 * Checks the dates the record will have once the update is applied.
+	 * @throws DogValidationException if the leaving or birth date conflicts with the acquisition date
+	 */
+	static void validateUpdatedDates(DogDTO existingDog, DogDTO dogDto) {
+		Date finalBirthDate = dogDto.getBirthDate() != null ? dogDto.getBirthDate() : existingDog.getBirthDate();
+		Date finalLeavingDate = dogDto.getLeavingDate() != null ? dogDto.getLeavingDate() : existingDog.getLeavingDate();
+		Date finalDateAcquired = dogDto.getDateAcquired() != null ? dogDto.getDateAcquired() : existingDog.getDateAcquired();
+
+		if (finalLeavingDate != null && finalDateAcquired != null &&
+		    finalLeavingDate.toLocalDate().isBefore(finalDateAcquired.toLocalDate())) {
+			throw new DogValidationException("Leaving date cannot be before the acquisition date.");
+		}
+
+		if (finalBirthDate != null && finalDateAcquired != null &&
+		    finalBirthDate.toLocalDate().isAfter(finalDateAcquired.toLocalDate())) {
+			throw new DogValidationException("Birth date cannot be after the acquisition date.");
+		}
+	}
+
+	/**
+	 * Checks a structured query against the domain: statuses and leaving reasons must be ones a record can have,
+	 * and a limit must be a valid page size.
+	 * @throws DogValidationException if the query could never match or asks for too many records at once
+	 */
+	static void validateQuery(DogQuery query) {
+		checkValues(query, DogField.STATUS, VALID_STATUSES);
+		checkValues(query, DogField.LEAVING_REASON, VALID_LEAVING_REASONS);
+		if (query.getLimit() != null) {
+			pageSize(query.getLimit());
+		}
+	}
+
+	private static void checkValues(DogQuery query, DogField field, List<String> validValues) {
+		List<String> values = query.getMatches().get(field);
+		if (values == null) {
+			return;
+		}
+		for (String value : values) {
+			if (!validValues.contains(value.toLowerCase())) {
+				throw new DogValidationException("Query parameter '" + field.getProperty() + "' must be among: " + validValues);
+			}
+		}
+	}
+
+	/**
+	 * Validates the requested page size, applying the default when none was given.
+	 */
+	static int pageSize(Integer limit) {
+		int pageSize = limit != null ? limit : DEFAULT_PAGE_SIZE;
+		if (pageSize < 1 || pageSize > MAX_PAGE_SIZE) {
+			throw new DogValidationException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+		}
+		return pageSize;
+	}
+
+	/**
+	 * Rejects empty batches and batches over MAX_BATCH_SIZE items.
+	 */
+	static void checkBatchSize(List<?> items) {
+		if (items == null || items.isEmpty()) {
+			throw new DogValidationException("At least one dog must be provided.");
+		}
+		if (items.size() > MAX_BATCH_SIZE) {
+			throw new DogValidationException("A batch may contain at most " + MAX_BATCH_SIZE + " dogs.");
+		}
+	}
+}
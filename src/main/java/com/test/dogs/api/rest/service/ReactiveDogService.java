@@ -0,0 +1,447 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.exception.DogNotFoundException;
+import com.test.dogs.api.rest.exception.DogPreconditionFailedException;
+import com.test.dogs.api.rest.exception.DogServiceException;
+import com.test.dogs.api.rest.exception.DogValidationException;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogField;
+import com.test.dogs.api.rest.model.DogFields;
+import com.test.dogs.api.rest.model.DogPage;
+import io.r2dbc.h2.H2ConnectionConfiguration;
+import io.r2dbc.h2.H2ConnectionFactory;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.Readable;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Non-blocking counterpart of DogService, used by ReactiveDogEndpoint when the "reactive" profile is active.
+ * Runs the same SQL against the same DOGS table through R2DBC, applies the same DogValidator rules and
+ * publishes the same DogChangedEvents, so the change tracker, cache and search index stay consistent.
+ *
+ * Lists are returned as a Flux that emits rows as they are read, at the rate the subscriber requests them.
+ * Single records and writes are returned as a Mono. Nothing runs until the publisher is subscribed.
+ *
+ * The R2DBC pool is opened on spring.datasource.url, so both stacks always share one database and schema.
+ * It is deliberately not a ConnectionFactory bean: Spring Boot would then stop creating the JDBC DataSource
+ * that Flyway, the search index and the batch endpoints rely on.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveDogService implements DisposableBean {
+
+	private static final String JDBC_H2_PREFIX = "jdbc:h2:";
+
+	private static final String FILTER_CLAUSE = " AND (NAME LIKE :term OR BREED LIKE :term OR SUPPLIER LIKE :term)";
+
+	// Conditional UPDATE attempts before giving up on a record that keeps changing underneath
+	private static final int MAX_UPDATE_ATTEMPTS = 3;
+
+	private static final String INSERT_RETURNING_SQL = "SELECT * FROM FINAL TABLE (INSERT INTO DOGS (name, breed, supplier, badgeID, gender, birthDate, dateAcquired, status, leavingDate, leavingReason, kennelingCharacteristics, lastModified) " +
+			"VALUES (:name, :breed, :supplier, :badgeID, :gender, :birthDate, :dateAcquired, :status, :leavingDate, :leavingReason, :kennelingCharacteristics, :lastModified))";
+
+	// Returns the deleted row for the change event
+	private static final String SOFT_DELETE_RETURNING_SQL = "SELECT * FROM FINAL TABLE (UPDATE DOGS SET dateDeleted = :dateDeleted, " +
+			"version = version + 1, lastModified = :lastModified WHERE ID = :id)";
+
+	private final ConnectionPool connectionPool;
+
+	private final DatabaseClient databaseClient;
+
+	private final ApplicationEventPublisher eventPublisher;
+
+	private final DogMetrics metrics;
+
+	@Autowired
+	public ReactiveDogService(@Value("${spring.datasource.url}") String url,
+	                          @Value("${spring.datasource.username:}") String username,
+	                          @Value("${spring.datasource.password:}") String password,
+	                          @Value("${dogs.r2dbc.pool.initial-size:2}") int initialSize,
+	                          @Value("${dogs.r2dbc.pool.max-size:10}") int maxSize,
+	                          @Value("${dogs.r2dbc.pool.max-acquire-time:5s}") Duration maxAcquireTime,
+	                          ApplicationEventPublisher eventPublisher, DogMetrics metrics) {
+		if (!url.startsWith(JDBC_H2_PREFIX)) {
+			throw new IllegalStateException("The reactive profile requires an H2 database, not " + url);
+		}
+
+		H2ConnectionConfiguration configuration = H2ConnectionConfiguration.builder()
+				.url(url.substring(JDBC_H2_PREFIX.length()))
+				.username(username)
+				.password(password)
+				.build();
+
+		this.connectionPool = new ConnectionPool(ConnectionPoolConfiguration.builder(new H2ConnectionFactory(configuration))
+				.name("dogs-r2dbc-pool")
+				.initialSize(initialSize)
+				.maxSize(maxSize)
+				.maxAcquireTime(maxAcquireTime)
+				.build());
+		this.databaseClient = DatabaseClient.create(connectionPool);
+		this.eventPublisher = eventPublisher;
+		this.metrics = metrics;
+	}
+
+	/**
+	 * Closes the connection pool when the application shuts down.
+	 */
+	@Override
+	public void destroy() {
+		connectionPool.dispose();
+	}
+
+	/**
+	 * Streams all active records, optionally filtered on name, breed and supplier.
+	 * @param fields The fields to read, or null for every field.
+	 */
+	public Flux<DogDTO> getAllDogsList(String filter, DogFields fields) {
+		return timed(DogMetrics.Call.GET_ALL_DOGS_LIST, Flux.defer(() -> {
+			String sql = select(fields) + " WHERE dateDeleted IS NULL";
+			String term = filterTerm(filter);
+			if (term == null) {
+				return queryDogs(databaseClient.sql(sql), fields, "Error while retrieving all dogs: ");
+			}
+			return queryDogs(databaseClient.sql(sql + FILTER_CLAUSE).bind("term", term), fields, "Error while retrieving all dogs: ");
+		}));
+	}
+
+	/**
+	 * Retrieves one page of active records, ordered by ID, with the same keyset pagination as DogService.
+	 */
+	public Mono<DogPage> getAllDogsPage(String filter, String cursor, Integer limit, DogFields fields) {
+		return timed(DogMetrics.Call.GET_ALL_DOGS_PAGE, Mono.defer(() -> {
+			String term = filterTerm(filter);
+			String sql = select(fields) + " WHERE dateDeleted IS NULL" + (term != null ? FILTER_CLAUSE : "");
+			return queryPage(sql + " AND ID > :afterId", term, cursor, limit, fields);
+		}));
+	}
+
+	/**
+	 * Streams every record, including deleted records.
+	 */
+	public Flux<DogDTO> getAllDogsIncludingDeleted(DogFields fields) {
+		return timed(DogMetrics.Call.GET_ALL_DOGS_INCLUDING_DELETED,
+				Flux.defer(() -> queryDogs(databaseClient.sql(select(fields)), fields, "Error while retrieving all dogs: ")));
+	}
+
+	/**
+	 * Retrieves one page of all records, including deleted records, ordered by ID.
+	 */
+	public Mono<DogPage> getAllDogsIncludingDeletedPage(String cursor, Integer limit, DogFields fields) {
+		return timed(DogMetrics.Call.GET_ALL_DOGS_INCLUDING_DELETED_PAGE,
+				Mono.defer(() -> queryPage(select(fields) + " WHERE ID > :afterId", null, cursor, limit, fields)));
+	}
+
+	/**
+	 * Streams every record, including deleted records, in ID order, for the NDJSON export. Rows are pulled
+	 * from the result as the client consumes them, so a slow client slows the read instead of filling memory.
+	 */
+	public Flux<DogDTO> streamAllDogsIncludingDeleted(DogFields fields) {
+		return timed(DogMetrics.Call.STREAM_ALL_DOGS_INCLUDING_DELETED,
+				Flux.defer(() -> queryDogs(databaseClient.sql(select(fields) + " ORDER BY ID"), fields, "Error while exporting dogs: ")));
+	}
+
+	/**
+	 * Retrieves a single record by its ID.
+	 * Signals DogNotFoundException if no dog is found with the given ID.
+	 */
+	public Mono<DogDTO> getDogById(int id) {
+		return timed(DogMetrics.Call.GET_DOG_BY_ID, loadDogById(id));
+	}
+
+	private Mono<DogDTO> loadDogById(int id) {
+		return databaseClient.sql("SELECT * FROM DOGS WHERE ID = :id")
+				.bind("id", id)
+				.map(ReactiveDogService::mapRowToDogDto)
+				.one()
+				.onErrorMap(DataAccessException.class,
+						e -> new DogServiceException("Error while retrieving dog with ID " + id + ": " + e.getMessage(), e))
+				.switchIfEmpty(Mono.error(() -> new DogNotFoundException("Dog with ID " + id + " not found")));
+	}
+
+	/**
+	 * Validates and inserts a new record on behalf of the given user (or null), and returns it as stored, with its
+	 * generated ID.
+	 */
+	public Mono<DogDTO> saveNewDog(DogDTO dogDto, String author) {
+		return timed(DogMetrics.Call.SAVE_NEW_DOG, Mono.defer(() -> {
+			DogDTO newDog = DogValidator.validateNewDog(dogDto);
+
+			DatabaseClient.GenericExecuteSpec insert = databaseClient.sql(INSERT_RETURNING_SQL);
+			insert = bind(insert, "name", newDog.getName(), String.class);
+			insert = bind(insert, "breed", newDog.getBreed(), String.class);
+			insert = bind(insert, "supplier", newDog.getSupplier(), String.class);
+			insert = bind(insert, "badgeID", newDog.getBadgeID(), Integer.class);
+			insert = bind(insert, "gender", newDog.getGender(), String.class);
+			insert = bind(insert, "birthDate", toLocalDate(newDog.getBirthDate()), LocalDate.class);
+			insert = bind(insert, "dateAcquired", toLocalDate(newDog.getDateAcquired()), LocalDate.class);
+			insert = bind(insert, "status", newDog.getStatus(), String.class);
+			insert = bind(insert, "leavingDate", toLocalDate(newDog.getLeavingDate()), LocalDate.class);
+			insert = bind(insert, "leavingReason", newDog.getLeavingReason(), String.class);
+			insert = bind(insert, "kennelingCharacteristics", newDog.getKennelingCharacteristics(), String.class);
+			insert = insert.bind("lastModified", now());
+
+			return insert.map(ReactiveDogService::mapRowToDogDto)
+					.one()
+					.onErrorMap(DuplicateKeyException.class, e -> new DogValidationException(DogValidator.BADGE_EXISTS_MESSAGE))
+					.onErrorMap(DataAccessException.class, e -> new DogServiceException("Error while saving new record: " + e.getMessage(), e))
+					.switchIfEmpty(Mono.error(() -> new DogServiceException("Creating dog failed, no record added.")))
+					.doOnNext(savedDog -> eventPublisher.publishEvent(
+							new DogChangedEvent(DogChangedEvent.Operation.CREATED, savedDog.getId(), savedDog, null, author)));
+		}));
+	}
+
+	/**
+	 * Applies a partial update, optionally only if the record is still at the expected version, with the same
+	 * rules as DogService.updateDog. The UPDATE only applies while the row is at the version that was read and
+	 * validated, and returns the updated row, so no concurrent write can slip in between the check and the change.
+	 * Signals DogNotFoundException for an unknown ID and DogPreconditionFailedException for a version conflict.
+	 * The author is the authenticated user making the change, or null.
+	 */
+	public Mono<DogDTO> updateDog(int id, DogDTO dogDto, Long expectedVersion, String author) {
+		return timed(DogMetrics.Call.UPDATE_DOG, Mono.defer(() -> {
+			// Validate only the fields that are being provided
+			Map<String, Object> changes = DogValidator.validateUpdate(dogDto);
+			String sql = "SELECT * FROM FINAL TABLE (UPDATE DOGS SET " + updateAssignments(changes)
+					+ "version = version + 1, lastModified = :lastModified WHERE ID = :id AND version = :version)";
+
+			return attemptUpdate(id, dogDto, changes, sql, expectedVersion, author, now(), 1)
+					.onErrorMap(DuplicateKeyException.class, e -> new DogValidationException(DogValidator.BADGE_EXISTS_MESSAGE))
+					.onErrorMap(DataAccessException.class,
+							e -> new DogServiceException("Error while updating dog with ID " + id + ": " + e.getMessage(), e));
+		}));
+	}
+
+	/**
+	 * Reads the record, validates the update against it and applies it on the condition that the version is
+	 * unchanged. If a concurrent write got in first, starts again from a fresh read, up to MAX_UPDATE_ATTEMPTS.
+	 */
+	private Mono<DogDTO> attemptUpdate(int id, DogDTO dogDto, Map<String, Object> changes, String sql,
+	                                   Long expectedVersion, String author, OffsetDateTime lastModified, int attempt) {
+		return loadDogById(id).flatMap(existingDog -> {
+			if (expectedVersion != null && !expectedVersion.equals(existingDog.getVersion())) {
+				return Mono.error(new DogPreconditionFailedException("Dog with ID " + id + " has been modified; the current version is " + existingDog.getVersion()));
+			}
+
+			// Validate date logic against the version being updated
+			DogValidator.validateUpdatedDates(existingDog, dogDto);
+
+			DatabaseClient.GenericExecuteSpec update = databaseClient.sql(sql);
+			for (Map.Entry<String, Object> change : changes.entrySet()) {
+				Object value = change.getValue();
+				update = update.bind(change.getKey(), value instanceof Date ? ((Date) value).toLocalDate() : value);
+			}
+			update = update.bind("lastModified", lastModified)
+					.bind("id", id)
+					.bind("version", existingDog.getVersion());
+
+			return update.map(ReactiveDogService::mapRowToDogDto)
+					.one()
+					.doOnNext(updatedDog -> eventPublisher.publishEvent(
+							new DogChangedEvent(DogChangedEvent.Operation.UPDATED, id, updatedDog, existingDog, author)))
+					.switchIfEmpty(Mono.defer(() -> {
+						if (attempt == MAX_UPDATE_ATTEMPTS) {
+							return Mono.error(new DogPreconditionFailedException("Dog with ID " + id + " is being modified concurrently, please try again"));
+						}
+						return attemptUpdate(id, dogDto, changes, sql, expectedVersion, author, lastModified, attempt + 1);
+					}));
+		});
+	}
+
+	/**
+	 * Performs a soft delete by marking the dog record with the current date, on behalf of the given user (or null).
+	 * Signals DogNotFoundException if no dog is found with the given ID.
+	 */
+	public Mono<Void> markDogAsDeleted(int id, String author) {
+		return timed(DogMetrics.Call.MARK_DOG_AS_DELETED, Mono.defer(() -> databaseClient.sql(SOFT_DELETE_RETURNING_SQL)
+				.bind("dateDeleted", LocalDate.now())
+				.bind("lastModified", now())
+				.bind("id", id)
+				.map(ReactiveDogService::mapRowToDogDto)
+				.one()
+				.onErrorMap(DataAccessException.class,
+						e -> new DogServiceException("Error while marking dog with ID " + id + " as deleted: " + e.getMessage(), e))
+				.switchIfEmpty(Mono.error(() -> new DogNotFoundException("Dog with ID " + id + " not found for deletion")))
+				.doOnNext(deletedDog -> eventPublisher.publishEvent(
+						new DogChangedEvent(DogChangedEvent.Operation.DELETED, id, deletedDog, null, author)))
+				.then()));
+	}
+
+	/**
+	 * Runs a keyset-paginated query. The SQL must end with the "ID > :afterId" condition and may use a :term filter.
+	 * One extra row is fetched to find out whether another page follows.
+	 */
+	private Mono<DogPage> queryPage(String sql, String term, String cursor, Integer limit, DogFields fields) {
+		int pageSize = DogValidator.pageSize(limit);
+		long afterId = cursor != null ? DogCursor.decode(cursor) : 0L;
+
+		DatabaseClient.GenericExecuteSpec query = databaseClient.sql(sql + " ORDER BY ID LIMIT :limit")
+				.bind("afterId", afterId)
+				.bind("limit", pageSize + 1);
+		if (term != null) {
+			query = query.bind("term", term);
+		}
+
+		return queryDogs(query, fields, "Error while retrieving page of dogs: ")
+				.collectList()
+				.map(dogs -> DogService.toPage(dogs, pageSize));
+	}
+
+	private static Flux<DogDTO> queryDogs(DatabaseClient.GenericExecuteSpec query, DogFields fields, String errorMessage) {
+		return query.map(row -> fields != null ? mapColumnsToDogDto(row, fields) : mapRowToDogDto(row))
+				.all()
+				.onErrorMap(DataAccessException.class, e -> new DogServiceException(errorMessage + e.getMessage(), e));
+	}
+
+	/**
+	 * The start of a query on DOGS selecting the columns of the fieldset, or every column if it is null.
+	 */
+	private static String select(DogFields fields) {
+		return fields != null ? "SELECT " + fields.getSelectList() + " FROM DOGS" : "SELECT * FROM DOGS";
+	}
+
+	/**
+	 * The LIKE pattern for the free-text filter, or null if no filter was provided.
+	 */
+	private static String filterTerm(String filter) {
+		return filter != null && !filter.trim().isEmpty() ? "%" + filter.trim() + "%" : null;
+	}
+
+	/**
+	 * The SET assignments for the changed columns, each bound to a parameter named after its column.
+	 */
+	private static String updateAssignments(Map<String, Object> changes) {
+		StringBuilder assignments = new StringBuilder();
+		for (String column : changes.keySet()) {
+			assignments.append(column).append(" = :").append(column).append(", ");
+		}
+		return assignments.toString();
+	}
+
+	private static <T> DatabaseClient.GenericExecuteSpec bind(DatabaseClient.GenericExecuteSpec spec, String name,
+	                                                         T value, Class<T> type) {
+		return value != null ? spec.bind(name, value) : spec.bindNull(name, type);
+	}
+
+	private static LocalDate toLocalDate(Date date) {
+		return date != null ? date.toLocalDate() : null;
+	}
+
+	/**
+	 * The modification time for a write, at the millisecond precision that is stored and reported back.
+	 */
+	private static OffsetDateTime now() {
+		return Instant.now().truncatedTo(ChronoUnit.MILLIS).atOffset(ZoneOffset.UTC);
+	}
+
+	/**
+	 * Records the time from subscription to completion or error against the call, as DogService does.
+	 * A cancelled subscription (e.g. the client disconnected) is not recorded.
+	 */
+	private <T> Flux<T> timed(DogMetrics.Call call, Flux<T> publisher) {
+		return Flux.defer(() -> {
+			long start = System.nanoTime();
+			return publisher.doFinally(signal -> record(call, start, signal));
+		});
+	}
+
+	private <T> Mono<T> timed(DogMetrics.Call call, Mono<T> publisher) {
+		return Mono.defer(() -> {
+			long start = System.nanoTime();
+			return publisher.doFinally(signal -> record(call, start, signal));
+		});
+	}
+
+	private void record(DogMetrics.Call call, long start, SignalType signal) {
+		if (signal != SignalType.CANCEL) {
+			metrics.recordCall(call, System.nanoTime() - start, signal != SignalType.ON_ERROR);
+		}
+	}
+
+	/**
+	 * Maps an R2DBC row to a DogDTO, with the same fields and types as DogService.mapResultSetToDogDto.
+	 */
+	static DogDTO mapRowToDogDto(Readable row) {
+		DogDTO dog = new DogDTO();
+
+		dog.setId(row.get("ID", Long.class));
+		dog.setName(row.get("NAME", String.class));
+		dog.setBreed(row.get("BREED", String.class));
+		dog.setSupplier(row.get("SUPPLIER", String.class));
+		dog.setBadgeID(row.get("BADGEID", Integer.class));
+		dog.setGender(row.get("GENDER", String.class));
+		dog.setStatus(row.get("STATUS", String.class));
+		dog.setBirthDate(toSqlDate(row.get("BIRTHDATE", LocalDate.class)));
+		dog.setDateAcquired(toSqlDate(row.get("DATEACQUIRED", LocalDate.class)));
+		dog.setLeavingDate(toSqlDate(row.get("LEAVINGDATE", LocalDate.class)));
+		dog.setLeavingReason(row.get("LEAVINGREASON", String.class));
+		dog.setKennelingCharacteristics(row.get("KENNELINGCHARACTERISTICS", String.class));
+		dog.setDateDeleted(toSqlDate(row.get("DATEDELETED", LocalDate.class)));
+		dog.setVersion(row.get("VERSION", Long.class));
+
+		OffsetDateTime lastModified = row.get("LASTMODIFIED", OffsetDateTime.class);
+		dog.setLastModified(lastModified != null ? Timestamp.from(lastModified.toInstant()) : null);
+
+		return dog;
+	}
+
+	/**
+	 * Maps a row of a query that selected the columns of the fieldset, in order, by column position,
+	 * as DogService.mapColumnsToDogDto does for JDBC. Fields that were not selected stay null.
+	 */
+	static DogDTO mapColumnsToDogDto(Readable row, DogFields fields) {
+		DogDTO dog = new DogDTO();
+		List<DogField> columns = fields.getColumns();
+
+		for (int i = 0; i < columns.size(); i++) {
+			switch (columns.get(i)) {
+				case ID -> dog.setId(row.get(i, Long.class));
+				case NAME -> dog.setName(row.get(i, String.class));
+				case BREED -> dog.setBreed(row.get(i, String.class));
+				case SUPPLIER -> dog.setSupplier(row.get(i, String.class));
+				case BADGE_ID -> dog.setBadgeID(row.get(i, Integer.class));
+				case GENDER -> dog.setGender(row.get(i, String.class));
+				case BIRTH_DATE -> dog.setBirthDate(toSqlDate(row.get(i, LocalDate.class)));
+				case DATE_ACQUIRED -> dog.setDateAcquired(toSqlDate(row.get(i, LocalDate.class)));
+				case STATUS -> dog.setStatus(row.get(i, String.class));
+				case LEAVING_DATE -> dog.setLeavingDate(toSqlDate(row.get(i, LocalDate.class)));
+				case LEAVING_REASON -> dog.setLeavingReason(row.get(i, String.class));
+				case KENNELING_CHARACTERISTICS -> dog.setKennelingCharacteristics(row.get(i, String.class));
+				case DATE_DELETED -> dog.setDateDeleted(toSqlDate(row.get(i, LocalDate.class)));
+				case VERSION -> dog.setVersion(row.get(i, Long.class));
+				case LAST_MODIFIED -> {
+					OffsetDateTime lastModified = row.get(i, OffsetDateTime.class);
+					dog.setLastModified(lastModified != null ? Timestamp.from(lastModified.toInstant()) : null);
+				}
+			}
+		}
+
+		return dog;
+	}
+
+	private static Date toSqlDate(LocalDate date) {
+		return date != null ? Date.valueOf(date) : null;
+	}
+}
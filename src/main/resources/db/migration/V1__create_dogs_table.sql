@@ -0,0 +1,18 @@
+-- The DOGS table as it existed before migrations were introduced; a no-op on those databases
+CREATE TABLE IF NOT EXISTS DOGS (
+    ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    NAME VARCHAR(100) NOT NULL,
+    BREED VARCHAR(100),
+    SUPPLIER VARCHAR(100),
+    BADGEID INTEGER NOT NULL,
+    GENDER VARCHAR(10),
+    BIRTHDATE DATE,
+    DATEACQUIRED DATE NOT NULL,
+    STATUS VARCHAR(50) NOT NULL,
+    LEAVINGDATE DATE,
+    LEAVINGREASON VARCHAR(255),
+    KENNELINGCHARACTERISTICS VARCHAR,
+    DATEDELETED DATE,
+    -- Also the index for badge lookups (saveNewDogs)
+    CONSTRAINT UQ_DOGS_BADGEID UNIQUE (BADGEID)
+);
@@ -0,0 +1,5 @@
+-- Row version for optimistic concurrency: every write increments it, PUT /{id} matches it against If-Match
+ALTER TABLE DOGS ADD COLUMN IF NOT EXISTS VERSION BIGINT DEFAULT 0 NOT NULL;
+
+-- Time of the last write to the row, reported as Last-Modified by GET /{id}
+ALTER TABLE DOGS ADD COLUMN IF NOT EXISTS LASTMODIFIED TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL;
@@ -0,0 +1,4 @@
+-- Listing of active dogs: WHERE dateDeleted IS NULL [AND ID > ?] ORDER BY ID.
+-- H2 has no partial indexes, so the composite index leads with DATEDELETED: the IS NULL rows form one
+-- contiguous range, already sorted by ID for keyset pagination.
+CREATE INDEX IF NOT EXISTS IDX_DOGS_ACTIVE_ID ON DOGS (DATEDELETED, ID);
@@ -0,0 +1,8 @@
+-- Structured queries (GET /search): equality and IN-lists on STATUS, BREED and SUPPLIER, and ranges on
+-- DATEACQUIRED and LEAVINGDATE. Single-column indexes, so each one serves both active-only queries and
+-- queries that include deleted dogs; H2 picks the most selective one for the conditions given.
+CREATE INDEX IF NOT EXISTS IDX_DOGS_STATUS ON DOGS (STATUS);
+CREATE INDEX IF NOT EXISTS IDX_DOGS_BREED ON DOGS (BREED);
+CREATE INDEX IF NOT EXISTS IDX_DOGS_SUPPLIER ON DOGS (SUPPLIER);
+CREATE INDEX IF NOT EXISTS IDX_DOGS_DATE_ACQUIRED ON DOGS (DATEACQUIRED);
+CREATE INDEX IF NOT EXISTS IDX_DOGS_LEAVING_DATE ON DOGS (LEAVINGDATE);
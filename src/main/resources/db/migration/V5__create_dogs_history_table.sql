@@ -0,0 +1,14 @@
+-- Append-only change history of DOGS (GET /{id}/history), written in batches by DogHistory.
+-- BEFORE_VALUES and AFTER_VALUES are JSON objects of the properties the change set, by property name.
+CREATE TABLE IF NOT EXISTS DOGS_HISTORY (
+    ID BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    DOG_ID BIGINT NOT NULL,
+    OPERATION VARCHAR(10) NOT NULL,
+    VERSION BIGINT,
+    CHANGED_AT TIMESTAMP NOT NULL,
+    CHANGED_BY VARCHAR(255),
+    BEFORE_VALUES CHARACTER LARGE OBJECT,
+    AFTER_VALUES CHARACTER LARGE OBJECT
+);
+-- Keyset pages of one dog's history: DOG_ID = ? AND ID > ? ORDER BY ID
+CREATE INDEX IF NOT EXISTS IDX_DOGS_HISTORY_DOG ON DOGS_HISTORY (DOG_ID, ID);
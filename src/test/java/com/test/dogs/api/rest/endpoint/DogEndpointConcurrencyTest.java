@@ -0,0 +1,106 @@
+package com.test.dogs.api.rest.endpoint;
+
+import com.test.dogs.support.TestApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs the full application over HTTP to check that badge uniqueness holds under concurrent requests.
+ */
+public class DogEndpointConcurrencyTest {
+
+	private static final int REQUESTS = 16;
+
+	private ConfigurableApplicationContext context;
+	private HttpClient httpClient;
+	private String baseUrl;
+
+	@BeforeClass
+	public void startApplication() {
+		context = TestApplication.start("concurrency");
+		baseUrl = TestApplication.baseUrl(context);
+		httpClient = HttpClient.newHttpClient();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopApplication() {
+		if (context != null) {
+			context.close();
+		}
+	}
+
+	@Test
+	public void testParallelPostsWithSameBadgeCreateOneDog() throws Exception {
+		// Arrange
+		String body = "{\"name\": \"Max\", \"breed\": \"Labrador\", \"badgeID\": 4242, " +
+				"\"status\": \"in training\", \"dateAcquired\": \"2024-03-01\"}";
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/"))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(body))
+				.build();
+
+		ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+		CountDownLatch start = new CountDownLatch(1);
+		List<Future<HttpResponse<String>>> responses = new ArrayList<>();
+
+		// Act
+		try {
+			for (int i = 0; i < REQUESTS; i++) {
+				responses.add(executor.submit(() -> {
+					start.await();
+					return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+				}));
+			}
+			start.countDown();
+
+			int created = 0;
+			int rejected = 0;
+			for (Future<HttpResponse<String>> response : responses) {
+				HttpResponse<String> result = response.get();
+				if (result.statusCode() == 200) {
+					created++;
+				} else {
+					assertEquals(result.statusCode(), 400, result.body());
+					assertTrue(result.body().contains("Dog badge ID already exists."), result.body());
+					rejected++;
+				}
+			}
+
+			// Assert
+			assertEquals(created, 1);
+			assertEquals(rejected, REQUESTS - 1);
+			assertEquals(countDogsWithBadge(4242), 1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	private int countDogsWithBadge(int badgeId) throws Exception {
+		DataSource dataSource = context.getBean(DataSource.class);
+		try (Connection conn = dataSource.getConnection();
+		     Statement statement = conn.createStatement();
+		     ResultSet rs = statement.executeQuery("SELECT COUNT(*) FROM DOGS WHERE BADGEID = " + badgeId)) {
+			rs.next();
+			return rs.getInt(1);
+		}
+	}
+}
@@ -1,28 +1,67 @@
 package com.test.dogs.api.rest.endpoint;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.google.protobuf.UnknownFieldSet;
+import com.test.dogs.api.rest.exception.DogNotFoundException;
+import com.test.dogs.api.rest.exception.DogPreconditionFailedException;
+import com.test.dogs.api.rest.model.DogBatchResult;
 import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogEvent;
+import com.test.dogs.api.rest.model.DogField;
+import com.test.dogs.api.rest.model.DogFields;
+import com.test.dogs.api.rest.model.DogHistoryEntry;
+import com.test.dogs.api.rest.model.DogHistoryPage;
+import com.test.dogs.api.rest.model.DogPage;
+import com.test.dogs.api.rest.model.DogQuery;
+import com.test.dogs.api.rest.model.DogStats;
+import com.test.dogs.api.rest.service.DogChangeTracker;
+import com.test.dogs.api.rest.service.DogChangedEvent;
+import com.test.dogs.api.rest.service.DogEventFeed;
+import com.test.dogs.api.rest.service.DogHistory;
+import com.test.dogs.api.rest.service.DogRowHandler;
 import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.api.rest.service.DogStatistics;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.test.context.testng.AbstractTestNGSpringContextTests;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
+import reactor.core.publisher.Flux;
 
+import java.io.ByteArrayInputStream;
 import java.sql.Date;
+import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.zip.GZIPInputStream;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotEquals;
 
 @WebMvcTest(DogEndpoint.class)
+@Import({DogChangeTracker.class, DogResponseCache.class})
+// Provides the MeterRegistry that GlobalExceptionHandler counts exceptions in
+@AutoConfigureObservability(tracing = false)
 @SuppressWarnings("deprecation")
 public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests {
 
@@ -32,6 +71,21 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
     @MockBean
     private DogService dogService;
 
+    @MockBean
+    private DogStatistics statistics;
+
+    @MockBean
+    private DogHistory history;
+
+    @MockBean
+    private DogEventFeed eventFeed;
+
+    @Autowired
+    private DogChangeTracker changeTracker;
+
+    @Autowired
+    private DogResponseCache responseCache;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -39,6 +93,9 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
 
     @BeforeMethod
     public void setUp() {
+        // The context, and with it the response cache, is shared by every test
+        responseCache.invalidateAll();
+
         testDog = new DogDTO();
         testDog.setId(1L);
         testDog.setName("Buddy");
@@ -49,13 +106,14 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
         testDog.setBirthDate(Date.valueOf(LocalDate.of(2020, 1, 1)));
         testDog.setDateAcquired(Date.valueOf(LocalDate.of(2021, 1, 1)));
         testDog.setStatus("Active");
+        testDog.setVersion(0L);
     }
 
     @Test
     public void testGetAllDogsEndpoint() throws Exception {
         // Arrange
         List<DogDTO> dogs = Collections.singletonList(testDog);
-        when(dogService.getAllDogsList(null)).thenReturn(dogs);
+        when(dogService.getAllDogsList(null, null)).thenReturn(dogs);
 
         // Act & Assert
         mockMvc.perform(get("/")
@@ -66,14 +124,14 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
                 .andExpect(jsonPath("$[0].breed").value("Golden Retriever"))
                 .andExpect(jsonPath("$[0].id").value(1));
 
-        verify(dogService, times(1)).getAllDogsList(null);
+        verify(dogService, times(1)).getAllDogsList(null, null);
     }
 
     @Test
     public void testGetAllDogsWithFilterEndpoint() throws Exception {
         // Arrange
         List<DogDTO> dogs = Collections.singletonList(testDog);
-        when(dogService.getAllDogsList("Golden")).thenReturn(dogs);
+        when(dogService.getAllDogsList("Golden", null)).thenReturn(dogs);
 
         // Act & Assert
         mockMvc.perform(get("/")
@@ -83,7 +141,272 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$[0].breed").value("Golden Retriever"));
 
-        verify(dogService, times(1)).getAllDogsList("Golden");
+        verify(dogService, times(1)).getAllDogsList("Golden", null);
+    }
+
+    @Test
+    public void testGetAllDogsServedFromResponseCacheEndpoint() throws Exception {
+        // Arrange
+        when(dogService.getAllDogsList(null, null)).thenReturn(Collections.singletonList(testDog));
+
+        // Act - a miss, then a hit compressed for a client that accepts gzip
+        MvcResult plain = mockMvc.perform(get("/"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"))
+                .andReturn();
+        MvcResult compressed = mockMvc.perform(get("/").header("Accept-Encoding", "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(header().string("Content-Encoding", "gzip"))
+                .andExpect(header().string("Vary", containsString("Accept-Encoding")))
+                .andReturn();
+        byte[] json = plain.getResponse().getContentAsByteArray();
+        byte[] gzip = compressed.getResponse().getContentAsByteArray();
+
+        // Assert - one query, and both bodies are the same JSON
+        verify(dogService, times(1)).getAllDogsList(null, null);
+        try (GZIPInputStream input = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+            assertEquals(input.readAllBytes(), json);
+        }
+
+        // Each coding has its own strong ETag, so a 304 never hands gzip bytes to a client that did not accept them
+        String plainETag = plain.getResponse().getHeader("ETag");
+        String gzipETag = compressed.getResponse().getHeader("ETag");
+        assertNotEquals(gzipETag, plainETag);
+        mockMvc.perform(get("/").header("If-None-Match", gzipETag))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Content-Encoding"));
+        mockMvc.perform(get("/").header("Accept-Encoding", "gzip").header("If-None-Match", gzipETag))
+                .andExpect(status().isNotModified());
+        assertEquals(objectMapper.readTree(json).get(0).get("name").asText(), "Buddy");
+
+        // A filtered listing is not cached
+        when(dogService.getAllDogsList("Buddy", null)).thenReturn(Collections.singletonList(testDog));
+        mockMvc.perform(get("/").param("filter", "Buddy")).andExpect(status().isOk());
+        mockMvc.perform(get("/").param("filter", "Buddy")).andExpect(status().isOk());
+        verify(dogService, times(2)).getAllDogsList("Buddy", null);
+    }
+
+    @Test
+    public void testGetAllDogsWithFieldsEndpoint() throws Exception {
+        // Arrange
+        when(dogService.getAllDogsList(isNull(), any(DogFields.class))).thenReturn(Collections.singletonList(testDog));
+
+        // Act & Assert - only the requested properties are written
+        String eTag = mockMvc.perform(get("/")
+                .param("fields", "name,badgeID"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Buddy"))
+                .andExpect(jsonPath("$[0].badgeID").value(12345))
+                .andExpect(jsonPath("$[0].id").doesNotExist())
+                .andExpect(jsonPath("$[0].breed").doesNotExist())
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Each fieldset is its own representation
+        mockMvc.perform(get("/").header("If-None-Match", eTag))
+                .andExpect(status().isOk());
+
+        verify(dogService, times(1)).getAllDogsList(isNull(),
+                argThat(fields -> fields != null && fields.getSelectList().equals("ID, NAME, BADGEID")));
+    }
+
+    @Test
+    public void testGetDogByIdWithFieldsEndpoint() throws Exception {
+        // Arrange
+        when(dogService.getDogById(1)).thenReturn(testDog);
+
+        // Act & Assert
+        mockMvc.perform(get("/1").param("fields", "id,status"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0-json-id.status\""))
+                .andExpect(jsonPath("$.id").value(1))
+                .andExpect(jsonPath("$.status").value("Active"))
+                .andExpect(jsonPath("$.name").doesNotExist());
+    }
+
+    @Test
+    public void testGetAllDogsWithUnknownFieldEndpoint() throws Exception {
+        mockMvc.perform(get("/dogs").param("fields", "name,colour"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(startsWith("Unknown field 'colour'")));
+
+        verifyNoInteractions(dogService);
+    }
+
+    @Test
+    public void testFindDogsEndpoint() throws Exception {
+        // Arrange
+        when(dogService.findDogs(any(DogQuery.class), any(DogFields.class))).thenReturn(Collections.singletonList(testDog));
+
+        // Act & Assert
+        mockMvc.perform(get("/search")
+                .param("status", "in service,in training")
+                .param("breed", "Golden Retriever")
+                .param("dateAcquiredFrom", "2021-01-01")
+                .param("sort", "dateAcquired")
+                .param("order", "desc")
+                .param("fields", "id,name"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Buddy"))
+                .andExpect(jsonPath("$[0].breed").doesNotExist());
+
+        verify(dogService).findDogs(argThat(query -> query.getMatches().get(DogField.STATUS).equals(Arrays.asList("in service", "in training"))
+                && query.getSort() == DogField.DATE_ACQUIRED && query.isDescending()
+                && query.getFrom().get(DogField.DATE_ACQUIRED).equals(Date.valueOf(LocalDate.of(2021, 1, 1)))), any(DogFields.class));
+    }
+
+    @Test
+    public void testFindDogsWithUnknownParameterEndpoint() throws Exception {
+        mockMvc.perform(get("/search").param("colour", "black"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.message").value(startsWith("Unknown query parameter 'colour'")));
+
+        verifyNoInteractions(dogService);
+    }
+
+    @Test
+    public void testGetAllDogsAsCborEndpoint() throws Exception {
+        // Arrange
+        when(dogService.getAllDogsList(null, null)).thenReturn(Collections.singletonList(testDog));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("Vary", containsString("Accept")))
+                .andReturn();
+
+        // Assert - the same properties and date values as JSON
+        JsonNode dogs = new CBORMapper().readTree(result.getResponse().getContentAsByteArray());
+        assertEquals(dogs.get(0).get("name").asText(), "Buddy");
+        assertEquals(dogs.get(0).get("birthDate").asText(), "2020-01-01");
+
+        // JSON stays the default, and has its own ETag
+        String jsonETag = mockMvc.perform(get("/").accept(MediaType.ALL))
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getHeader("ETag");
+        assertNotEquals(jsonETag, result.getResponse().getHeader("ETag"));
+    }
+
+    @Test
+    public void testGetAllDogsAsProtobufEndpoint() throws Exception {
+        // Arrange
+        when(dogService.getAllDogsList(null, null)).thenReturn(Collections.singletonList(testDog));
+        when(dogService.getAllDogsList(isNull(), any(DogFields.class))).thenReturn(Collections.singletonList(testDog));
+
+        // Act
+        byte[] body = mockMvc.perform(get("/").accept(DogProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(DogProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert - a DogList with one Dog, read by field number as in dogs.proto
+        UnknownFieldSet dog = UnknownFieldSet.parseFrom(
+                UnknownFieldSet.parseFrom(body).getField(1).getLengthDelimitedList().get(0));
+        assertEquals(dog.getField(1).getVarintList().get(0).longValue(), 1L);
+        assertEquals(dog.getField(2).getLengthDelimitedList().get(0).toStringUtf8(), "Buddy");
+        assertEquals(dog.getField(5).getVarintList().get(0).intValue(), 12345);
+        assertEquals(dog.getField(7).getVarintList().get(0).longValue(), LocalDate.of(2020, 1, 1).toEpochDay());
+        assertFalse(dog.hasField(10));
+
+        // A sparse fieldset writes only those fields
+        byte[] projected = mockMvc.perform(get("/").param("fields", "name").accept(DogProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsByteArray();
+        UnknownFieldSet name = UnknownFieldSet.parseFrom(
+                UnknownFieldSet.parseFrom(projected).getField(1).getLengthDelimitedList().get(0));
+        assertEquals(name.asMap().keySet(), Collections.singleton(2));
+    }
+
+    @Test
+    public void testGetDogByIdAsProtobufNotFoundEndpoint() throws Exception {
+        // Arrange
+        when(dogService.getDogById(9)).thenThrow(new DogNotFoundException("Dog with ID 9 not found"));
+
+        // Act
+        byte[] body = mockMvc.perform(get("/9").accept(DogProtobufHttpMessageConverter.APPLICATION_PROTOBUF))
+                .andExpect(status().isNotFound())
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert - an Error message
+        UnknownFieldSet error = UnknownFieldSet.parseFrom(body);
+        assertEquals(error.getField(1).getLengthDelimitedList().get(0).toStringUtf8(), "Dog with ID 9 not found");
+        assertEquals(error.getField(2).getVarintList().get(0).intValue(), 404);
+    }
+
+    @Test
+    public void testGetDogByIdAsSmileEndpoint() throws Exception {
+        // Arrange
+        when(dogService.getDogById(1)).thenReturn(testDog);
+
+        // Act
+        byte[] body = mockMvc.perform(get("/1").accept("application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"0-smile\""))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        // Assert
+        assertEquals(new SmileMapper().readValue(body, DogDTO.class).getName(), "Buddy");
+    }
+
+    @Test
+    public void testGetStatisticsEndpoint() throws Exception {
+        // Arrange
+        DogStats stats = new DogStats();
+        stats.setActive(2);
+        stats.setDeleted(1);
+        stats.setByBreed(Collections.singletonMap("Labrador", 2L));
+        stats.setIntakeByMonth(Collections.singletonMap("2021-01", 2L));
+        when(statistics.get()).thenReturn(stats);
+
+        // Act & Assert - served with a table-level ETag, then 304 while nothing has changed
+        String eTag = mockMvc.perform(get("/stats"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.active").value(2))
+                .andExpect(jsonPath("$.deleted").value(1))
+                .andExpect(jsonPath("$.byBreed.Labrador").value(2))
+                .andExpect(jsonPath("$.intakeByMonth['2021-01']").value(2))
+                .andExpect(header().exists("ETag"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        mockMvc.perform(get("/stats").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        verify(statistics, times(1)).get();
+    }
+
+    @Test
+    public void testGetAllDogsPageEndpoint() throws Exception {
+        // Arrange
+        DogPage page = new DogPage(Collections.singletonList(testDog), "bmV4dA");
+        when(dogService.getAllDogsPage("Golden", null, 1, null)).thenReturn(page);
+
+        // Act & Assert
+        mockMvc.perform(get("/")
+                .param("filter", "Golden")
+                .param("limit", "1")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(DogEndpoint.NEXT_CURSOR_HEADER, "bmV4dA"))
+                .andExpect(jsonPath("$").isArray())
+                .andExpect(jsonPath("$[0].name").value("Buddy"));
+
+        verify(dogService, times(1)).getAllDogsPage("Golden", null, 1, null);
+        verify(dogService, never()).getAllDogsList(any(), any());
+    }
+
+    @Test
+    public void testGetAllDogsIncludingDeletedLastPageEndpoint() throws Exception {
+        // Arrange
+        DogPage page = new DogPage(Collections.singletonList(testDog), null);
+        when(dogService.getAllDogsIncludingDeletedPage("bmV4dA", null, null)).thenReturn(page);
+
+        // Act & Assert
+        mockMvc.perform(get("/dogs")
+                .param("cursor", "bmV4dA")
+                .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(DogEndpoint.NEXT_CURSOR_HEADER))
+                .andExpect(jsonPath("$[0].name").value("Buddy"));
     }
 
     @Test
@@ -102,11 +425,144 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
         verify(dogService, times(1)).getDogById(1);
     }
 
+    @Test
+    public void testGetDogHistoryEndpoint() throws Exception {
+        // Arrange
+        DogHistoryEntry entry = new DogHistoryEntry();
+        entry.setId(7L);
+        entry.setDogId(1L);
+        entry.setOperation("UPDATED");
+        entry.setVersion(2L);
+        entry.setChangedBy("alice");
+        entry.setBefore(Collections.singletonMap("status", "in training"));
+        entry.setAfter(Collections.singletonMap("status", "in service"));
+        when(dogService.getDogById(1)).thenReturn(testDog);
+        when(history.getHistory(1L, "Nw", 1)).thenReturn(new DogHistoryPage(Collections.singletonList(entry), "OA"));
+        when(dogService.getDogById(2)).thenThrow(new DogNotFoundException("Dog with ID 2 not found"));
+
+        // Act & Assert
+        mockMvc.perform(get("/1/history").param("cursor", "Nw").param("limit", "1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(DogEndpoint.NEXT_CURSOR_HEADER, "OA"))
+                .andExpect(jsonPath("$[0].operation").value("UPDATED"))
+                .andExpect(jsonPath("$[0].changedBy").value("alice"))
+                .andExpect(jsonPath("$[0].before.status").value("in training"))
+                .andExpect(jsonPath("$[0].after.status").value("in service"));
+
+        mockMvc.perform(get("/2/history"))
+                .andExpect(status().isNotFound());
+        verify(history, never()).getHistory(eq(2L), any(), any());
+    }
+
+    @Test
+    public void testGetEventsEndpoint() throws Exception {
+        // Arrange
+        DogEvent event = new DogEvent(1L, "UPDATED", Arrays.asList("status"), 4L);
+        when(eventFeed.subscribe("abc-6")).thenReturn(Flux.just(
+                ServerSentEvent.<DogEvent>builder().comment("subscribed").build(),
+                ServerSentEvent.builder(event).id("abc-7").build()));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/events")
+                .header(DogEndpoint.LAST_EVENT_ID_HEADER, "abc-6")
+                .accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.TEXT_EVENT_STREAM))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(body, ":subscribed\n\nid:abc-7\ndata:{\"id\":1,\"operation\":\"UPDATED\",\"fields\":[\"status\"],\"version\":4}\n\n");
+    }
+
+    @Test
+    public void testGetDogByIdEndpointNotModified() throws Exception {
+        // Arrange
+        testDog.setVersion(3L);
+        testDog.setLastModified(Timestamp.valueOf("2026-01-02 03:04:05"));
+        when(dogService.getDogById(1)).thenReturn(testDog);
+
+        // Act & Assert
+        mockMvc.perform(get("/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""))
+                .andExpect(header().exists("Last-Modified"));
+
+        mockMvc.perform(get("/1").header("If-None-Match", "\"3\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/1").header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void testGetDogByIdEndpointHasAnETagPerFormat() throws Exception {
+        // Arrange
+        testDog.setVersion(3L);
+        when(dogService.getDogById(1)).thenReturn(testDog);
+
+        // Act & Assert - the CBOR bytes do not validate the JSON copy, or the other way round
+        mockMvc.perform(get("/1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andExpect(header().string("ETag", "\"3-cbor\""))
+                .andExpect(header().string("Vary", containsString("Accept")));
+        mockMvc.perform(get("/1").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"3\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/1").header("If-None-Match", "\"3-cbor\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"3\""));
+        mockMvc.perform(get("/1").accept(MediaType.APPLICATION_CBOR).header("If-None-Match", "\"3-cbor\""))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    public void testGetAllDogsListEndpointNotModified() throws Exception {
+        // Arrange
+        when(dogService.getAllDogsList(null, null)).thenReturn(Collections.singletonList(testDog));
+
+        // Act & Assert
+        String eTag = mockMvc.perform(get("/"))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+
+        // Unchanged table: 304 without running the query
+        mockMvc.perform(get("/").header("If-None-Match", eTag))
+                .andExpect(status().isNotModified());
+        verify(dogService, times(1)).getAllDogsList(null, null);
+
+        // Any write moves the ETag on
+        changeTracker.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.DELETED, 1L, null));
+        mockMvc.perform(get("/").header("If-None-Match", eTag))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("Buddy"));
+        verify(dogService, times(2)).getAllDogsList(null, null);
+    }
+
+    @Test
+    public void testGetAllDogsIncludingDeletedEndpointIfModifiedSince() throws Exception {
+        // Arrange
+        String lastModified = mockMvc.perform(get("/dogs"))
+                .andReturn().getResponse().getHeader("Last-Modified");
+
+        // Act & Assert
+        mockMvc.perform(get("/dogs").header("If-Modified-Since", lastModified))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/dogs").accept(DogEndpoint.APPLICATION_NDJSON_VALUE).header("If-Modified-Since", lastModified))
+                .andExpect(status().isNotModified());
+        verify(dogService, never()).streamAllDogsIncludingDeleted(any(), any());
+    }
+
     @Test
     public void testGetAllDogsIncludingDeletedEndpoint() throws Exception {
         // Arrange
         List<DogDTO> dogs = Collections.singletonList(testDog);
-        when(dogService.getAllDogsIncludingDeleted()).thenReturn(dogs);
+        when(dogService.getAllDogsIncludingDeleted(null)).thenReturn(dogs);
 
         // Act & Assert
         mockMvc.perform(get("/dogs")
@@ -115,7 +571,40 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
                 .andExpect(jsonPath("$").isArray())
                 .andExpect(jsonPath("$[0].name").value("Buddy"));
 
-        verify(dogService, times(1)).getAllDogsIncludingDeleted();
+        verify(dogService, times(1)).getAllDogsIncludingDeleted(null);
+    }
+
+    @Test
+    public void testExportAllDogsAsNdjsonEndpoint() throws Exception {
+        // Arrange - the service hands each record to the endpoint's row handler
+        DogDTO secondDog = new DogDTO();
+        secondDog.setId(2L);
+        secondDog.setName("Max");
+        doAnswer(invocation -> {
+            DogRowHandler handler = invocation.getArgument(1);
+            handler.handle(testDog);
+            handler.handle(secondDog);
+            return 2L;
+        }).when(dogService).streamAllDogsIncludingDeleted(isNull(), any(DogRowHandler.class));
+
+        // Act
+        MvcResult result = mockMvc.perform(get("/dogs")
+                .accept(DogEndpoint.APPLICATION_NDJSON_VALUE))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Assert - one JSON object per line
+        String body = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(DogEndpoint.APPLICATION_NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString();
+
+        String[] lines = body.split("\n");
+        assertEquals(lines.length, 2);
+        assertEquals(objectMapper.readValue(lines[0], DogDTO.class).getName(), "Buddy");
+        assertEquals(objectMapper.readValue(lines[1], DogDTO.class).getName(), "Max");
+
+        verify(dogService, never()).getAllDogsIncludingDeleted(any());
     }
 
     @Test
@@ -132,7 +621,7 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
         savedDog.setName("Max");
         savedDog.setBreed("Labrador");
         savedDog.setGender("Male");
-        when(dogService.saveNewDog(any(DogDTO.class))).thenReturn(savedDog);
+        when(dogService.saveNewDog(any(DogDTO.class), isNull())).thenReturn(savedDog);
 
         // Act & Assert
         mockMvc.perform(post("/")
@@ -142,7 +631,68 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
                 .andExpect(jsonPath("$.name").value("Max"))
                 .andExpect(jsonPath("$.breed").value("Labrador"));
 
-        verify(dogService, times(1)).saveNewDog(any(DogDTO.class));
+        verify(dogService, times(1)).saveNewDog(any(DogDTO.class), isNull());
+    }
+
+    @Test
+    public void testCreateBatchEndpoint() throws Exception {
+        // Arrange
+        DogDTO invalidDog = new DogDTO();
+        List<DogBatchResult> results = Arrays.asList(
+                DogBatchResult.succeeded(0, testDog, HttpStatus.CREATED),
+                DogBatchResult.failed(1, null, HttpStatus.BAD_REQUEST, "Dog name is required."));
+        when(dogService.saveNewDogs(anyList(), isNull())).thenReturn(results);
+
+        // Act & Assert
+        mockMvc.perform(post("/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Arrays.asList(testDog, invalidDog))))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$[0].status").value(201))
+                .andExpect(jsonPath("$[0].dog.name").value("Buddy"))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].error").value("Dog name is required."));
+
+        verify(dogService, times(1)).saveNewDogs(argThat(dogs -> dogs.size() == 2), isNull());
+    }
+
+    @Test
+    public void testUpdateBatchEndpoint() throws Exception {
+        // Arrange
+        DogDTO changes = new DogDTO();
+        changes.setId(1L);
+        changes.setStatus("retired");
+        List<DogBatchResult> results = Arrays.asList(
+                DogBatchResult.succeeded(0, testDog, HttpStatus.OK),
+                DogBatchResult.failed(1, 99L, HttpStatus.NOT_FOUND, "Dog with ID 99 not found for update"));
+        when(dogService.updateDogs(anyList(), isNull())).thenReturn(results);
+
+        // Act & Assert
+        mockMvc.perform(patch("/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Collections.singletonList(changes))))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[1].status").value(404))
+                .andExpect(jsonPath("$[1].id").value(99));
+    }
+
+    @Test
+    public void testDeleteBatchEndpoint() throws Exception {
+        // Arrange
+        List<DogBatchResult> results = Arrays.asList(
+                DogBatchResult.applied(0, 1L, HttpStatus.OK),
+                DogBatchResult.failed(1, 99L, HttpStatus.NOT_FOUND, "Dog with ID 99 not found for deletion"));
+        when(dogService.markDogsAsDeleted(eq(Arrays.asList(1L, 99L)), isNull())).thenReturn(results);
+
+        // Act & Assert
+        mockMvc.perform(delete("/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[1, 99]"))
+                .andExpect(status().isMultiStatus())
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].id").value(1))
+                .andExpect(jsonPath("$[1].error").value("Dog with ID 99 not found for deletion"));
     }
 
     @Test
@@ -158,30 +708,89 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
         returnedDog.setId(1L);
         returnedDog.setName("Buddy Updated");
         returnedDog.setBreed("Golden Retriever");
-        when(dogService.updateDog(eq(1), any(DogDTO.class))).thenReturn(returnedDog);
+        returnedDog.setVersion(1L);
+        when(dogService.updateDog(eq(1), any(DogDTO.class), isNull(), isNull())).thenReturn(returnedDog);
 
         // Act & Assert
         mockMvc.perform(put("/1")
                 .contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(updatedDog)))
                 .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""))
                 .andExpect(jsonPath("$.name").value("Buddy Updated"));
 
-        verify(dogService, times(1)).updateDog(eq(1), any(DogDTO.class));
+        verify(dogService, times(1)).updateDog(eq(1), any(DogDTO.class), isNull(), isNull());
     }
 
     @Test
-    public void testDeleteDogEndpoint() throws Exception {
+    public void testUpdateDogEndpointWithIfMatch() throws Exception {
         // Arrange
-        doNothing().when(dogService).markDogAsDeleted(1);
+        DogDTO changes = new DogDTO();
+        changes.setStatus("retired");
+        DogDTO returnedDog = new DogDTO(testDog);
+        returnedDog.setVersion(5L);
+        when(dogService.updateDog(eq(1), any(DogDTO.class), eq(4L), isNull())).thenReturn(returnedDog);
 
         // Act & Assert
+        mockMvc.perform(put("/1")
+                .header("If-Match", "\"4\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(changes)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"5\""));
+
+        // The ETag of another representation of the same version will do
+        mockMvc.perform(put("/1")
+                .header("If-Match", "\"4-cbor\"")
+                .accept(MediaType.APPLICATION_CBOR)
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(changes)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"5-cbor\""));
+    }
+
+    @Test
+    public void testUpdateDogEndpointReturnsPreconditionFailed() throws Exception {
+        // Arrange
+        when(dogService.updateDog(eq(1), any(DogDTO.class), eq(3L), isNull()))
+                .thenThrow(new DogPreconditionFailedException("Dog with ID 1 has been modified; the current version is 4"));
+        DogDTO changes = new DogDTO();
+        changes.setStatus("retired");
+
+        // Act & Assert
+        mockMvc.perform(put("/1")
+                .header("If-Match", "\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(changes)))
+                .andExpect(status().isPreconditionFailed())
+                .andExpect(jsonPath("$.message").value("Dog with ID 1 has been modified; the current version is 4"));
+
+        // A weak or foreign ETag can never match
+        mockMvc.perform(put("/1")
+                .header("If-Match", "W/\"3\"")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(changes)))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    @Test
+    public void testDeleteDogEndpoint() throws Exception {
+        // Arrange
+        doNothing().when(dogService).markDogAsDeleted(eq(1), any());
+
+        // Act & Assert - the author is the authenticated user, never a request header
         mockMvc.perform(delete("/1")
+                .principal(() -> "alice")
+                .header("X-User", "mallory")
                 .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().string("Dog with ID 1 has been successfully deleted"));
+        mockMvc.perform(delete("/1")
+                .header("X-User", "mallory"))
+                .andExpect(status().isOk());
 
-        verify(dogService, times(1)).markDogAsDeleted(1);
+        verify(dogService, times(1)).markDogAsDeleted(1, "alice");
+        verify(dogService, times(1)).markDogAsDeleted(1, null);
     }
 
     @Test
@@ -196,6 +805,6 @@ public class DogEndpointIntegrationTest extends AbstractTestNGSpringContextTests
                 .content(objectMapper.writeValueAsString(invalidDog)))
                 .andExpect(status().isOk());
 
-        verify(dogService, times(1)).saveNewDog(any(DogDTO.class));
+        verify(dogService, times(1)).saveNewDog(any(DogDTO.class), isNull());
     }
 }
@@ -0,0 +1,64 @@
+package com.test.dogs.api.rest.endpoint;
+
+import com.test.dogs.support.TestApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs the full application over HTTP to check that the service, SQL, exception and connection pool metrics
+ * reach the Prometheus scrape endpoint with histogram buckets.
+ */
+public class DogEndpointMetricsTest {
+
+	private ConfigurableApplicationContext context;
+	private HttpClient httpClient;
+	private String baseUrl;
+
+	@BeforeClass
+	public void startApplication() {
+		context = TestApplication.start("metrics");
+		baseUrl = TestApplication.baseUrl(context);
+		httpClient = HttpClient.newHttpClient();
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void stopApplication() {
+		if (context != null) {
+			context.close();
+		}
+	}
+
+	@Test
+	public void testPrometheusScrapeIncludesDogMetrics() throws Exception {
+		// Arrange - one successful list and one 404
+		assertEquals(get("/").statusCode(), 200);
+		assertEquals(get("/4242").statusCode(), 404);
+
+		// Act
+		HttpResponse<String> scrape = get("/actuator/prometheus");
+
+		// Assert
+		assertEquals(scrape.statusCode(), 200);
+		String body = scrape.body();
+		assertTrue(body.contains("dogs_service_calls_seconds_bucket{"), "No service call histogram");
+		assertTrue(body.contains("method=\"getAllDogsList\",outcome=\"success\""), "No getAllDogsList timer");
+		assertTrue(body.contains("dogs_sql_execution_seconds_bucket{"), "No SQL execution histogram");
+		assertTrue(body.contains("dogs_sql_rows_bucket{"), "No SQL row count histogram");
+		assertTrue(body.contains("dogs_exceptions_total{type=\"DogNotFoundException\"} 1.0"), "404 not counted");
+		assertTrue(body.contains("hikaricp_connections_acquire_seconds_bucket{"), "No connection acquisition histogram");
+	}
+
+	private HttpResponse<String> get(String path) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+		return httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+	}
+}
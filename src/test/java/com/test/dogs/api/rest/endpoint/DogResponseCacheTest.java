@@ -0,0 +1,205 @@
+package com.test.dogs.api.rest.endpoint;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.service.DogChangeTracker;
+import com.test.dogs.api.rest.service.DogCache;
+import com.test.dogs.api.rest.service.DogChangedEvent;
+import com.test.dogs.api.rest.service.DogMetrics;
+import com.test.dogs.api.rest.service.DogRoster;
+import com.test.dogs.api.rest.service.DogSearchIndex;
+import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.api.rest.service.DogStatementCache;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+import static org.testng.Assert.*;
+
+public class DogResponseCacheTest {
+
+	private DogChangeTracker changeTracker;
+	private DogResponseCache responseCache;
+	private AtomicInteger queries;
+
+	@BeforeMethod
+	public void setUp() {
+		changeTracker = new DogChangeTracker();
+		responseCache = new DogResponseCache(changeTracker, new ObjectMapper());
+		queries = new AtomicInteger();
+	}
+
+	@Test
+	public void testHitDoesNotQueryAgain() throws Exception {
+		// Act
+		DogResponseCache.Entry first = responseCache.get(DogResponseCache.Listing.ACTIVE, this::roster);
+		DogResponseCache.Entry second = responseCache.get(DogResponseCache.Listing.ACTIVE, this::roster);
+
+		// Assert - one query, and the gzip bytes decompress to the JSON bytes
+		assertEquals(queries.get(), 1);
+		assertSame(second, first);
+		assertEquals(new ObjectMapper().readTree(first.getJson()).get(0).get("name").asText(), "Rex");
+		try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(first.getGzip()))) {
+			assertEquals(gzip.readAllBytes(), first.getJson());
+		}
+
+		// The listings are cached separately
+		responseCache.get(DogResponseCache.Listing.ALL, this::roster);
+		assertEquals(queries.get(), 2);
+	}
+
+	@Test
+	public void testWriteInvalidatesTheEntry() {
+		// Arrange
+		responseCache.get(DogResponseCache.Listing.ACTIVE, this::roster);
+
+		// Act - the tracker sees the write, the cache does not: the change count alone makes the entry stale
+		changeTracker.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.DELETED, 1L, null));
+		responseCache.get(DogResponseCache.Listing.ACTIVE, this::roster);
+
+		// Act - the cache sees the write
+		responseCache.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.DELETED, 1L, null));
+		responseCache.get(DogResponseCache.Listing.ACTIVE, this::roster);
+
+		// Assert
+		assertEquals(queries.get(), 3);
+	}
+
+	@Test
+	public void testLoadInFlightDuringAWriteIsNotServedAfterIt() throws Exception {
+		// Arrange - a load that is still running when a write is counted
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		CompletableFuture<DogResponseCache.Entry> slow = CompletableFuture.supplyAsync(() ->
+				responseCache.get(DogResponseCache.Listing.ACTIVE, () -> {
+					started.countDown();
+					await(release);
+					return roster();
+				}));
+		assertTrue(started.await(5, TimeUnit.SECONDS));
+		changeTracker.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.DELETED, 1L, null));
+
+		// Act - a request after the write joins the load in flight
+		CompletableFuture<DogResponseCache.Entry> after = CompletableFuture.supplyAsync(() ->
+				responseCache.get(DogResponseCache.Listing.ACTIVE, this::roster));
+		Thread.sleep(50);
+		release.countDown();
+
+		// Assert - it loaded again rather than serving the result read before the write
+		after.get(5, TimeUnit.SECONDS);
+		slow.get(5, TimeUnit.SECONDS);
+		assertEquals(queries.get(), 2);
+		assertSame(responseCache.get(DogResponseCache.Listing.ACTIVE, this::roster), after.get());
+	}
+
+	@Test
+	public void testReadBetweenTheListenersSeesTheWrite() throws Exception {
+		// Arrange - the listeners wired by a real application context, with a tracker that serves a GET as soon as
+		// it has counted a write, while the listeners after it have not run yet
+		HikariDataSource dataSource = TestDatabase.create("jdbc:h2:mem:ordering;DB_CLOSE_DELAY=-1");
+		TestDatabase.seed(dataSource, 1, 2);
+		List<List<String>> interleaved = new ArrayList<>();
+		try (AnnotationConfigApplicationContext context = new AnnotationConfigApplicationContext()) {
+			context.registerBean(DogSearchIndex.class, () -> new DogSearchIndex(dataSource));
+			context.registerBean(DogRoster.class, () -> new DogRoster(dataSource));
+			context.registerBean(DogCache.class, () -> new DogCache(100, Duration.ofMinutes(5)));
+			context.registerBean(DogService.class, () -> new DogService(dataSource, context.getBean(DogSearchIndex.class),
+					context.getBean(DogRoster.class), context.getBean(DogCache.class), new DogStatementCache(16), context,
+					new DogMetrics(new SimpleMeterRegistry())));
+			context.registerBean(DogChangeTracker.class, () -> new DogChangeTracker() {
+				@Override
+				public void onDogChanged(DogChangedEvent event) {
+					super.onDogChanged(event);
+					DogResponseCache cache = context.getBean(DogResponseCache.class);
+					DogService dogService = context.getBean(DogService.class);
+					interleaved.add(names(cache.get(DogResponseCache.Listing.ACTIVE, () -> dogService.getAllDogsList(null))));
+				}
+			});
+			context.registerBean(DogResponseCache.class,
+					() -> new DogResponseCache(context.getBean(DogChangeTracker.class), new ObjectMapper()));
+			context.refresh();
+			context.getBean(DogRoster.class).rebuild();
+			DogService dogService = context.getBean(DogService.class);
+			DogResponseCache cache = context.getBean(DogResponseCache.class);
+
+			DogDTO changes = new DogDTO();
+			changes.setName("Rex");
+
+			// Act
+			dogService.updateDog(1, changes);
+			dogService.markDogAsDeleted(2);
+			List<String> after = names(cache.get(DogResponseCache.Listing.ACTIVE, () -> dogService.getAllDogsList(null)));
+
+			// Assert - the read models had applied each write before the tracker counted it
+			assertEquals(interleaved, Arrays.asList(Arrays.asList("Rex", "Dog 2"), List.of("Rex")));
+			assertEquals(after, List.of("Rex"));
+		} finally {
+			try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+				statement.execute("DROP ALL OBJECTS");
+			}
+			dataSource.close();
+		}
+	}
+
+	@Test
+	public void testFailedLoadIsRethrownAndNotCached() {
+		// Act & Assert
+		assertThrows(IllegalStateException.class, () -> responseCache.get(DogResponseCache.Listing.ACTIVE, () -> {
+			throw new IllegalStateException("Database down");
+		}));
+		responseCache.get(DogResponseCache.Listing.ACTIVE, this::roster);
+		assertEquals(queries.get(), 1);
+	}
+
+	@Test
+	public void testAcceptsGzip() {
+		assertTrue(DogEndpoint.acceptsGzip("gzip, deflate, br"));
+		assertTrue(DogEndpoint.acceptsGzip("br;q=1.0, gzip;q=0.8"));
+		assertTrue(DogEndpoint.acceptsGzip("*"));
+		assertFalse(DogEndpoint.acceptsGzip(null));
+		assertFalse(DogEndpoint.acceptsGzip("identity"));
+		assertFalse(DogEndpoint.acceptsGzip("gzip;q=0"));
+		assertFalse(DogEndpoint.acceptsGzip("*, gzip;q=0"));
+	}
+
+	private static List<String> names(DogResponseCache.Entry entry) {
+		try {
+			return new ObjectMapper().readTree(entry.getJson()).findValuesAsText("name");
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private List<?> roster() {
+		queries.incrementAndGet();
+		DogDTO dog = new DogDTO();
+		dog.setId(1L);
+		dog.setName("Rex");
+		return Collections.singletonList(dog);
+	}
+}
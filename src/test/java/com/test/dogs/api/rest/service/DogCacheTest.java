@@ -0,0 +1,110 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.exception.DogNotFoundException;
+import com.test.dogs.api.rest.model.DogDTO;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+public class DogCacheTest {
+
+	private DogCache dogCache;
+
+	@BeforeMethod
+	public void setUp() {
+		dogCache = new DogCache(100, Duration.ofMinutes(5));
+	}
+
+	@Test
+	public void testConcurrentMissesShareOneLoad() throws Exception {
+		// Arrange - the first load blocks until every caller has asked for the record
+		int callers = 8;
+		AtomicInteger loads = new AtomicInteger();
+		CountDownLatch asked = new CountDownLatch(callers);
+		ExecutorService executor = Executors.newFixedThreadPool(callers);
+
+		try {
+			// Act
+			List<Future<DogDTO>> results = new ArrayList<>();
+			for (int i = 0; i < callers; i++) {
+				results.add(executor.submit(() -> {
+					asked.countDown();
+					return dogCache.get(1, id -> {
+						loads.incrementAndGet();
+						await(asked);
+						return dog(id);
+					});
+				}));
+			}
+
+			// Assert - one load, and every caller gets its own copy
+			DogDTO first = results.get(0).get(5, TimeUnit.SECONDS);
+			for (Future<DogDTO> result : results.subList(1, callers)) {
+				DogDTO dog = result.get(5, TimeUnit.SECONDS);
+				assertEquals(dog.getName(), "Dog 1");
+				assertNotSame(dog, first);
+			}
+			assertEquals(loads.get(), 1);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFailedLoadIsRethrownAndNotCached() {
+		// Act & Assert - the loader's own exception, not a CompletionException
+		assertThrows(DogNotFoundException.class, () -> dogCache.get(2, id -> {
+			throw new DogNotFoundException("Dog with ID " + id + " not found");
+		}));
+
+		// The next call loads again
+		assertEquals(dogCache.get(2, DogCacheTest::dog).getName(), "Dog 2");
+		assertEquals(dogCache.stats().missCount(), 2L);
+	}
+
+	@Test
+	public void testChangeInvalidatesEntry() {
+		// Arrange
+		AtomicInteger loads = new AtomicInteger();
+		dogCache.get(3, id -> {
+			loads.incrementAndGet();
+			return dog(id);
+		});
+
+		// Act
+		dogCache.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 3, null));
+		dogCache.get(3, id -> {
+			loads.incrementAndGet();
+			return dog(id);
+		});
+
+		// Assert
+		assertEquals(loads.get(), 2);
+	}
+
+	private static DogDTO dog(int id) {
+		DogDTO dog = new DogDTO();
+		dog.setId((long) id);
+		dog.setName("Dog " + id);
+		return dog;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
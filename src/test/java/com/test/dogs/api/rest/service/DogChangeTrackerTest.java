@@ -0,0 +1,66 @@
+package com.test.dogs.api.rest.service;
+
+import org.testng.annotations.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+import static org.testng.Assert.*;
+
+public class DogChangeTrackerTest {
+
+	@Test
+	public void testWritesMoveETagAndLastModifiedForward() {
+		// Arrange
+		MutableClock clock = new MutableClock(Instant.parse("2026-01-01T00:00:00Z"));
+		DogChangeTracker tracker = new DogChangeTracker(clock);
+		DogChangeTracker.Snapshot before = tracker.snapshot();
+
+		// Act
+		clock.now = Instant.parse("2026-01-01T00:05:00Z");
+		tracker.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.CREATED, 1L, null));
+		DogChangeTracker.Snapshot after = tracker.snapshot();
+
+		// Assert
+		assertEquals(before.getLastModified(), Instant.parse("2026-01-01T00:00:00Z").toEpochMilli());
+		assertEquals(after.getLastModified(), clock.now.toEpochMilli());
+		assertEquals(after.getChangeCount(), 1L);
+		assertNotEquals(after.eTag("json"), before.eTag("json"));
+		assertNotEquals(after.eTag("json"), after.eTag("ndjson"));
+	}
+
+	@Test
+	public void testETagsFromAnotherStartNeverMatch() {
+		// Two instances with the same number of writes, started at different times
+		DogChangeTracker first = new DogChangeTracker(new MutableClock(Instant.parse("2026-01-01T00:00:00Z")));
+		DogChangeTracker second = new DogChangeTracker(new MutableClock(Instant.parse("2026-01-02T00:00:00Z")));
+
+		assertNotEquals(first.snapshot().eTag("json"), second.snapshot().eTag("json"));
+	}
+
+	private static final class MutableClock extends Clock {
+
+		private Instant now;
+
+		MutableClock(Instant now) {
+			this.now = now;
+		}
+
+		@Override
+		public ZoneId getZone() {
+			return ZoneOffset.UTC;
+		}
+
+		@Override
+		public Clock withZone(ZoneId zone) {
+			return this;
+		}
+
+		@Override
+		public Instant instant() {
+			return now;
+		}
+	}
+}
@@ -0,0 +1,199 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.SignalType;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.*;
+
+public class DogEventFeedTest {
+
+	private MeterRegistry registry;
+
+	@BeforeMethod
+	public void setUp() {
+		registry = new SimpleMeterRegistry();
+	}
+
+	@Test
+	public void testPublishesCompactEventsWithTheChangedFields() {
+		// Arrange
+		DogEventFeed feed = feed(10, 10);
+		Client client = Client.of(feed, null, Long.MAX_VALUE);
+		DogDTO previous = dog(7L, "in training", 2L);
+		DogDTO updated = dog(7L, "in service", 3L);
+		updated.setName("Rex II");
+
+		DogDTO deleted = dog(7L, "in service", 4L);
+		deleted.setDateDeleted(Date.valueOf(LocalDate.of(2025, 6, 1)));
+
+		// Act
+		feed.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 7, updated, previous));
+		feed.onDogsChanged(new DogBatchChangedEvent(List.of(new DogChangedEvent(DogChangedEvent.Operation.DELETED, 7, deleted))));
+
+		// Assert
+		assertEquals(client.events.size(), 2);
+		DogEvent update = client.events.get(0).data();
+		assertEquals(update.getId(), Long.valueOf(7));
+		assertEquals(update.getOperation(), "UPDATED");
+		assertEquals(update.getFields(), Arrays.asList("name", "status"));
+		assertEquals(update.getVersion(), Long.valueOf(3));
+		assertEquals(client.events.get(1).data().getFields(), List.of("dateDeleted"));
+		assertEquals(client.events.get(1).data().getVersion(), Long.valueOf(4));
+		assertNotEquals(client.events.get(0).id(), client.events.get(1).id());
+		assertEquals(registry.get("dogs.events.subscribers").gauge().value(), 1.0);
+
+		client.cancel();
+		assertEquals(registry.get("dogs.events.subscribers").gauge().value(), 0.0);
+	}
+
+	@Test
+	public void testResumesFromTheReplayBufferOrResets() {
+		// Arrange - five events, of which the last three are kept: a client that received the third missed none
+		// of them, one that received only the first missed the second
+		DogEventFeed feed = feed(3, 10);
+		Client first = Client.of(feed, null, Long.MAX_VALUE);
+		for (long id = 1; id <= 5; id++) {
+			feed.onDogChanged(created(id));
+		}
+		String oldest = first.events.get(0).id();
+		String third = first.events.get(2).id();
+
+		// Act
+		Client resumed = Client.of(feed, third, Long.MAX_VALUE);
+		Client tooOld = Client.of(feed, oldest, Long.MAX_VALUE);
+		Client otherInstance = Client.of(feed, "abc-4", Long.MAX_VALUE);
+		feed.onDogChanged(created(6L));
+
+		// Assert - the missed events, then the live one, in order
+		assertEquals(ids(resumed), Arrays.asList(4L, 5L, 6L));
+		assertEquals(tooOld.events.get(0).data().getOperation(), DogEvent.RESET);
+		assertEquals(tooOld.events.get(0).id(), first.events.get(4).id());
+		assertEquals(tooOld.events.get(1).data().getId(), Long.valueOf(6));
+		assertEquals(otherInstance.events.get(0).data().getOperation(), DogEvent.RESET);
+	}
+
+	@Test
+	public void testDisconnectsSlowClientsWithoutBlockingThePublisher() {
+		// Arrange - one client takes nothing, the other everything
+		DogEventFeed feed = feed(100, 4);
+		Client slow = Client.of(feed, null, 1);
+		Client fast = Client.of(feed, null, Long.MAX_VALUE);
+
+		// Act
+		for (long id = 1; id <= 10; id++) {
+			feed.onDogChanged(created(id));
+		}
+
+		// Assert - the slow client is dropped once its queue is full, and gets what was queued when it reads
+		assertEquals(fast.events.size(), 10);
+		assertEquals(registry.get("dogs.events.dropped").functionCounter().count(), 1.0);
+		assertEquals(registry.get("dogs.events.subscribers").gauge().value(), 1.0);
+		slow.request(Long.MAX_VALUE);
+		assertEquals(ids(slow), Arrays.asList(1L, 2L, 3L, 4L));
+		assertEquals(slow.finished, SignalType.ON_COMPLETE);
+
+		// It resumes from its last event on reconnecting
+		Client reconnected = Client.of(feed, slow.events.get(3).id(), Long.MAX_VALUE);
+		assertEquals(ids(reconnected).size(), 6);
+	}
+
+	@Test
+	public void testEndsSubscriptionsAfterTheMaximumTimeAndOnShutdown() throws Exception {
+		// Arrange
+		DogEventFeed shortLived = new DogEventFeed(10, 10, Duration.ofMillis(50));
+		DogEventFeed closing = feed(10, 10);
+		Client expiring = Client.of(shortLived, null, Long.MAX_VALUE);
+		Client open = Client.of(closing, null, Long.MAX_VALUE);
+
+		// Act
+		for (int i = 0; i < 100 && expiring.finished == null; i++) {
+			Thread.sleep(20);
+		}
+		closing.close();
+
+		// Assert
+		assertEquals(expiring.finished, SignalType.ON_COMPLETE);
+		assertEquals(open.finished, SignalType.ON_COMPLETE);
+		assertEquals(registry.get("dogs.events.subscribers").gauge().value(), 0.0);
+	}
+
+	private DogEventFeed feed(int replaySize, int subscriberBuffer) {
+		DogEventFeed feed = new DogEventFeed(replaySize, subscriberBuffer, Duration.ofMinutes(5));
+		feed.bindTo(registry);
+		return feed;
+	}
+
+	private static DogChangedEvent created(long id) {
+		return new DogChangedEvent(DogChangedEvent.Operation.CREATED, id, dog(id, "in training", 0L));
+	}
+
+	private static DogDTO dog(long id, String status, long version) {
+		DogDTO dog = new DogDTO();
+		dog.setId(id);
+		dog.setName("Rex");
+		dog.setStatus(status);
+		dog.setVersion(version);
+		return dog;
+	}
+
+	private static List<Long> ids(Client client) {
+		return client.events.stream().map(event -> event.data().getId()).collect(Collectors.toList());
+	}
+
+	/**
+	 * Collects the events of a subscription, requesting a given number up front.
+	 * The opening comment counts against the request, so slow clients are created requesting one.
+	 */
+	private static final class Client extends BaseSubscriber<ServerSentEvent<DogEvent>> {
+
+		private final List<ServerSentEvent<DogEvent>> events = new ArrayList<>();
+		private final long initialRequest;
+		private volatile SignalType finished;
+
+		private Client(long initialRequest) {
+			this.initialRequest = initialRequest;
+		}
+
+		static Client of(DogEventFeed feed, String lastEventId, long initialRequest) {
+			Client client = new Client(initialRequest);
+			feed.subscribe(lastEventId).subscribe(client);
+			return client;
+		}
+
+		@Override
+		protected void hookOnSubscribe(Subscription subscription) {
+			if (initialRequest > 0) {
+				request(initialRequest);
+			}
+		}
+
+		@Override
+		protected void hookOnNext(ServerSentEvent<DogEvent> event) {
+			// Skips the opening comment
+			if (event.data() != null) {
+				events.add(event);
+			}
+		}
+
+		@Override
+		protected void hookFinally(SignalType type) {
+			finished = type;
+		}
+	}
+}
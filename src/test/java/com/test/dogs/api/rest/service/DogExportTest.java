@@ -0,0 +1,97 @@
+package com.test.dogs.api.rest.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.testng.Assert.*;
+
+/**
+ * Exports a million generated rows through the streaming path. Surefire runs this class in its own
+ * JVM with a 64 MB heap, which is far smaller than the materialised list of DTOs would need, so the
+ * test only passes if rows are streamed rather than collected.
+ */
+public class DogExportTest {
+
+	private static final int ROWS = 1_000_000;
+
+	private Path directory;
+	private HikariDataSource dataSource;
+	private DogService dogService;
+
+	@BeforeClass
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("dogs-export");
+		// Keep H2's own page cache small so the heap budget is left for the export itself
+		dataSource = TestDatabase.create("jdbc:h2:file:" + directory.resolve("export") + ";CACHE_SIZE=4096");
+		TestDatabase.seed(dataSource, 1, ROWS);
+		dogService = TestDatabase.dogService(dataSource);
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void tearDown() throws Exception {
+		if (dataSource != null) {
+			dataSource.close();
+		}
+		if (directory != null) {
+			try (var files = Files.walk(directory)) {
+				files.sorted((a, b) -> b.compareTo(a)).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	@Test
+	public void testStreamsMillionRowsWithBoundedHeap() throws Exception {
+		// Arrange - serialise exactly as the NDJSON endpoint does, into a byte counter
+		ObjectWriter writer = new ObjectMapper().writerFor(DogDTO.class)
+				.without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		CountingOutputStream out = new CountingOutputStream();
+		JsonGenerator generator = writer.getFactory().createGenerator(out);
+		generator.setRootValueSeparator(null);
+		long[] lastId = {0};
+
+		// Act
+		long count = dogService.streamAllDogsIncludingDeleted(dog -> {
+			// Rows must arrive in ID order
+			assertTrue(dog.getId() > lastId[0]);
+			lastId[0] = dog.getId();
+			writer.writeValue(generator, dog);
+			generator.writeRaw('\n');
+		});
+		generator.flush();
+
+		// Assert
+		assertEquals(count, ROWS);
+		assertEquals(out.newlines, ROWS);
+		assertEquals(lastId[0], ROWS);
+	}
+
+	private static class CountingOutputStream extends OutputStream {
+		private long newlines;
+
+		@Override
+		public void write(int b) {
+			if (b == '\n') {
+				newlines++;
+			}
+		}
+
+		@Override
+		public void write(byte[] b, int off, int len) {
+			for (int i = off; i < off + len; i++) {
+				write(b[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,186 @@
+package com.test.dogs.api.rest.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogHistoryEntry;
+import com.test.dogs.api.rest.model.DogHistoryPage;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.testng.Assert.*;
+
+/**
+ * Records writes made through DogService in the history table of a real in-memory H2 database, and reads them back.
+ */
+public class DogHistoryTest {
+
+	private HikariDataSource dataSource;
+	private MeterRegistry registry;
+	private DogHistory history;
+	private DogService dogService;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		dataSource = TestDatabase.create("jdbc:h2:mem:history;DB_CLOSE_DELAY=-1");
+		TestDatabase.seed(dataSource, 1, 5);
+		registry = new SimpleMeterRegistry();
+		history = new DogHistory(dataSource, new ObjectMapper(), 100, 500, Duration.ofSeconds(1));
+		history.bindTo(registry);
+
+		DogSearchIndex searchIndex = new DogSearchIndex(dataSource);
+		DogRoster roster = new DogRoster(dataSource);
+		DogCache dogCache = new DogCache(1_000, Duration.ofMinutes(5));
+		dogService = new DogService(dataSource, searchIndex, roster, dogCache, new DogStatementCache(64), event -> {
+			if (event instanceof DogChangedEvent changed) {
+				dogCache.onDogChanged(changed);
+				history.onDogChanged(changed);
+			} else if (event instanceof DogBatchChangedEvent batch) {
+				dogCache.onDogsChanged(batch);
+				history.onDogsChanged(batch);
+			}
+		}, new DogMetrics(registry));
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void tearDown() throws Exception {
+		history.destroy();
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void testRecordsCreateUpdateAndDeleteWithTheChangedValues() {
+		// Arrange
+		DogDTO dog = new DogDTO();
+		dog.setName("Rex");
+		dog.setBreed("Labrador");
+		dog.setBadgeID(900);
+		dog.setStatus("in training");
+		dog.setDateAcquired(Date.valueOf(LocalDate.of(2024, 3, 1)));
+		int id = dogService.saveNewDog(dog, "alice").getId().intValue();
+
+		DogDTO changes = new DogDTO();
+		changes.setStatus("in service");
+		changes.setName("Rex II");
+
+		// Act
+		dogService.updateDog(id, changes);
+		dogService.markDogAsDeleted(id);
+		history.flush();
+
+		// Assert - the writer was not started, so the flush wrote all three
+		List<DogHistoryEntry> entries = history.getHistory(id, null, null).getItems();
+		assertEquals(entries.size(), 3);
+
+		DogHistoryEntry created = entries.get(0);
+		assertEquals(created.getOperation(), "CREATED");
+		assertEquals(created.getChangedBy(), "alice");
+		assertNull(created.getBefore());
+		assertEquals(created.getAfter().get("name"), "Rex");
+		assertEquals(created.getAfter().get("dateAcquired"), "2024-03-01");
+		assertFalse(created.getAfter().containsKey("leavingDate"));
+
+		DogHistoryEntry updated = entries.get(1);
+		assertEquals(updated.getOperation(), "UPDATED");
+		assertNull(updated.getChangedBy());
+		assertEquals(updated.getVersion(), Long.valueOf(created.getVersion() + 1));
+		assertEquals(updated.getBefore(), Map.of("name", "Rex", "status", "in training"));
+		assertEquals(updated.getAfter(), Map.of("name", "Rex II", "status", "in service"));
+
+		DogHistoryEntry deleted = entries.get(2);
+		assertEquals(deleted.getOperation(), "DELETED");
+		assertEquals(deleted.getVersion(), Long.valueOf(updated.getVersion() + 1));
+		assertNull(deleted.getBefore());
+		assertEquals(deleted.getAfter(), Map.of("dateDeleted", LocalDate.now().toString()));
+		assertEquals(deleted.getChangedAt(), dogService.getDogById(id).getLastModified());
+
+		assertEquals(registry.get("dogs.history.entries").tag("result", "written").functionCounter().count(), 3.0);
+	}
+
+	@Test
+	public void testPagesThroughTheHistoryOfOneDog() {
+		// Arrange - four updates to dog 1 between updates to dog 2
+		for (int i = 0; i < 4; i++) {
+			DogDTO changes = new DogDTO();
+			changes.setKennelingCharacteristics("Notes " + i);
+			dogService.updateDog(1, changes);
+			dogService.updateDog(2, changes);
+		}
+		history.flush();
+
+		// Act
+		DogHistoryPage first = history.getHistory(1, null, 3);
+		DogHistoryPage second = history.getHistory(1, first.getNextCursor(), 3);
+
+		// Assert
+		assertEquals(first.getItems().size(), 3);
+		assertNotNull(first.getNextCursor());
+		assertEquals(second.getItems().size(), 1);
+		assertNull(second.getNextCursor());
+		assertEquals(second.getItems().get(0).getAfter().get("kennelingCharacteristics"), "Notes 3");
+		assertNull(second.getItems().get(0).getChangedBy());
+		assertTrue(first.getItems().stream().allMatch(entry -> entry.getDogId() == 1));
+	}
+
+	@Test
+	public void testWriterDrainsTheQueueOnShutdown() throws Exception {
+		// Arrange
+		history.start();
+		DogDTO changes = new DogDTO();
+		changes.setStatus("retired");
+
+		// Act
+		dogService.updateDogs(Arrays.asList(withId(changes, 1L), withId(new DogDTO(changes), 4L)));
+		history.destroy();
+		dogService.updateDog(5, changes);
+
+		// Assert - the last update, made after shutdown, was written directly
+		assertEquals(history.getHistory(1, null, null).getItems().size(), 1);
+		assertEquals(history.getHistory(4, null, null).getItems().get(0).getBefore(), Map.of("status", "in training"));
+		assertEquals(history.getHistory(5, null, null).getItems().size(), 1);
+		assertEquals(registry.get("dogs.history.queue.size").gauge().value(), 0.0);
+	}
+
+	@Test
+	public void testFullQueueWritesTheEntryInsteadOfDroppingIt() throws Exception {
+		// Arrange - room for one entry and no writer, so the queue stays full after the first update
+		history.destroy();
+		history = new DogHistory(dataSource, new ObjectMapper(), 1, 500, Duration.ofMillis(10));
+		registry = new SimpleMeterRegistry();
+		history.bindTo(registry);
+		DogDTO changes = new DogDTO();
+		changes.setStatus("retired");
+
+		// Act
+		dogService.updateDog(1, changes);
+		dogService.updateDog(2, changes);
+		dogService.updateDog(3, changes);
+
+		// Assert - the two that found the queue full were written by their writers
+		assertEquals(history.getHistory(1, null, null).getItems().size(), 0);
+		assertEquals(history.getHistory(2, null, null).getItems().size(), 1);
+		assertEquals(history.getHistory(3, null, null).getItems().size(), 1);
+		history.flush();
+		assertEquals(history.getHistory(1, null, null).getItems().size(), 1);
+		assertEquals(registry.get("dogs.history.entries").tag("result", "dropped").functionCounter().count(), 0.0);
+	}
+
+	private static DogDTO withId(DogDTO dog, long id) {
+		dog.setId(id);
+		return dog;
+	}
+}
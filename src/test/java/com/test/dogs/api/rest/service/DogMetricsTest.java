@@ -0,0 +1,97 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.exception.DogNotFoundException;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.testng.Assert.*;
+
+public class DogMetricsTest {
+
+	private HikariDataSource dataSource;
+	private SimpleMeterRegistry registry;
+	private DogService dogService;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		dataSource = TestDatabase.create("jdbc:h2:mem:metrics;DB_CLOSE_DELAY=-1");
+		TestDatabase.seed(dataSource, 1, 20);
+		registry = new SimpleMeterRegistry();
+		dogService = TestDatabase.dogService(dataSource, new DogSearchIndex(dataSource), registry);
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void tearDown() throws Exception {
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void testQueriesRecordCallExecutionMappingAndRows() {
+		// Act
+		dogService.getAllDogsList(null);
+
+		// Assert
+		assertEquals(callCount("getAllDogsList", "success"), 1);
+		assertEquals(registry.get("dogs.sql.execution").tag("statement", "list_active").timer().count(), 1);
+		assertEquals(registry.get("dogs.sql.mapping").tag("statement", "list_active").timer().count(), 1);
+		assertEquals(registry.get("dogs.sql.rows").tag("statement", "list_active").summary().totalAmount(), 20.0);
+	}
+
+	@Test
+	public void testWritesRecordChangedRows() {
+		// Act
+		dogService.saveNewDog(newDog(101));
+		dogService.markDogsAsDeleted(Arrays.asList(1L, 2L, 999L));
+
+		// Assert
+		assertEquals(registry.get("dogs.sql.rows").tag("statement", "insert").summary().totalAmount(), 1.0);
+		// The unknown ID changes nothing
+		assertEquals(registry.get("dogs.sql.rows").tag("statement", "soft_delete_batch").summary().totalAmount(), 2.0);
+		assertEquals(callCount("markDogsAsDeleted", "success"), 1);
+	}
+
+	@Test
+	public void testFailedCallsAreRecordedAsErrors() {
+		// Act
+		assertThrows(DogNotFoundException.class, () -> dogService.getDogById(999));
+		dogService.getDogById(1);
+
+		// Assert
+		assertEquals(callCount("getDogById", "error"), 1);
+		assertEquals(callCount("getDogById", "success"), 1);
+		assertEquals(registry.get("dogs.sql.rows").tag("statement", "select_by_id").summary().totalAmount(), 1.0);
+	}
+
+	@Test
+	public void testEveryCallIsRegisteredBeforeUse() {
+		// Both outcomes of every method are visible to scrapers from the start, at zero
+		assertEquals(registry.find("dogs.service.calls").timers().size(), DogMetrics.Call.values().length * 2);
+		assertEquals(registry.find("dogs.sql.execution").timers().size(), DogMetrics.Statement.values().length);
+	}
+
+	private long callCount(String method, String outcome) {
+		return registry.get("dogs.service.calls").tag("method", method).tag("outcome", outcome).timer().count();
+	}
+
+	private static DogDTO newDog(int badgeId) {
+		DogDTO dog = new DogDTO();
+		dog.setName("Metric " + badgeId);
+		dog.setBreed("Labrador");
+		dog.setBadgeID(badgeId);
+		dog.setStatus("in training");
+		dog.setDateAcquired(Date.valueOf(LocalDate.of(2024, 3, 1)));
+		return dog;
+	}
+}
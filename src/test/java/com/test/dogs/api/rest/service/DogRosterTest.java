@@ -0,0 +1,226 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.exception.DogNotFoundException;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs DogService with a loaded DogRoster against a real in-memory H2 database.
+ */
+public class DogRosterTest {
+
+	private HikariDataSource dataSource;
+	private DogRoster roster;
+	private DogService dogService;
+	private final AtomicInteger connections = new AtomicInteger();
+	private volatile boolean unavailable;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		dataSource = TestDatabase.create("jdbc:h2:mem:roster;DB_CLOSE_DELAY=-1");
+		TestDatabase.seed(dataSource, 1, 20);
+
+		DataSource countingDataSource = counting(dataSource);
+		DogSearchIndex searchIndex = new DogSearchIndex(countingDataSource);
+		searchIndex.rebuild();
+		roster = new DogRoster(countingDataSource);
+		dogService = TestDatabase.dogService(countingDataSource, searchIndex, roster, new SimpleMeterRegistry());
+		assertFalse(roster.isReady());
+		roster.rebuild();
+		connections.set(0);
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void tearDown() throws Exception {
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void testReadsDoNotQueryTheDatabase() {
+		// Act
+		List<DogDTO> active = dogService.getAllDogsList(null);
+		List<DogDTO> filtered = dogService.getAllDogsList("Dog 1");
+		List<DogDTO> all = dogService.getAllDogsIncludingDeleted();
+		DogDTO dog = dogService.getDogById(7);
+
+		// Assert
+		assertEquals(connections.get(), 0);
+		assertEquals(active.size(), 20);
+		assertEquals(active.get(0).getId(), Long.valueOf(1));
+		// Dog 1 and Dog 10 to Dog 19
+		assertEquals(filtered.size(), 11);
+		assertEquals(all.size(), 20);
+		assertEquals(dog.getName(), "Dog 7");
+		assertEquals(roster.snapshot().findByBadgeId(7).getId(), Long.valueOf(7));
+		assertThrows(DogNotFoundException.class, () -> dogService.getDogById(999));
+		assertThrows(UnsupportedOperationException.class, () -> active.remove(0));
+
+		// getDogById hands out a copy, so the caller cannot change the roster
+		dog.setName("Changed");
+		assertEquals(dogService.getDogById(7).getName(), "Dog 7");
+
+		// The listed records are shared, and read-only, dates included
+		DogDTO listed = active.get(0);
+		assertThrows(UnsupportedOperationException.class, () -> listed.setName("Changed"));
+		listed.getBirthDate().setTime(0);
+		assertNotEquals(roster.snapshot().findById(1).getBirthDate().getTime(), 0L);
+		assertEquals(new DogDTO(listed).getName(), "Dog 1");
+	}
+
+	@Test
+	public void testWritesAreVisibleAfterCommit() {
+		// Arrange
+		DogRoster.Snapshot before = roster.snapshot();
+
+		// Act
+		DogDTO saved = dogService.saveNewDog(newDog("Nova", 100));
+		DogDTO changes = new DogDTO();
+		changes.setBadgeID(200);
+		dogService.updateDog(3, changes);
+		dogService.markDogAsDeleted(5);
+
+		// Assert
+		DogRoster.Snapshot after = roster.snapshot();
+		assertEquals(dogService.getDogById(saved.getId().intValue()).getName(), "Nova");
+		assertEquals(after.findByBadgeId(100).getId(), saved.getId());
+		assertEquals(after.findByBadgeId(200).getId(), Long.valueOf(3));
+		assertNull(after.findByBadgeId(3));
+		assertNotNull(after.findById(5).getDateDeleted());
+		assertEquals(dogService.getAllDogsList(null).stream().filter(dog -> dog.getId() == 5).count(), 0);
+		assertEquals(dogService.getAllDogsList(null).size(), 20);
+		assertEquals(dogService.getAllDogsIncludingDeleted().size(), 21);
+
+		// A snapshot taken earlier still shows the state it was taken at
+		assertEquals(before.getAllDogs().size(), 20);
+		assertEquals(before.findByBadgeId(3).getId(), Long.valueOf(3));
+		assertNull(before.findById(5).getDateDeleted());
+	}
+
+	@Test
+	public void testBatchWritesAreAppliedFromTheirEvents() {
+		// Arrange - dog 6 takes the badge dog 4 gives up, in the same batch
+		DogDTO rebadged = new DogDTO();
+		rebadged.setId(4L);
+		rebadged.setBadgeID(300);
+		DogDTO takesBadge = new DogDTO();
+		takesBadge.setId(6L);
+		takesBadge.setBadgeID(4);
+		DogDTO renamed = new DogDTO();
+		renamed.setId(9L);
+		renamed.setName("Renamed");
+
+		// Act
+		dogService.updateDogs(Arrays.asList(rebadged, takesBadge, renamed));
+		dogService.markDogsAsDeleted(Arrays.asList(7L, 8L));
+
+		// Assert - one connection per batch, for the batch itself: the roster read nothing back
+		assertEquals(connections.get(), 2);
+		DogRoster.Snapshot after = roster.snapshot();
+		assertEquals(after.findByBadgeId(300).getId(), Long.valueOf(4));
+		assertEquals(after.findByBadgeId(4).getId(), Long.valueOf(6));
+		assertNull(after.findByBadgeId(6));
+		assertEquals(after.findById(9).getName(), "Renamed");
+		assertNotNull(after.findById(7).getDateDeleted());
+		assertEquals(after.findById(8).getVersion(), Long.valueOf(1));
+		assertEquals(after.getActiveDogs().size(), 18);
+		assertEquals(after.getAllDogs().size(), 20);
+	}
+
+	@Test
+	public void testOlderVersionDoesNotReplaceNewerRecord() {
+		// Arrange
+		DogDTO stale = dogService.getDogById(2);
+		DogDTO changes = new DogDTO();
+		changes.setName("Renamed");
+		dogService.updateDog(2, changes);
+
+		// Act - the event of an earlier write arrives after the later one
+		stale.setName("Stale");
+		roster.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 2, stale));
+
+		// Assert
+		assertEquals(dogService.getDogById(2).getName(), "Renamed");
+
+		// Within a batch, the newest version wins whatever the order
+		DogDTO newer = dogService.getDogById(2);
+		newer.setVersion(newer.getVersion() + 1);
+		newer.setName("Newer");
+		roster.onDogsChanged(new DogBatchChangedEvent(Arrays.asList(
+				new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 2, newer),
+				new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 2, stale))));
+		assertEquals(dogService.getDogById(2).getName(), "Newer");
+	}
+
+	@Test
+	public void testFailedLoadIsTriedAgainOnALaterRead() {
+		// Arrange - the database is down when the application becomes ready
+		unavailable = true;
+		DogRoster retrying = new DogRoster(counting(dataSource), Duration.ZERO);
+		DogRoster waiting = new DogRoster(counting(dataSource), Duration.ofMinutes(1));
+		retrying.onApplicationReady();
+		waiting.onApplicationReady();
+		assertNull(retrying.snapshot());
+
+		// Act
+		unavailable = false;
+
+		// Assert - a read once the retry interval has passed loads the roster; one before it does not try
+		assertEquals(retrying.snapshot().size(), 20);
+		assertTrue(retrying.isReady());
+		assertNull(waiting.snapshot());
+	}
+
+	private static DogDTO newDog(String name, int badgeId) {
+		DogDTO dog = new DogDTO();
+		dog.setName(name);
+		dog.setBreed("Labrador");
+		dog.setSupplier("Supplier");
+		dog.setBadgeID(badgeId);
+		dog.setGender("Female");
+		dog.setBirthDate(Date.valueOf(LocalDate.of(2022, 1, 1)));
+		dog.setDateAcquired(Date.valueOf(LocalDate.of(2023, 1, 1)));
+		dog.setStatus("in training");
+		return dog;
+	}
+
+	/**
+	 * Wraps the data source to count the connections borrowed from it, and to fail while unavailable is set.
+	 */
+	private DataSource counting(DataSource target) {
+		return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {DataSource.class},
+				(proxy, method, args) -> {
+					if (method.getName().equals("getConnection")) {
+						connections.incrementAndGet();
+						if (unavailable) {
+							throw new SQLException("Connection refused");
+						}
+					}
+					try {
+						return method.invoke(target, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+}
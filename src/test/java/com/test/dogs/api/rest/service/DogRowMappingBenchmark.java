@@ -0,0 +1,73 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.benchmark.SeededDatabase;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for DogService.mapResultSetToDogDto on its own: the rows are read once into a scrollable
+ * H2 result set, and each invocation maps all of them again without running the query.
+ * Lives in the service package because the mapper is package-private.
+ *
+ * Run with (results are written to target/jmh-result.json):
+ * mvn -P benchmark test-compile exec:exec -Djmh.include=DogRowMappingBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DogRowMappingBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int rows;
+
+	private SeededDatabase database;
+	private Connection connection;
+	private PreparedStatement statement;
+	private ResultSet resultSet;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		database = SeededDatabase.create("mapping-bench", rows);
+
+		connection = database.getDataSource().getConnection();
+		statement = connection.prepareStatement("SELECT * FROM DOGS ORDER BY ID",
+				ResultSet.TYPE_SCROLL_INSENSITIVE, ResultSet.CONCUR_READ_ONLY);
+		resultSet = statement.executeQuery();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		resultSet.close();
+		statement.close();
+		connection.close();
+		database.close();
+	}
+
+	@Benchmark
+	public void mapAllRows(Blackhole blackhole) throws Exception {
+		resultSet.beforeFirst();
+		while (resultSet.next()) {
+			blackhole.consume(DogService.mapResultSetToDogDto(resultSet));
+		}
+	}
+}
@@ -0,0 +1,157 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogPage;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+public class DogSearchIndexTest {
+
+	private HikariDataSource dataSource;
+	private DogSearchIndex searchIndex;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		dataSource = TestDatabase.create("jdbc:h2:mem:search-index;DB_CLOSE_DELAY=-1");
+		// 20 dogs: breeds cycle through Labrador, German Shepherd, Springer Spaniel, Belgian Malinois, Golden Retriever
+		TestDatabase.seed(dataSource, 1, 20);
+		searchIndex = new DogSearchIndex(dataSource);
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void tearDown() throws Exception {
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void testSearchIsNotReadyUntilRebuilt() throws Exception {
+		assertFalse(searchIndex.isReady());
+
+		searchIndex.rebuild();
+
+		assertTrue(searchIndex.isReady());
+		assertEquals(searchIndex.size(), 20);
+	}
+
+	@Test
+	public void testSearchMatchesLikeSemantics() throws Exception {
+		// Arrange
+		searchIndex.rebuild();
+
+		// Act & Assert - substring of the breed, in ascending ID order
+		assertEquals(searchIndex.search("Spaniel"), new int[] {2, 7, 12, 17});
+		// Matches in any of the indexed fields
+		assertEquals(searchIndex.search("Dog 1"), new int[] {1, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19});
+		assertEquals(searchIndex.search("Supplier 3"), new int[] {3});
+		// Case-sensitive like the H2 LIKE query
+		assertEquals(searchIndex.search("spaniel").length, 0);
+		// All trigrams present but not as one substring
+		assertEquals(searchIndex.search("Labrador Spaniel").length, 0);
+	}
+
+	@Test
+	public void testShortTermsAreScanned() throws Exception {
+		searchIndex.rebuild();
+
+		assertEquals(searchIndex.search("19"), new int[] {19});
+	}
+
+	@Test
+	public void testIndexFollowsChanges() throws Exception {
+		// Arrange
+		searchIndex.rebuild();
+
+		DogDTO renamed = new DogDTO();
+		renamed.setName("Rex");
+		renamed.setBreed("Labrador");
+		renamed.setSupplier("Kennel Club");
+
+		DogDTO created = new DogDTO();
+		created.setName("Nova");
+		created.setBreed("Border Collie");
+		created.setSupplier("Kennel Club");
+
+		DogDTO softDeleted = new DogDTO();
+		softDeleted.setName("Dog 5");
+		softDeleted.setBreed("Labrador");
+		softDeleted.setDateDeleted(Date.valueOf(LocalDate.now()));
+
+		// Act
+		searchIndex.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 10, renamed));
+		searchIndex.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.CREATED, 21, created));
+		searchIndex.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.DELETED, 15, softDeleted));
+		searchIndex.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 5, softDeleted));
+
+		// Assert
+		assertEquals(searchIndex.search("Rex"), new int[] {10});
+		assertEquals(searchIndex.search("Kennel Club"), new int[] {10, 21});
+		assertEquals(searchIndex.search("Dog 1"), new int[] {1, 11, 12, 13, 14, 16, 17, 18, 19});
+		assertEquals(searchIndex.search("Labrador"), new int[] {10, 20});
+		assertEquals(searchIndex.size(), 19);
+	}
+
+	@Test
+	public void testPagesAreFilledPastRowsTheIndexStillLists() throws Exception {
+		// Arrange - the Labradors are 5, 10, 15 and 20; 10 is deleted without the index being told yet
+		searchIndex.rebuild();
+		DogService dogService = TestDatabase.dogService(dataSource, searchIndex);
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.executeUpdate("UPDATE DOGS SET dateDeleted = CURRENT_DATE, version = version + 1 WHERE ID = 10");
+		}
+
+		// Act
+		DogPage first = dogService.getAllDogsPage("Labrador", null, 2);
+		DogPage second = dogService.getAllDogsPage("Labrador", first.getNextCursor(), 2);
+
+		// Assert - a full first page with a cursor, and the rest on the second
+		assertEquals(first.getItems().stream().map(DogDTO::getId).toList(), List.of(5L, 15L));
+		assertNotNull(first.getNextCursor());
+		assertEquals(second.getItems().stream().map(DogDTO::getId).toList(), List.of(20L));
+		assertNull(second.getNextCursor());
+	}
+
+	@Test
+	public void testOlderEventDoesNotReplaceNewerValues() throws Exception {
+		// Arrange - the seeded dogs are at version 1
+		searchIndex.rebuild();
+
+		DogDTO first = new DogDTO();
+		first.setName("Rex");
+		first.setVersion(2L);
+		DogDTO second = new DogDTO();
+		second.setName("Max");
+		second.setVersion(3L);
+		DogDTO deleted = new DogDTO();
+		deleted.setName("Dog 7");
+		deleted.setVersion(2L);
+		deleted.setDateDeleted(Date.valueOf(LocalDate.now()));
+		DogDTO beforeDelete = new DogDTO();
+		beforeDelete.setName("Dog 7");
+		beforeDelete.setVersion(1L);
+
+		// Act - the two updates of dog 10 arrive in the reverse of the order they were committed, and the delete of
+		// dog 7 before a stale update
+		searchIndex.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 10, second));
+		searchIndex.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 10, first));
+		searchIndex.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.DELETED, 7, deleted));
+		searchIndex.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 7, beforeDelete));
+
+		// Assert
+		assertEquals(searchIndex.search("Max"), new int[] {10});
+		assertEquals(searchIndex.search("Rex").length, 0);
+		assertEquals(searchIndex.search("Dog 7").length, 0);
+		assertEquals(searchIndex.size(), 19);
+	}
+}
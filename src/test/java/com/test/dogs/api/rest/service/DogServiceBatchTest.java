@@ -0,0 +1,266 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.exception.DogValidationException;
+import com.test.dogs.api.rest.model.DogBatchResult;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs the batch operations of DogService against a real in-memory H2 database.
+ */
+public class DogServiceBatchTest {
+
+	private HikariDataSource dataSource;
+	private DogService dogService;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		dataSource = TestDatabase.create("jdbc:h2:mem:batch;DB_CLOSE_DELAY=-1");
+		// Badge IDs 1 to 5 are already taken
+		TestDatabase.seed(dataSource, 1, 5);
+		dogService = TestDatabase.dogService(dataSource);
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void tearDown() throws Exception {
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void testSaveNewDogsReportsPerItemResults() {
+		// Arrange
+		DogDTO valid = newDog("Max", 100);
+		DogDTO missingBreed = newDog("Rex", 101);
+		missingBreed.setBreed(null);
+		DogDTO existingBadge = newDog("Bella", 3);
+		DogDTO alsoValid = newDog("Luna", 102);
+		DogDTO duplicateInBatch = newDog("Nova", 102);
+
+		// Act
+		List<DogBatchResult> results = dogService.saveNewDogs(
+				Arrays.asList(valid, missingBreed, existingBadge, alsoValid, duplicateInBatch));
+
+		// Assert
+		assertEquals(results.size(), 5);
+
+		assertEquals(results.get(0).getStatus(), 201);
+		assertEquals(results.get(0).getDog().getName(), "Max");
+		assertEquals(results.get(0).getDog().getSupplier(), "");
+		assertNotNull(results.get(0).getId());
+
+		assertEquals(results.get(1).getStatus(), 400);
+		assertEquals(results.get(1).getError(), "Dog breed is required.");
+
+		assertEquals(results.get(2).getStatus(), 400);
+		assertTrue(results.get(2).getError().startsWith("Dog badge ID already exists."));
+
+		assertEquals(results.get(3).getStatus(), 201);
+		assertTrue(results.get(3).getId() > results.get(0).getId());
+
+		assertEquals(results.get(4).getStatus(), 400);
+		assertEquals(results.get(4).getError(), "Dog badge ID is used more than once in this batch.");
+
+		for (int i = 0; i < results.size(); i++) {
+			assertEquals(results.get(i).getIndex(), i);
+		}
+
+		// The returned records match what was stored
+		DogDTO stored = dogService.getDogById(results.get(3).getId().intValue());
+		assertEquals(stored.getName(), "Luna");
+		assertEquals(stored.getBadgeID(), Integer.valueOf(102));
+		assertEquals(dogService.getAllDogsList(null).size(), 7);
+	}
+
+	@Test
+	public void testSaveNewDogsMakesCreatedDogsSearchable() throws Exception {
+		// Act
+		dogService.saveNewDogs(Collections.singletonList(newDog("Ziggy", 200)));
+
+		// Assert
+		assertEquals(dogService.getAllDogsList("Ziggy").size(), 1);
+	}
+
+	@Test(expectedExceptions = DogValidationException.class)
+	public void testSaveNewDogsRejectsEmptyBatch() {
+		dogService.saveNewDogs(Collections.emptyList());
+	}
+
+	@Test
+	public void testUpdateDogsReportsPerItemResults() {
+		// Arrange
+		DogDTO retire = changes(1L);
+		retire.setStatus("retired");
+		DogDTO alsoRetire = changes(2L);
+		alsoRetire.setStatus("retired");
+		DogDTO rename = changes(3L);
+		rename.setName("Renamed");
+		DogDTO unknown = changes(999L);
+		unknown.setStatus("retired");
+		DogDTO leavesTooEarly = changes(4L);
+		leavesTooEarly.setLeavingDate(Date.valueOf(LocalDate.of(1990, 1, 1)));
+		DogDTO nothingToChange = changes(5L);
+		DogDTO duplicate = changes(1L);
+		duplicate.setName("Twice");
+
+		// Act
+		List<DogBatchResult> results = dogService.updateDogs(
+				Arrays.asList(retire, alsoRetire, rename, unknown, leavesTooEarly, nothingToChange, duplicate));
+
+		// Assert
+		assertEquals(results.get(0).getStatus(), 200);
+		assertEquals(results.get(0).getDog().getStatus(), "retired");
+		assertEquals(results.get(1).getStatus(), 200);
+		assertEquals(results.get(2).getStatus(), 200);
+		assertEquals(results.get(2).getDog().getName(), "Renamed");
+
+		assertEquals(results.get(3).getStatus(), 404);
+		assertEquals(results.get(3).getId(), Long.valueOf(999));
+
+		assertEquals(results.get(4).getStatus(), 400);
+		assertEquals(results.get(4).getError(), "Leaving date cannot be before the acquisition date.");
+
+		assertEquals(results.get(5).getStatus(), 400);
+		assertEquals(results.get(5).getError(), "No update values have been provided.");
+
+		assertEquals(results.get(6).getStatus(), 400);
+		assertEquals(results.get(6).getError(), "Dog ID is used more than once in this batch.");
+
+		// Unchanged fields are kept and the invalid items were not applied
+		DogDTO stored = dogService.getDogById(3);
+		assertEquals(stored.getName(), "Renamed");
+		assertEquals(stored.getBreed(), results.get(2).getDog().getBreed());
+		assertEquals(dogService.getDogById(1).getName(), "Dog 1");
+		assertNull(dogService.getDogById(4).getLeavingDate());
+	}
+
+	@Test
+	public void testUpdateDogsDoesNotOverwriteAConcurrentWrite() throws Exception {
+		// Arrange - dog 2 is changed by another connection after the batch has read it, before it is updated
+		DataSource racing = (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] {DataSource.class},
+				(proxy, method, args) -> {
+					Object result = method.invoke(dataSource, args);
+					return result instanceof Connection conn ? beforeUpdate(conn, this::retireDog2) : result;
+				});
+		dogService = TestDatabase.dogService(racing, new DogSearchIndex(dataSource), new DogRoster(dataSource),
+				new DogStatementCache(0), new SimpleMeterRegistry());
+		DogDTO rename = changes(1L);
+		rename.setName("Renamed");
+		DogDTO alsoRename = changes(2L);
+		alsoRename.setName("Renamed too");
+
+		// Act
+		List<DogBatchResult> results = dogService.updateDogs(Arrays.asList(rename, alsoRename));
+
+		// Assert - the concurrent write is kept and reported, the other item is applied
+		assertEquals(results.get(0).getStatus(), 200);
+		assertEquals(results.get(1).getStatus(), 412);
+		assertEquals(results.get(1).getError(), "Dog with ID 2 is being modified concurrently, please try again");
+		assertEquals(dogService.getDogById(1).getName(), "Renamed");
+		DogDTO raced = dogService.getDogById(2);
+		assertEquals(raced.getName(), "Dog 2");
+		assertEquals(raced.getStatus(), "retired");
+	}
+
+	@Test
+	public void testUpdateDogsKeepsSearchIndexCurrent() throws Exception {
+		// Arrange
+		DogSearchIndex searchIndex = new DogSearchIndex(dataSource);
+		searchIndex.rebuild();
+		dogService = TestDatabase.dogService(dataSource, searchIndex);
+		DogDTO rename = changes(2L);
+		rename.setName("Ziggy");
+
+		// Act
+		dogService.updateDogs(Collections.singletonList(rename));
+
+		// Assert
+		assertEquals(dogService.getAllDogsList("Ziggy").size(), 1);
+		assertTrue(dogService.getAllDogsList("Dog 2").isEmpty());
+	}
+
+	@Test
+	public void testMarkDogsAsDeletedReportsPerItemResults() {
+		// Act
+		List<DogBatchResult> results = dogService.markDogsAsDeleted(Arrays.asList(1L, 999L, 2L, 1L, null));
+
+		// Assert
+		assertEquals(results.get(0).getStatus(), 200);
+		assertEquals(results.get(0).getId(), Long.valueOf(1));
+		assertEquals(results.get(1).getStatus(), 404);
+		assertEquals(results.get(1).getError(), "Dog with ID 999 not found for deletion");
+		assertEquals(results.get(2).getStatus(), 200);
+		assertEquals(results.get(3).getStatus(), 400);
+		assertEquals(results.get(4).getStatus(), 400);
+
+		assertEquals(dogService.getAllDogsList(null).size(), 3);
+		assertNotNull(dogService.getDogById(1).getDateDeleted());
+	}
+
+	@Test(expectedExceptions = DogValidationException.class)
+	public void testMarkDogsAsDeletedRejectsEmptyBatch() {
+		dogService.markDogsAsDeleted(Collections.emptyList());
+	}
+
+	/**
+	 * Wraps the connection to run the given write, on another connection, before the conditional UPDATE is prepared.
+	 */
+	private static Connection beforeUpdate(Connection conn, Runnable write) {
+		return (Connection) Proxy.newProxyInstance(DogServiceBatchTest.class.getClassLoader(), new Class<?>[] {Connection.class},
+				(proxy, method, args) -> {
+					if (method.getName().equals("prepareStatement") && ((String) args[0]).endsWith("AND version = ?")) {
+						write.run();
+					}
+					try {
+						return method.invoke(conn, args);
+					} catch (InvocationTargetException e) {
+						throw e.getCause();
+					}
+				});
+	}
+
+	private void retireDog2() {
+		try (Connection conn = dataSource.getConnection(); Statement statement = conn.createStatement()) {
+			statement.executeUpdate("UPDATE DOGS SET status = 'retired', version = version + 1 WHERE ID = 2");
+		} catch (SQLException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static DogDTO changes(Long id) {
+		DogDTO dog = new DogDTO();
+		dog.setId(id);
+		return dog;
+	}
+
+	private static DogDTO newDog(String name, int badgeId) {
+		DogDTO dog = new DogDTO();
+		dog.setName(name);
+		dog.setBreed("Labrador");
+		dog.setBadgeID(badgeId);
+		dog.setStatus("in training");
+		dog.setDateAcquired(Date.valueOf(LocalDate.of(2024, 3, 1)));
+		return dog;
+	}
+}
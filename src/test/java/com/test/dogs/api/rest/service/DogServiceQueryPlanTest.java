@@ -0,0 +1,217 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogQuery;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs every DogService operation against a migrated H2 database, records the SQL it prepares,
+ * and checks with EXPLAIN that each statement reads DOGS through an index rather than a table scan.
+ */
+public class DogServiceQueryPlanTest {
+
+	// Statements that read the whole table by design
+	private static final Set<String> FULL_TABLE_READS = Set.of(
+			"SELECT * FROM DOGS",
+			"SELECT * FROM DOGS ORDER BY ID",
+			"SELECT ID, NAME, BREED, SUPPLIER, VERSION, DATEDELETED FROM DOGS");
+
+	private HikariDataSource dataSource;
+	private final Set<String> statements = new LinkedHashSet<>();
+
+	@BeforeClass
+	public void setUp() throws Exception {
+		dataSource = TestDatabase.create("jdbc:h2:mem:query-plans;DB_CLOSE_DELAY=-1");
+		TestDatabase.seed(dataSource, 1, 2000);
+
+		DataSource recordingDataSource = recording(dataSource);
+		DogSearchIndex searchIndex = new DogSearchIndex(recordingDataSource);
+		DogService sqlFiltered = TestDatabase.dogService(recordingDataSource);
+		DogService indexFiltered = TestDatabase.dogService(recordingDataSource, searchIndex);
+		searchIndex.rebuild();
+
+		// Reads
+		sqlFiltered.getAllDogsList(null);
+		sqlFiltered.getAllDogsList("Dog 12");
+		indexFiltered.getAllDogsList("Dog 12");
+		String cursor = sqlFiltered.getAllDogsPage(null, null, 10).getNextCursor();
+		sqlFiltered.getAllDogsPage(null, cursor, 10);
+		sqlFiltered.getAllDogsPage("Labrador", null, 10);
+		indexFiltered.getAllDogsPage("Labrador", null, 10);
+		sqlFiltered.getAllDogsIncludingDeleted();
+		sqlFiltered.getAllDogsIncludingDeletedPage(cursor, 10);
+		sqlFiltered.streamAllDogsIncludingDeleted(dog -> { });
+		sqlFiltered.getDogById(5);
+		sqlFiltered.findDogs(DogQuery.parse(Map.of("status", List.of("retired"), "dateAcquiredFrom", List.of("2024-06-01"))), null);
+		sqlFiltered.findDogs(DogQuery.parse(Map.of("breed", List.of("Labrador,Beagle"), "includeDeleted", List.of("true"))), null);
+		sqlFiltered.findDogs(DogQuery.parse(Map.of("leavingDateTo", List.of("2024-06-01"), "sort", List.of("name"))), null);
+
+		// Writes
+		sqlFiltered.saveNewDog(newDog(5001));
+		sqlFiltered.saveNewDogs(Arrays.asList(newDog(5002), newDog(5003)));
+		DogDTO changes = new DogDTO();
+		changes.setStatus("retired");
+		sqlFiltered.updateDog(6, changes);
+		changes.setId(7L);
+		sqlFiltered.updateDogs(Arrays.asList(changes));
+		sqlFiltered.markDogAsDeleted(8);
+		sqlFiltered.markDogsAsDeleted(Arrays.asList(9L, 10L));
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void tearDown() throws Exception {
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void testEveryQueryUsesAnIndex() throws Exception {
+		int checked = 0;
+
+		try (Connection conn = dataSource.getConnection()) {
+			for (String sql : statements) {
+				if (!isExplainable(sql)) {
+					continue;
+				}
+
+				if (FULL_TABLE_READS.contains(sql)) {
+					continue;
+				}
+
+				String plan = explain(conn, sql);
+				assertFalse(plan.contains("tableScan"), "Table scan for: " + sql + "\n" + plan);
+				checked++;
+			}
+		}
+
+		// Lists, pages, lookups by ID and badge, updates and soft deletes
+		assertTrue(checked >= 10, "Only " + checked + " statements were checked: " + statements);
+	}
+
+	@Test
+	public void testActiveListingUsesCompositeIndex() throws Exception {
+		try (Connection conn = dataSource.getConnection()) {
+			String plan = explain(conn, "SELECT * FROM DOGS WHERE dateDeleted IS NULL AND ID > ? ORDER BY ID LIMIT ?");
+			assertTrue(plan.contains("IDX_DOGS_ACTIVE_ID"), plan);
+		}
+	}
+
+	@Test
+	public void testStructuredQueriesUseTheQueryIndexes() throws Exception {
+		try (Connection conn = dataSource.getConnection()) {
+			String byBreed = explain(conn, "SELECT * FROM DOGS WHERE BREED = ANY(?) ORDER BY ID");
+			assertTrue(byBreed.contains("IDX_DOGS_BREED"), byBreed);
+
+			String byLeavingDate = explain(conn, "SELECT * FROM DOGS WHERE LEAVINGDATE >= ? AND LEAVINGDATE <= ? ORDER BY ID");
+			assertTrue(byLeavingDate.contains("IDX_DOGS_LEAVING_DATE"), byLeavingDate);
+		}
+	}
+
+	@Test
+	public void testMigrationsAreRecorded() throws Exception {
+		try (Connection conn = dataSource.getConnection();
+		     PreparedStatement preparedStatement = conn.prepareStatement(
+				     "SELECT \"version\" FROM \"flyway_schema_history\" WHERE \"version\" IS NOT NULL AND \"success\" ORDER BY \"installed_rank\"");
+		     ResultSet rs = preparedStatement.executeQuery()) {
+			Set<String> versions = new LinkedHashSet<>();
+			while (rs.next()) {
+				versions.add(rs.getString(1));
+			}
+			assertEquals(versions, new LinkedHashSet<>(Arrays.asList("1", "2", "3", "4", "5")));
+		}
+	}
+
+	/**
+	 * Statements that read or change existing rows; inserts and session settings have no access path to check.
+	 */
+	private static boolean isExplainable(String sql) {
+		return (sql.startsWith("SELECT") || sql.startsWith("UPDATE") || sql.startsWith("DELETE"))
+				&& !sql.contains("INSERT INTO");
+	}
+
+	private static String explain(Connection conn, String sql) throws Exception {
+		try (PreparedStatement preparedStatement = conn.prepareStatement("EXPLAIN " + sql);
+		     ResultSet rs = preparedStatement.executeQuery()) {
+			rs.next();
+			return rs.getString(1);
+		}
+	}
+
+	/**
+	 * Wraps the DataSource so that every SQL string passed to prepareStatement is recorded.
+	 */
+	private DataSource recording(DataSource target) {
+		return proxy(DataSource.class, target, (method, result) -> {
+			if (result instanceof Connection) {
+				return recording((Connection) result);
+			}
+			return result;
+		}, (method, args) -> { });
+	}
+
+	/**
+	 * Wraps the connection, and the driver's connection DogStatementCache unwraps from it, to record the SQL.
+	 */
+	private Connection recording(Connection target) {
+		return proxy(Connection.class, target, (method, value) ->
+				value instanceof Connection && method.getName().equals("unwrap") ? recording((Connection) value) : value, this::record);
+	}
+
+	private void record(Method method, Object[] args) {
+		if (method.getName().equals("prepareStatement")) {
+			statements.add(((String) args[0]).trim());
+		}
+	}
+
+	private interface ResultMapper {
+		Object map(Method method, Object result);
+	}
+
+	private interface CallListener {
+		void called(Method method, Object[] args);
+	}
+
+	private static <T> T proxy(Class<T> type, T target, ResultMapper resultMapper, CallListener listener) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, method, args) -> {
+			listener.called(method, args);
+			try {
+				return resultMapper.map(method, method.invoke(target, args));
+			} catch (InvocationTargetException e) {
+				throw e.getCause();
+			}
+		}));
+	}
+
+	private static DogDTO newDog(int badgeId) {
+		DogDTO dog = new DogDTO();
+		dog.setName("Plan " + badgeId);
+		dog.setBreed("Labrador");
+		dog.setBadgeID(badgeId);
+		dog.setStatus("in training");
+		dog.setDateAcquired(Date.valueOf(LocalDate.of(2024, 3, 1)));
+		return dog;
+	}
+}
@@ -0,0 +1,113 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.exception.DogValidationException;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogFields;
+import com.test.dogs.api.rest.model.DogQuery;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs structured queries (DogService.findDogs) against a real in-memory H2 database.
+ */
+public class DogServiceQueryTest {
+
+	private HikariDataSource dataSource;
+	private DogService dogService;
+
+	@BeforeClass
+	public void setUp() throws Exception {
+		dataSource = TestDatabase.create("jdbc:h2:mem:structured-query;DB_CLOSE_DELAY=-1");
+		// See TestDatabase.seed: status and breed cycle with the badge ID, and dateAcquired goes back one day per dog
+		TestDatabase.seed(dataSource, 1, 40);
+		dogService = TestDatabase.dogService(dataSource);
+		dogService.markDogsAsDeleted(Arrays.asList(1L, 5L));
+	}
+
+	@AfterClass(alwaysRun = true)
+	public void tearDown() throws Exception {
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void testMatchesValueListsAndDateRanges() {
+		// Act - "in service" is every fourth dog from 1, Labrador every fifth from 5
+		List<DogDTO> dogs = dogService.findDogs(query(
+				"status", "in service,in training",
+				"breed", "Labrador",
+				"dateAcquiredFrom", "2024-12-10"), null);
+
+		// Assert - dogs 5 and 20 match, acquired on 2024-12-27 and 2024-12-12; 5 is deleted
+		assertEquals(ids(dogs), Arrays.asList(20L));
+		assertTrue(dogs.stream().allMatch(dog -> !dog.getDateAcquired().before(Date.valueOf(LocalDate.of(2024, 12, 10)))));
+	}
+
+	@Test
+	public void testIncludeDeletedSortAndLimit() {
+		// Act
+		List<DogDTO> dogs = dogService.findDogs(query(
+				"breed", "Labrador",
+				"includeDeleted", "true",
+				"sort", "dateAcquired",
+				"order", "desc",
+				"limit", "3"), DogFields.parse("name,dateAcquired"));
+
+		// Assert - the most recently acquired first, which are the lowest badge IDs, deleted dog 5 included
+		assertEquals(ids(dogs), Arrays.asList(5L, 10L, 15L));
+		assertEquals(dogs.get(0).getName(), "Dog 5");
+		assertNull(dogs.get(0).getBreed());
+	}
+
+	@Test
+	public void testShapeDependsOnlyOnTheCriteriaGiven() {
+		// Arrange
+		DogQuery one = query("status", "left", "breed", "Labrador", "dateAcquiredTo", "2024-01-01");
+		DogQuery other = query("breed", "Beagle,Labrador,Collie", "dateAcquiredTo", "2020-06-30", "status", "retired,left");
+
+		// Act & Assert
+		assertEquals(DogService.querySql(one, null), DogService.querySql(other, null));
+		assertEquals(DogService.querySql(one, null),
+				"SELECT * FROM DOGS WHERE dateDeleted IS NULL AND BREED = ANY(?) AND STATUS = ANY(?) AND DATEACQUIRED <= ? ORDER BY ID");
+	}
+
+	@Test
+	public void testRejectsQueriesThatCannotBeRun() {
+		assertThrows(DogValidationException.class, () -> dogService.findDogs(query("status", "lost"), null));
+		assertThrows(DogValidationException.class, () -> dogService.findDogs(query("limit", "0"), null));
+		assertThrows(DogValidationException.class, () -> query("colour", "black"));
+		assertThrows(DogValidationException.class, () -> query("breed", "Labrador,,Collie"));
+		assertThrows(DogValidationException.class, () -> query("sort", "kennelingCharacteristics"));
+		assertThrows(DogValidationException.class, () -> query("order", "sideways"));
+		assertThrows(DogValidationException.class, () -> query("dateAcquiredFrom", "01/02/2024"));
+		assertThrows(DogValidationException.class, () -> query("leavingDateFrom", "2024-02-01", "leavingDateTo", "2024-01-01"));
+		assertThrows(DogValidationException.class, () -> query("includeDeleted", "yes"));
+	}
+
+	private static DogQuery query(String... nameValuePairs) {
+		Map<String, List<String>> parameters = new LinkedHashMap<>();
+		for (int i = 0; i < nameValuePairs.length; i += 2) {
+			parameters.put(nameValuePairs[i], List.of(nameValuePairs[i + 1]));
+		}
+		return DogQuery.parse(parameters);
+	}
+
+	private static List<Long> ids(List<DogDTO> dogs) {
+		return dogs.stream().map(DogDTO::getId).collect(Collectors.toList());
+	}
+}
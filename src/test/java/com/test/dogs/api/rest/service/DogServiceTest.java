@@ -1,16 +1,22 @@
 package com.test.dogs.api.rest.service;
 
+import com.test.dogs.api.rest.exception.DogPreconditionFailedException;
+import com.test.dogs.api.rest.exception.DogValidationException;
 import com.test.dogs.api.rest.model.DogDTO;
-import org.mockito.InjectMocks;
+import com.test.dogs.api.rest.model.DogFields;
+import com.test.dogs.api.rest.model.DogPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
+import org.mockito.ArgumentCaptor;
 import org.mockito.MockitoAnnotations;
-import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.context.ApplicationEventPublisher;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
+import javax.sql.DataSource;
 import java.sql.*;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.util.List;
 
@@ -20,6 +26,17 @@ import static org.testng.Assert.*;
 
 public class DogServiceTest {
 
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private DogSearchIndex searchIndex;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private DogCache dogCache;
+
     @Mock
     private Connection connection;
 
@@ -29,25 +46,18 @@ public class DogServiceTest {
     @Mock
     private ResultSet resultSet;
 
-    @InjectMocks
     private DogService dogService;
 
     private AutoCloseable mocks;
-    private MockedStatic<DriverManager> driverManagerMock;
 
     @BeforeMethod
     public void setUp() throws SQLException {
         mocks = MockitoAnnotations.openMocks(this);
 
-        // Set test database properties using reflection
-        ReflectionTestUtils.setField(dogService, "DB_URL", "jdbc:h2:mem:testdb");
-        ReflectionTestUtils.setField(dogService, "DB_USER", "sa");
-        ReflectionTestUtils.setField(dogService, "DB_PASSWORD", "");
-
-        // Mock database connections
-        driverManagerMock = mockStatic(DriverManager.class);
-        driverManagerMock.when(() -> DriverManager.getConnection(anyString(), anyString(), anyString()))
-                         .thenReturn(connection);
+        // Mock the pooled DataSource handing out connections
+        when(dataSource.getConnection()).thenReturn(connection);
+        dogCache = new DogCache(100, Duration.ofMinutes(5));
+        dogService = new DogService(dataSource, searchIndex, new DogRoster(dataSource), dogCache, new DogStatementCache(64), eventPublisher, new DogMetrics(new SimpleMeterRegistry()));
         when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
         when(preparedStatement.executeQuery()).thenReturn(resultSet);
     }
@@ -57,9 +67,6 @@ public class DogServiceTest {
         if (mocks != null) {
             mocks.close();
         }
-        if (driverManagerMock != null) {
-            driverManagerMock.close();
-        }
     }
 
     @Test
@@ -93,6 +100,28 @@ public class DogServiceTest {
         verify(preparedStatement, times(1)).executeQuery();
     }
 
+    @Test
+    public void testGetAllDogsListWithFieldsSelectsAndMapsOnlyThoseColumns() throws SQLException {
+        // Arrange - ID is always selected first, then the requested fields in declaration order
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getLong(1)).thenReturn(7L);
+        when(resultSet.getString(2)).thenReturn("Buddy");
+        when(resultSet.getString(3)).thenReturn("Active");
+
+        // Act
+        List<DogDTO> result = dogService.getAllDogsList(null, DogFields.parse("status,name"));
+
+        // Assert
+        assertEquals(result.size(), 1);
+        assertEquals(result.get(0).getId(), Long.valueOf(7L));
+        assertEquals(result.get(0).getName(), "Buddy");
+        assertEquals(result.get(0).getStatus(), "Active");
+        assertNull(result.get(0).getBreed());
+
+        verify(connection, times(1)).prepareStatement(startsWith("SELECT ID, NAME, STATUS FROM DOGS WHERE dateDeleted IS NULL"));
+        verify(resultSet, never()).getString(anyString());
+    }
+
     @Test
     public void testGetAllDogsListWithFilter() throws SQLException {
         // Arrange
@@ -125,6 +154,56 @@ public class DogServiceTest {
         verify(preparedStatement, times(1)).executeQuery();
     }
 
+    @Test
+    public void testGetAllDogsListWithFilterUsesSearchIndex() throws SQLException {
+        // Arrange
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("Golden")).thenReturn(new int[] {1, 7});
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt("ID")).thenReturn(1);
+        when(resultSet.getString("BREED")).thenReturn("Golden Retriever");
+
+        // Act
+        List<DogDTO> result = dogService.getAllDogsList(" Golden ");
+
+        // Assert - only the candidate rows are fetched, no LIKE scan
+        assertEquals(result.size(), 1);
+        verify(connection, times(1)).prepareStatement(contains("WHERE ID = ANY(?) AND dateDeleted IS NULL"));
+        verify(connection, never()).prepareStatement(contains("LIKE"));
+        verify(connection, times(1)).createArrayOf("INTEGER", new Integer[] {1, 7});
+    }
+
+    @Test
+    public void testGetAllDogsListWithWildcardFilterSkipsSearchIndex() throws SQLException {
+        // Arrange
+        when(searchIndex.isReady()).thenReturn(true);
+        when(resultSet.next()).thenReturn(false);
+
+        // Act
+        dogService.getAllDogsList("Gold%");
+
+        // Assert - LIKE wildcards keep their SQL meaning
+        verify(searchIndex, never()).search(anyString());
+        verify(connection, times(1)).prepareStatement(contains("NAME LIKE ?"));
+    }
+
+    @Test
+    public void testGetAllDogsPageWithFilterUsesSearchIndex() throws SQLException {
+        // Arrange - cursor after ID 3, limit 2: IDs 5 and 8, and the index has more after them
+        when(searchIndex.isReady()).thenReturn(true);
+        when(searchIndex.search("Lab")).thenReturn(new int[] {1, 3, 5, 8, 9, 12});
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt("ID")).thenReturn(5, 8);
+
+        // Act
+        DogPage page = dogService.getAllDogsPage("Lab", DogCursor.encode(3L), 2);
+
+        // Assert
+        assertEquals(page.getItems().size(), 2);
+        assertEquals(DogCursor.decode(page.getNextCursor()), 8L);
+        verify(connection, times(1)).createArrayOf("INTEGER", new Integer[] {5, 8});
+    }
+
     @Test
     public void testGetAllDogsListEmptyResult() throws SQLException {
         // Arrange
@@ -141,6 +220,57 @@ public class DogServiceTest {
         verify(preparedStatement, times(1)).executeQuery();
     }
 
+    @Test
+    public void testGetAllDogsPageReturnsNextCursor() throws SQLException {
+        // Arrange - limit of 1, the query returns the extra look-ahead row
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getInt("ID")).thenReturn(1, 2);
+        when(resultSet.getString("NAME")).thenReturn("Buddy", "Max");
+
+        // Act
+        DogPage firstPage = dogService.getAllDogsPage(null, null, 1);
+
+        // Assert
+        assertEquals(firstPage.getItems().size(), 1);
+        assertEquals(firstPage.getItems().get(0).getName(), "Buddy");
+        assertNotNull(firstPage.getNextCursor());
+        assertEquals(DogCursor.decode(firstPage.getNextCursor()), 1L);
+
+        verify(connection, times(1)).prepareStatement(contains("WHERE dateDeleted IS NULL AND ID > ? ORDER BY ID LIMIT ?"));
+        verify(preparedStatement, times(1)).setLong(1, 0L);
+        verify(preparedStatement, times(1)).setInt(2, 2);
+    }
+
+    @Test
+    public void testGetAllDogsPageWithFilterAndCursor() throws SQLException {
+        // Arrange - last page, fewer rows than the limit
+        when(resultSet.next()).thenReturn(true, false);
+        when(resultSet.getInt("ID")).thenReturn(42);
+        String cursor = DogCursor.encode(41L);
+
+        // Act
+        DogPage page = dogService.getAllDogsPage("Golden", cursor, 10);
+
+        // Assert
+        assertEquals(page.getItems().size(), 1);
+        assertNull(page.getNextCursor());
+
+        verify(connection, times(1)).prepareStatement(contains("AND (NAME LIKE ? OR BREED LIKE ? OR SUPPLIER LIKE ?) AND ID > ?"));
+        verify(preparedStatement, times(3)).setString(anyInt(), eq("%Golden%"));
+        verify(preparedStatement, times(1)).setLong(4, 41L);
+        verify(preparedStatement, times(1)).setInt(5, 11);
+    }
+
+    @Test(expectedExceptions = DogValidationException.class)
+    public void testGetAllDogsPageRejectsInvalidCursor() {
+        dogService.getAllDogsPage(null, "not-a-cursor", 10);
+    }
+
+    @Test(expectedExceptions = DogValidationException.class)
+    public void testGetAllDogsPageRejectsInvalidLimit() {
+        dogService.getAllDogsPage(null, null, 0);
+    }
+
     @Test
     public void testGetDogByIdSuccess() throws SQLException {
         // Arrange
@@ -173,6 +303,37 @@ public class DogServiceTest {
         verify(preparedStatement, times(1)).executeQuery();
     }
 
+    @Test
+    public void testGetDogByIdIsCachedUntilInvalidated() throws SQLException {
+        // Arrange
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt("ID")).thenReturn(1);
+        when(resultSet.getString("NAME")).thenReturn("Buddy", "Buddy Updated");
+        when(resultSet.getDate("BIRTHDATE")).thenReturn(Date.valueOf(LocalDate.of(2020, 1, 1)));
+
+        // Act - the second read is a cache hit
+        DogDTO first = dogService.getDogById(1);
+        DogDTO second = dogService.getDogById(1);
+
+        // Assert
+        assertEquals(second.getName(), "Buddy");
+        verify(preparedStatement, times(1)).executeQuery();
+        assertEquals(dogCache.stats().hitCount(), 1L);
+        assertEquals(dogCache.stats().missCount(), 1L);
+
+        // Callers get their own copies, including the mutable dates
+        first.setName("Changed by caller");
+        first.getBirthDate().setTime(0L);
+        DogDTO third = dogService.getDogById(1);
+        assertEquals(third.getName(), "Buddy");
+        assertEquals(third.getBirthDate(), Date.valueOf(LocalDate.of(2020, 1, 1)));
+
+        // An update event drops the entry, so the next read goes back to the database
+        dogCache.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 1, null));
+        assertEquals(dogService.getDogById(1).getName(), "Buddy Updated");
+        verify(preparedStatement, times(2)).executeQuery();
+    }
+
     @Test
     public void testSaveNewDog() throws SQLException {
         // Arrange
@@ -185,28 +346,13 @@ public class DogServiceTest {
         newDog.setDateAcquired(Date.valueOf(LocalDate.of(2021, 6, 15)));
         newDog.setStatus("In Training");
 
-        // Mock for INSERT operation
+        // Mock for the INSERT operation, which returns the stored row
         PreparedStatement insertStatement = mock(PreparedStatement.class);
-        ResultSet generatedKeys = mock(ResultSet.class);
-
-        // Mock for SELECT operation (getDogById call after INSERT)
-        PreparedStatement selectStatement = mock(PreparedStatement.class);
         ResultSet selectResultSet = mock(ResultSet.class);
 
-        // Setup connection mocking for different SQL statements
-        when(connection.prepareStatement(contains("INSERT INTO DOGS"), eq(Statement.RETURN_GENERATED_KEYS)))
+        when(connection.prepareStatement(contains("FROM FINAL TABLE (INSERT INTO DOGS")))
                 .thenReturn(insertStatement);
-        when(connection.prepareStatement(contains("SELECT * FROM DOGS WHERE ID = ?")))
-                .thenReturn(selectStatement);
-
-        // Mock INSERT operation
-        when(insertStatement.executeUpdate()).thenReturn(1);
-        when(insertStatement.getGeneratedKeys()).thenReturn(generatedKeys);
-        when(generatedKeys.next()).thenReturn(true);
-        when(generatedKeys.getInt(1)).thenReturn(1);
-
-        // Mock SELECT operation for getDogById
-        when(selectStatement.executeQuery()).thenReturn(selectResultSet);
+        when(insertStatement.executeQuery()).thenReturn(selectResultSet);
         when(selectResultSet.next()).thenReturn(true);
         when(selectResultSet.getInt("ID")).thenReturn(1);
         when(selectResultSet.getString("NAME")).thenReturn("Max");
@@ -231,12 +377,34 @@ public class DogServiceTest {
         assertEquals(result.getBreed(), "Labrador");
         assertEquals(result.getId().longValue(), 1L);
 
-        verify(connection, times(1)).prepareStatement(contains("INSERT INTO DOGS"), eq(Statement.RETURN_GENERATED_KEYS));
+        verify(dataSource, times(1)).getConnection();
+        verify(connection, times(1)).prepareStatement(contains("FROM FINAL TABLE (INSERT INTO DOGS"));
+        verify(connection, never()).prepareStatement(contains("SELECT COUNT(*)"));
         verify(insertStatement, times(1)).setString(1, "Max");
         verify(insertStatement, times(1)).setString(2, "Labrador");
         verify(insertStatement, times(1)).setInt(4, 12345);
         verify(insertStatement, times(1)).setString(5, "Male");
-        verify(insertStatement, times(1)).executeUpdate();
+        verify(insertStatement, times(1)).executeQuery();
+    }
+
+    @Test
+    public void testSaveNewDogTranslatesUniqueViolation() throws SQLException {
+        // Arrange
+        DogDTO newDog = new DogDTO();
+        newDog.setName("Max");
+        newDog.setBreed("Labrador");
+        newDog.setBadgeID(12345);
+        newDog.setDateAcquired(Date.valueOf(LocalDate.of(2021, 6, 15)));
+        newDog.setStatus("In Training");
+
+        PreparedStatement insertStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(contains("FROM FINAL TABLE (INSERT INTO DOGS"))).thenReturn(insertStatement);
+        when(insertStatement.executeQuery()).thenThrow(new SQLException("Unique index or primary key violation", "23505"));
+
+        // Act & Assert
+        DogValidationException exception = expectThrows(DogValidationException.class, () -> dogService.saveNewDog(newDog));
+        assertTrue(exception.getMessage().startsWith("Dog badge ID already exists."));
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
     }
 
     @Test
@@ -252,19 +420,13 @@ public class DogServiceTest {
         PreparedStatement selectStatement1 = mock(PreparedStatement.class);
         ResultSet selectResultSet1 = mock(ResultSet.class);
 
-        // Mock for UPDATE operation
+        // Mock for the conditional UPDATE operation
         PreparedStatement updateStatement = mock(PreparedStatement.class);
-        ResultSet updateGeneratedKeys = mock(ResultSet.class);
 
-        // Mock for SELECT operation (getDogById call after UPDATE to return updated record)
-        PreparedStatement selectStatement2 = mock(PreparedStatement.class);
-        ResultSet selectResultSet2 = mock(ResultSet.class);
-
-        // Setup connection mocking for different SQL statements in sequence
+        // Setup connection mocking for different SQL statements
         when(connection.prepareStatement(contains("SELECT * FROM DOGS WHERE ID = ?")))
-            .thenReturn(selectStatement1)  // First call for initial getDogById
-            .thenReturn(selectStatement2); // Second call for final getDogById
-        when(connection.prepareStatement(contains("UPDATE DOGS SET"), eq(Statement.RETURN_GENERATED_KEYS)))
+            .thenReturn(selectStatement1);
+        when(connection.prepareStatement(contains("UPDATE DOGS SET")))
             .thenReturn(updateStatement);
 
         // Mock first SELECT operation (getDogById at start of updateDog)
@@ -284,28 +446,10 @@ public class DogServiceTest {
         when(selectResultSet1.getString("KENNELINGCHARACTERISTICS")).thenReturn("Friendly");
         when(selectResultSet1.getDate("DATEDELETED")).thenReturn(null);
 
-        // Mock UPDATE operation
+        when(selectResultSet1.getLong("VERSION")).thenReturn(7L);
+
+        // Mock UPDATE operation, which only applies while the row is still at version 7
         when(updateStatement.executeUpdate()).thenReturn(1);
-        when(updateStatement.getGeneratedKeys()).thenReturn(updateGeneratedKeys);
-        when(updateGeneratedKeys.next()).thenReturn(true);
-        when(updateGeneratedKeys.getInt(1)).thenReturn(1);
-
-        // Mock second SELECT operation (getDogById at end of updateDog to return updated record)
-        when(selectStatement2.executeQuery()).thenReturn(selectResultSet2);
-        when(selectResultSet2.next()).thenReturn(true);
-        when(selectResultSet2.getInt("ID")).thenReturn(1);
-        when(selectResultSet2.getString("NAME")).thenReturn("Buddy Updated");
-        when(selectResultSet2.getString("BREED")).thenReturn("Golden Retriever");
-        when(selectResultSet2.getString("SUPPLIER")).thenReturn("Test Supplier");
-        when(selectResultSet2.getInt("BADGEID")).thenReturn(12345);
-        when(selectResultSet2.getString("GENDER")).thenReturn("Male");
-        when(selectResultSet2.getDate("BIRTHDATE")).thenReturn(Date.valueOf(LocalDate.of(2020, 1, 1)));
-        when(selectResultSet2.getDate("DATEACQUIRED")).thenReturn(Date.valueOf(LocalDate.of(2021, 1, 1)));
-        when(selectResultSet2.getString("STATUS")).thenReturn("In Training");
-        when(selectResultSet2.getDate("LEAVINGDATE")).thenReturn(null);
-        when(selectResultSet2.getString("LEAVINGREASON")).thenReturn(null);
-        when(selectResultSet2.getString("KENNELINGCHARACTERISTICS")).thenReturn("Friendly");
-        when(selectResultSet2.getDate("DATEDELETED")).thenReturn(null);
 
         // Act
         DogDTO result = dogService.updateDog(dogId, updatedDog);
@@ -314,25 +458,66 @@ public class DogServiceTest {
         assertNotNull(result);
         assertEquals(result.getName(), "Buddy Updated");
         assertEquals(result.getStatus(), "In Training");
+        assertEquals(result.getKennelingCharacteristics(), "Friendly");
+        assertEquals(result.getVersion(), Long.valueOf(8));
 
-        verify(connection, times(2)).prepareStatement(contains("SELECT * FROM DOGS WHERE ID = ?"));
-        verify(connection, times(1)).prepareStatement(contains("UPDATE DOGS SET"), eq(Statement.RETURN_GENERATED_KEYS));
+        // One read for validation, then the update; the result is not read back
+        verify(connection, times(1)).prepareStatement(contains("SELECT * FROM DOGS WHERE ID = ?"));
+        verify(connection, times(1)).prepareStatement(contains("version = version + 1, lastModified = ? WHERE ID = ? AND version = ?"));
+        // Every column is bound, null for those that keep their value, so the statement text never changes
+        verify(updateStatement, times(1)).setString(1, "Buddy Updated");
+        verify(updateStatement, times(1)).setNull(3, Types.VARCHAR);
+        verify(updateStatement, times(1)).setString(8, "In Training");
+        verify(updateStatement, times(1)).setTimestamp(eq(12), eq(result.getLastModified()));
+        verify(updateStatement, times(1)).setLong(14, 7L);
         verify(updateStatement, times(1)).executeUpdate();
     }
 
+    @Test
+    public void testUpdateDogRejectsStaleVersion() throws SQLException {
+        // Arrange
+        DogDTO changes = new DogDTO();
+        changes.setStatus("retired");
+        PreparedStatement updateStatement = mock(PreparedStatement.class);
+        when(connection.prepareStatement(contains("UPDATE DOGS SET"))).thenReturn(updateStatement);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getInt("ID")).thenReturn(1);
+        when(resultSet.getDate("DATEACQUIRED")).thenReturn(Date.valueOf(LocalDate.of(2021, 1, 1)));
+        when(resultSet.getLong("VERSION")).thenReturn(4L);
+
+        // Act & Assert
+        expectThrows(DogPreconditionFailedException.class, () -> dogService.updateDog(1, changes, 3L));
+        verify(updateStatement, never()).executeUpdate();
+        verify(eventPublisher, never()).publishEvent(any(Object.class));
+    }
+
     @Test
     public void testMarkDogAsDeleted() throws SQLException {
         // Arrange
         int dogId = 1;
-        when(preparedStatement.executeUpdate()).thenReturn(1);
+        Date today = Date.valueOf(LocalDate.now());
+        when(resultSet.next()).thenReturn(true, false); // The deleted row
+        when(resultSet.getInt("ID")).thenReturn(dogId);
+        when(resultSet.getDate("DATEDELETED")).thenReturn(today);
+        when(resultSet.getLong("VERSION")).thenReturn(3L);
 
         // Act
         dogService.markDogAsDeleted(dogId);
 
         // Assert
-        verify(connection, times(1)).prepareStatement(contains("UPDATE DOGS SET dateDeleted = ? WHERE ID = ?"));
+        verify(connection, times(1)).prepareStatement(contains("FINAL TABLE (UPDATE DOGS SET dateDeleted = ?, version = version + 1, lastModified = ? WHERE ID = ?)"));
         verify(preparedStatement, times(1)).setDate(eq(1), any(Date.class));
-        verify(preparedStatement, times(1)).setInt(2, dogId);
-        verify(preparedStatement, times(1)).executeUpdate();
+        verify(preparedStatement, times(1)).setTimestamp(eq(2), any(Timestamp.class));
+        verify(preparedStatement, times(1)).setInt(3, dogId);
+        verify(preparedStatement, times(1)).executeQuery();
+
+        // The event carries the deleted row
+        ArgumentCaptor<DogChangedEvent> event = ArgumentCaptor.forClass(DogChangedEvent.class);
+        verify(eventPublisher, times(1)).publishEvent(event.capture());
+        assertEquals(event.getValue().getOperation(), DogChangedEvent.Operation.DELETED);
+        assertEquals(event.getValue().getId(), 1L);
+        assertEquals(event.getValue().getDog().getDateDeleted(), today);
+        assertEquals(event.getValue().getDog().getVersion(), Long.valueOf(3));
     }
 }
@@ -0,0 +1,182 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs DogStatementCache against a real in-memory H2 database behind a one-connection pool, so that every
+ * borrow gets the same physical connection.
+ */
+public class DogStatementCacheTest {
+
+	private static final String BY_ID = "SELECT NAME FROM DOGS WHERE ID = ?";
+	private static final String BY_BADGE = "SELECT NAME FROM DOGS WHERE BADGEID = ?";
+	private static final String BY_STATUS = "SELECT NAME FROM DOGS WHERE STATUS = ?";
+
+	private HikariDataSource dataSource;
+	private MeterRegistry registry;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		dataSource = TestDatabase.create("jdbc:h2:mem:statement-cache;DB_CLOSE_DELAY=-1", 1);
+		TestDatabase.seed(dataSource, 1, 10);
+		registry = new SimpleMeterRegistry();
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void tearDown() throws Exception {
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void testReusesStatementsAcrossBorrowsAndClearsTheirParameters() throws Exception {
+		// Arrange
+		DogStatementCache cache = cache(8);
+
+		// Act
+		assertEquals(name(cache, BY_ID, 3), "Dog 3");
+		assertEquals(name(cache, BY_ID, 4), "Dog 4");
+
+		// Assert - the second borrow reused the statement, which came back without the earlier parameter
+		assertEquals(count("dogs.sql.statement.cache", "hit"), 1.0);
+		assertEquals(count("dogs.sql.statement.cache", "miss"), 1.0);
+		assertEquals(registry.get("dogs.sql.statement.cache.hit.ratio").gauge().value(), 0.5);
+		try (Connection conn = dataSource.getConnection();
+		     PreparedStatement statement = cache.prepare(conn, BY_ID)) {
+			assertThrows(SQLException.class, statement::executeQuery);
+		}
+	}
+
+	@Test
+	public void testEvictsTheLeastRecentlyUsedStatement() throws Exception {
+		// Arrange
+		DogStatementCache cache = cache(2);
+
+		// Act - BY_ID is used again before BY_STATUS is added, so BY_BADGE is the one evicted
+		name(cache, BY_ID, 1);
+		name(cache, BY_BADGE, 1);
+		name(cache, BY_ID, 1);
+		try (Connection conn = dataSource.getConnection();
+		     PreparedStatement statement = cache.prepare(conn, BY_STATUS)) {
+			statement.setString(1, "retired");
+			statement.executeQuery().close();
+		}
+		name(cache, BY_ID, 1);
+		name(cache, BY_BADGE, 1);
+
+		// Assert
+		assertEquals(count("dogs.sql.statement.cache", "hit"), 2.0);
+		assertEquals(count("dogs.sql.statement.cache", "miss"), 4.0);
+		assertEquals(registry.get("dogs.sql.statement.cache.evictions").functionCounter().count(), 2.0);
+	}
+
+	@Test
+	public void testStatementInUseIsNotSharedAndClosedViewIsUnusable() throws Exception {
+		// Arrange
+		DogStatementCache cache = cache(8);
+
+		try (Connection conn = dataSource.getConnection()) {
+			PreparedStatement outer = cache.prepare(conn, BY_ID);
+			outer.setInt(1, 1);
+
+			// Act - the same SQL again while the first is still open
+			PreparedStatement inner = cache.prepare(conn, BY_ID);
+			inner.setInt(1, 2);
+
+			// Assert
+			assertNotSame(inner, outer);
+			assertEquals(name(outer), "Dog 1");
+			assertEquals(name(inner), "Dog 2");
+			inner.close();
+			outer.close();
+			assertTrue(outer.isClosed());
+			assertThrows(SQLException.class, () -> outer.setInt(1, 3));
+		}
+	}
+
+	@Test
+	public void testSizeZeroPreparesOnTheConnection() throws Exception {
+		// Arrange
+		DogStatementCache cache = cache(0);
+
+		// Act
+		assertEquals(name(cache, BY_ID, 5), "Dog 5");
+
+		// Assert
+		assertEquals(count("dogs.sql.statement.cache", "miss"), 0.0);
+		assertTrue(Double.isNaN(cache.hitRatio()));
+	}
+
+	@Test
+	public void testUpdatesOfDifferentFieldsShareOneStatement() {
+		// Arrange
+		DogStatementCache cache = cache(8);
+		DogService dogService = TestDatabase.dogService(dataSource, new DogSearchIndex(dataSource), new DogRoster(dataSource),
+				cache, new SimpleMeterRegistry());
+		DogDTO status = new DogDTO();
+		status.setStatus("retired");
+		DogDTO nameAndBreed = new DogDTO();
+		nameAndBreed.setName("Renamed");
+		nameAndBreed.setBreed("Beagle");
+		dogService.updateDog(1, status);
+		double misses = count("dogs.sql.statement.cache", "miss");
+
+		// Act
+		dogService.updateDog(2, nameAndBreed);
+		dogService.updateDog(3, status);
+		nameAndBreed.setId(4L);
+		status.setId(5L);
+		dogService.updateDogs(Arrays.asList(nameAndBreed, status));
+
+		// Assert - only the batch's read of the records, prepared for the first time, missed: its UPDATE is the
+		// conditional one the single updates use
+		assertEquals(count("dogs.sql.statement.cache", "miss"), misses + 1);
+		DogDTO updated = dogService.getDogById(2);
+		assertEquals(updated.getName(), "Renamed");
+		assertEquals(updated.getBreed(), "Beagle");
+		assertEquals(updated.getStatus(), "retired");
+		assertEquals(dogService.getDogById(5).getStatus(), "retired");
+		assertEquals(dogService.getDogById(5).getName(), "Dog 5");
+	}
+
+	private DogStatementCache cache(int maximumSize) {
+		DogStatementCache cache = new DogStatementCache(maximumSize);
+		cache.bindTo(registry);
+		return cache;
+	}
+
+	private double count(String name, String result) {
+		return registry.get(name).tag("result", result).functionCounter().count();
+	}
+
+	private String name(DogStatementCache cache, String sql, int value) throws SQLException {
+		try (Connection conn = dataSource.getConnection();
+		     PreparedStatement statement = cache.prepare(conn, sql)) {
+			statement.setInt(1, value);
+			return name(statement);
+		}
+	}
+
+	private static String name(PreparedStatement statement) throws SQLException {
+		try (ResultSet rs = statement.executeQuery()) {
+			return rs.next() ? rs.getString(1) : null;
+		}
+	}
+}
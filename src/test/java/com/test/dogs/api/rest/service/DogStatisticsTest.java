@@ -0,0 +1,138 @@
+package com.test.dogs.api.rest.service;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogStats;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+import static org.testng.Assert.*;
+
+/**
+ * Runs DogStatistics against a real in-memory H2 database, with the writes made through DogService.
+ */
+public class DogStatisticsTest {
+
+	private HikariDataSource dataSource;
+	private DogStatistics statistics;
+	private DogService dogService;
+
+	@BeforeMethod
+	public void setUp() throws Exception {
+		dataSource = TestDatabase.create("jdbc:h2:mem:statistics;DB_CLOSE_DELAY=-1");
+		TestDatabase.seed(dataSource, 1, 20);
+
+		statistics = new DogStatistics(dataSource);
+		dogService = new DogService(dataSource, new DogSearchIndex(dataSource), new DogRoster(dataSource),
+				new DogCache(100, Duration.ofMinutes(5)), new DogStatementCache(64), event -> {
+					if (event instanceof DogChangedEvent changed) {
+						statistics.onDogChanged(changed);
+					} else if (event instanceof DogBatchChangedEvent batch) {
+						statistics.onDogsChanged(batch);
+					}
+				}, new DogMetrics(new SimpleMeterRegistry()));
+		statistics.rebuild();
+	}
+
+	@AfterMethod(alwaysRun = true)
+	public void tearDown() throws Exception {
+		try (var conn = dataSource.getConnection(); var statement = conn.createStatement()) {
+			statement.execute("DROP ALL OBJECTS");
+		}
+		dataSource.close();
+	}
+
+	@Test
+	public void testRebuildCountsTheTable() {
+		// Act
+		DogStats stats = statistics.get();
+
+		// Assert - see TestDatabase.seed for how the values cycle
+		assertEquals(stats.getActive(), 20);
+		assertEquals(stats.getDeleted(), 0);
+		assertEquals(stats.getByStatus().get("in training"), Long.valueOf(5));
+		assertEquals(stats.getByBreed().get("Labrador"), Long.valueOf(4));
+		assertEquals(stats.getBySupplier().size(), 20);
+		assertTrue(stats.getByLeavingReason().isEmpty());
+		assertEquals(stats.getIntakeByMonth().values().stream().mapToLong(Long::longValue).sum(), 20);
+
+		// Shared until the next write
+		assertSame(statistics.get(), stats);
+	}
+
+	@Test
+	public void testWritesKeepTheCountsEqualToARecount() throws Exception {
+		// Act
+		dogService.saveNewDog(newDog("Nova", 100));
+		DogDTO changes = new DogDTO();
+		changes.setStatus("left");
+		changes.setLeavingDate(Date.valueOf(LocalDate.of(2025, 3, 15)));
+		changes.setLeavingReason("transferred");
+		dogService.updateDog(3, changes);
+		changes.setId(4L);
+		dogService.updateDogs(Arrays.asList(changes));
+		dogService.markDogAsDeleted(5);
+		dogService.markDogsAsDeleted(Arrays.asList(6L, 7L));
+
+		// Assert
+		DogStats stats = statistics.get();
+		assertEquals(stats.getActive(), 18);
+		assertEquals(stats.getDeleted(), 3);
+		assertEquals(stats.getByLeavingReason().get("transferred"), Long.valueOf(2));
+		assertEquals(stats.getLeavingByMonth().get("2025-03"), Long.valueOf(2));
+		// The new dog is stored with an empty leaving reason, which is not counted
+		assertFalse(stats.getByLeavingReason().containsKey(""));
+
+		DogStatistics recount = new DogStatistics(dataSource);
+		recount.rebuild();
+		assertSameCounts(stats, recount.get());
+	}
+
+	@Test
+	public void testOlderVersionDoesNotReplaceNewerCounts() {
+		// Arrange
+		DogDTO stale = dogService.getDogById(2);
+		DogDTO changes = new DogDTO();
+		changes.setStatus("in service");
+		dogService.updateDog(2, changes);
+
+		// Act - the event of an earlier write arrives after the later one
+		statistics.onDogChanged(new DogChangedEvent(DogChangedEvent.Operation.UPDATED, 2, stale));
+
+		// Assert - dog 2 was one of the five "retired" dogs, see TestDatabase.seed
+		assertEquals(statistics.get().getByStatus().get("retired"), Long.valueOf(4));
+		assertEquals(statistics.get().getByStatus().get("in service"), Long.valueOf(6));
+	}
+
+	private static void assertSameCounts(DogStats actual, DogStats expected) {
+		assertEquals(actual.getActive(), expected.getActive());
+		assertEquals(actual.getDeleted(), expected.getDeleted());
+		assertEquals(actual.getByStatus(), expected.getByStatus());
+		assertEquals(actual.getByBreed(), expected.getByBreed());
+		assertEquals(actual.getBySupplier(), expected.getBySupplier());
+		assertEquals(actual.getByLeavingReason(), expected.getByLeavingReason());
+		assertEquals(actual.getIntakeByMonth(), expected.getIntakeByMonth());
+		assertEquals(actual.getLeavingByMonth(), expected.getLeavingByMonth());
+	}
+
+	private static DogDTO newDog(String name, int badgeId) {
+		DogDTO dog = new DogDTO();
+		dog.setName(name);
+		dog.setBreed("Labrador");
+		dog.setSupplier("Supplier");
+		dog.setBadgeID(badgeId);
+		dog.setGender("Female");
+		dog.setBirthDate(Date.valueOf(LocalDate.of(2022, 1, 1)));
+		dog.setDateAcquired(Date.valueOf(LocalDate.of(2023, 1, 1)));
+		dog.setStatus("in training");
+		return dog;
+	}
+}
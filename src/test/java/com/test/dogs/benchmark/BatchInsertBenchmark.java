@@ -0,0 +1,131 @@
+package com.test.dogs.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.support.TestApplication;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Compares creating records one at a time against one batch, both over HTTP (a POST / per dog against
+ * one POST /batch) and directly on DogService (saveNewDog per dog against one saveNewDogs call).
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.test.dogs.benchmark.BatchInsertBenchmark
+ *
+ * Optional system properties: bench.batchSize, bench.rounds.
+ */
+public class BatchInsertBenchmark {
+
+	private static int nextBadge = 1;
+
+	public static void main(String[] args) throws Exception {
+		int batchSize = Integer.getInteger("bench.batchSize", 1000);
+		int rounds = Integer.getInteger("bench.rounds", 5);
+
+		httpRounds(batchSize, rounds);
+		serviceRounds(batchSize, rounds);
+		System.exit(0);
+	}
+
+	private static void httpRounds(int batchSize, int rounds) throws Exception {
+		try (ConfigurableApplicationContext context = TestApplication.start("batch-bench")) {
+			String baseUrl = TestApplication.baseUrl(context);
+			ObjectMapper objectMapper = context.getBean(ObjectMapper.class);
+			HttpClient client = HttpClient.newHttpClient();
+
+			// The first round of each mode is a warm-up and is not reported
+			for (int round = 0; round <= rounds; round++) {
+				List<DogDTO> singles = newDogs(batchSize);
+				long start = System.nanoTime();
+				for (DogDTO dog : singles) {
+					send(client, baseUrl + "/", objectMapper.writeValueAsString(dog));
+				}
+				double singleMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+				List<DogDTO> batch = newDogs(batchSize);
+				start = System.nanoTime();
+				send(client, baseUrl + "/batch", objectMapper.writeValueAsString(batch));
+				double batchMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+				report("HTTP", round, batchSize, singleMillis, batchMillis);
+			}
+		}
+	}
+
+	private static void serviceRounds(int batchSize, int rounds) throws Exception {
+		Path directory = Files.createTempDirectory("dogs-batch");
+		try (HikariDataSource dataSource = TestDatabase.create("jdbc:h2:file:" + directory.resolve("batch"))) {
+			DogService dogService = TestDatabase.dogService(dataSource);
+
+			for (int round = 0; round <= rounds; round++) {
+				List<DogDTO> singles = newDogs(batchSize);
+				long start = System.nanoTime();
+				for (DogDTO dog : singles) {
+					dogService.saveNewDog(dog);
+				}
+				double singleMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+				List<DogDTO> batch = newDogs(batchSize);
+				start = System.nanoTime();
+				dogService.saveNewDogs(batch);
+				double batchMillis = (System.nanoTime() - start) / 1_000_000.0;
+
+				report("DogService", round, batchSize, singleMillis, batchMillis);
+			}
+		} finally {
+			try (Stream<Path> files = Files.walk(directory)) {
+				files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	private static void send(HttpClient client, String url, String json) throws Exception {
+		HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+				.header("Content-Type", "application/json")
+				.POST(HttpRequest.BodyPublishers.ofString(json))
+				.build();
+		HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+		if (response.statusCode() >= 300 && response.statusCode() != 207) {
+			throw new IllegalStateException("POST " + url + " failed: " + response.body());
+		}
+	}
+
+	private static void report(String label, int round, int batchSize, double singleMillis, double batchMillis) {
+		if (round > 0) {
+			System.out.printf("%-10s round %d: %d single creates %8.1f ms (%7.0f/s), one batch %8.1f ms (%7.0f/s), %.1fx%n",
+					label, round, batchSize, singleMillis, batchSize * 1000 / singleMillis,
+					batchMillis, batchSize * 1000 / batchMillis, singleMillis / batchMillis);
+		}
+	}
+
+	private static List<DogDTO> newDogs(int count) {
+		List<DogDTO> dogs = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			DogDTO dog = new DogDTO();
+			dog.setName("Intake " + nextBadge);
+			dog.setBreed("Labrador");
+			dog.setSupplier("New Supplier");
+			dog.setBadgeID(nextBadge++);
+			dog.setStatus("in training");
+			dog.setDateAcquired(Date.valueOf(LocalDate.of(2025, 1, 1)));
+			dogs.add(dog);
+		}
+		return dogs;
+	}
+}
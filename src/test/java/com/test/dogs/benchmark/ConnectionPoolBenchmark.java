@@ -0,0 +1,90 @@
+package com.test.dogs.benchmark;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Compares DogService read throughput when every call opens a new H2 connection through
+ * DriverManager (the previous behaviour) against the pooled HikariCP DataSource.
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.test.dogs.benchmark.ConnectionPoolBenchmark
+ *
+ * Optional system properties: bench.url, bench.user, bench.password, bench.threads, bench.seconds.
+ */
+public class ConnectionPoolBenchmark {
+
+	public static void main(String[] args) throws Exception {
+		String url = System.getProperty("bench.url", "jdbc:h2:file:./data/mydb");
+		String user = System.getProperty("bench.user", "sa");
+		String password = System.getProperty("bench.password", "password");
+		int threads = Integer.getInteger("bench.threads", 8);
+		int seconds = Integer.getInteger("bench.seconds", 10);
+
+		DriverManagerDataSource unpooled = new DriverManagerDataSource(url, user, password);
+		double before = run("DriverManager per call", unpooled, threads, seconds);
+
+		HikariConfig config = new HikariConfig();
+		config.setJdbcUrl(url);
+		config.setUsername(user);
+		config.setPassword(password);
+		config.setMaximumPoolSize(threads);
+		config.setMinimumIdle(threads);
+		double after;
+		try (HikariDataSource pooled = new HikariDataSource(config)) {
+			after = run("HikariCP pool", pooled, threads, seconds);
+		}
+
+		System.out.printf("Speed-up: %.1fx%n", after / before);
+	}
+
+	private static double run(String label, DataSource dataSource, int threads, int seconds) throws InterruptedException {
+		DogService dogService = TestDatabase.dogService(dataSource);
+		List<DogDTO> dogs = dogService.getAllDogsList(null);
+		int[] ids = dogs.stream().mapToInt(dog -> dog.getId().intValue()).toArray();
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		AtomicBoolean running = new AtomicBoolean(true);
+		LongAdder operations = new LongAdder();
+		CountDownLatch done = new CountDownLatch(threads);
+
+		for (int t = 0; t < threads; t++) {
+			executor.execute(() -> {
+				int i = 0;
+				while (running.get()) {
+					// Alternate between the list query and the single-record lookup
+					if (ids.length == 0 || i % 2 == 0) {
+						dogService.getAllDogsList(null);
+					} else {
+						dogService.getDogById(ids[i % ids.length]);
+					}
+					operations.increment();
+					i++;
+				}
+				done.countDown();
+			});
+		}
+
+		TimeUnit.SECONDS.sleep(seconds);
+		running.set(false);
+		done.await();
+		executor.shutdown();
+
+		double throughput = operations.sum() / (double) seconds;
+		System.out.printf("%-24s %10.0f ops/s (%d threads, %d rows)%n", label, throughput, threads, ids.length);
+		return throughput;
+	}
+}
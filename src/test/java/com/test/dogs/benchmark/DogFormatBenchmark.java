@@ -0,0 +1,88 @@
+package com.test.dogs.benchmark;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.google.protobuf.CodedOutputStream;
+import com.test.dogs.api.rest.endpoint.DogProtobufHttpMessageConverter;
+import com.test.dogs.api.rest.model.DogDTO;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark comparing the response formats of the listings (JSON, CBOR, Smile and Protobuf) on the same list
+ * of DogDTOs: the encode time is measured, and the payload size of each format is printed once per trial.
+ * The Jackson formats use the application's settings (dates as ISO strings), as DogMessageConverters sets them up.
+ *
+ * Run with (results are written to target/jmh-result.json):
+ * mvn -P benchmark test-compile exec:exec -Djmh.include=DogFormatBenchmark -Djmh.rows=10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DogFormatBenchmark {
+
+	@Param({"10000"})
+	public int rows;
+
+	@Param({"json", "cbor", "smile", "protobuf"})
+	public String format;
+
+	private ObjectWriter writer;
+	private List<DogDTO> dogs;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		dogs = new ArrayList<>(rows);
+		for (int i = 1; i <= rows; i++) {
+			dogs.add(DogJsonBenchmark.dog(i));
+		}
+
+		JsonFactory factory = switch (format) {
+			case "cbor" -> new CBORFactory();
+			case "smile" -> new SmileFactory();
+			default -> null;
+		};
+		Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+				.featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+		if (factory != null) {
+			builder.factory(factory);
+		}
+		writer = builder.build().writerFor(List.class);
+
+		System.out.println(format + ": " + rows + " dogs = " + encode().length + " bytes");
+	}
+
+	@Benchmark
+	public byte[] encode() throws Exception {
+		if (!format.equals("protobuf")) {
+			return writer.writeValueAsBytes(dogs);
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		CodedOutputStream output = CodedOutputStream.newInstance(bytes);
+		DogProtobufHttpMessageConverter.write(dogs, output);
+		output.flush();
+		return bytes.toByteArray();
+	}
+}
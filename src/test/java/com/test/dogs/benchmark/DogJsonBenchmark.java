@@ -0,0 +1,90 @@
+package com.test.dogs.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogFields;
+import com.test.dogs.api.rest.model.DogView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for writing a list of DogDTOs as a JSON array, the body of GET / and GET /dogs,
+ * with an ObjectMapper built the way Spring Boot builds the application's, in full and as a four-field
+ * sparse fieldset.
+ *
+ * Run with (results are written to target/jmh-result.json):
+ * mvn -P benchmark test-compile exec:exec -Djmh.include=DogJsonBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DogJsonBenchmark {
+
+	@Param({"1000", "10000", "100000"})
+	public int rows;
+
+	private ObjectWriter writer;
+	private List<DogDTO> dogs;
+	private List<DogView> views;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		writer = Jackson2ObjectMapperBuilder.json().build().writerFor(List.class);
+		dogs = new ArrayList<>(rows);
+		for (int i = 1; i <= rows; i++) {
+			dogs.add(dog(i));
+		}
+		views = DogFields.parse("id,name,badgeID,status").view(dogs);
+	}
+
+	@Benchmark
+	public byte[] writeDogList() throws Exception {
+		return writer.writeValueAsBytes(dogs);
+	}
+
+	@Benchmark
+	public byte[] writeDogListProjected() throws Exception {
+		return writer.writeValueAsBytes(views);
+	}
+
+	/**
+	 * A fully populated record, shaped like the ones TestDatabase.seed generates.
+	 */
+	static DogDTO dog(int i) {
+		DogDTO dog = new DogDTO();
+		dog.setId((long) i);
+		dog.setName("Dog " + i);
+		dog.setBreed("Labrador");
+		dog.setSupplier("Supplier " + i % 50);
+		dog.setBadgeID(i);
+		dog.setGender(i % 2 == 0 ? "Male" : "Female");
+		dog.setBirthDate(Date.valueOf(LocalDate.of(2020, 1, 1).plusDays(i % 1000)));
+		dog.setDateAcquired(Date.valueOf(LocalDate.of(2021, 1, 1).plusDays(i % 1000)));
+		dog.setStatus("in service");
+		dog.setKennelingCharacteristics("Kennel notes for dog " + i);
+		dog.setVersion(0L);
+		dog.setLastModified(new Timestamp(1_735_689_600_000L + i));
+		return dog;
+	}
+}
@@ -0,0 +1,355 @@
+package com.test.dogs.benchmark;
+
+import com.test.dogs.api.rest.service.DogSearchIndex;
+import com.test.dogs.support.TestApplication;
+import com.test.dogs.support.TestDatabase;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Drives a configurable mix of REST calls against the full application, started on a random port with a seeded
+ * in-memory database, and reports throughput and p50/p99/p99.9 latency per endpoint from HDR histograms.
+ *
+ * With bench.rate set, requests are sent on a fixed schedule (open model) and latency is measured from the time
+ * each request was due, so a stalled server is not hidden by the load generator waiting for it. Without it, every
+ * worker sends its next request as soon as the previous one returns (closed model).
+ *
+ * Run with:
+ * mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.test.dogs.benchmark.DogLoadGenerator
+ *
+ * Optional system properties:
+ * bench.mix (weights per endpoint, default list:10,get:40,filter:15,create:15,update:15,delete:5),
+ * bench.concurrency, bench.rate (requests per second, 0 for closed model), bench.seconds, bench.warmupSeconds,
+ * bench.seed (dogs in the database before the run), bench.budget (e.g. get:p99=20,list:p999=250 in milliseconds;
+ * the process exits with status 1 if any budget is exceeded), bench.profiles (Spring profiles to start the
+ * application with: virtual-threads to serve the requests on virtual threads, which needs Java 21 or later,
+ * or reactive to serve them from the WebFlux/R2DBC stack).
+ */
+public class DogLoadGenerator {
+
+	private enum Operation {
+		LIST("GET /"),
+		GET("GET /{id}"),
+		FILTER("GET /?filter="),
+		CREATE("POST /"),
+		UPDATE("PUT /{id}"),
+		DELETE("DELETE /{id}");
+
+		private final String label;
+
+		Operation(String label) {
+			this.label = label;
+		}
+
+		static Operation fromKey(String key) {
+			return valueOf(key.trim().toUpperCase());
+		}
+	}
+
+	private static final String[] STATUSES = {"in training", "in service"};
+
+	private final String baseUrl;
+	private final HttpClient client = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+	private final Operation[] operations;
+	private final int[] cumulativeWeights;
+
+	// Reads and updates use the lower half of the seeded IDs, deletes work down from the top
+	private final int readableIds;
+	private final AtomicInteger nextDeletion;
+	private final Queue<Long> createdIds = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger nextBadge;
+
+	private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+	private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+	private volatile boolean recording;
+
+	private DogLoadGenerator(String baseUrl, Map<Operation, Integer> mix, int seeded) {
+		this.baseUrl = baseUrl;
+		this.operations = mix.keySet().toArray(new Operation[0]);
+		this.cumulativeWeights = new int[operations.length];
+		int total = 0;
+		for (int i = 0; i < operations.length; i++) {
+			total += mix.get(operations[i]);
+			cumulativeWeights[i] = total;
+		}
+
+		this.readableIds = Math.max(1, seeded / 2);
+		this.nextDeletion = new AtomicInteger(seeded);
+		this.nextBadge = new AtomicInteger(seeded + 1);
+
+		for (Operation operation : Operation.values()) {
+			// Values in microseconds, resized as needed
+			histograms.put(operation, new ConcurrentHistogram(3));
+			errors.put(operation, new LongAdder());
+		}
+	}
+
+	public static void main(String[] args) throws Exception {
+		Map<Operation, Integer> mix = parseMix(System.getProperty("bench.mix",
+				"list:10,get:40,filter:15,create:15,update:15,delete:5"));
+		int concurrency = Integer.getInteger("bench.concurrency", 16);
+		int rate = Integer.getInteger("bench.rate", 0);
+		int seconds = Integer.getInteger("bench.seconds", 30);
+		int warmupSeconds = Integer.getInteger("bench.warmupSeconds", 10);
+		int seed = Integer.getInteger("bench.seed", 1000);
+		Map<Operation, Map<String, Double>> budgets = parseBudgets(System.getProperty("bench.budget", ""));
+		String profiles = System.getProperty("bench.profiles", "");
+
+		List<String> violations;
+		try (ConfigurableApplicationContext context = profiles.isEmpty()
+				? TestApplication.start("load-test")
+				: TestApplication.start("load-test", "--spring.profiles.active=" + profiles)) {
+			// Rows seeded behind the service's back, so the search index is reloaded afterwards
+			TestDatabase.seed(context.getBean(DataSource.class), 1, seed);
+			context.getBean(DogSearchIndex.class).rebuild();
+
+			DogLoadGenerator generator = new DogLoadGenerator(TestApplication.baseUrl(context), mix, seed);
+			System.out.printf("%d workers, %s, %d dogs seeded, %ds warm-up, %ds measured, profiles [%s] on Java %s%n",
+					concurrency, rate > 0 ? rate + " requests/s" : "closed loop", seed, warmupSeconds, seconds,
+					profiles, Runtime.version().feature());
+
+			generator.run(concurrency, rate, warmupSeconds, false);
+			generator.run(concurrency, rate, seconds, true);
+			generator.report(seconds);
+			violations = generator.checkBudgets(budgets);
+		}
+
+		violations.forEach(violation -> System.out.println("BUDGET EXCEEDED: " + violation));
+		System.exit(violations.isEmpty() ? 0 : 1);
+	}
+
+	private void run(int concurrency, int rate, int seconds, boolean record) throws Exception {
+		recording = record;
+		ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+		long start = System.nanoTime();
+		long end = start + TimeUnit.SECONDS.toNanos(seconds);
+		// Each worker takes an equal share of the target rate
+		long interval = rate > 0 ? TimeUnit.SECONDS.toNanos(concurrency) / rate : 0;
+
+		List<Future<?>> workers = new ArrayList<>();
+		for (int worker = 0; worker < concurrency; worker++) {
+			// Stagger the schedules so the workers do not fire in lockstep
+			long offset = interval * worker / concurrency;
+			workers.add(executor.submit(() -> {
+				long due = start + offset;
+				while (true) {
+					long now = System.nanoTime();
+					if (interval > 0) {
+						if (due >= end) {
+							break;
+						}
+						if (due > now) {
+							LockSupport.parkNanos(due - now);
+						}
+					} else {
+						if (now >= end) {
+							break;
+						}
+						due = now;
+					}
+
+					send(nextOperation(), due);
+					due += interval;
+				}
+				return null;
+			}));
+		}
+
+		for (Future<?> worker : workers) {
+			worker.get();
+		}
+		executor.shutdown();
+	}
+
+	private Operation nextOperation() {
+		int pick = ThreadLocalRandom.current().nextInt(cumulativeWeights[cumulativeWeights.length - 1]);
+		for (int i = 0; i < cumulativeWeights.length; i++) {
+			if (pick < cumulativeWeights[i]) {
+				return operations[i];
+			}
+		}
+		return operations[operations.length - 1];
+	}
+
+	/**
+	 * Sends one request and records its latency, measured from the time it was due.
+	 */
+	private void send(Operation operation, long due) {
+		boolean ok;
+		try {
+			HttpResponse<String> response = client.send(request(operation), HttpResponse.BodyHandlers.ofString());
+			ok = response.statusCode() < 300;
+			if (ok && operation == Operation.CREATE) {
+				createdIds.add(createdId(response.body()));
+			}
+		} catch (Exception e) {
+			ok = false;
+		}
+
+		if (recording) {
+			histograms.get(operation).recordValue(Math.max(0, (System.nanoTime() - due) / 1000));
+			if (!ok) {
+				errors.get(operation).increment();
+			}
+		}
+	}
+
+	private HttpRequest request(Operation operation) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		int id = random.nextInt(readableIds) + 1;
+
+		switch (operation) {
+			case LIST:
+				return get("/");
+			case GET:
+				return get("/" + id);
+			case FILTER:
+				return get("/?filter=Supplier%20" + random.nextInt(50));
+			case CREATE:
+				int badge = nextBadge.getAndIncrement();
+				return json("/", "POST", "{\"name\": \"Load " + badge + "\", \"breed\": \"Labrador\", \"badgeID\": " + badge +
+						", \"status\": \"in training\", \"dateAcquired\": \"2025-01-01\"}");
+			case UPDATE:
+				return json("/" + id, "PUT", "{\"status\": \"" + STATUSES[random.nextInt(STATUSES.length)] + "\"}");
+			case DELETE:
+				Long created = createdIds.poll();
+				long target = created != null ? created : nextDeletion.getAndDecrement();
+				return HttpRequest.newBuilder(URI.create(baseUrl + "/" + target)).DELETE().build();
+			default:
+				throw new IllegalArgumentException("Unknown operation " + operation);
+		}
+	}
+
+	private HttpRequest get(String path) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + path)).GET().build();
+	}
+
+	private HttpRequest json(String path, String method, String body) {
+		return HttpRequest.newBuilder(URI.create(baseUrl + path))
+				.header("Content-Type", "application/json")
+				.method(method, HttpRequest.BodyPublishers.ofString(body))
+				.build();
+	}
+
+	private static long createdId(String body) {
+		int start = body.indexOf("\"id\":") + 5;
+		int end = start;
+		while (end < body.length() && Character.isDigit(body.charAt(end))) {
+			end++;
+		}
+		return Long.parseLong(body.substring(start, end));
+	}
+
+	private void report(int seconds) {
+		System.out.printf("%-16s %10s %8s %10s %10s %10s %10s %10s%n",
+				"endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+
+		Histogram all = new Histogram(3);
+		long allErrors = 0;
+		for (Operation operation : operations) {
+			Histogram histogram = histograms.get(operation);
+			long operationErrors = errors.get(operation).sum();
+			print(operation.label, histogram, operationErrors, seconds);
+			all.add(histogram);
+			allErrors += operationErrors;
+		}
+		print("all", all, allErrors, seconds);
+	}
+
+	private static void print(String label, Histogram histogram, long errors, int seconds) {
+		System.out.printf("%-16s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f%n", label, histogram.getTotalCount(), errors,
+				histogram.getTotalCount() / (double) seconds, millis(histogram, 50), millis(histogram, 99),
+				millis(histogram, 99.9), histogram.getMaxValue() / 1000.0);
+	}
+
+	private static double millis(Histogram histogram, double percentile) {
+		return histogram.getValueAtPercentile(percentile) / 1000.0;
+	}
+
+	/**
+	 * @return A description of every budget that the measured latencies exceed.
+	 */
+	private List<String> checkBudgets(Map<Operation, Map<String, Double>> budgets) {
+		List<String> violations = new ArrayList<>();
+		budgets.forEach((operation, limits) -> limits.forEach((percentile, limit) -> {
+			double actual = millis(histograms.get(operation), percentileValue(percentile));
+			if (actual > limit) {
+				violations.add(String.format("%s %s %.2f ms > %.2f ms", operation.label, percentile, actual, limit));
+			}
+		}));
+		return violations;
+	}
+
+	/**
+	 * Maps p50, p99 and p999 (or p99.9) to 50, 99 and 99.9.
+	 */
+	private static double percentileValue(String name) {
+		String digits = name.substring(1);
+		if (digits.contains(".") || digits.length() <= 2) {
+			return Double.parseDouble(digits);
+		}
+		// p999 is 99.9, p9999 is 99.99
+		return Double.parseDouble(digits.substring(0, 2) + "." + digits.substring(2));
+	}
+
+	/**
+	 * Parses "get:40,list:10,..." into weights per operation, leaving out those with weight 0.
+	 */
+	private static Map<Operation, Integer> parseMix(String mix) {
+		Map<Operation, Integer> weights = new EnumMap<>(Operation.class);
+		for (String entry : mix.split(",")) {
+			String[] parts = entry.split(":");
+			int weight = Integer.parseInt(parts[1].trim());
+			if (weight > 0) {
+				weights.put(Operation.fromKey(parts[0]), weight);
+			}
+		}
+		if (weights.isEmpty()) {
+			throw new IllegalArgumentException("bench.mix has no operation with a positive weight: " + mix);
+		}
+		return weights;
+	}
+
+	/**
+	 * Parses "get:p99=20,list:p999=250" into percentile limits in milliseconds per operation.
+	 */
+	private static Map<Operation, Map<String, Double>> parseBudgets(String budget) {
+		Map<Operation, Map<String, Double>> budgets = new EnumMap<>(Operation.class);
+		for (String entry : budget.split(",")) {
+			if (entry.isBlank()) {
+				continue;
+			}
+			String[] parts = entry.split("[:=]");
+			if (parts.length != 3 || !parts[1].trim().startsWith("p")) {
+				throw new IllegalArgumentException("Expected operation:pNN=millis in bench.budget, got " + entry);
+			}
+			budgets.computeIfAbsent(Operation.fromKey(parts[0]), operation -> new LinkedHashMap<>())
+					.put(parts[1].trim(), Double.parseDouble(parts[2].trim()));
+		}
+		return budgets;
+	}
+}
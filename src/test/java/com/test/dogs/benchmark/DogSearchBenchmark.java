@@ -0,0 +1,84 @@
+package com.test.dogs.benchmark;
+
+import com.test.dogs.api.rest.service.DogSearchIndex;
+import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * Compares the filter parameter served by the LIKE '%term%' table scan against the trigram search index,
+ * on seeded file-backed H2 databases of 10k, 100k and 1M rows.
+ *
+ * Run with (the 1M row index needs a larger heap than Maven's default):
+ * MAVEN_OPTS=-Xmx2g mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.test.dogs.benchmark.DogSearchBenchmark
+ *
+ * Optional system properties: bench.sizes (comma separated row counts), bench.iterations.
+ */
+public class DogSearchBenchmark {
+
+	// A rare term (one dog), a medium one (2% of dogs) and a short term that cannot use trigrams
+	private static final String[] TERMS = {"Dog 4242", "Supplier 17", "42"};
+
+	public static void main(String[] args) throws Exception {
+		String[] sizes = System.getProperty("bench.sizes", "10000,100000,1000000").split(",");
+		int iterations = Integer.getInteger("bench.iterations", 20);
+
+		System.out.printf("%-10s %-12s %10s %14s %14s %14s%n",
+				"rows", "term", "matches", "LIKE ms/op", "index ms/op", "lookup ms/op");
+
+		for (String size : sizes) {
+			run(Integer.parseInt(size.trim()), iterations);
+		}
+	}
+
+	private static void run(int rows, int iterations) throws Exception {
+		Path directory = Files.createTempDirectory("dogs-search");
+		try (HikariDataSource dataSource = TestDatabase.create("jdbc:h2:file:" + directory.resolve("search"))) {
+			TestDatabase.seed(dataSource, 1, rows);
+
+			// Same database, one service without a loaded index (SQL LIKE) and one with it
+			DogService likeService = TestDatabase.dogService(dataSource);
+
+			DogSearchIndex searchIndex = new DogSearchIndex(dataSource);
+			long buildStart = System.nanoTime();
+			searchIndex.rebuild();
+			System.out.printf("%-10d index built in %d ms%n", rows, (System.nanoTime() - buildStart) / 1_000_000);
+			DogService indexedService = TestDatabase.dogService(dataSource, searchIndex);
+
+			for (String term : TERMS) {
+				int matches = likeService.getAllDogsList(term).size();
+				if (indexedService.getAllDogsList(term).size() != matches) {
+					throw new IllegalStateException("Index and LIKE results differ for '" + term + "'");
+				}
+
+				double like = millisPerOp(iterations, () -> likeService.getAllDogsList(term));
+				double indexed = millisPerOp(iterations, () -> indexedService.getAllDogsList(term));
+				double lookup = millisPerOp(iterations * 100, () -> searchIndex.search(term));
+
+				System.out.printf("%-10d %-12s %10d %14.3f %14.3f %14.4f%n", rows, term, matches, like, indexed, lookup);
+			}
+		} finally {
+			try (Stream<Path> files = Files.walk(directory)) {
+				files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+			}
+		}
+	}
+
+	private static double millisPerOp(int iterations, Runnable operation) {
+		// Warm up before timing
+		for (int i = 0; i < Math.max(3, iterations / 10); i++) {
+			operation.run();
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < iterations; i++) {
+			operation.run();
+		}
+		return (System.nanoTime() - start) / 1_000_000.0 / iterations;
+	}
+}
@@ -0,0 +1,132 @@
+package com.test.dogs.benchmark;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogFields;
+import com.test.dogs.api.rest.service.DogRoster;
+import com.test.dogs.api.rest.service.DogSearchIndex;
+import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.support.TestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JMH benchmarks for the DogService operations behind the REST endpoints, on seeded file-backed H2 databases.
+ * The service is wired as the application wires it: the search index is loaded and getDogById reads through
+ * the record cache, so the figures are what a request pays once the application is warm.
+ * The reads parameter compares the database reads ("sql") with the in-memory roster the application loads ("roster").
+ *
+ * Run with (results are written to target/jmh-result.json):
+ * mvn -P benchmark test-compile exec:exec -Djmh.include=DogServiceBenchmark -Djmh.rows=1000,10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DogServiceBenchmark {
+
+	// Matches 2% of the seeded dogs, see TestDatabase.seed
+	private static final String FILTER = "Supplier 17";
+
+	// The columns a roster view needs, see getAllDogsListProjected
+	private static final DogFields ROSTER_FIELDS = DogFields.parse("id,name,badgeID,status");
+
+	private static final String[] STATUSES = {"in training", "in service"};
+
+	@Param({"1000", "10000", "100000"})
+	public int rows;
+
+	@Param({"sql", "roster"})
+	public String reads;
+
+	private SeededDatabase database;
+	private DogService dogService;
+
+	private final AtomicInteger nextBadge = new AtomicInteger();
+	private final AtomicInteger nextId = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		database = SeededDatabase.create("service-bench", rows);
+		DogSearchIndex searchIndex = new DogSearchIndex(database.getDataSource());
+		searchIndex.rebuild();
+		DogRoster roster = new DogRoster(database.getDataSource());
+		if (reads.equals("roster")) {
+			roster.rebuild();
+		}
+		dogService = TestDatabase.dogService(database.getDataSource(), searchIndex, roster, new SimpleMeterRegistry());
+		nextBadge.set(rows + 1);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		database.close();
+	}
+
+	@Benchmark
+	public List<DogDTO> getAllDogsList() {
+		return dogService.getAllDogsList(null);
+	}
+
+	@Benchmark
+	public List<DogDTO> getAllDogsListProjected() {
+		return dogService.getAllDogsList(null, ROSTER_FIELDS);
+	}
+
+	@Benchmark
+	public List<DogDTO> getAllDogsListFiltered() {
+		return dogService.getAllDogsList(FILTER);
+	}
+
+	@Benchmark
+	public DogDTO getDogById() {
+		return dogService.getDogById(nextSeededId());
+	}
+
+	@Benchmark
+	public DogDTO saveNewDog() {
+		int badge = nextBadge.getAndIncrement();
+		DogDTO dog = new DogDTO();
+		dog.setName("Intake " + badge);
+		dog.setBreed("Labrador");
+		dog.setSupplier("New Supplier");
+		dog.setBadgeID(badge);
+		dog.setStatus("in training");
+		dog.setDateAcquired(Date.valueOf(LocalDate.of(2025, 1, 1)));
+		return dogService.saveNewDog(dog);
+	}
+
+	@Benchmark
+	public DogDTO updateDog() {
+		int id = nextSeededId();
+		DogDTO changes = new DogDTO();
+		changes.setStatus(STATUSES[id % STATUSES.length]);
+		return dogService.updateDog(id, changes);
+	}
+
+	/**
+	 * Cycles through the seeded IDs 1 .. rows, so that successive calls touch different records.
+	 */
+	private int nextSeededId() {
+		return Math.floorMod(nextId.getAndIncrement(), rows) + 1;
+	}
+}
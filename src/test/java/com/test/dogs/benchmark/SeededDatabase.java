@@ -0,0 +1,47 @@
+package com.test.dogs.benchmark;
+
+import com.test.dogs.support.TestDatabase;
+import com.zaxxer.hikari.HikariDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/**
+ * A file-backed H2 database in a temporary directory, migrated and seeded with generated dogs,
+ * for the JMH benchmarks. Closing it closes the pool and deletes the files.
+ */
+public final class SeededDatabase implements AutoCloseable {
+
+	private final Path directory;
+	private final HikariDataSource dataSource;
+
+	private SeededDatabase(Path directory, HikariDataSource dataSource) {
+		this.directory = directory;
+		this.dataSource = dataSource;
+	}
+
+	/**
+	 * Creates a database with badge IDs 1 .. rows, which are also the record IDs.
+	 */
+	public static SeededDatabase create(String name, int rows) throws Exception {
+		Path directory = Files.createTempDirectory("dogs-" + name);
+		HikariDataSource dataSource = TestDatabase.create("jdbc:h2:file:" + directory.resolve(name));
+		TestDatabase.seed(dataSource, 1, rows);
+		return new SeededDatabase(directory, dataSource);
+	}
+
+	public HikariDataSource getDataSource() {
+		return dataSource;
+	}
+
+	@Override
+	public void close() throws IOException {
+		dataSource.close();
+		try (Stream<Path> files = Files.walk(directory)) {
+			files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		}
+	}
+}
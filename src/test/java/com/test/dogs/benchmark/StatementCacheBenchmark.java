@@ -0,0 +1,151 @@
+package com.test.dogs.benchmark;
+
+import com.test.dogs.api.rest.model.DogDTO;
+import com.test.dogs.api.rest.model.DogPage;
+import com.test.dogs.api.rest.model.DogQuery;
+import com.test.dogs.api.rest.service.DogRoster;
+import com.test.dogs.api.rest.service.DogSearchIndex;
+import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.api.rest.service.DogStatementCache;
+import com.test.dogs.support.TestDatabase;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JMH benchmarks for DogStatementCache: the time DogService spends preparing statements, with the cache off
+ * (statementCache=0, every call parses and plans its SQL again) and on (the default size of 64).
+ *
+ * prepare borrows a connection and prepares one of the statements DogService runs, in turn, without executing it,
+ * so it measures parse and plan time alone. There are more of them than H2 keeps in its own per-session cache
+ * of parsed commands (QUERY_CACHE_SIZE, 8 by default), as there are in the application. The other benchmarks
+ * are whole DogService calls on the database paths: updates that change a different set of fields each time,
+ * structured queries of several shapes, and a listing page. The roster is not loaded, so getDogById (which
+ * updateDog calls first) reads through the record cache.
+ *
+ * Run with (results are written to target/jmh-result.json):
+ * mvn -P benchmark test-compile exec:exec -Djmh.include=StatementCacheBenchmark -Djmh.rows=10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StatementCacheBenchmark {
+
+	// Statements of the shapes DogService prepares, see DogService and DogService.querySql
+	private static final String[] STATEMENTS = {
+			"SELECT * FROM DOGS WHERE ID = ?",
+			"SELECT * FROM DOGS WHERE ID = ANY(?)",
+			"SELECT * FROM DOGS WHERE dateDeleted IS NULL AND ID > ? ORDER BY ID LIMIT ?",
+			"SELECT * FROM DOGS WHERE dateDeleted IS NULL AND (NAME LIKE ? OR BREED LIKE ? OR SUPPLIER LIKE ?) AND ID > ? ORDER BY ID LIMIT ?",
+			"SELECT * FROM DOGS WHERE ID > ? ORDER BY ID LIMIT ?",
+			"SELECT * FROM DOGS WHERE ID = ANY(?) AND dateDeleted IS NULL ORDER BY ID",
+			"SELECT badgeID FROM DOGS WHERE badgeID = ANY(?)",
+			"SELECT * FROM DOGS WHERE dateDeleted IS NULL AND STATUS = ANY(?) ORDER BY ID",
+			"SELECT * FROM DOGS WHERE dateDeleted IS NULL AND BREED = ANY(?) AND STATUS = ANY(?) ORDER BY ID",
+			"SELECT * FROM DOGS WHERE dateDeleted IS NULL AND DATEACQUIRED >= ? AND DATEACQUIRED <= ? ORDER BY DATEACQUIRED DESC, ID DESC LIMIT ?",
+			"SELECT * FROM DOGS WHERE SUPPLIER = ANY(?) AND LEAVINGDATE >= ? ORDER BY NAME, ID",
+			"UPDATE DOGS SET NAME = COALESCE(?, NAME), BREED = COALESCE(?, BREED), SUPPLIER = COALESCE(?, SUPPLIER), "
+					+ "BADGEID = COALESCE(?, BADGEID), GENDER = COALESCE(?, GENDER), BIRTHDATE = COALESCE(?, BIRTHDATE), "
+					+ "DATEACQUIRED = COALESCE(?, DATEACQUIRED), STATUS = COALESCE(?, STATUS), LEAVINGDATE = COALESCE(?, LEAVINGDATE), "
+					+ "LEAVINGREASON = COALESCE(?, LEAVINGREASON), KENNELINGCHARACTERISTICS = COALESCE(?, KENNELINGCHARACTERISTICS), "
+					+ "version = version + 1, lastModified = ? WHERE ID = ? AND version = ?",
+			"UPDATE DOGS SET dateDeleted = ?, version = version + 1, lastModified = ? WHERE ID = ?"};
+
+	private static final String[] STATUSES = {"in training", "in service"};
+
+	private static final List<DogQuery> QUERIES = List.of(
+			DogQuery.parse(Map.of("status", List.of("retired"))),
+			DogQuery.parse(Map.of("breed", List.of("Labrador,Beagle"), "status", List.of("in service"))),
+			DogQuery.parse(Map.of("dateAcquiredFrom", List.of("2024-01-01"), "sort", List.of("dateAcquired"),
+					"order", List.of("desc"), "limit", List.of("20"))),
+			DogQuery.parse(Map.of("supplier", List.of("Supplier 17"), "includeDeleted", List.of("true"), "limit", List.of("20"))));
+
+	@Param({"1000", "10000"})
+	public int rows;
+
+	@Param({"0", "64"})
+	public int statementCache;
+
+	private SeededDatabase database;
+	private DogStatementCache cache;
+	private DogService dogService;
+
+	private final AtomicInteger next = new AtomicInteger();
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception {
+		database = SeededDatabase.create("statement-cache-bench", rows);
+		cache = new DogStatementCache(statementCache);
+		dogService = TestDatabase.dogService(database.getDataSource(), new DogSearchIndex(database.getDataSource()),
+				new DogRoster(database.getDataSource()), cache, new SimpleMeterRegistry());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws Exception {
+		if (statementCache > 0) {
+			System.out.printf("%nStatement cache hit ratio: %.3f%n", cache.hitRatio());
+		}
+		database.close();
+	}
+
+	@Benchmark
+	public boolean prepare() throws SQLException {
+		String sql = STATEMENTS[Math.floorMod(next.getAndIncrement(), STATEMENTS.length)];
+		try (Connection conn = database.getDataSource().getConnection();
+		     PreparedStatement statement = cache.prepare(conn, sql)) {
+			return statement.isClosed();
+		}
+	}
+
+	@Benchmark
+	public DogDTO updateDog() {
+		int n = next.getAndIncrement();
+		int id = Math.floorMod(n, rows) + 1;
+
+		// A different combination of fields each time, which used to be a different statement each time
+		DogDTO changes = new DogDTO();
+		changes.setStatus(STATUSES[id % STATUSES.length]);
+		if ((n & 1) != 0) {
+			changes.setName("Renamed " + id);
+		}
+		if ((n & 2) != 0) {
+			changes.setKennelingCharacteristics("Updated kennel notes " + n);
+		}
+		if ((n & 4) != 0) {
+			changes.setSupplier("Supplier " + n % 50);
+		}
+		return dogService.updateDog(id, changes);
+	}
+
+	@Benchmark
+	public List<DogDTO> findDogs() {
+		return dogService.findDogs(QUERIES.get(Math.floorMod(next.getAndIncrement(), QUERIES.size())), null);
+	}
+
+	@Benchmark
+	public DogPage getAllDogsPage() {
+		return dogService.getAllDogsPage(null, null, 20);
+	}
+}
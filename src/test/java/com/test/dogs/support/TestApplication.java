@@ -0,0 +1,47 @@
+package com.test.dogs.support;
+
+import com.test.dogs.DogsApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.reactive.context.ReactiveWebApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Starts the full application on a random port against a fresh in-memory H2 database, migrated at startup,
+ * for benchmarks and load tests that drive the REST API over HTTP.
+ */
+public final class TestApplication {
+
+	private TestApplication() {
+	}
+
+	/**
+	 * @param extraArgs Additional --property=value arguments, which override the defaults.
+	 */
+	public static ConfigurableApplicationContext start(String databaseName, String... extraArgs) {
+		List<String> args = new ArrayList<>(Arrays.asList(
+				"--server.port=0",
+				"--spring.datasource.url=jdbc:h2:mem:" + databaseName + ";DB_CLOSE_DELAY=-1",
+				"--spring.datasource.password=",
+				"--spring.h2.console.enabled=false",
+				"--logging.level.root=WARN"));
+		args.addAll(Arrays.asList(extraArgs));
+
+		return new SpringApplicationBuilder(DogsApplication.class).run(args.toArray(new String[0]));
+	}
+
+	/**
+	 * @return The base URL of the Dogs API of a context started with start().
+	 */
+	public static String baseUrl(ConfigurableApplicationContext context) {
+		String port = context.getEnvironment().getProperty("local.server.port");
+		// The reactive profile serves the API under spring.webflux.base-path instead of the servlet context path
+		String contextPath = context instanceof ReactiveWebApplicationContext
+				? context.getEnvironment().getProperty("spring.webflux.base-path", "")
+				: context.getEnvironment().getProperty("server.servlet.context-path", "");
+		return "http://localhost:" + port + contextPath;
+	}
+}
@@ -0,0 +1,132 @@
+package com.test.dogs.support;
+
+import com.test.dogs.api.rest.service.DogBatchChangedEvent;
+import com.test.dogs.api.rest.service.DogCache;
+import com.test.dogs.api.rest.service.DogChangedEvent;
+import com.test.dogs.api.rest.service.DogMetrics;
+import com.test.dogs.api.rest.service.DogRoster;
+import com.test.dogs.api.rest.service.DogSearchIndex;
+import com.test.dogs.api.rest.service.DogService;
+import com.test.dogs.api.rest.service.DogStatementCache;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.flywaydb.core.Flyway;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Duration;
+
+/**
+ * Creates real H2 databases with the DOGS schema for tests and benchmarks that need more than mocks.
+ */
+public final class TestDatabase {
+
+	private static final String SEED_SQL =
+			"INSERT INTO DOGS (NAME, BREED, SUPPLIER, BADGEID, GENDER, BIRTHDATE, DATEACQUIRED, STATUS, KENNELINGCHARACTERISTICS) " +
+			"SELECT 'Dog ' || X, " +
+			"CASE MOD(X, 5) WHEN 0 THEN 'Labrador' WHEN 1 THEN 'German Shepherd' WHEN 2 THEN 'Springer Spaniel' " +
+			"WHEN 3 THEN 'Belgian Malinois' ELSE 'Golden Retriever' END, " +
+			"'Supplier ' || MOD(X, 50), X, CASE MOD(X, 2) WHEN 0 THEN 'Male' ELSE 'Female' END, " +
+			"DATEADD(DAY, -MOD(X, 3000) - 400, DATE '2025-01-01'), DATEADD(DAY, -MOD(X, 3000), DATE '2025-01-01'), " +
+			"CASE MOD(X, 4) WHEN 0 THEN 'in training' WHEN 1 THEN 'in service' WHEN 2 THEN 'retired' ELSE 'left' END, " +
+			"'Kennel notes for dog ' || X " +
+			"FROM SYSTEM_RANGE(?, ?)";
+
+	private static final int SEED_CHUNK = 50_000;
+
+	private TestDatabase() {
+	}
+
+	/**
+	 * Opens a small connection pool on the given H2 URL and brings the schema up to date with the
+	 * application's migrations.
+	 */
+	public static HikariDataSource create(String url) {
+		return create(url, 10);
+	}
+
+	/**
+	 * Opens a pool of at most the given number of connections on the given H2 URL, with the schema up to date.
+	 */
+	public static HikariDataSource create(String url, int maximumPoolSize) {
+		HikariConfig config = new HikariConfig();
+		config.setJdbcUrl(url);
+		config.setUsername("sa");
+		config.setPassword("");
+		config.setMaximumPoolSize(maximumPoolSize);
+
+		HikariDataSource dataSource = new HikariDataSource(config);
+		// Flyway opens its own connections, so the migration runs even on a one-connection pool
+		Flyway.configure().dataSource(url, "sa", "").load().migrate();
+		return dataSource;
+	}
+
+	/**
+	 * Creates a DogService on the given database with its in-process collaborators, wired to each other
+	 * through DogChangedEvents and DogBatchChangedEvents the same way the application context does.
+	 * The search index and the roster are left unloaded, so reads run as SQL unless the caller rebuilds them.
+	 */
+	public static DogService dogService(DataSource dataSource) {
+		return dogService(dataSource, new DogSearchIndex(dataSource));
+	}
+
+	/**
+	 * Creates a DogService that uses the given search index, e.g. one the caller has already loaded.
+	 */
+	public static DogService dogService(DataSource dataSource, DogSearchIndex searchIndex) {
+		return dogService(dataSource, searchIndex, new SimpleMeterRegistry());
+	}
+
+	/**
+	 * Creates a DogService that records its metrics in the given registry.
+	 */
+	public static DogService dogService(DataSource dataSource, DogSearchIndex searchIndex, MeterRegistry registry) {
+		return dogService(dataSource, searchIndex, new DogRoster(dataSource), registry);
+	}
+
+	/**
+	 * Creates a DogService that reads from the given roster once the caller has loaded it.
+	 */
+	public static DogService dogService(DataSource dataSource, DogSearchIndex searchIndex, DogRoster roster, MeterRegistry registry) {
+		return dogService(dataSource, searchIndex, roster, new DogStatementCache(64), registry);
+	}
+
+	/**
+	 * Creates a DogService that prepares its statements through the given statement cache.
+	 */
+	public static DogService dogService(DataSource dataSource, DogSearchIndex searchIndex, DogRoster roster,
+	                                    DogStatementCache statementCache, MeterRegistry registry) {
+		DogCache dogCache = new DogCache(10_000, Duration.ofMinutes(5));
+		return new DogService(dataSource, searchIndex, roster, dogCache, statementCache, event -> {
+			if (event instanceof DogChangedEvent changed) {
+				searchIndex.onDogChanged(changed);
+				roster.onDogChanged(changed);
+				dogCache.onDogChanged(changed);
+			} else if (event instanceof DogBatchChangedEvent batch) {
+				searchIndex.onDogsChanged(batch);
+				roster.onDogsChanged(batch);
+				dogCache.onDogsChanged(batch);
+			}
+		}, new DogMetrics(registry));
+	}
+
+	/**
+	 * Inserts generated dogs with badge IDs firstBadge .. firstBadge + count - 1, committing in chunks so
+	 * that large seeds do not build one huge transaction.
+	 */
+	public static void seed(DataSource dataSource, int firstBadge, int count) throws SQLException {
+		try (Connection conn = dataSource.getConnection();
+		     PreparedStatement statement = conn.prepareStatement(SEED_SQL)) {
+			int last = firstBadge + count - 1;
+			for (int from = firstBadge; from <= last; from += SEED_CHUNK) {
+				statement.setLong(1, from);
+				statement.setLong(2, Math.min(from + SEED_CHUNK - 1, last));
+				statement.executeUpdate();
+			}
+		}
+	}
+}